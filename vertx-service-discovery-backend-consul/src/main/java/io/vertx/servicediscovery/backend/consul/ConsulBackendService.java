@@ -34,6 +34,7 @@ import io.vertx.ext.consul.ServiceList;
 import io.vertx.ext.consul.ServiceOptions;
 import io.vertx.ext.consul.ServiceQueryOptions;
 import io.vertx.servicediscovery.Record;
+import io.vertx.servicediscovery.RecordFilter;
 import io.vertx.servicediscovery.Status;
 import io.vertx.servicediscovery.impl.ServiceTypes;
 import io.vertx.servicediscovery.spi.ServiceDiscoveryBackend;
@@ -43,6 +44,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.UUID;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 
@@ -74,6 +76,36 @@ public class ConsulBackendService implements ServiceDiscoveryBackend {
     registration.future().map(record).onComplete(resultHandler);
   }
 
+  /**
+   * Stores the record, with a TTL check attached to the service. The service turns critical, so the record
+   * {@link Status#DOWN}, if the check is not renewed in time, and is deregistered by Consul one minute later at least.
+   */
+  @Override
+  public void store(Record record, long ttl, Handler<AsyncResult<Record>> resultHandler) {
+    Promise<Record> stored = Promise.promise();
+    store(record, stored);
+    stored.future()
+      .compose(r -> client.registerCheck(new CheckOptions()
+        .setId(leaseCheckId(r.getRegistration()))
+        .setName("lease")
+        .setServiceId(r.getRegistration())
+        .setStatus(CheckStatus.PASSING)
+        .setTtl(ttl + "ms")
+        // Consul does not deregister services critical for less than a minute.
+        .setDeregisterAfter(Math.max(ttl, 60_000) + "ms")))
+      .map(record)
+      .onComplete(resultHandler);
+  }
+
+  @Override
+  public void renew(String uuid, long ttl, Handler<AsyncResult<Void>> resultHandler) {
+    client.passCheck(leaseCheckId(uuid)).onComplete(resultHandler);
+  }
+
+  private static String leaseCheckId(String uuid) {
+    return "lease:" + uuid;
+  }
+
   @Override
   public void remove(Record record, Handler<AsyncResult<Record>> resultHandler) {
     Objects.requireNonNull(record.getRegistration(), "No registration id in the record");
@@ -102,13 +134,40 @@ public class ConsulBackendService implements ServiceDiscoveryBackend {
 
   @Override
   public void getRecords(Handler<AsyncResult<List<Record>>> resultHandler) {
+    getServiceRecords(s -> true).onComplete(resultHandler);
+  }
+
+  @Override
+  public void getRecords(JsonObject filter, boolean includeOutOfService, int limit,
+                         Handler<AsyncResult<List<Record>>> resultHandler) {
+    RecordFilter accept = RecordFilter.compile(filter);
+    String name = accept.getName();
+    String type = accept.getType();
+    // The catalog lists the services with their tags, so the services that cannot match the name or the type are not
+    // queried. The record type is stored as a tag, unless it is unknown.
+    Predicate<Service> selection = s ->
+      (name == null || "*".equals(name) || name.equalsIgnoreCase(s.getName()))
+        && (type == null || "*".equals(type) || ServiceType.UNKNOWN.equalsIgnoreCase(type)
+        || s.getTags().stream().anyMatch(type::equalsIgnoreCase));
+    getServiceRecords(selection)
+      .map(records -> accept.select(records.stream(), includeOutOfService, limit))
+      .onComplete(resultHandler);
+  }
+
+  /**
+   * Gets the records of the services accepted by the given selection.
+   *
+   * @param selection the selection, evaluated on the services listed in the catalog
+   * @return a future notified with the records
+   */
+  private Future<List<Record>> getServiceRecords(Predicate<Service> selection) {
     Promise<ServiceList> nameList = Promise.promise();
     client.catalogServices().onComplete(nameList);
-    nameList.future().map(ServiceList::getList)
+    return nameList.future().map(ServiceList::getList)
       .map(l -> {
         List<Future<ServiceList>> recordFutureList = new ArrayList<>();
         l.forEach(s -> {
-          if (!"consul".equals(s.getName())) {
+          if (!"consul".equals(s.getName()) && selection.test(s)) {
             ServiceQueryOptions opt = new ServiceQueryOptions();
             if (!s.getTags().isEmpty()) {
               opt.setTag(s.getTags().get(0));
@@ -123,9 +182,7 @@ public class ConsulBackendService implements ServiceDiscoveryBackend {
       .compose(Future::all)
       .map(c -> c.<ServiceList>list().stream().flatMap(l -> l.getList().stream()).map(this::serviceToRecord).collect(Collectors.toList()))
       .compose(Future::all)
-      .map(c -> c.list().stream().map(o -> (Record) o).collect(Collectors.toList()))
-      .onComplete(resultHandler);
-
+      .map(c -> c.list().stream().map(o -> (Record) o).collect(Collectors.toList()));
   }
 
   @Override
@@ -141,6 +198,7 @@ public class ConsulBackendService implements ServiceDiscoveryBackend {
     recordList.future().map(l -> l.stream().filter(r -> uuid.equals(r.getRegistration())).findFirst().orElse(null)).onComplete(resultHandler);
   }
 
+  @Override
   public void close() {
     client.close();
   }
@@ -0,0 +1,326 @@
+/*
+ * Copyright (c) 2011-2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.servicediscovery.backend.file;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.internal.logging.Logger;
+import io.vertx.core.internal.logging.LoggerFactory;
+import io.vertx.core.json.JsonObject;
+import io.vertx.servicediscovery.Record;
+import io.vertx.servicediscovery.RecordFilter;
+import io.vertx.servicediscovery.spi.ServiceDiscoveryBackend;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * An implementation of the discovery backend storing the records in local files. The records survive the restarts of
+ * the application, without an external store.
+ * <p>
+ * The records are kept in memory, and the reads are served from there. The changes are appended to a log, by a
+ * worker, before being acknowledged. The changes submitted while the log is written are appended together, and forced
+ * to the storage device once, so the cost of the synchronous write is shared by the concurrent publications. The log
+ * is periodically compacted into a snapshot of the records.
+ * <p>
+ * The files must not be shared between several service discovery instances.
+ *
+ * @author <a href="http://escoffier.me">Clement Escoffier</a>
+ */
+public class FileBackendService implements ServiceDiscoveryBackend {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(FileBackendService.class.getName());
+
+  public static final String DEFAULT_PATH = "service-discovery";
+  public static final int DEFAULT_MAX_BATCH_SIZE = 1024;
+  public static final long DEFAULT_COMPACTION_INTERVAL = 60000;
+  public static final int DEFAULT_COMPACTION_THRESHOLD = 10000;
+
+  private final Map<String, String> records = new ConcurrentHashMap<>();
+  private final Queue<Operation> pending = new ConcurrentLinkedQueue<>();
+  private final AtomicBoolean flushing = new AtomicBoolean();
+  private final AtomicBoolean compactionRequested = new AtomicBoolean();
+
+  private Vertx vertx;
+  private RecordLog log;
+  private int maxBatchSize;
+  private int compactionThreshold;
+  private long timer = -1;
+  private volatile boolean closed;
+
+  @Override
+  public void init(Vertx vertx, JsonObject configuration) {
+    this.vertx = vertx;
+    Path path = Paths.get(configuration.getString("path", DEFAULT_PATH));
+    maxBatchSize = configuration.getInteger("maxBatchSize", DEFAULT_MAX_BATCH_SIZE);
+    compactionThreshold = configuration.getInteger("compactionThreshold", DEFAULT_COMPACTION_THRESHOLD);
+    long compactionInterval = configuration.getLong("compactionInterval", DEFAULT_COMPACTION_INTERVAL);
+    if (maxBatchSize < 1) {
+      throw new IllegalArgumentException("The maximum batch size must be positive");
+    }
+
+    log = new RecordLog(path, configuration.getBoolean("fsync", true));
+    try {
+      records.putAll(log.recover());
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to read the records from " + path.toAbsolutePath(), e);
+    }
+    if (compactionInterval > 0) {
+      timer = vertx.setPeriodic(compactionInterval, id -> {
+        compactionRequested.set(true);
+        schedule();
+      });
+    }
+  }
+
+  @Override
+  public void store(Record record, Handler<AsyncResult<Record>> resultHandler) {
+    if (record.getRegistration() != null) {
+      resultHandler.handle(Future.failedFuture("The record has already been registered"));
+      return;
+    }
+    String uuid = UUID.randomUUID().toString();
+    record.setRegistration(uuid);
+    submit(uuid, record.toJson().encode(), Objects::isNull, ar -> {
+      if (ar.succeeded()) {
+        resultHandler.handle(Future.succeededFuture(record));
+      } else {
+        resultHandler.handle(Future.failedFuture(ar.cause()));
+      }
+    });
+  }
+
+  @Override
+  public void remove(Record record, Handler<AsyncResult<Record>> resultHandler) {
+    Objects.requireNonNull(record.getRegistration(), "No registration id in the record");
+    remove(record.getRegistration(), resultHandler);
+  }
+
+  @Override
+  public void remove(String uuid, Handler<AsyncResult<Record>> resultHandler) {
+    Objects.requireNonNull(uuid, "No registration id in the record");
+    submit(uuid, null, Objects::nonNull, ar -> {
+      if (ar.succeeded()) {
+        resultHandler.handle(Future.succeededFuture(decode(ar.result())));
+      } else {
+        resultHandler.handle(Future.failedFuture(ar.cause()));
+      }
+    });
+  }
+
+  @Override
+  public void update(Record record, Handler<AsyncResult<Void>> resultHandler) {
+    Objects.requireNonNull(record.getRegistration(), "No registration id in the record");
+    submit(record.getRegistration(), record.toJson().encode(), current -> true, ar -> {
+      if (ar.succeeded()) {
+        resultHandler.handle(Future.succeededFuture());
+      } else {
+        resultHandler.handle(Future.failedFuture(ar.cause()));
+      }
+    });
+  }
+
+  @Override
+  public void getRecords(Handler<AsyncResult<List<Record>>> resultHandler) {
+    resultHandler.handle(Future.succeededFuture(records.values().stream()
+      .map(this::decode)
+      .collect(Collectors.toList())));
+  }
+
+  @Override
+  public void getRecords(JsonObject filter, boolean includeOutOfService, int limit,
+                         Handler<AsyncResult<List<Record>>> resultHandler) {
+    RecordFilter accept = RecordFilter.compile(filter);
+    String registration = accept.getRegistration();
+    Stream<String> candidates;
+    if (registration != null && !"*".equals(registration)) {
+      // Registration ids are lower case UUIDs, so a single entry needs to be read.
+      candidates = Stream.ofNullable(records.get(registration.toLowerCase(Locale.ROOT)));
+    } else {
+      candidates = records.values().stream();
+    }
+    resultHandler.handle(Future.succeededFuture(
+      accept.select(candidates.map(this::decode), includeOutOfService, limit)));
+  }
+
+  @Override
+  public void getRecord(String uuid, Handler<AsyncResult<Record>> resultHandler) {
+    String record = records.get(uuid);
+    resultHandler.handle(Future.succeededFuture(record == null ? null : decode(record)));
+  }
+
+  /**
+   * Closes the log once the batch being written, or the compaction in progress, completes. On an event loop, the log
+   * is closed on a worker, so the event loop does not wait for the writes.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    if (timer != -1) {
+      vertx.cancelTimer(timer);
+      timer = -1;
+    }
+    if (Context.isOnEventLoopThread()) {
+      vertx.<Void>executeBlocking(this::shutdown, false)
+        .onFailure(err -> LOGGER.warn("Unable to close the record log", err));
+    } else {
+      shutdown();
+    }
+  }
+
+  /**
+   * Closes the log, and fails the changes that have not been written.
+   */
+  private synchronized Void shutdown() {
+    try {
+      log.close();
+    } catch (IOException e) {
+      LOGGER.warn("Unable to close the record log", e);
+    }
+    Operation operation;
+    while ((operation = pending.poll()) != null) {
+      operation.complete(null, new IllegalStateException("The backend has been closed"));
+    }
+    return null;
+  }
+
+  private Record decode(String record) {
+    return new Record(new JsonObject(record));
+  }
+
+  /**
+   * Submits a change, appended to the log with the other pending changes.
+   *
+   * @param registration the registration id
+   * @param record       the encoded record, {@code null} to remove it
+   * @param expected     the condition on the current encoded record, {@code null} if absent, for the change to apply
+   * @param handler      the completion handler, receiving the previous record
+   */
+  private void submit(String registration, String record, Predicate<String> expected,
+                      Handler<AsyncResult<String>> handler) {
+    if (closed) {
+      handler.handle(Future.failedFuture("The backend has been closed"));
+      return;
+    }
+    pending.add(new Operation(vertx.getOrCreateContext(), registration, record, expected, handler));
+    schedule();
+  }
+
+  private void schedule() {
+    if ((!pending.isEmpty() || compactionRequested.get()) && flushing.compareAndSet(false, true)) {
+      vertx.<Void>executeBlocking(this::flush, false).onComplete(ar -> {
+        flushing.set(false);
+        // Handles the changes submitted while the last ones were written.
+        schedule();
+      });
+    }
+  }
+
+  /**
+   * Writes the next batch of changes, and compacts the log if needed. Called on a worker, one call at a time.
+   */
+  private synchronized Void flush() {
+    if (closed) {
+      return null;
+    }
+    List<Operation> batch = new ArrayList<>();
+    Map<String, String> changes = new LinkedHashMap<>();
+    Operation operation;
+    while (batch.size() < maxBatchSize && (operation = pending.poll()) != null) {
+      // The changes of the batch are not yet applied, but must be visible to the next ones.
+      String current = changes.containsKey(operation.registration)
+        ? changes.get(operation.registration) : records.get(operation.registration);
+      if (!operation.expected.test(current)) {
+        operation.complete(null, new IllegalStateException(current == null
+          ? "Record '" + operation.registration + "' not found"
+          : "The record '" + operation.registration + "' has already been registered"));
+        continue;
+      }
+      operation.previous = current;
+      changes.put(operation.registration, operation.record);
+      batch.add(operation);
+    }
+
+    if (!changes.isEmpty()) {
+      try {
+        log.append(changes);
+      } catch (IOException e) {
+        batch.forEach(op -> op.complete(null, e));
+        return null;
+      }
+      changes.forEach((registration, record) -> {
+        if (record == null) {
+          records.remove(registration);
+        } else {
+          records.put(registration, record);
+        }
+      });
+      batch.forEach(op -> op.complete(op.previous, null));
+    }
+
+    if (log.size() >= compactionThreshold || (compactionRequested.getAndSet(false) && log.size() > 0)) {
+      try {
+        log.compact(records);
+      } catch (IOException e) {
+        LOGGER.warn("Unable to compact the record log", e);
+      }
+    }
+    return null;
+  }
+
+  private static class Operation {
+
+    private final Context context;
+    private final String registration;
+    private final String record;
+    private final Predicate<String> expected;
+    private final Handler<AsyncResult<String>> handler;
+    private String previous;
+
+    private Operation(Context context, String registration, String record, Predicate<String> expected,
+                      Handler<AsyncResult<String>> handler) {
+      this.context = context;
+      this.registration = registration;
+      this.record = record;
+      this.expected = expected;
+      this.handler = handler;
+    }
+
+    private void complete(String result, Throwable failure) {
+      context.runOnContext(v -> handler.handle(failure == null
+        ? Future.succeededFuture(result) : Future.failedFuture(failure)));
+    }
+  }
+}
@@ -0,0 +1,362 @@
+/*
+ * Copyright (c) 2011-2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.servicediscovery.backend.file;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * The files storing the records of the {@link FileBackendService}: an append-only log of the changes, and a snapshot
+ * of the records, written when the log is compacted.
+ * <p>
+ * The log is split in generations: compacting the log starts a new generation, writes the snapshot of the records,
+ * which covers the previous generations, then deletes them. If the process stops while compacting, the previous
+ * snapshot and the logs it does not cover are still available.
+ * <p>
+ * Each log entry is prefixed by its length and checksum, so an entry partially written when the process stopped is
+ * detected and discarded on recovery. The snapshot is written to a temporary file, then moved atomically, and is read
+ * through a memory-mapped buffer. The directory is forced after the move, so the logs are only deleted once the new
+ * snapshot is durable.
+ * <p>
+ * This class is not thread-safe, the calls must be serialized.
+ *
+ * @author <a href="http://escoffier.me">Clement Escoffier</a>
+ */
+class RecordLog {
+
+  static final String SNAPSHOT = "snapshot.bin";
+  private static final String SNAPSHOT_TMP = SNAPSHOT + ".tmp";
+  private static final String LOG_PREFIX = "log-";
+  private static final String LOG_SUFFIX = ".log";
+
+  private static final int MAGIC = 0x56534453;
+  private static final int VERSION = 1;
+
+  private static final byte PUT = 1;
+  private static final byte REMOVE = 2;
+
+  private final Path directory;
+  private final boolean fsync;
+
+  private FileChannel log;
+  private long generation;
+  private int entries;
+
+  /**
+   * Creates the log, use {@link #recover()} to open it.
+   *
+   * @param directory the directory storing the files
+   * @param fsync     whether the writes are forced to the storage device before being acknowledged
+   */
+  RecordLog(Path directory, boolean fsync) {
+    this.directory = directory;
+    this.fsync = fsync;
+  }
+
+  /**
+   * Reads the snapshot and the log, and opens the log for writing.
+   *
+   * @return the records, encoded, keyed by registration id
+   * @throws IOException if the files cannot be read
+   */
+  Map<String, String> recover() throws IOException {
+    Files.createDirectories(directory);
+    Files.deleteIfExists(directory.resolve(SNAPSHOT_TMP));
+    Map<String, String> records = new HashMap<>();
+    long covered = readSnapshot(records);
+
+    TreeMap<Long, Path> logs = new TreeMap<>();
+    try (Stream<Path> files = Files.list(directory)) {
+      files.forEach(file -> {
+        long gen = generation(file);
+        if (gen >= 0) {
+          logs.put(gen, file);
+        }
+      });
+    }
+    generation = covered + 1;
+    for (Map.Entry<Long, Path> entry : logs.entrySet()) {
+      if (entry.getKey() <= covered) {
+        // Left by a compaction stopped before deleting the logs covered by the snapshot.
+        Files.delete(entry.getValue());
+      } else {
+        long valid = replay(entry.getValue(), records);
+        generation = entry.getKey();
+        if (entry.getKey().equals(logs.lastKey())) {
+          // Discards the entry partially written when the process stopped.
+          try (FileChannel channel = FileChannel.open(entry.getValue(), StandardOpenOption.WRITE)) {
+            channel.truncate(valid);
+          }
+        }
+      }
+    }
+    log = FileChannel.open(logFile(generation), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+      StandardOpenOption.APPEND);
+    if (fsync) {
+      // The log may have been created, its entries would be lost with it.
+      forceDirectory();
+    }
+    return records;
+  }
+
+  /**
+   * Appends a batch of changes to the log. When it returns, the changes are durable if the writes are forced.
+   *
+   * @param changes the changes, keyed by registration id, a {@code null} value for a removal
+   * @throws IOException if the changes cannot be written, the log then does not contain any of them
+   */
+  void append(Map<String, String> changes) throws IOException {
+    List<ByteBuffer> buffers = new ArrayList<>(changes.size());
+    for (Map.Entry<String, String> change : changes.entrySet()) {
+      buffers.add(entry(change.getKey(), change.getValue()));
+    }
+    long position = log.position();
+    try {
+      ByteBuffer[] array = buffers.toArray(new ByteBuffer[0]);
+      while (array[array.length - 1].hasRemaining()) {
+        log.write(array);
+      }
+      if (fsync) {
+        log.force(false);
+      }
+    } catch (IOException e) {
+      // The following entries must not be appended after a partial entry, they would be discarded on recovery.
+      try {
+        log.truncate(position);
+      } catch (IOException ignored) {
+        e.addSuppressed(ignored);
+      }
+      throw e;
+    }
+    entries += changes.size();
+  }
+
+  /**
+   * @return the number of entries appended since the last compaction
+   */
+  int size() {
+    return entries;
+  }
+
+  /**
+   * Compacts the log: writes the snapshot of the given records, and deletes the log entries it covers.
+   *
+   * @param records the records, encoded, keyed by registration id, including all the changes appended to the log
+   * @throws IOException if the snapshot cannot be written, the current files are then still valid
+   */
+  void compact(Map<String, String> records) throws IOException {
+    long next = generation + 1;
+    FileChannel nextLog = FileChannel.open(logFile(next), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+      StandardOpenOption.APPEND);
+    try {
+      writeSnapshot(records, generation);
+    } catch (IOException e) {
+      nextLog.close();
+      Files.deleteIfExists(logFile(next));
+      throw e;
+    }
+    log.close();
+    log = nextLog;
+    for (long gen = generation; gen > 0 && Files.deleteIfExists(logFile(gen)); gen--) {
+      // The older logs have been deleted by the previous compactions, unless the process stopped while deleting.
+    }
+    generation = next;
+    entries = 0;
+  }
+
+  /**
+   * Closes the log.
+   *
+   * @throws IOException if the log cannot be closed
+   */
+  void close() throws IOException {
+    if (log != null) {
+      log.close();
+      log = null;
+    }
+  }
+
+  private Path logFile(long gen) {
+    return directory.resolve(String.format("%s%016x%s", LOG_PREFIX, gen, LOG_SUFFIX));
+  }
+
+  private static long generation(Path file) {
+    String name = file.getFileName().toString();
+    if (!name.startsWith(LOG_PREFIX) || !name.endsWith(LOG_SUFFIX)) {
+      return -1;
+    }
+    try {
+      return Long.parseUnsignedLong(name.substring(LOG_PREFIX.length(), name.length() - LOG_SUFFIX.length()), 16);
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  /**
+   * Encodes a log entry: the length of the body, its checksum, and the body, made of the operation, the registration
+   * id and the record.
+   */
+  private static ByteBuffer entry(String registration, String record) {
+    byte[] key = registration.getBytes(StandardCharsets.UTF_8);
+    byte[] value = record == null ? null : record.getBytes(StandardCharsets.UTF_8);
+    int length = 1 + 4 + key.length + (value == null ? 0 : 4 + value.length);
+    ByteBuffer buffer = ByteBuffer.allocate(8 + length);
+    buffer.position(8);
+    buffer.put(value == null ? REMOVE : PUT);
+    buffer.putInt(key.length).put(key);
+    if (value != null) {
+      buffer.putInt(value.length).put(value);
+    }
+    buffer.putInt(0, length).putInt(4, checksum(buffer, 8, length));
+    return buffer.flip();
+  }
+
+  /**
+   * Applies the entries of a log to the records.
+   *
+   * @return the length of the valid entries, the following bytes belong to an entry partially written
+   */
+  private static long replay(Path file, Map<String, String> records) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      while (buffer.remaining() >= 8) {
+        int start = buffer.position();
+        int length = buffer.getInt();
+        int checksum = buffer.getInt();
+        if (length < 5 || length > buffer.remaining() || checksum(buffer, buffer.position(), length) != checksum) {
+          return start;
+        }
+        byte operation = buffer.get();
+        String registration = string(buffer);
+        if (operation == PUT) {
+          records.put(registration, string(buffer));
+        } else {
+          records.remove(registration);
+        }
+      }
+      return buffer.position();
+    }
+  }
+
+  /**
+   * Reads the snapshot, if any.
+   *
+   * @return the last log generation covered by the snapshot, {@code 0} if there is no snapshot
+   */
+  private long readSnapshot(Map<String, String> records) throws IOException {
+    Path file = directory.resolve(SNAPSHOT);
+    if (!Files.exists(file)) {
+      return 0;
+    }
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if (buffer.remaining() < 24 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+        throw new IOException("Invalid snapshot " + file);
+      }
+      int checksum = buffer.getInt(buffer.limit() - 4);
+      if (checksum(buffer, 0, buffer.limit() - 4) != checksum) {
+        throw new IOException("Corrupted snapshot " + file);
+      }
+      long covered = buffer.getLong();
+      int count = buffer.getInt();
+      for (int i = 0; i < count; i++) {
+        records.put(string(buffer), string(buffer));
+      }
+      return covered;
+    }
+  }
+
+  private void writeSnapshot(Map<String, String> records, long covered) throws IOException {
+    Path tmp = directory.resolve(SNAPSHOT_TMP);
+    try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+      StandardOpenOption.TRUNCATE_EXISTING)) {
+      CRC32 crc = new CRC32();
+      ByteBuffer header = ByteBuffer.allocate(20).putInt(MAGIC).putInt(VERSION).putLong(covered)
+        .putInt(records.size()).flip();
+      write(channel, header, crc);
+      ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+      for (Map.Entry<String, String> record : records.entrySet()) {
+        byte[] key = record.getKey().getBytes(StandardCharsets.UTF_8);
+        byte[] value = record.getValue().getBytes(StandardCharsets.UTF_8);
+        int length = 8 + key.length + value.length;
+        if (length > buffer.remaining()) {
+          write(channel, buffer.flip(), crc);
+          buffer = ByteBuffer.allocate(Math.max(buffer.capacity(), length));
+        }
+        buffer.putInt(key.length).put(key).putInt(value.length).put(value);
+      }
+      write(channel, buffer.flip(), crc);
+      ByteBuffer trailer = ByteBuffer.allocate(4).putInt((int) crc.getValue()).flip();
+      while (trailer.hasRemaining()) {
+        channel.write(trailer);
+      }
+      channel.force(true);
+    }
+    Files.move(tmp, directory.resolve(SNAPSHOT), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    // Also makes the next log durable, it has been created before.
+    forceDirectory();
+  }
+
+  /**
+   * Forces the entries of the directory to the storage device, so the files created or moved in it survive a crash.
+   * Some platforms cannot open a directory, the entries are then written when the file system decides to.
+   */
+  private void forceDirectory() throws IOException {
+    FileChannel channel;
+    try {
+      channel = FileChannel.open(directory, StandardOpenOption.READ);
+    } catch (IOException | UnsupportedOperationException e) {
+      return;
+    }
+    try (channel) {
+      channel.force(true);
+    }
+  }
+
+  private static void write(FileChannel channel, ByteBuffer buffer, CRC32 crc) throws IOException {
+    crc.update(buffer.duplicate());
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+
+  private static int checksum(ByteBuffer buffer, int offset, int length) {
+    CRC32 crc = new CRC32();
+    crc.update(buffer.duplicate().position(offset).limit(offset + length));
+    return (int) crc.getValue();
+  }
+
+  private static String string(ByteBuffer buffer) {
+    byte[] bytes = new byte[buffer.getInt()];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
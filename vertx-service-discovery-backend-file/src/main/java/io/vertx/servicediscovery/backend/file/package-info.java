@@ -0,0 +1,19 @@
+/*
+ * Copyright (c) 2011-2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to filetribute this code under either of these licenses.
+ */
+@ModuleGen(name = "vertx-service-discovery-backend-file", groupPackage = "io.vertx")
+package io.vertx.servicediscovery.backend.file;
+
+import io.vertx.codegen.annotations.ModuleGen;
@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2011-2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.servicediscovery.backend.file;
+
+import io.vertx.core.json.JsonObject;
+import io.vertx.servicediscovery.Record;
+import io.vertx.servicediscovery.Status;
+import io.vertx.servicediscovery.spi.ServiceDiscoveryBackend;
+import io.vertx.servicediscovery.spi.ServiceDiscoveryBackendTest;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.jayway.awaitility.Awaitility.await;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author <a href="http://escoffier.me">Clement Escoffier</a>
+ */
+public class FileBackendTest extends ServiceDiscoveryBackendTest {
+
+  private Path directory;
+
+  @Override
+  protected ServiceDiscoveryBackend createBackend() {
+    try {
+      directory = Files.createTempDirectory("service-discovery");
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return open(new JsonObject());
+  }
+
+  private FileBackendService open(JsonObject configuration) {
+    FileBackendService backend = new FileBackendService();
+    backend.init(vertx, configuration.copy().put("path", directory.toString()));
+    return backend;
+  }
+
+  private Record store(ServiceDiscoveryBackend backend, String name) {
+    AtomicReference<Record> reference = new AtomicReference<>();
+    backend.store(new Record().setName(name).setStatus(Status.UP), ar -> reference.set(ar.result()));
+    await().until(() -> reference.get() != null);
+    return reference.get();
+  }
+
+  private List<String> names(ServiceDiscoveryBackend backend) {
+    AtomicReference<List<Record>> reference = new AtomicReference<>();
+    backend.getRecords(ar -> reference.set(ar.result()));
+    await().until(() -> reference.get() != null);
+    return reference.get().stream().map(Record::getName).sorted().collect(Collectors.toList());
+  }
+
+  @Test
+  public void testRecordsSurviveRestart() {
+    store(backend, "a");
+    Record removed = store(backend, "b");
+    Record updated = store(backend, "c");
+
+    AtomicReference<Boolean> done = new AtomicReference<>();
+    backend.remove(removed.getRegistration(), ar -> done.set(ar.succeeded()));
+    await().until(() -> done.get() != null);
+    assertThat(done.get()).isTrue();
+    done.set(null);
+    backend.update(updated.setStatus(Status.OUT_OF_SERVICE), ar -> done.set(ar.succeeded()));
+    await().until(() -> done.get() != null);
+    assertThat(done.get()).isTrue();
+    backend.close();
+
+    FileBackendService reopened = open(new JsonObject());
+    assertThat(names(reopened)).containsExactly("a", "c");
+    AtomicReference<Record> reference = new AtomicReference<>();
+    reopened.getRecord(updated.getRegistration(), ar -> reference.set(ar.result()));
+    await().until(() -> reference.get() != null);
+    assertThat(reference.get().getStatus()).isEqualTo(Status.OUT_OF_SERVICE);
+    reopened.close();
+  }
+
+  @Test
+  public void testCompaction() throws IOException {
+    backend.close();
+    FileBackendService compacted = open(new JsonObject().put("compactionThreshold", 2));
+    for (int i = 0; i < 5; i++) {
+      store(compacted, "service-" + i);
+    }
+    compacted.close();
+
+    assertThat(Files.exists(directory.resolve(RecordLog.SNAPSHOT))).isTrue();
+    FileBackendService reopened = open(new JsonObject());
+    assertThat(names(reopened)).containsExactly("service-0", "service-1", "service-2", "service-3", "service-4");
+    reopened.close();
+  }
+
+  @Test
+  public void testCloseOnEventLoop() {
+    store(backend, "a");
+    AtomicBoolean closed = new AtomicBoolean();
+    vertx.runOnContext(v -> {
+      // Does not wait for the log on the event loop.
+      backend.close();
+      closed.set(true);
+    });
+    await().until(closed::get);
+
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+    backend.store(new Record().setName("b").setStatus(Status.UP), ar -> failure.set(ar.cause()));
+    await().until(() -> failure.get() != null);
+
+    FileBackendService reopened = open(new JsonObject());
+    assertThat(names(reopened)).containsExactly("a");
+    reopened.close();
+  }
+
+  @Test
+  public void testPartiallyWrittenEntryIsDiscarded() throws IOException {
+    store(backend, "a");
+    backend.close();
+
+    Path log;
+    try (Stream<Path> files = Files.list(directory)) {
+      log = files.filter(file -> file.toString().endsWith(".log")).findFirst().orElseThrow();
+    }
+    long size = Files.size(log);
+    try (FileChannel channel = FileChannel.open(log, StandardOpenOption.APPEND)) {
+      channel.write(ByteBuffer.wrap(new byte[]{0, 0, 1, 0, 42, 42}));
+    }
+
+    FileBackendService reopened = open(new JsonObject());
+    assertThat(names(reopened)).containsExactly("a");
+    assertThat(Files.size(log)).isEqualTo(size);
+    // The next entries are appended after the valid ones.
+    store(reopened, "b");
+    reopened.close();
+    FileBackendService again = open(new JsonObject());
+    assertThat(names(again)).containsExactly("a", "b");
+    again.close();
+  }
+}
@@ -20,15 +20,33 @@ import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
+import io.vertx.core.internal.logging.Logger;
+import io.vertx.core.internal.logging.LoggerFactory;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
+import io.vertx.core.streams.ReadStream;
 import io.vertx.redis.client.*;
 import io.vertx.servicediscovery.Record;
+import io.vertx.servicediscovery.RecordFilter;
+import io.vertx.servicediscovery.Status;
+import io.vertx.servicediscovery.spi.RecordStream;
 import io.vertx.servicediscovery.spi.ServiceDiscoveryBackend;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static io.vertx.redis.client.Request.cmd;
 import static io.vertx.redis.client.Command.*;
@@ -40,25 +58,171 @@ import static io.vertx.redis.client.Command.*;
  */
 public class RedisBackendService implements ServiceDiscoveryBackend {
 
+  private static final Logger LOGGER = LoggerFactory.getLogger(RedisBackendService.class.getName());
+
+  /**
+   * Lua functions maintaining the index sets of a record. The sets containing a record are listed, as a JSON array, in
+   * the hash {@code KEYS[2]}, so they can be updated without decoding the record.
+   */
+  private static final String INDEX_FUNCTIONS =
+    "local function unindex(id)\n" +
+      "  local sets = redis.call('HGET', KEYS[2], id)\n" +
+      "  if sets then\n" +
+      "    for _, set in ipairs(cjson.decode(sets)) do redis.call('SREM', set, id) end\n" +
+      "    redis.call('HDEL', KEYS[2], id)\n" +
+      "  end\n" +
+      "end\n" +
+      "local function index(id, sets)\n" +
+      "  unindex(id)\n" +
+      "  redis.call('HSET', KEYS[2], id, sets)\n" +
+      "  for _, set in ipairs(cjson.decode(sets)) do redis.call('SADD', set, id) end\n" +
+      "end\n";
+
+  /**
+   * Lua functions reading and setting the time-to-live of a hash field of {@code KEYS[1]}, in milliseconds. Writing a
+   * field clears its time-to-live, so the scripts set it in the same call. Hash field expiration is available since
+   * Redis 7.4: the errors of older servers are ignored, the records then never expire.
+   */
+  private static final String EXPIRY_FUNCTIONS =
+    "local function ttl(id)\n" +
+      "  local ttls = redis.pcall('HPTTL', KEYS[1], 'FIELDS', 1, id)\n" +
+      "  if type(ttls) == 'table' and type(ttls[1]) == 'number' and ttls[1] > 0 then return ttls[1] end\n" +
+      "  return 0\n" +
+      "end\n" +
+      "local function expire(id, ms)\n" +
+      "  if ms > 0 then redis.pcall('HPEXPIRE', KEYS[1], ms, 'FIELDS', 1, id) end\n" +
+      "end\n";
+
+  /**
+   * Lua script storing records, their index entries and their time-to-live atomically. The arguments are the
+   * time-to-live in milliseconds ({@code 0} for none), then triples of registration id, encoded record and index sets.
+   */
+  private static final Script STORE_SCRIPT = new Script(INDEX_FUNCTIONS + EXPIRY_FUNCTIONS +
+    "local lease = tonumber(ARGV[1])\n" +
+      "for i = 2, #ARGV, 3 do\n" +
+      "  redis.call('HSET', KEYS[1], ARGV[i], ARGV[i + 1])\n" +
+      "  index(ARGV[i], ARGV[i + 2])\n" +
+      "  expire(ARGV[i], lease)\n" +
+      "end\n" +
+      "return 0\n");
+
+  /**
+   * Lua script removing records atomically. The arguments are the registration ids. If one of the records does not
+   * exist, nothing is removed, and the (1-based) index of the first missing record is returned. Otherwise, the removed
+   * records are returned.
+   */
+  private static final Script REMOVE_SCRIPT = new Script(INDEX_FUNCTIONS +
+    "local removed = {}\n" +
+      "for i = 1, #ARGV do\n" +
+      "  removed[i] = redis.call('HGET', KEYS[1], ARGV[i])\n" +
+      "  if not removed[i] then return i end\n" +
+      "end\n" +
+      "for i = 1, #ARGV do\n" +
+      "  redis.call('HDEL', KEYS[1], ARGV[i])\n" +
+      "  unindex(ARGV[i])\n" +
+      "end\n" +
+      "return removed\n");
+
+  /**
+   * Lua script updating existing records atomically, so a record removed concurrently is not stored again. The
+   * arguments are triples of registration id, encoded record and index sets. If one of the records does not exist,
+   * nothing is updated, and the (1-based) index of the first missing record is returned. Otherwise, {@code 0} is
+   * returned. The records keep their remaining time-to-live.
+   */
+  private static final Script UPDATE_SCRIPT = new Script(INDEX_FUNCTIONS + EXPIRY_FUNCTIONS +
+    "for i = 1, #ARGV, 3 do\n" +
+      "  if redis.call('HEXISTS', KEYS[1], ARGV[i]) == 0 then return (i + 2) / 3 end\n" +
+      "end\n" +
+      "for i = 1, #ARGV, 3 do\n" +
+      "  local remaining = ttl(ARGV[i])\n" +
+      "  redis.call('HSET', KEYS[1], ARGV[i], ARGV[i + 1])\n" +
+      "  index(ARGV[i], ARGV[i + 2])\n" +
+      "  expire(ARGV[i], remaining)\n" +
+      "end\n" +
+      "return 0\n");
+
+  /**
+   * Lua script selecting the records present in all the given index sets. The arguments are the limit ({@code 0} for
+   * none) and the index sets. The records are not decoded. Nothing is returned if the registry has not been indexed
+   * yet ({@code KEYS[3]} is not set). The index entries of records that have expired are removed.
+   */
+  private static final Script LOOKUP_SCRIPT = new Script(INDEX_FUNCTIONS +
+    "if redis.call('EXISTS', KEYS[3]) == 0 then return false end\n" +
+      "local limit = tonumber(ARGV[1])\n" +
+      "local ids = redis.call('SINTER', unpack(ARGV, 2))\n" +
+      "local result = {}\n" +
+      "for i = 1, #ids do\n" +
+      "  local record = redis.call('HGET', KEYS[1], ids[i])\n" +
+      "  if record then\n" +
+      "    result[#result + 1] = record\n" +
+      "    if limit > 0 and #result >= limit then break end\n" +
+      "  else\n" +
+      "    unindex(ids[i])\n" +
+      "  end\n" +
+      "end\n" +
+      "return result\n");
+
+  /**
+   * Lua script indexing the records stored without index entries, by a previous version of the backend. The arguments
+   * are pairs of registration id and index sets. The records removed or indexed in the meantime are skipped.
+   */
+  private static final Script INDEX_SCRIPT = new Script(INDEX_FUNCTIONS +
+    "for i = 1, #ARGV, 2 do\n" +
+      "  if redis.call('HEXISTS', KEYS[1], ARGV[i]) == 1 and redis.call('HEXISTS', KEYS[2], ARGV[i]) == 0 then\n" +
+      "    index(ARGV[i], ARGV[i + 1])\n" +
+      "  end\n" +
+      "end\n" +
+      "return 0\n");
+
+  /**
+   * Sets the time-to-live of hash fields, available since Redis 7.4.
+   */
+  private static final Command HPEXPIRE = Command.create("hpexpire");
+
+  /**
+   * The record fields having index sets.
+   */
+  private static final Set<String> INDEXED_FIELDS = Set.of("name", "type", "status");
+
+  /**
+   * The number of records indexed by each call of the script indexing the records of a previous version.
+   */
+  private static final int INDEX_BATCH_SIZE = 256;
+
   private Redis redis;
   private String key;
+  private String indexes;
+  private String indexed;
 
   @Override
   public void init(Vertx vertx, JsonObject configuration) {
     key = configuration.getString("key", "records");
+    // The hash tag keeps the index keys in the slot of the records when Redis is clustered.
+    indexes = "{" + key + "}:indexes";
+    indexed = "{" + key + "}:indexed";
     redis = Redis.createClient(vertx, new RedisOptions(configuration));
+    indexExistingRecords().onFailure(err -> LOGGER.warn("Cannot index the records of " + key, err));
   }
 
   @Override
   public void store(Record record, Handler<AsyncResult<Record>> resultHandler) {
+    store(record, 0, resultHandler);
+  }
+
+  /**
+   * Stores the record, and sets the time-to-live of its hash field in the same script, so the record is never stored
+   * without expiration. Redis versions older than 7.4 do not support expiring hash fields, the record is then only
+   * withdrawn by the service discovery.
+   */
+  @Override
+  public void store(Record record, long ttl, Handler<AsyncResult<Record>> resultHandler) {
     if (record.getRegistration() != null) {
       resultHandler.handle(Future.failedFuture("The record has already been registered"));
       return;
     }
-    String uuid = UUID.randomUUID().toString();
-    record.setRegistration(uuid);
+    record.setRegistration(UUID.randomUUID().toString());
 
-    redis.send(cmd(HSET).arg(key).arg(uuid).arg(record.toJson().encode())).onComplete(ar -> {
+    eval(STORE_SCRIPT, writeArguments(Collections.singletonList(record), ttl)).onComplete(ar -> {
       if (ar.succeeded()) {
         resultHandler.handle(Future.succeededFuture(record));
       } else {
@@ -67,6 +231,38 @@ public class RedisBackendService implements ServiceDiscoveryBackend {
     });
   }
 
+  @Override
+  public void renew(String uuid, long ttl, Handler<AsyncResult<Void>> resultHandler) {
+    // Best effort, the expiration is not supported by all the servers.
+    redis.send(cmd(HPEXPIRE).arg(key).arg(ttl).arg("FIELDS").arg(1).arg(uuid))
+      .<Void>mapEmpty()
+      .otherwiseEmpty()
+      .onComplete(resultHandler);
+  }
+
+  @Override
+  public void storeAll(List<Record> records, Handler<AsyncResult<List<Record>>> resultHandler) {
+    if (records.stream().anyMatch(record -> record.getRegistration() != null)) {
+      resultHandler.handle(Future.failedFuture("The record has already been registered"));
+      return;
+    }
+    if (records.isEmpty()) {
+      resultHandler.handle(Future.succeededFuture(records));
+      return;
+    }
+    // A single script stores all the records and their index entries.
+    for (Record record : records) {
+      record.setRegistration(UUID.randomUUID().toString());
+    }
+    eval(STORE_SCRIPT, writeArguments(records, 0)).onComplete(ar -> {
+      if (ar.succeeded()) {
+        resultHandler.handle(Future.succeededFuture(records));
+      } else {
+        resultHandler.handle(Future.failedFuture(ar.cause()));
+      }
+    });
+  }
+
   @Override
   public void remove(Record record, Handler<AsyncResult<Record>> resultHandler) {
     Objects.requireNonNull(record.getRegistration(), "No registration id in the record");
@@ -76,52 +272,320 @@ public class RedisBackendService implements ServiceDiscoveryBackend {
   @Override
   public void remove(String uuid, Handler<AsyncResult<Record>> resultHandler) {
     Objects.requireNonNull(uuid, "No registration id in the record");
-
-    redis.send(cmd(HGET).arg(key).arg(uuid)).onComplete(ar -> {
+    removeRecords(Collections.singletonList(uuid)).onComplete(ar -> {
       if (ar.succeeded()) {
-        if (ar.result() != null) {
-          redis.send(cmd(HDEL).arg(key).arg(uuid)).onComplete(deletion -> {
-            if (deletion.succeeded()) {
-              resultHandler.handle(Future.succeededFuture(new Record(new JsonObject(ar.result().toBuffer()))));
-            } else {
-              resultHandler.handle(Future.failedFuture(deletion.cause()));
-            }
-          });
-        } else {
-          resultHandler.handle(Future.failedFuture("Record '" + uuid + "' not found"));
-        }
+        resultHandler.handle(Future.succeededFuture(ar.result().get(0)));
       } else {
         resultHandler.handle(Future.failedFuture(ar.cause()));
       }
     });
   }
 
+  @Override
+  public void removeAll(List<String> uuids, Handler<AsyncResult<List<Record>>> resultHandler) {
+    uuids.forEach(uuid -> Objects.requireNonNull(uuid, "No registration id in the record"));
+    if (uuids.isEmpty()) {
+      resultHandler.handle(Future.succeededFuture(new ArrayList<>()));
+      return;
+    }
+
+    removeRecords(uuids).onComplete(resultHandler);
+  }
+
+  /**
+   * Removes records in a single round trip. The records are read and deleted atomically by a script, so a record is
+   * never returned by two concurrent removals.
+   */
+  private Future<List<Record>> removeRecords(List<String> uuids) {
+    return eval(REMOVE_SCRIPT, uuids).compose(response -> {
+      if (response.type() == ResponseType.NUMBER) {
+        return Future.failedFuture("Record '" + uuids.get(response.toInteger() - 1) + "' not found");
+      }
+      List<Record> records = new ArrayList<>(response.size());
+      for (Response entry : response) {
+        records.add(new Record(new JsonObject(entry.toBuffer())));
+      }
+      return Future.succeededFuture(records);
+    });
+  }
+
   @Override
   public void update(Record record, Handler<AsyncResult<Void>> resultHandler) {
     Objects.requireNonNull(record.getRegistration(), "No registration id in the record");
-    redis.send(cmd(HSET).arg(key).arg(record.getRegistration()).arg(record.toJson().encode())).onComplete(ar -> {
-      if (ar.succeeded()) {
-        resultHandler.handle(Future.succeededFuture());
-      } else {
-        resultHandler.handle(Future.failedFuture(ar.cause()));
+    updateRecords(Collections.singletonList(record)).onComplete(resultHandler);
+  }
+
+  @Override
+  public void updateAll(List<Record> records, Handler<AsyncResult<Void>> resultHandler) {
+    records.forEach(record -> Objects.requireNonNull(record.getRegistration(), "No registration id in the record"));
+    if (records.isEmpty()) {
+      resultHandler.handle(Future.succeededFuture());
+      return;
+    }
+    updateRecords(records).onComplete(resultHandler);
+  }
+
+  /**
+   * Updates existing records in a single round trip. The existence check and the write are done atomically by a
+   * script, so a record removed concurrently is not stored again.
+   */
+  private Future<Void> updateRecords(List<Record> records) {
+    return eval(UPDATE_SCRIPT, writeArguments(records)).compose(response -> {
+      int missing = response.toInteger();
+      if (missing > 0) {
+        return Future.failedFuture("Record '" + records.get(missing - 1).getRegistration() + "' not found");
+      }
+      return Future.succeededFuture();
+    });
+  }
+
+  /**
+   * Computes the arguments of the script storing records: the time-to-live, then the registration id, the encoded
+   * record and its index sets of each record.
+   */
+  private List<String> writeArguments(List<Record> records, long ttl) {
+    List<String> args = new ArrayList<>(records.size() * 3 + 1);
+    args.add(Long.toString(ttl));
+    args.addAll(writeArguments(records));
+    return args;
+  }
+
+  /**
+   * Computes the arguments of the scripts writing records: the registration id, the encoded record and its index sets
+   * of each record.
+   */
+  private List<String> writeArguments(List<Record> records) {
+    List<String> args = new ArrayList<>(records.size() * 3);
+    for (Record record : records) {
+      args.add(record.getRegistration());
+      args.add(record.toJson().encode());
+      args.add(indexSets(record).encode());
+    }
+    return args;
+  }
+
+  /**
+   * Computes the index sets containing a record: one for each of its name, type and status.
+   */
+  private JsonArray indexSets(Record record) {
+    JsonArray sets = new JsonArray();
+    if (record.getName() != null) {
+      sets.add(indexSet("name", record.getName()));
+    }
+    if (record.getType() != null) {
+      sets.add(indexSet("type", record.getType()));
+    }
+    if (record.getStatus() != null) {
+      sets.add(indexSet("status", record.getStatus().name()));
+    }
+    return sets;
+  }
+
+  /**
+   * Computes the key of the set indexing the records with the given value of a field. The value is folded the way
+   * {@link String#equalsIgnoreCase(String)} compares characters, so two values match if and only if they have the
+   * same index set.
+   */
+  private String indexSet(String field, String value) {
+    StringBuilder set = new StringBuilder(key.length() + field.length() + value.length() + 4)
+      .append('{').append(key).append("}:").append(field).append(':');
+    for (int i = 0; i < value.length(); i++) {
+      set.append(Character.toLowerCase(Character.toUpperCase(value.charAt(i))));
+    }
+    return set.toString();
+  }
+
+  /**
+   * Indexes the records stored by a previous version of the backend, without index entries. The lookups read the
+   * whole hash until the indexing has completed, which is recorded in the {@link #indexed} key.
+   */
+  private Future<Void> indexExistingRecords() {
+    return redis.send(cmd(EXISTS).arg(indexed)).compose(exists -> {
+      if (exists.toInteger() > 0) {
+        return Future.succeededFuture();
       }
+      return redis.send(cmd(HGETALL).arg(key)).compose(entries -> {
+        List<String> args = new ArrayList<>();
+        for (String uuid : entries.getKeys()) {
+          args.add(uuid);
+          args.add(indexSets(new Record(new JsonObject(entries.get(uuid).toBuffer()))).encode());
+        }
+        return indexBatches(args, 0);
+      }).compose(v -> redis.send(cmd(SET).arg(indexed).arg(1))).mapEmpty();
     });
   }
 
+  private Future<Void> indexBatches(List<String> args, int from) {
+    if (from >= args.size()) {
+      return Future.succeededFuture();
+    }
+    int to = Math.min(args.size(), from + INDEX_BATCH_SIZE * 2);
+    return eval(INDEX_SCRIPT, args.subList(from, to)).compose(v -> indexBatches(args, to));
+  }
+
   @Override
   public void getRecords(Handler<AsyncResult<List<Record>>> resultHandler) {
-    redis.send(cmd(HGETALL).arg(key)).onComplete(ar -> {
+    readAll().onComplete(resultHandler);
+  }
+
+  @Override
+  public void getRecords(JsonObject filter, boolean includeOutOfService, int limit,
+                         Handler<AsyncResult<List<Record>>> resultHandler) {
+    RecordFilter accept = RecordFilter.compile(filter);
+    String registration = accept.getRegistration();
+    if (registration != null && !"*".equals(registration)) {
+      // Registration ids are lower case UUIDs, so a single entry needs to be read.
+      getRecord(registration.toLowerCase(Locale.ROOT), ar -> {
+        if (ar.succeeded()) {
+          resultHandler.handle(Future.succeededFuture(
+            accept.select(Stream.ofNullable(ar.result()), includeOutOfService, limit)));
+        } else {
+          resultHandler.handle(Future.failedFuture(ar.cause()));
+        }
+      });
+      return;
+    }
+
+    List<String> sets = indexSets(filter, includeOutOfService);
+    Future<List<Record>> candidates;
+    if (sets.isEmpty()) {
+      // No constraint can be evaluated with the indexes, the hash is read in a single round trip.
+      candidates = readAll();
+    } else {
+      // The limit is applied by the script when the index sets cover the whole filter.
+      List<String> args = new ArrayList<>(sets.size() + 1);
+      args.add(Integer.toString(coveredByIndexes(filter) ? Math.max(limit, 0) : 0));
+      args.addAll(sets);
+      candidates = eval(LOOKUP_SCRIPT, args).compose(response -> {
+        if (response == null) {
+          // The records of a previous version are still being indexed.
+          return readAll();
+        }
+        List<Record> records = new ArrayList<>(response.size());
+        for (Response entry : response) {
+          records.add(new Record(new JsonObject(entry.toBuffer())));
+        }
+        return Future.succeededFuture(records);
+      });
+    }
+    candidates.onComplete(ar -> {
       if (ar.succeeded()) {
-        Response entries = ar.result();
-        resultHandler.handle(Future.succeededFuture(entries.getKeys().stream()
-          .map(key -> new Record(new JsonObject(entries.get(key).toBuffer())))
-          .collect(Collectors.toList())));
+        resultHandler.handle(Future.succeededFuture(accept.select(ar.result().stream(), includeOutOfService, limit)));
       } else {
         resultHandler.handle(Future.failedFuture(ar.cause()));
       }
     });
   }
 
+  /**
+   * Computes the index sets to intersect to find the records matching a filter: one for each of the name, type and
+   * status constraints without wildcard, and the set of the {@code UP} records when the other ones are excluded.
+   */
+  private List<String> indexSets(JsonObject filter, boolean includeOutOfService) {
+    Set<String> sets = new LinkedHashSet<>();
+    if (filter != null) {
+      for (String field : INDEXED_FIELDS) {
+        Object value = filter.getValue(field);
+        if (value instanceof String && !"*".equals(value)) {
+          sets.add(indexSet(field, (String) value));
+        }
+      }
+    }
+    if (!includeOutOfService) {
+      sets.add(indexSet("status", Status.UP.name()));
+    }
+    return new ArrayList<>(sets);
+  }
+
+  /**
+   * Checks whether the index sets select exactly the records matching the filter.
+   */
+  private static boolean coveredByIndexes(JsonObject filter) {
+    if (filter == null) {
+      return true;
+    }
+    for (String field : filter.fieldNames()) {
+      Object value = filter.getValue(field);
+      if (!INDEXED_FIELDS.contains(field) || !(value instanceof String) || "*".equals(value)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private Future<List<Record>> readAll() {
+    return redis.send(cmd(HGETALL).arg(key)).map(entries -> entries.getKeys().stream()
+      .map(uuid -> new Record(new JsonObject(entries.get(uuid).toBuffer())))
+      .collect(Collectors.toList()));
+  }
+
+  @Override
+  public ReadStream<Record> streamRecords(JsonObject filter, boolean includeOutOfService) {
+    String registration = RecordFilter.compile(filter).getRegistration();
+    if (registration != null && !"*".equals(registration)) {
+      return ServiceDiscoveryBackend.super.streamRecords(filter, includeOutOfService);
+    }
+
+    // The hash is iterated with HSCAN, each page being read when the stream requests it.
+    AtomicReference<String> cursor = new AtomicReference<>("0");
+    Set<String> seen = new HashSet<>();
+    return new RecordStream(filter, includeOutOfService, () -> {
+      if (cursor.get() == null) {
+        return Future.succeededFuture();
+      }
+      return nextPage(cursor, seen);
+    });
+  }
+
+  /**
+   * Reads the next page of the hash with {@code HSCAN}. The cursor is set to {@code null} once the last page has been
+   * read.
+   *
+   * @param cursor the cursor, {@code "0"} to start the iteration
+   * @param seen   the registration ids already read, as {@code HSCAN} may return an entry more than once
+   * @return the records of the page not read before
+   */
+  private Future<List<Record>> nextPage(AtomicReference<String> cursor, Set<String> seen) {
+    return redis.send(cmd(HSCAN).arg(key).arg(cursor.get()).arg("COUNT").arg(RecordStream.PAGE_SIZE))
+      .map(response -> {
+        String next = response.get(0).toString();
+        cursor.set("0".equals(next) ? null : next);
+        Response entries = response.get(1);
+        List<Record> page = new ArrayList<>();
+        for (int i = 0; i + 1 < entries.size(); i += 2) {
+          if (seen.add(entries.get(i).toString())) {
+            page.add(new Record(new JsonObject(entries.get(i + 1).toBuffer())));
+          }
+        }
+        return page;
+      });
+  }
+
+  /**
+   * Runs a script with {@code EVALSHA}, so only its digest is sent. When the script is not in the cache of the server,
+   * for instance after a restart, it is run with {@code EVAL}, which also adds it to the cache.
+   */
+  private Future<Response> eval(Script script, List<String> args) {
+    Request request = cmd(EVALSHA).arg(script.sha).arg(3).arg(key).arg(indexes).arg(indexed);
+    args.forEach(request::arg);
+    return redis.send(request).recover(err -> {
+      if (err.getMessage() == null || !err.getMessage().startsWith("NOSCRIPT")) {
+        return Future.failedFuture(err);
+      }
+      Request eval = cmd(EVAL).arg(script.source).arg(3).arg(key).arg(indexes).arg(indexed);
+      args.forEach(eval::arg);
+      return redis.send(eval);
+    });
+  }
+
+  /**
+   * Closes the connections of the client. The records, and their time-to-live, are kept on the server.
+   */
+  @Override
+  public void close() {
+    redis.close();
+  }
+
   @Override
   public void getRecord(String uuid, Handler<AsyncResult<Record>> resultHandler) {
     redis.send(cmd(HGET).arg(key).arg(uuid)).onComplete(ar -> {
@@ -136,4 +600,27 @@ public class RedisBackendService implements ServiceDiscoveryBackend {
       }
     });
   }
+
+  /**
+   * A Lua script and its SHA-1 digest, identifying it in the script cache of the server.
+   */
+  private static final class Script {
+
+    private final String source;
+    private final String sha;
+
+    private Script(String source) {
+      this.source = source;
+      try {
+        byte[] digest = MessageDigest.getInstance("SHA-1").digest(source.getBytes(StandardCharsets.UTF_8));
+        StringBuilder hex = new StringBuilder(digest.length * 2);
+        for (byte b : digest) {
+          hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        this.sha = hex.toString();
+      } catch (NoSuchAlgorithmException e) {
+        throw new IllegalStateException("SHA-1 is not available", e);
+      }
+    }
+  }
 }
@@ -17,12 +17,31 @@
 package io.vertx.servicediscovery.backend.redis;
 
 import io.vertx.core.json.JsonObject;
+import io.vertx.redis.client.Command;
+import io.vertx.redis.client.Redis;
+import io.vertx.redis.client.RedisOptions;
+import io.vertx.redis.client.Request;
+import io.vertx.servicediscovery.Record;
+import io.vertx.servicediscovery.Status;
 import io.vertx.servicediscovery.spi.ServiceDiscoveryBackend;
 import io.vertx.servicediscovery.spi.ServiceDiscoveryBackendTest;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
+import org.junit.Test;
 import redis.embedded.RedisServer;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.jayway.awaitility.Awaitility.await;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.core.Is.is;
+
 /**
  * @author <a href="http://escoffier.me">Clement Escoffier</a>
  */
@@ -51,4 +70,213 @@ public class RedisBackendTest extends ServiceDiscoveryBackendTest {
     return backend;
   }
 
-}
\ No newline at end of file
+  private Record store(String name) {
+    AtomicReference<Record> reference = new AtomicReference<>();
+    backend.store(new Record().setName(name).setStatus(Status.UP), ar -> reference.set(ar.result()));
+    await().until(() -> reference.get() != null);
+    return reference.get();
+  }
+
+  @Test
+  public void testConcurrentRemovals() {
+    Record record = store("my-service");
+
+    List<Record> removed = new CopyOnWriteArrayList<>();
+    List<Throwable> failures = new CopyOnWriteArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      backend.remove(record.getRegistration(), ar -> {
+        if (ar.succeeded()) {
+          removed.add(ar.result());
+        } else {
+          failures.add(ar.cause());
+        }
+      });
+    }
+    await().until(() -> removed.size() + failures.size() == 10);
+    assertThat(removed).hasSize(1);
+    assertThat(removed.get(0).getName()).isEqualTo("my-service");
+    assertThat(failures).extracting("message").containsOnly("Record '" + record.getRegistration() + "' not found");
+  }
+
+  @Test
+  public void testStoreWithTimeToLive() {
+    // The server may not support expiring hash fields, the record is stored nonetheless.
+    AtomicReference<Record> stored = new AtomicReference<>();
+    backend.store(new Record().setName("leased").setStatus(Status.UP), 60000, ar -> stored.set(ar.result()));
+    await().until(() -> stored.get() != null);
+
+    AtomicBoolean updated = new AtomicBoolean();
+    backend.update(stored.get().setStatus(Status.OUT_OF_SERVICE), ar -> updated.set(ar.succeeded()));
+    await().untilAtomic(updated, is(true));
+
+    AtomicReference<Record> read = new AtomicReference<>();
+    backend.getRecord(stored.get().getRegistration(), ar -> read.set(ar.result()));
+    await().until(() -> read.get() != null);
+    assertThat(read.get().getStatus()).isEqualTo(Status.OUT_OF_SERVICE);
+  }
+
+  @Test
+  public void testUpdateOfRemovedRecord() {
+    Record record = store("my-service");
+    AtomicBoolean completed = new AtomicBoolean();
+    backend.remove(record.getRegistration(), ar -> completed.set(ar.succeeded()));
+    await().untilAtomic(completed, is(true));
+
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+    backend.update(record.setStatus(Status.OUT_OF_SERVICE), ar -> failure.set(ar.cause()));
+    await().until(() -> failure.get() != null);
+
+    AtomicBoolean absent = new AtomicBoolean();
+    backend.getRecord(record.getRegistration(), ar -> absent.set(ar.succeeded() && ar.result() == null));
+    await().untilAtomic(absent, is(true));
+  }
+
+  @Test
+  public void testScriptsReloadedAfterFlush() {
+    Record first = store("first");
+    Record second = store("second");
+    AtomicBoolean completed = new AtomicBoolean();
+    backend.remove(first.getRegistration(), ar -> completed.set(ar.succeeded()));
+    await().untilAtomic(completed, is(true));
+
+    Redis client = Redis.createClient(vertx, new RedisOptions());
+    AtomicBoolean flushed = new AtomicBoolean();
+    client.send(Request.cmd(Command.SCRIPT).arg("FLUSH")).onComplete(ar -> flushed.set(ar.succeeded()));
+    await().untilAtomic(flushed, is(true));
+    client.close();
+
+    completed.set(false);
+    backend.remove(second.getRegistration(), ar -> completed.set(ar.succeeded()));
+    await().untilAtomic(completed, is(true));
+  }
+
+  @Test
+  public void testLargeStoreAll() {
+    List<Record> records = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      records.add(new Record().setName("batch-" + i).setStatus(Status.UP));
+    }
+    AtomicReference<List<Record>> stored = new AtomicReference<>();
+    backend.storeAll(records, ar -> stored.set(ar.result()));
+    await().until(() -> stored.get() != null);
+    assertThat(stored.get()).hasSize(1000).extracting("registration").doesNotContainNull();
+
+    AtomicReference<Record> last = new AtomicReference<>();
+    backend.getRecord(records.get(999).getRegistration(), ar -> last.set(ar.result()));
+    await().until(() -> last.get() != null);
+    assertThat(last.get().getName()).isEqualTo("batch-999");
+  }
+
+  @Test
+  public void testRemoveAllWithUnknownRegistration() {
+    Record first = store("first");
+    Record second = store("second");
+
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+    backend.removeAll(Arrays.asList(first.getRegistration(), "unknown", second.getRegistration()),
+      ar -> failure.set(ar.cause()));
+    await().until(() -> failure.get() != null);
+    assertThat(failure.get()).hasMessage("Record 'unknown' not found");
+
+    // Nothing has been removed.
+    assertPresent(first);
+    assertPresent(second);
+
+    AtomicReference<List<Record>> removed = new AtomicReference<>();
+    backend.removeAll(Arrays.asList(second.getRegistration(), first.getRegistration()), ar -> removed.set(ar.result()));
+    await().until(() -> removed.get() != null);
+    assertThat(removed.get()).extracting("name").containsExactly("second", "first");
+  }
+
+  @Test
+  public void testUpdateAllWithRemovedRecord() {
+    Record first = store("first");
+    Record second = store("second");
+    AtomicBoolean completed = new AtomicBoolean();
+    backend.remove(second.getRegistration(), ar -> completed.set(ar.succeeded()));
+    await().untilAtomic(completed, is(true));
+
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+    backend.updateAll(Arrays.asList(new Record(first).setStatus(Status.OUT_OF_SERVICE),
+      new Record(second).setStatus(Status.OUT_OF_SERVICE)), ar -> failure.set(ar.cause()));
+    await().until(() -> failure.get() != null);
+    assertThat(failure.get()).hasMessage("Record '" + second.getRegistration() + "' not found");
+
+    // Nothing has been updated, and the removed record has not been stored again.
+    AtomicReference<Record> current = new AtomicReference<>();
+    backend.getRecord(first.getRegistration(), ar -> current.set(ar.result()));
+    await().until(() -> current.get() != null);
+    assertThat(current.get().getStatus()).isEqualTo(Status.UP);
+    AtomicBoolean absent = new AtomicBoolean();
+    backend.getRecord(second.getRegistration(), ar -> absent.set(ar.succeeded() && ar.result() == null));
+    await().untilAtomic(absent, is(true));
+  }
+
+  @Test
+  public void testIndexedLookupAfterUpdateAndRemoval() {
+    Record record = store("indexed-service");
+    assertThat(lookup(new JsonObject().put("name", "INDEXED-SERVICE"), false)).extracting("registration")
+      .containsExactly(record.getRegistration());
+
+    AtomicBoolean completed = new AtomicBoolean();
+    backend.update(new Record(record).setName("renamed-service").setType("http-endpoint")
+      .setStatus(Status.OUT_OF_SERVICE), ar -> completed.set(ar.succeeded()));
+    await().untilAtomic(completed, is(true));
+    assertThat(lookup(new JsonObject().put("name", "indexed-service"), true)).isEmpty();
+    assertThat(lookup(new JsonObject().put("name", "renamed-service"), false)).isEmpty();
+    assertThat(lookup(new JsonObject().put("name", "renamed-service").put("type", "http-endpoint")
+      .put("status", "out_of_service"), false)).isEmpty();
+    assertThat(lookup(new JsonObject().put("name", "renamed-service").put("type", "HTTP-ENDPOINT"), true))
+      .extracting("registration").containsExactly(record.getRegistration());
+
+    completed.set(false);
+    backend.remove(record.getRegistration(), ar -> completed.set(ar.succeeded()));
+    await().untilAtomic(completed, is(true));
+    assertThat(lookup(new JsonObject().put("name", "renamed-service"), true)).isEmpty();
+  }
+
+  @Test
+  public void testRecordsOfPreviousVersionAreIndexed() {
+    // Records stored without index entries, by a previous version of the backend.
+    Redis client = Redis.createClient(vertx, new RedisOptions());
+    String uuid = UUID.randomUUID().toString();
+    Record record = new Record().setName("legacy-service").setStatus(Status.UP).setRegistration(uuid);
+    AtomicBoolean written = new AtomicBoolean();
+    client.send(Request.cmd(Command.DEL).arg("{records}:indexed"))
+      .compose(v -> client.send(Request.cmd(Command.HSET).arg("records").arg(uuid).arg(record.toJson().encode())))
+      .onComplete(ar -> written.set(ar.succeeded()));
+    await().untilAtomic(written, is(true));
+
+    // Found while they are not indexed, and once indexed.
+    assertThat(lookup(new JsonObject().put("name", "legacy-service"), false)).extracting("registration")
+      .containsExactly(uuid);
+    backend = createBackend();
+    AtomicBoolean indexed = new AtomicBoolean();
+    await().until(() -> {
+      client.send(Request.cmd(Command.EXISTS).arg("{records}:indexed"))
+        .onSuccess(response -> indexed.set(response.toInteger() > 0));
+      return indexed.get();
+    });
+    assertThat(lookup(new JsonObject().put("name", "legacy-service"), false)).extracting("registration")
+      .containsExactly(uuid);
+
+    AtomicBoolean removed = new AtomicBoolean();
+    backend.remove(uuid, ar -> removed.set(ar.succeeded()));
+    await().untilAtomic(removed, is(true));
+    assertThat(lookup(new JsonObject().put("name", "legacy-service"), true)).isEmpty();
+    client.close();
+  }
+
+  private List<Record> lookup(JsonObject filter, boolean includeOutOfService) {
+    AtomicReference<List<Record>> found = new AtomicReference<>();
+    backend.getRecords(filter, includeOutOfService, 0, ar -> found.set(ar.result()));
+    await().until(() -> found.get() != null);
+    return found.get();
+  }
+
+  private void assertPresent(Record record) {
+    AtomicReference<Record> reference = new AtomicReference<>();
+    backend.getRecord(record.getRegistration(), ar -> reference.set(ar.result()));
+    await().until(() -> reference.get() != null);
+  }
+}
@@ -2,25 +2,37 @@ package io.vertx.servicediscovery.backend.zookeeper;
 
 import io.vertx.core.*;
 import io.vertx.core.json.JsonObject;
+import io.vertx.core.streams.ReadStream;
 import io.vertx.servicediscovery.Record;
+import io.vertx.servicediscovery.RecordFilter;
+import io.vertx.servicediscovery.spi.RecordStream;
 import io.vertx.servicediscovery.spi.ServiceDiscoveryBackend;
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.framework.CuratorFrameworkFactory;
 import org.apache.curator.framework.api.CuratorEvent;
 import org.apache.curator.framework.api.DeleteBuilder;
+import org.apache.curator.framework.api.transaction.CuratorOp;
 import org.apache.curator.framework.state.ConnectionState;
 import org.apache.curator.framework.state.ConnectionStateListener;
 import org.apache.curator.retry.ExponentialBackoffRetry;
 import org.apache.zookeeper.CreateMode;
 import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.data.Stat;
 
 import java.nio.charset.Charset;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
+import java.util.Locale;
 import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * @author <a href="http://escoffier.me">Clement Escoffier</a>
@@ -28,6 +40,13 @@ import java.util.concurrent.TimeoutException;
 public class ZookeeperBackendService implements ServiceDiscoveryBackend, ConnectionStateListener {
 
   private static final Charset CHARSET = Charset.forName("UTF-8");
+
+  /**
+   * Maximum size of the data written by a single transaction. ZooKeeper rejects requests larger than
+   * {@code jute.maxbuffer} (1MB by default), so larger batches are split in several transactions.
+   */
+  private static final int MAX_TRANSACTION_BYTES = 512 * 1024;
+
   private CuratorFramework client;
   private String basePath;
   private boolean ephemeral;
@@ -62,6 +81,20 @@ public class ZookeeperBackendService implements ServiceDiscoveryBackend, Connect
 
   @Override
   public void store(Record record, Handler<AsyncResult<Record>> resultHandler) {
+    store(record, ephemeral ? CreateMode.EPHEMERAL : CreateMode.PERSISTENT, resultHandler);
+  }
+
+  /**
+   * Stores the record in an ephemeral node, whatever the configuration. The node is deleted when the session of the
+   * owner expires, so the record does not outlive a crashed owner. The session timeout is used instead of the given
+   * time-to-live.
+   */
+  @Override
+  public void store(Record record, long ttl, Handler<AsyncResult<Record>> resultHandler) {
+    store(record, CreateMode.EPHEMERAL, resultHandler);
+  }
+
+  private void store(Record record, CreateMode mode, Handler<AsyncResult<Record>> resultHandler) {
     if (record.getRegistration() != null) {
       resultHandler.handle(Future.failedFuture("The record has already been registered"));
       return;
@@ -79,7 +112,7 @@ public class ZookeeperBackendService implements ServiceDiscoveryBackend, Connect
         try {
           client.create()
               .creatingParentsIfNeeded()
-              .withMode(ephemeral ? CreateMode.EPHEMERAL : CreateMode.PERSISTENT)
+              .withMode(mode)
               .inBackground((curatorFramework, curatorEvent)
                   -> callback(context, record, resultHandler, curatorEvent))
               .withUnhandledErrorListener((s, throwable)
@@ -92,6 +125,86 @@ public class ZookeeperBackendService implements ServiceDiscoveryBackend, Connect
     });
   }
 
+  @Override
+  public void storeAll(List<Record> records, Handler<AsyncResult<List<Record>>> resultHandler) {
+    if (records.stream().anyMatch(record -> record.getRegistration() != null)) {
+      resultHandler.handle(Future.failedFuture("The record has already been registered"));
+      return;
+    }
+    records.forEach(record -> record.setRegistration(UUID.randomUUID().toString()));
+
+    batch(() -> {
+      // Transactions cannot create the parent nodes.
+      if (client.checkExists().forPath(basePath) == null) {
+        try {
+          client.create().creatingParentsIfNeeded().forPath(basePath);
+        } catch (KeeperException.NodeExistsException e) {
+          // Created concurrently
+        }
+      }
+      Batch batch = new Batch();
+      for (Record record : records) {
+        byte[] content = record.toJson().encode().getBytes(CHARSET);
+        batch.add(content.length, client.transactionOp().create()
+          .withMode(ephemeral ? CreateMode.EPHEMERAL : CreateMode.PERSISTENT)
+          .forPath(getPath(record.getRegistration()), content));
+      }
+      batch.commit();
+      return records;
+    }, resultHandler);
+  }
+
+  /**
+   * Runs a batch operation on a worker thread, as the Curator transactions are committed synchronously. The result is
+   * delivered on the calling context.
+   */
+  private <T> void batch(Callable<T> operation, Handler<AsyncResult<T>> resultHandler) {
+    Context context = Vertx.currentContext();
+    ensureConnected(x -> {
+      if (x.failed()) {
+        resultHandler.handle(Future.failedFuture(x.cause()));
+      } else {
+        vertx.executeBlocking(operation).onComplete(ar -> runOnContextIfPossible(context, () -> {
+          if (ar.succeeded()) {
+            resultHandler.handle(Future.succeededFuture(ar.result()));
+          } else {
+            resultHandler.handle(Future.failedFuture(ar.cause()));
+          }
+        }));
+      }
+    });
+  }
+
+  /**
+   * Groups the operations of a batch in transactions, so that each transaction writes less than
+   * {@link #MAX_TRANSACTION_BYTES}. Each transaction is atomic, but a large batch is not.
+   */
+  private class Batch {
+    private final List<List<CuratorOp>> transactions = new ArrayList<>();
+    private List<CuratorOp> current = new ArrayList<>();
+    private int size;
+
+    void add(int bytes, CuratorOp operation) {
+      if (!current.isEmpty() && size + bytes > MAX_TRANSACTION_BYTES) {
+        transactions.add(current);
+        current = new ArrayList<>();
+        size = 0;
+      }
+      current.add(operation);
+      size += bytes;
+    }
+
+    void commit() throws Exception {
+      if (!current.isEmpty()) {
+        transactions.add(current);
+        current = new ArrayList<>();
+      }
+      for (List<CuratorOp> transaction : transactions) {
+        client.transaction().forOperations(transaction);
+      }
+    }
+  }
+
   private String getPath(String registration) {
     return basePath + "/" + registration;
   }
@@ -213,6 +326,73 @@ public class ZookeeperBackendService implements ServiceDiscoveryBackend, Connect
     });
   }
 
+  @Override
+  public void removeAll(List<String> uuids, Handler<AsyncResult<List<Record>>> resultHandler) {
+    uuids.forEach(uuid -> Objects.requireNonNull(uuid, "No registration id in the record"));
+    batch(() -> {
+      List<Record> records = new ArrayList<>();
+      List<String> chunk = new ArrayList<>();
+      int size = 0;
+      for (String uuid : uuids) {
+        if (!chunk.isEmpty() && size + getPath(uuid).length() > MAX_TRANSACTION_BYTES) {
+          records.addAll(removeAtomically(chunk));
+          chunk.clear();
+          size = 0;
+        }
+        chunk.add(uuid);
+        size += getPath(uuid).length();
+      }
+      if (!chunk.isEmpty()) {
+        records.addAll(removeAtomically(chunk));
+      }
+      return records;
+    }, resultHandler);
+  }
+
+  /**
+   * Removes records in a single transaction. Each deletion is conditioned on the version of the node that has been
+   * read, so the returned records are the removed ones. If a node has been modified or removed concurrently, the
+   * nodes are read again.
+   */
+  private List<Record> removeAtomically(List<String> uuids) throws Exception {
+    while (true) {
+      List<Record> records = new ArrayList<>();
+      List<CuratorOp> operations = new ArrayList<>();
+      for (String uuid : uuids) {
+        Stat stat = new Stat();
+        byte[] content;
+        try {
+          content = client.getData().storingStatIn(stat).forPath(getPath(uuid));
+        } catch (KeeperException.NoNodeException e) {
+          throw new IllegalArgumentException("Unknown registration " + uuid);
+        }
+        records.add(new Record(new JsonObject(new String(content, CHARSET))));
+        operations.add(client.transactionOp().delete().withVersion(stat.getVersion()).forPath(getPath(uuid)));
+      }
+      try {
+        client.transaction().forOperations(operations);
+        return records;
+      } catch (KeeperException.BadVersionException | KeeperException.NoNodeException e) {
+        // Modified or removed since it has been read
+      }
+    }
+  }
+
+  @Override
+  public void updateAll(List<Record> records, Handler<AsyncResult<Void>> resultHandler) {
+    records.forEach(record -> Objects.requireNonNull(record.getRegistration(), "No registration id in the record"));
+    batch(() -> {
+      Batch batch = new Batch();
+      for (Record record : records) {
+        byte[] content = record.toJson().encode().getBytes(CHARSET);
+        batch.add(content.length, client.transactionOp().setData()
+          .forPath(getPath(record.getRegistration()), content));
+      }
+      batch.commit();
+      return null;
+    }, resultHandler);
+  }
+
   @Override
   public void getRecords(Handler<AsyncResult<List<Record>>> resultHandler) {
     Context context = Vertx.currentContext();
@@ -263,6 +443,99 @@ public class ZookeeperBackendService implements ServiceDiscoveryBackend, Connect
 
   }
 
+  @Override
+  public void getRecords(JsonObject filter, boolean includeOutOfService, int limit,
+                         Handler<AsyncResult<List<Record>>> resultHandler) {
+    RecordFilter accept = RecordFilter.compile(filter);
+    String registration = accept.getRegistration();
+    if (registration == null || "*".equals(registration)) {
+      ServiceDiscoveryBackend.super.getRecords(filter, includeOutOfService, limit, resultHandler);
+      return;
+    }
+    // Registration ids are lower case UUIDs used as node names, so only one node needs to be read.
+    getRecord(registration.toLowerCase(Locale.ROOT), ar -> {
+      if (ar.succeeded()) {
+        resultHandler.handle(Future.succeededFuture(
+          accept.select(Stream.ofNullable(ar.result()), includeOutOfService, limit)));
+      } else {
+        resultHandler.handle(Future.failedFuture(ar.cause()));
+      }
+    });
+  }
+
+  @Override
+  public ReadStream<Record> streamRecords(JsonObject filter, boolean includeOutOfService) {
+    String registration = RecordFilter.compile(filter).getRegistration();
+    if (registration != null && !"*".equals(registration)) {
+      return ServiceDiscoveryBackend.super.streamRecords(filter, includeOutOfService);
+    }
+
+    // ZooKeeper lists all the children at once, but only their names. The nodes are then read by pages, when the
+    // stream requests them.
+    Deque<String> remaining = new ArrayDeque<>();
+    AtomicBoolean listed = new AtomicBoolean();
+    return new RecordStream(filter, includeOutOfService, () -> {
+      Future<Void> listing = listed.getAndSet(true) ? Future.succeededFuture()
+        : getChildren().onSuccess(remaining::addAll).mapEmpty();
+      return listing.compose(v -> {
+        if (remaining.isEmpty()) {
+          return Future.succeededFuture();
+        }
+        List<Future<Record>> futures = new ArrayList<>();
+        while (futures.size() < RecordStream.PAGE_SIZE && !remaining.isEmpty()) {
+          Promise<Record> promise = Promise.promise();
+          getRecord(remaining.poll(), ar -> promise.complete(ar.result(), ar.cause()));
+          futures.add(promise.future());
+        }
+        // Nodes removed since the children have been listed are skipped.
+        return Future.all(futures).map(x -> futures.stream()
+          .map(Future::result)
+          .filter(Objects::nonNull)
+          .collect(Collectors.toList()));
+      });
+    });
+  }
+
+  private Future<List<String>> getChildren() {
+    Promise<List<String>> promise = Promise.promise();
+    ensureConnected(x -> {
+      if (x.failed()) {
+        promise.fail(x.cause());
+        return;
+      }
+      try {
+        client.getChildren()
+          .inBackground((fmk, event) -> {
+            if (event.getResultCode() == KeeperException.Code.OK.intValue()) {
+              promise.complete(event.getChildren());
+            } else if (event.getResultCode() == KeeperException.Code.NONODE.intValue()) {
+              promise.complete(new ArrayList<>());
+            } else {
+              promise.fail(KeeperException.create(KeeperException.Code.get(event.getResultCode())));
+            }
+          })
+          .withUnhandledErrorListener((message, e) -> promise.tryFail(e))
+          .forPath(basePath);
+      } catch (Exception e) {
+        promise.fail(e);
+      }
+    });
+    return promise.future();
+  }
+
+  /**
+   * Closes the client, on a worker thread as it waits for the session to be closed. The ephemeral records are deleted
+   * with the session.
+   */
+  @Override
+  public void close() {
+    client.getConnectionStateListenable().removeListener(this);
+    vertx.executeBlocking(() -> {
+      client.close();
+      return null;
+    }, false);
+  }
+
   @Override
   public void getRecord(String uuid, Handler<AsyncResult<Record>> handler) {
     Objects.requireNonNull(uuid);
@@ -15,8 +15,13 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
 
 import static com.jayway.awaitility.Awaitility.await;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -122,4 +127,84 @@ public class ZookeeperBackendServiceTest extends ServiceDiscoveryBackendTest {
 
     client.close();
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testBatchSpanningSeveralTransactions() {
+    // Each record is about 100KB, so the batch exceeds the size of a single transaction.
+    String padding = String.join("", Collections.nCopies(100 * 1024, "x"));
+    List<Record> records = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      records.add(new Record().setName("large-" + i).setStatus(Status.UP)
+        .setMetadata(new JsonObject().put("padding", padding)));
+    }
+    AtomicReference<List<Record>> stored = new AtomicReference<>();
+    backend.storeAll(records, ar -> stored.set(ar.result()));
+    await().until(() -> stored.get() != null);
+    assertThat(stored.get()).hasSize(8).extracting("registration").doesNotContainNull();
+
+    records.forEach(record -> record.setStatus(Status.OUT_OF_SERVICE));
+    AtomicBoolean completed = new AtomicBoolean();
+    backend.updateAll(records, ar -> completed.set(ar.succeeded()));
+    await().untilAtomic(completed, is(true));
+
+    AtomicReference<Record> updated = new AtomicReference<>();
+    backend.getRecord(records.get(7).getRegistration(), ar -> updated.set(ar.result()));
+    await().until(() -> updated.get() != null);
+    assertThat(updated.get().getStatus()).isEqualTo(Status.OUT_OF_SERVICE);
+
+    AtomicReference<List<Record>> removed = new AtomicReference<>();
+    backend.removeAll(records.stream().map(Record::getRegistration).collect(Collectors.toList()),
+      ar -> removed.set(ar.result()));
+    await().until(() -> removed.get() != null);
+    assertThat(removed.get()).hasSize(8);
+    assertThat(removed.get().get(0).getName()).isEqualTo("large-0");
+    assertThat(removed.get().get(0).getStatus()).isEqualTo(Status.OUT_OF_SERVICE);
+  }
+
+  @Test
+  public void testRemoveAllWithUnknownRegistration() {
+    List<Record> records = Arrays.asList(
+      new Record().setName("first").setStatus(Status.UP),
+      new Record().setName("second").setStatus(Status.UP));
+    AtomicReference<List<Record>> stored = new AtomicReference<>();
+    backend.storeAll(records, ar -> stored.set(ar.result()));
+    await().until(() -> stored.get() != null);
+
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+    backend.removeAll(Arrays.asList(records.get(0).getRegistration(), "unknown", records.get(1).getRegistration()),
+      ar -> failure.set(ar.cause()));
+    await().until(() -> failure.get() != null);
+
+    // Nothing has been removed.
+    for (Record record : records) {
+      AtomicReference<Record> reference = new AtomicReference<>();
+      backend.getRecord(record.getRegistration(), ar -> reference.set(ar.result()));
+      await().until(() -> reference.get() != null);
+    }
+  }
+
+  @Test
+  public void testUpdateAllWithRemovedRecord() {
+    List<Record> records = Arrays.asList(
+      new Record().setName("first").setStatus(Status.UP),
+      new Record().setName("second").setStatus(Status.UP));
+    AtomicReference<List<Record>> stored = new AtomicReference<>();
+    backend.storeAll(records, ar -> stored.set(ar.result()));
+    await().until(() -> stored.get() != null);
+    AtomicBoolean completed = new AtomicBoolean();
+    backend.remove(records.get(1).getRegistration(), ar -> completed.set(ar.succeeded()));
+    await().untilAtomic(completed, is(true));
+
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+    backend.updateAll(Arrays.asList(new Record(records.get(0)).setStatus(Status.OUT_OF_SERVICE),
+      new Record(records.get(1)).setStatus(Status.OUT_OF_SERVICE)), ar -> failure.set(ar.cause()));
+    await().until(() -> failure.get() != null);
+    assertThat(failure.get()).isInstanceOf(KeeperException.NoNodeException.class);
+
+    // The transaction has been rolled back.
+    AtomicReference<Record> current = new AtomicReference<>();
+    backend.getRecord(records.get(0).getRegistration(), ar -> current.set(ar.result()));
+    await().until(() -> current.get() != null);
+    assertThat(current.get().getStatus()).isEqualTo(Status.UP);
+  }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2011-2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.servicediscovery.benchmarks;
+
+import io.vertx.core.Future;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.servicediscovery.Record;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The settings shared by the benchmarks.
+ *
+ * @author <a href="http://escoffier.me">Clement Escoffier</a>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public abstract class BenchmarkBase {
+
+  /**
+   * The number of distinct zones of the records created by {@link #record(int)}.
+   */
+  static final int ZONES = 10;
+
+  /**
+   * Waits for the completion of a future, from a thread that is not a vert.x thread.
+   *
+   * @param future the future
+   * @return the result
+   */
+  static <T> T await(Future<T> future) {
+    return future.toCompletionStage().toCompletableFuture().join();
+  }
+
+  /**
+   * Creates a record similar to the records published by the service types, with a few metadata.
+   *
+   * @param index the index of the record, used to generate its name and metadata
+   * @return the record
+   */
+  static Record record(int index) {
+    return new Record()
+      .setName("service-" + index)
+      .setType("http-endpoint")
+      .setLocation(new JsonObject()
+        .put("host", "10.0." + (index / 256 % 256) + "." + (index % 256))
+        .put("port", 8080)
+        .put("root", "/api")
+        .put("ssl", false)
+        .put("endpoint", "http://10.0." + (index / 256 % 256) + "." + (index % 256) + ":8080/api"))
+      .setMetadata(new JsonObject()
+        .put("zone", "zone-" + index % ZONES)
+        .put("version", "1." + index % 3)
+        .put("tags", new JsonArray().add("api").add("v1")));
+  }
+}
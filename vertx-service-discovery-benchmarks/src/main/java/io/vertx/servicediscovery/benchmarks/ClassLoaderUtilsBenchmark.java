@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2011-2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.servicediscovery.benchmarks;
+
+import io.vertx.servicediscovery.utils.ClassLoaderUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks the delegation helpers of {@link ClassLoaderUtils}, used by {@code getAs} and {@code cachedAs} to wrap
+ * the service objects for the other APIs (RX...) and to unwrap them on release.
+ *
+ * @author <a href="http://escoffier.me">Clement Escoffier</a>
+ */
+@State(Scope.Thread)
+public class ClassLoaderUtilsBenchmark extends BenchmarkBase {
+
+  private Service service;
+  private Wrapper wrapper;
+  private Object plain;
+
+  @Setup
+  public void setup() {
+    service = new ServiceImpl();
+    wrapper = new Wrapper(service);
+    plain = new Object();
+  }
+
+  @Benchmark
+  public Wrapper createWithDelegate() {
+    return ClassLoaderUtils.createWithDelegate(Wrapper.class, service);
+  }
+
+  @Benchmark
+  public Wrapper createWithoutConstructor() {
+    return ClassLoaderUtils.createWithDelegate(Wrapper.class, plain);
+  }
+
+  @Benchmark
+  public Object extractDelegate() {
+    return ClassLoaderUtils.extractDelegate(wrapper);
+  }
+
+  @Benchmark
+  public Object extractWithoutDelegate() {
+    return ClassLoaderUtils.extractDelegate(plain);
+  }
+
+  @Benchmark
+  public Class<?> load() {
+    return ClassLoaderUtils.load("io.vertx.servicediscovery.types.HttpEndpoint", null);
+  }
+
+  public interface Service {
+  }
+
+  public static class ServiceImpl implements Service {
+  }
+
+  /**
+   * A wrapper shaped as the generated RX wrappers: a constructor taking the delegate, and a {@code getDelegate} method.
+   */
+  public static class Wrapper {
+
+    private final Service delegate;
+
+    public Wrapper(Service delegate) {
+      this.delegate = delegate;
+    }
+
+    public Service getDelegate() {
+      return delegate;
+    }
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2011-2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.servicediscovery.benchmarks;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.servicediscovery.Record;
+import io.vertx.servicediscovery.ServiceDiscoveryOptions;
+import io.vertx.servicediscovery.impl.DiscoveryImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Benchmarks the lookups of {@link DiscoveryImpl#getRecords} on the default backend, with a JSON filter and with a
+ * function filter. The filters select a single record by name, or one record out of {@link #ZONES} by zone.
+ *
+ * @author <a href="http://escoffier.me">Clement Escoffier</a>
+ */
+@State(Scope.Benchmark)
+public class GetRecordsBenchmark extends BenchmarkBase {
+
+  private static final int BATCH = 1000;
+
+  @Param({"1000", "10000", "100000"})
+  public int size;
+
+  @Param({"false", "true"})
+  public boolean indexed;
+
+  private Vertx vertx;
+  private DiscoveryImpl discovery;
+
+  private JsonObject nameFilter;
+  private JsonObject zoneFilter;
+  private Function<Record, Boolean> nameFunction;
+  private Function<Record, Boolean> zoneFunction;
+
+  @Setup
+  public void setup() {
+    vertx = Vertx.vertx();
+    JsonObject backend = new JsonObject();
+    if (indexed) {
+      backend.put("indexes", new JsonArray().add("name").add("zone"));
+    }
+    discovery = new DiscoveryImpl(vertx, new ServiceDiscoveryOptions()
+      .setName("benchmark")
+      .setBackendConfiguration(backend));
+    for (int i = 0; i < size; i += BATCH) {
+      List<Record> records = new ArrayList<>(BATCH);
+      for (int j = i; j < Math.min(size, i + BATCH); j++) {
+        records.add(record(j));
+      }
+      await(discovery.publishAll(records));
+    }
+
+    String name = "service-" + size / 2;
+    nameFilter = new JsonObject().put("name", name);
+    zoneFilter = new JsonObject().put("zone", "zone-3");
+    nameFunction = record -> name.equals(record.getName());
+    zoneFunction = record -> "zone-3".equals(record.getMetadata().getString("zone"));
+  }
+
+  @TearDown
+  public void tearDown() {
+    discovery.close();
+    await(vertx.close());
+  }
+
+  @Benchmark
+  public List<Record> jsonFilterByName() {
+    return await(discovery.getRecords(nameFilter));
+  }
+
+  @Benchmark
+  public List<Record> jsonFilterByZone() {
+    return await(discovery.getRecords(zoneFilter));
+  }
+
+  @Benchmark
+  public List<Record> functionFilterByName() {
+    return await(discovery.getRecords(nameFunction));
+  }
+
+  @Benchmark
+  public List<Record> functionFilterByZone() {
+    return await(discovery.getRecords(zoneFunction));
+  }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2011-2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.servicediscovery.benchmarks;
+
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.servicediscovery.Record;
+import io.vertx.servicediscovery.ServiceDiscoveryOptions;
+import io.vertx.servicediscovery.Status;
+import io.vertx.servicediscovery.impl.DefaultServiceDiscoveryBackend;
+import io.vertx.servicediscovery.impl.DiscoveryImpl;
+import io.vertx.servicediscovery.spi.ServiceExporter;
+import io.vertx.servicediscovery.spi.ServicePublisher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Benchmarks the publications and withdrawals on the {@link DefaultServiceDiscoveryBackend}, including the announce
+ * and the notification of the exporters. Run with the GC profiler, the allocation rate shows the cost of the copies
+ * made for the exporters and the announce.
+ *
+ * @author <a href="http://escoffier.me">Clement Escoffier</a>
+ */
+@State(Scope.Benchmark)
+public class PublishBenchmark extends BenchmarkBase {
+
+  private static final int BATCH = 100;
+
+  // No copy, a shallow copy, and a snapshot shared by the exporters.
+  @Param({"0", "1", "4"})
+  public int exporters;
+
+  private Vertx vertx;
+  private DiscoveryImpl discovery;
+  private int index;
+
+  @Setup
+  public void setup() {
+    vertx = Vertx.vertx();
+    discovery = new DiscoveryImpl(vertx, new ServiceDiscoveryOptions().setName("benchmark"));
+    for (int i = 0; i < exporters; i++) {
+      await(discovery.registerServiceExporter(new NoopExporter(), new JsonObject()));
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    discovery.close();
+    await(vertx.close());
+  }
+
+  @Benchmark
+  public void publishUnpublish(Blackhole blackhole) {
+    Record record = await(discovery.publish(record(index++ % 1000)));
+    blackhole.consume(record);
+    await(discovery.unpublish(record.getRegistration()));
+  }
+
+  @Benchmark
+  public void updateStatus(Blackhole blackhole) {
+    Record record = await(discovery.publish(record(index++ % 1000)));
+    blackhole.consume(await(discovery.update(record.setStatus(Status.OUT_OF_SERVICE))));
+    await(discovery.unpublish(record.getRegistration()));
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH)
+  public void publishAllUnpublishAll(Blackhole blackhole) {
+    List<Record> records = new ArrayList<>(BATCH);
+    for (int i = 0; i < BATCH; i++) {
+      records.add(record(i));
+    }
+    List<String> ids = new ArrayList<>(BATCH);
+    for (Record record : await(discovery.publishAll(records))) {
+      ids.add(record.getRegistration());
+    }
+    blackhole.consume(ids);
+    await(discovery.unpublishAll(ids));
+  }
+
+  /**
+   * An exporter ignoring the notifications, so the benchmark only measures the cost of notifying it.
+   */
+  private static class NoopExporter implements ServiceExporter {
+
+    @Override
+    public void init(Vertx vertx, ServicePublisher publisher, JsonObject configuration, Promise<Void> future) {
+      future.complete();
+    }
+
+    @Override
+    public void onPublish(Record record) {
+    }
+
+    @Override
+    public void onUpdate(Record record) {
+    }
+
+    @Override
+    public void onUnpublish(String id) {
+    }
+
+    @Override
+    public void close(Handler<Void> closeHandler) {
+      closeHandler.handle(null);
+    }
+  }
+}
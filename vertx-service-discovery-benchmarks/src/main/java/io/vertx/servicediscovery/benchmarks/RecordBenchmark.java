@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2011-2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.servicediscovery.benchmarks;
+
+import io.vertx.core.json.JsonObject;
+import io.vertx.servicediscovery.Record;
+import io.vertx.servicediscovery.RecordFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks the operations on a single {@link Record}: matching, JSON encoding and decoding, and copies. The
+ * {@link #snapshot()} benchmark measures the copy made once per publication when several exporters are registered,
+ * shared by them. The announce makes its own copy.
+ *
+ * @author <a href="http://escoffier.me">Clement Escoffier</a>
+ */
+@State(Scope.Thread)
+public class RecordBenchmark extends BenchmarkBase {
+
+  private Record record;
+  private Record frozen;
+  private JsonObject json;
+  private String encoded;
+
+  private JsonObject nameFilter;
+  private JsonObject metadataFilter;
+  private JsonObject missFilter;
+  private RecordFilter compiledFilter;
+
+  @Setup
+  public void setup() {
+    record = record(42).setRegistration("3f0c5b0e-3b5a-4c1f-9a9e-0e5c2b7d4a11");
+    frozen = record.snapshot();
+    json = record.toJson();
+    encoded = json.encode();
+
+    nameFilter = new JsonObject().put("name", "service-42");
+    metadataFilter = new JsonObject().put("type", "http-endpoint").put("zone", "zone-2").put("version", "*");
+    missFilter = new JsonObject().put("name", "service-42").put("zone", "zone-3");
+    compiledFilter = RecordFilter.compile(metadataFilter);
+  }
+
+  @Benchmark
+  public boolean matchName() {
+    return record.match(nameFilter);
+  }
+
+  @Benchmark
+  public boolean matchMetadata() {
+    return record.match(metadataFilter);
+  }
+
+  @Benchmark
+  public boolean matchMiss() {
+    return record.match(missFilter);
+  }
+
+  @Benchmark
+  public boolean matchCompiled() {
+    return compiledFilter.test(record);
+  }
+
+  @Benchmark
+  public JsonObject toJson() {
+    return record.toJson();
+  }
+
+  @Benchmark
+  public String encode() {
+    return record.toJson().encode();
+  }
+
+  @Benchmark
+  public Record fromJson() {
+    return new Record(json);
+  }
+
+  @Benchmark
+  public Record decode() {
+    return new Record(new JsonObject(encoded));
+  }
+
+  @Benchmark
+  public Record copy() {
+    return new Record(record);
+  }
+
+  @Benchmark
+  public Record snapshot() {
+    return record.snapshot();
+  }
+
+  @Benchmark
+  public Record snapshotOfSnapshot() {
+    return frozen.snapshot();
+  }
+}
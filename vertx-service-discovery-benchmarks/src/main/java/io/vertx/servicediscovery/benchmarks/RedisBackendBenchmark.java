@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2011-2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.servicediscovery.benchmarks;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.servicediscovery.Record;
+import io.vertx.servicediscovery.Status;
+import io.vertx.servicediscovery.backend.redis.RedisBackendService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Benchmarks the removals and updates of the {@link RedisBackendService} against an embedded Redis server, standing
+ * in for a local one. Each removal and update is a single round trip. The mass deregistration benchmark removes the
+ * records one by one, without waiting for the previous removals, like the records of the instances stopped by a
+ * rolling deployment.
+ *
+ * @author <a href="http://escoffier.me">Clement Escoffier</a>
+ */
+@State(Scope.Benchmark)
+public class RedisBackendBenchmark extends BenchmarkBase {
+
+  private static final int PORT = 6390;
+  private static final int BATCH = 100;
+
+  private RedisServer server;
+  private Vertx vertx;
+  private RedisBackendService backend;
+  private Record record;
+  private int index;
+
+  @Setup
+  public void setup() throws IOException {
+    server = new RedisServer(PORT);
+    server.start();
+    vertx = Vertx.vertx();
+    backend = new RedisBackendService();
+    backend.init(vertx, new JsonObject()
+      .put("endpoints", new JsonArray().add("redis://localhost:" + PORT))
+      .put("key", "benchmark"));
+    Promise<Record> stored = Promise.promise();
+    backend.store(record(0), completion(stored));
+    record = await(stored.future());
+  }
+
+  @TearDown
+  public void tearDown() {
+    backend.close();
+    await(vertx.close());
+    server.stop();
+  }
+
+  @Benchmark
+  public void storeRemove(Blackhole blackhole) {
+    Promise<Record> stored = Promise.promise();
+    backend.store(record(index++ % 1000), completion(stored));
+    Promise<Record> removed = Promise.promise();
+    backend.remove(await(stored.future()).getRegistration(), completion(removed));
+    blackhole.consume(await(removed.future()));
+  }
+
+  @Benchmark
+  public void update() {
+    Promise<Void> updated = Promise.promise();
+    backend.update(record.setStatus(index++ % 2 == 0 ? Status.UP : Status.OUT_OF_SERVICE), completion(updated));
+    await(updated.future());
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH)
+  public void massDeregistration(Blackhole blackhole) {
+    List<Record> records = new ArrayList<>(BATCH);
+    for (int i = 0; i < BATCH; i++) {
+      records.add(record(i));
+    }
+    Promise<List<Record>> stored = Promise.promise();
+    backend.storeAll(records, completion(stored));
+    List<Future<Record>> removals = new ArrayList<>(BATCH);
+    for (Record record : await(stored.future())) {
+      Promise<Record> removed = Promise.promise();
+      backend.remove(record.getRegistration(), completion(removed));
+      removals.add(removed.future());
+    }
+    blackhole.consume(await(Future.all(removals)));
+  }
+
+  private static <T> Handler<AsyncResult<T>> completion(Promise<T> promise) {
+    return ar -> promise.complete(ar.result(), ar.cause());
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2011-2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.servicediscovery.benchmarks;
+
+import io.vertx.core.Vertx;
+import io.vertx.servicediscovery.Record;
+import io.vertx.servicediscovery.ServiceDiscoveryOptions;
+import io.vertx.servicediscovery.ServiceReference;
+import io.vertx.servicediscovery.impl.DiscoveryImpl;
+import io.vertx.servicediscovery.types.HttpEndpoint;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Benchmarks the churn of service references: getting a reference, retrieving its service object and releasing it,
+ * as done by the code retrieving a client per request. When {@link #pinned} is set, another reference to the same
+ * service is held during the benchmark, so the service object is shared instead of created and closed each time.
+ *
+ * @author <a href="http://escoffier.me">Clement Escoffier</a>
+ */
+@State(Scope.Benchmark)
+public class ReferenceBenchmark extends BenchmarkBase {
+
+  @Param({"false", "true"})
+  public boolean pinned;
+
+  private Vertx vertx;
+  private DiscoveryImpl discovery;
+  private Record record;
+  private ServiceReference pin;
+
+  @Setup
+  public void setup() {
+    vertx = Vertx.vertx();
+    discovery = new DiscoveryImpl(vertx, new ServiceDiscoveryOptions().setName("benchmark"));
+    record = await(discovery.publish(HttpEndpoint.createRecord("service", "localhost", 8080, "/api")));
+    if (pinned) {
+      pin = discovery.getReference(record);
+      pin.get();
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    if (pin != null) {
+      pin.release();
+    }
+    discovery.close();
+    await(vertx.close());
+  }
+
+  @Benchmark
+  public boolean getReferenceRelease() {
+    ServiceReference reference = discovery.getReference(record);
+    return discovery.release(reference);
+  }
+
+  @Benchmark
+  public Object getServiceRelease() {
+    ServiceReference reference = discovery.getReference(record);
+    Object client = reference.get();
+    reference.release();
+    return client;
+  }
+}
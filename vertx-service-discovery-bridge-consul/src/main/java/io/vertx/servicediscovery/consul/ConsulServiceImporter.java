@@ -43,6 +43,11 @@ import java.util.stream.Collectors;
  */
 public class ConsulServiceImporter implements ServiceImporter {
 
+  /**
+   * The metadata entry of the imported records storing the id of the Consul service.
+   */
+  public static final String CONSUL_ID = "consul.id";
+
   private ServicePublisher publisher;
   private ConsulClient client;
 
@@ -52,6 +57,8 @@ public class ConsulServiceImporter implements ServiceImporter {
   private long scanTask = -1;
   private Vertx vertx;
   private String upThreshold;
+  private String owner;
+  private boolean reconciled;
 
   @Override
   public void start(Vertx vertx, ServicePublisher publisher, JsonObject configuration, Promise<Void> completion) {
@@ -66,6 +73,8 @@ public class ConsulServiceImporter implements ServiceImporter {
       .setAclToken(configuration.getString("acl_token"));
 
     client = ConsulClient.create(vertx, opts);
+    owner = ServiceImporter.owner(configuration, configuration.getString("host", "localhost") + ":"
+      + configuration.getInteger("port", 8500) + "/" + configuration.getString("dc", ""));
 
     Promise<List<ImportedConsulService>> imports = Promise.promise();
 
@@ -143,6 +152,7 @@ public class ConsulServiceImporter implements ServiceImporter {
     Future.all(futures).onComplete(ar -> {
       if (ar.failed()) {
         LOGGER.error("Fail to retrieve the services from consul", ar.cause());
+        completed.fail(ar.cause());
       } else {
         List<ImportedConsulService> services =
             futures.stream().map(future -> ((Future<List<ImportedConsulService>>) future).result())
@@ -151,6 +161,8 @@ public class ConsulServiceImporter implements ServiceImporter {
 
         List<String> retrievedIds = services.stream().map(ImportedConsulService::id).collect(Collectors.toList());
 
+        List<ImportedConsulService> added = new ArrayList<>();
+        boolean initial;
         synchronized (ConsulServiceImporter.this) {
 
           List<String> existingIds = imports.stream().map(ImportedConsulService::id).collect(Collectors.toList());
@@ -163,6 +175,7 @@ public class ConsulServiceImporter implements ServiceImporter {
             if (!existingIds.contains(id)) {
               LOGGER.info("Imported service: " + id);
               imports.add(svc);
+              added.add(svc);
             }
           });
 
@@ -171,18 +184,30 @@ public class ConsulServiceImporter implements ServiceImporter {
             if (!retrievedIds.contains(svc.id())) {
               LOGGER.info("Unregistering " + svc.id());
               toRemove.add(svc);
-              svc.unregister(publisher, null);
             }
           });
 
           imports.removeAll(toRemove);
+          ImportedConsulService.unregisterAll(publisher, toRemove);
+          initial = !reconciled;
+          reconciled = true;
         }
-      }
 
-      if (ar.succeeded()) {
-        completed.complete();
-      } else {
-        completed.fail(ar.cause());
+        // The new services are published in a single batch. The first import reconciles them with the records
+        // already in the registry, restored from a snapshot, instead of publishing them again.
+        Promise<List<ImportedConsulService>> registrations = Promise.promise();
+        if (initial) {
+          ImportedConsulService.reconcileAll(publisher, owner, added, registrations);
+        } else {
+          ImportedConsulService.registerAll(publisher, added, registrations);
+        }
+        registrations.future().onComplete(registered -> {
+          if (registered.succeeded()) {
+            completed.complete(services);
+          } else {
+            completed.fail(registered.cause());
+          }
+        });
       }
     });
   }
@@ -198,12 +223,7 @@ public class ConsulServiceImporter implements ServiceImporter {
         .collect(Collectors.toList());
 
       List<ImportedConsulService> importedServices = new ArrayList<>();
-
-      List<Future<Void>> registrations = new ArrayList<>();
-      for (int i = 0; i < serviceEntries.size(); i++) {
-        Promise<Void> registration = Promise.promise();
-
-        ServiceEntry consulService = serviceEntries.get(i);
+      for (ServiceEntry consulService : serviceEntries) {
         String id = consulService.getService().getId();
         String name = consulService.getService().getName();
         Record record = createRecord(consulService.getNode(), consulService.getService());
@@ -212,32 +232,14 @@ public class ConsulServiceImporter implements ServiceImporter {
         ImportedConsulService imported = getImportedServiceById(id);
         if (imported != null) {
           importedServices.add(imported);
-          registration.complete();
         } else {
           LOGGER.info("Importing service " + record.getName() + " (" + id + ")"
               + " from consul");
-          ImportedConsulService service = new ImportedConsulService(name, id, record);
-          Promise<ImportedConsulService> promise = Promise.promise();
-          promise.future().onComplete(res -> {
-            if (res.succeeded()) {
-              importedServices.add(res.result());
-              registration.complete();
-            } else {
-              registration.fail(res.cause());
-            }
-          });
-          service.register(publisher, promise);
+          // Published with the other new services, once all the services have been retrieved
+          importedServices.add(new ImportedConsulService(name, id, record));
         }
-        registrations.add(registration.future());
       }
-
-      Future.all(registrations).onComplete(ar -> {
-        if (ar.succeeded()) {
-          future.complete(importedServices);
-        } else {
-          future.fail(ar.cause());
-        }
-      });
+      future.complete(importedServices);
     }
   }
 
@@ -254,6 +256,9 @@ public class ConsulServiceImporter implements ServiceImporter {
       service.getTags().forEach(tag -> metadata.put(tag, true));
     }
 
+    metadata.put(CONSUL_ID, service.getId());
+    metadata.put(ServicePublisher.OWNER, owner);
+
     Record record = new Record()
         .setName(service.getName())
         .setMetadata(metadata);
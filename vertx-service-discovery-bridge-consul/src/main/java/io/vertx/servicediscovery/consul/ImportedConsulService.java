@@ -18,10 +18,13 @@ package io.vertx.servicediscovery.consul;
 
 import io.vertx.core.Future;
 import io.vertx.core.Promise;
+import io.vertx.core.json.JsonObject;
 import io.vertx.servicediscovery.Record;
 import io.vertx.servicediscovery.spi.ServicePublisher;
 
+import java.util.List;
 import java.util.Objects;
+import java.util.stream.Collectors;
 
 /**
  * Structure holding a service imported from Consul and published in the Vert.x service discovery.
@@ -76,6 +79,80 @@ public class ImportedConsulService {
     return this;
   }
 
+  /**
+   * Registers a set of services in a single batch and completes the given future when done.
+   *
+   * @param publisher  the service publisher instance
+   * @param services   the services to register
+   * @param completion the completion future
+   */
+  public static void registerAll(ServicePublisher publisher, List<ImportedConsulService> services,
+                                 Promise<List<ImportedConsulService>> completion) {
+    if (services.isEmpty()) {
+      completion.complete(services);
+      return;
+    }
+    List<Record> records = services.stream().map(service -> service.record).collect(Collectors.toList());
+    publisher.publishAll(records).onComplete(ar -> {
+      if (ar.succeeded()) {
+        for (int i = 0; i < services.size(); i++) {
+          services.get(i).record.setRegistration(ar.result().get(i).getRegistration());
+        }
+        completion.complete(services);
+      } else {
+        completion.fail(ar.cause());
+      }
+    });
+  }
+
+  /**
+   * Reconciles a set of services with the records already in the registry, for instance restored from a snapshot.
+   * The records of the services already in the registry are kept, or updated if they changed, the other ones are
+   * published in a single batch. The records imported from Consul by the same owner that do not match any of the
+   * services are un-published, the records of other owners are left untouched.
+   *
+   * @param publisher  the service publisher instance
+   * @param owner      the owner of the records, see
+   *                   {@link io.vertx.servicediscovery.spi.ServiceImporter#owner(JsonObject, String)}
+   * @param services   the services to register
+   * @param completion the completion future
+   */
+  public static void reconcileAll(ServicePublisher publisher, String owner, List<ImportedConsulService> services,
+                                  Promise<List<ImportedConsulService>> completion) {
+    List<Record> records = services.stream().map(service -> service.record).collect(Collectors.toList());
+    JsonObject filter = new JsonObject().put(ConsulServiceImporter.CONSUL_ID, "*");
+    publisher.reconcile(owner, filter, records,
+        record -> record.getMetadata().getString(ConsulServiceImporter.CONSUL_ID))
+      .onComplete(ar -> {
+        if (ar.succeeded()) {
+          completion.complete(services);
+        } else {
+          completion.fail(ar.cause());
+        }
+      });
+  }
+
+  /**
+   * Unregisters a set of services in a single batch. The services that are not published are ignored.
+   *
+   * @param publisher the service publisher instance
+   * @param services  the services to unregister
+   */
+  public static void unregisterAll(ServicePublisher publisher, List<ImportedConsulService> services) {
+    List<ImportedConsulService> published = services.stream()
+      .filter(service -> service.record.getRegistration() != null)
+      .collect(Collectors.toList());
+    if (published.isEmpty()) {
+      return;
+    }
+    publisher.unpublishAll(published.stream().map(service -> service.record.getRegistration())
+      .collect(Collectors.toList())).onComplete(ar -> {
+      if (ar.succeeded()) {
+        published.forEach(service -> service.record.setRegistration(null));
+      }
+    });
+  }
+
   /**
    * Unregisters the service and completes the given future when done, if not {@code null}
    *
@@ -39,6 +39,8 @@ import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
 
 /**
  * A discovery bridge collecting services from Docker, and importing them in the Vert.x
@@ -57,6 +59,8 @@ public class DockerServiceImporter implements ServiceImporter {
   private ServicePublisher publisher;
   private Vertx vertx;
   private String host;
+  private String owner;
+  private boolean reconciled;
 
   volatile boolean started;
 
@@ -112,6 +116,7 @@ public class DockerServiceImporter implements ServiceImporter {
 
 
     DockerClientConfig config = builder.build();
+    this.owner = ServiceImporter.owner(configuration, config.getDockerHost().toString());
     if (config.getDockerHost().getScheme().equalsIgnoreCase("unix")) {
       try {
         this.host = InetAddress.getLocalHost().getHostAddress();
@@ -157,23 +162,29 @@ public class DockerServiceImporter implements ServiceImporter {
           // Detect lost containers
           services.stream()
               .filter(service -> isNotRunning(service.id(), running))
-              .forEach(service -> {
-                unpublish(service);
-                toRemove.add(service);
-              });
+              .forEach(toRemove::add);
           services.removeAll(toRemove);
+          unpublish(toRemove);
 
           if (running != null) {
             // Detect new containers
+            List<DockerService> toAdd = new ArrayList<>();
             running.stream()
                 .filter(container -> !isKnown(container))
                 .forEach(container -> {
                   DockerService service = new DockerService(container, host);
                   if (!service.records().isEmpty()) {
+                    service.records().forEach(record -> record.getMetadata().put(ServicePublisher.OWNER, owner));
                     services.add(service);
-                    publish(service);
+                    toAdd.add(service);
                   }
                 });
+            if (!reconciled) {
+              reconciled = true;
+              reconcile(toAdd);
+            } else {
+              publish(toAdd);
+            }
           }
 
           if (completion != null) {
@@ -183,28 +194,71 @@ public class DockerServiceImporter implements ServiceImporter {
     );
   }
 
-  private void publish(DockerService service) {
-    for (Record record : service.records()) {
-      publisher.publish(record).onComplete(ar -> {
-        if (ar.succeeded()) {
-          record.setRegistration(ar.result().getRegistration());
-          LOGGER.info("Service from container " + service.id() + " on location "
-              + record.getLocation() + " has been published");
-        } else {
-          LOGGER.error("Service from container " + service.id() + " on location "
-              + record.getLocation() + " could not have been published", ar.cause());
-        }
-      });
+  private void publish(List<DockerService> added) {
+    List<Record> records = added.stream()
+        .flatMap(service -> service.records().stream())
+        .collect(Collectors.toList());
+    if (records.isEmpty()) {
+      return;
     }
+    // All the records found during the scan are published in a single batch
+    publisher.publishAll(records).onComplete(ar -> {
+      for (DockerService service : added) {
+        for (Record record : service.records()) {
+          if (ar.succeeded()) {
+            LOGGER.info("Service from container " + service.id() + " on location "
+                + record.getLocation() + " has been published");
+          } else {
+            LOGGER.error("Service from container " + service.id() + " on location "
+                + record.getLocation() + " could not have been published", ar.cause());
+          }
+        }
+      }
+    });
   }
 
-  private void unpublish(DockerService service) {
-    for (Record record : service.records()) {
-      publisher.unpublish(record.getRegistration()).onComplete(ar -> {
-        LOGGER.info("Service from container " + service.id()
-            + " on location " + record.getLocation() + " has been unpublished");
-      });
+  /**
+   * Publishes the services found by the first scan. The records of containers already in the registry, for instance
+   * restored from a snapshot, are kept or updated instead of being published again, and the ones whose container is
+   * not running anymore are withdrawn. Only the records published by this importer are reconciled, not the ones of
+   * the importers of other Docker hosts.
+   */
+  private void reconcile(List<DockerService> added) {
+    List<Record> records = added.stream()
+        .flatMap(service -> service.records().stream())
+        .collect(Collectors.toList());
+    JsonObject filter = new JsonObject().put("docker.id", "*");
+    publisher.reconcile(owner, filter, records, DockerServiceImporter::key).onComplete(ar -> {
+      if (ar.succeeded()) {
+        LOGGER.info(records.size() + " services from containers reconciled with the service registry");
+      } else {
+        LOGGER.error("Services from containers could not have been reconciled with the service registry",
+            ar.cause());
+      }
+    });
+  }
+
+  private static String key(Record record) {
+    return record.getMetadata().getString("docker.id") + ":" + record.getLocation().getValue("port");
+  }
+
+  private void unpublish(List<DockerService> removed) {
+    List<String> registrations = removed.stream()
+        .flatMap(service -> service.records().stream())
+        .map(Record::getRegistration)
+        .filter(Objects::nonNull)
+        .collect(Collectors.toList());
+    if (registrations.isEmpty()) {
+      return;
     }
+    publisher.unpublishAll(registrations).onComplete(ar -> {
+      for (DockerService service : removed) {
+        for (Record record : service.records()) {
+          LOGGER.info("Service from container " + service.id()
+              + " on location " + record.getLocation() + " has been unpublished");
+        }
+      }
+    });
   }
 
   private boolean isKnown(Container container) {
@@ -75,6 +75,7 @@ public class KubernetesServiceImporter implements ServiceImporter {
   private ServicePublisher publisher;
   private String token;
   private String namespace;
+  private String owner;
   private HttpClient client;
   private String lastResourceVersion;
   private BatchOfUpdates batchOfUpdates;
@@ -133,11 +134,13 @@ public class KubernetesServiceImporter implements ServiceImporter {
     this.namespace = conf.getString("namespace", getNamespaceOrDefault());
     LOGGER.info("Kubernetes discovery configured for namespace: " + namespace);
     LOGGER.info("Kubernetes master url: http" + (conf.getBoolean("ssl", true) ? "s" : "") + "//" + host + ":" + port);
+    this.owner = ServiceImporter.owner(conf, "http" + (conf.getBoolean("ssl", true) ? "s" : "") + "://" + host + ":"
+      + port + "/" + namespace);
 
     retrieveTokenFuture
       .compose(v -> retrieveServices())
       .onSuccess(items -> LOGGER.info("Kubernetes initial import of " + items.size() + " services"))
-      .compose(this::publishRecords)
+      .compose(this::reconcileRecords)
       .onComplete(ar -> {
         if (ar.succeeded()) {
           LOGGER.info("Kubernetes importer instantiated with " + records.size() + " services imported");
@@ -175,18 +178,56 @@ public class KubernetesServiceImporter implements ServiceImporter {
     });
   }
 
-  private CompositeFuture publishRecords(JsonArray items) {
-    List<Future<Record>> publications = new ArrayList<>();
+  private Future<List<Record>> publishRecords(JsonArray items) {
+    List<Record> publications = new ArrayList<>();
     items.forEach(s -> {
       JsonObject svc = ((JsonObject) s);
       Record record = createRecord(svc);
       if (addRecordIfNotContained(record)) {
-        Promise<Record> promise = context.promise();
-        publishRecord(record, promise);
-        publications.add(promise.future());
+        record.getMetadata().put(ServicePublisher.OWNER, owner);
+        publications.add(record);
       }
     });
-    return Future.all(publications);
+    if (publications.isEmpty()) {
+      return context.succeededFuture(publications);
+    }
+    // Published in a single batch, the backend stores all the records at once
+    Promise<List<Record>> promise = context.promise();
+    publisher.publishAll(publications).onComplete((res, err) -> {
+      if (err == null) {
+        LOGGER.info(res.size() + " Kubernetes services published in the vert.x service registry");
+      } else {
+        LOGGER.error("Kubernetes services not published in the vert.x service registry", err);
+      }
+      promise.complete(res, err);
+    });
+    return promise.future();
+  }
+
+  /**
+   * Imports the initial services. The records of the namespace already in the registry, for instance restored from a
+   * snapshot, are kept or updated instead of being published again, and the ones without service are withdrawn. Only
+   * the records published by this importer are reconciled, not the ones of the importers of other clusters or nodes.
+   */
+  private Future<List<Record>> reconcileRecords(JsonArray items) {
+    List<Record> imported = new ArrayList<>();
+    items.forEach(s -> {
+      Record record = createRecord((JsonObject) s);
+      if (addRecordIfNotContained(record)) {
+        imported.add(record);
+      }
+    });
+    JsonObject filter = new JsonObject().put("kubernetes.namespace", namespace).put(KUBERNETES_UUID, "*");
+    Promise<List<Record>> promise = context.promise();
+    publisher.reconcile(owner, filter, imported, record -> new RecordKey(record).toString()).onComplete((res, err) -> {
+      if (err == null) {
+        LOGGER.info(res.size() + " Kubernetes services reconciled with the vert.x service registry");
+      } else {
+        LOGGER.error("Kubernetes services not reconciled with the vert.x service registry", err);
+      }
+      promise.complete(res, err);
+    });
+    return promise.future();
   }
 
   private void watch() {
@@ -335,6 +376,7 @@ public class KubernetesServiceImporter implements ServiceImporter {
   }
 
   private void publishRecord(Record record, Completable<Record> completionHandler) {
+    record.getMetadata().put(ServicePublisher.OWNER, owner);
     publisher.publish(record).onComplete((res, err) -> {
       if (completionHandler != null) {
         completionHandler.complete(res, err);
@@ -0,0 +1,43 @@
+package io.vertx.servicediscovery;
+
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.json.JsonArray;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Converter and mapper for {@link io.vertx.servicediscovery.RecordChange}.
+ * NOTE: This class has been automatically generated from the {@link io.vertx.servicediscovery.RecordChange} original class using Vert.x codegen.
+ */
+public class RecordChangeConverter {
+
+   static void fromJson(Iterable<java.util.Map.Entry<String, Object>> json, RecordChange obj) {
+    for (java.util.Map.Entry<String, Object> member : json) {
+      switch (member.getKey()) {
+        case "record":
+          if (member.getValue() instanceof JsonObject) {
+            obj.setRecord(new io.vertx.servicediscovery.Record((io.vertx.core.json.JsonObject)member.getValue()));
+          }
+          break;
+        case "type":
+          if (member.getValue() instanceof String) {
+            obj.setType(io.vertx.servicediscovery.RecordChangeType.valueOf((String)member.getValue()));
+          }
+          break;
+      }
+    }
+  }
+
+   static void toJson(RecordChange obj, JsonObject json) {
+    toJson(obj, json.getMap());
+  }
+
+   static void toJson(RecordChange obj, java.util.Map<String, Object> json) {
+    if (obj.getRecord() != null) {
+      json.put("record", obj.getRecord().toJson());
+    }
+    if (obj.getType() != null) {
+      json.put("type", obj.getType().name());
+    }
+  }
+}
@@ -0,0 +1,54 @@
+package io.vertx.servicediscovery;
+
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.json.JsonArray;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Converter and mapper for {@link io.vertx.servicediscovery.RecordChanges}.
+ * NOTE: This class has been automatically generated from the {@link io.vertx.servicediscovery.RecordChanges} original class using Vert.x codegen.
+ */
+public class RecordChangesConverter {
+
+   static void fromJson(Iterable<java.util.Map.Entry<String, Object>> json, RecordChanges obj) {
+    for (java.util.Map.Entry<String, Object> member : json) {
+      switch (member.getKey()) {
+        case "changes":
+          if (member.getValue() instanceof JsonArray) {
+            java.util.ArrayList<io.vertx.servicediscovery.RecordChange> list =  new java.util.ArrayList<>();
+            ((Iterable<Object>)member.getValue()).forEach( item -> {
+              if (item instanceof JsonObject)
+                list.add(new io.vertx.servicediscovery.RecordChange((io.vertx.core.json.JsonObject)item));
+            });
+            obj.setChanges(list);
+          }
+          break;
+        case "resyncRequired":
+          if (member.getValue() instanceof Boolean) {
+            obj.setResyncRequired((Boolean)member.getValue());
+          }
+          break;
+        case "revision":
+          if (member.getValue() instanceof Number) {
+            obj.setRevision(((Number)member.getValue()).longValue());
+          }
+          break;
+      }
+    }
+  }
+
+   static void toJson(RecordChanges obj, JsonObject json) {
+    toJson(obj, json.getMap());
+  }
+
+   static void toJson(RecordChanges obj, java.util.Map<String, Object> json) {
+    if (obj.getChanges() != null) {
+      JsonArray array = new JsonArray();
+      obj.getChanges().forEach(item -> array.add(item.toJson()));
+      json.put("changes", array);
+    }
+    json.put("resyncRequired", obj.isResyncRequired());
+    json.put("revision", obj.getRevision());
+  }
+}
@@ -39,6 +39,11 @@ public class RecordConverter {
             obj.setRegistration((String)member.getValue());
           }
           break;
+        case "revision":
+          if (member.getValue() instanceof Number) {
+            obj.setRevision(((Number)member.getValue()).longValue());
+          }
+          break;
         case "type":
           if (member.getValue() instanceof String) {
             obj.setType((String)member.getValue());
@@ -68,6 +73,7 @@ public class RecordConverter {
     if (obj.getRegistration() != null) {
       json.put("registration", obj.getRegistration());
     }
+    json.put("revision", obj.getRevision());
     if (obj.getType() != null) {
       json.put("type", obj.getType());
     }
@@ -34,6 +34,16 @@ public class ServiceDiscoveryOptionsConverter {
             obj.setUsageAddress((String)member.getValue());
           }
           break;
+        case "useBinaryCodec":
+          if (member.getValue() instanceof Boolean) {
+            obj.setUseBinaryCodec((Boolean)member.getValue());
+          }
+          break;
+        case "useLocalView":
+          if (member.getValue() instanceof Boolean) {
+            obj.setUseLocalView((Boolean)member.getValue());
+          }
+          break;
       }
     }
   }
@@ -55,5 +65,7 @@ public class ServiceDiscoveryOptionsConverter {
     if (obj.getUsageAddress() != null) {
       json.put("usageAddress", obj.getUsageAddress());
     }
+    json.put("useBinaryCodec", obj.isUseBinaryCodec());
+    json.put("useLocalView", obj.isUseLocalView());
   }
 }
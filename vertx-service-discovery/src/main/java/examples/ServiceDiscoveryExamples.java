@@ -193,5 +193,25 @@ public class ServiceDiscoveryExamples {
     reference.release();
   }
 
+  public void snapshot(Vertx vertx, ServiceDiscovery discovery) {
+    // Before stopping, save the records
+    discovery.snapshot()
+      .compose(snapshot -> vertx.fileSystem().writeFile("discovery.snapshot", snapshot))
+      .onComplete(ar -> discovery.close());
+  }
+
+  public void restore(Vertx vertx) {
+    ServiceDiscovery discovery = ServiceDiscovery.create(vertx);
+    // On restart, restore the records before registering the importers
+    vertx.fileSystem().readFile("discovery.snapshot")
+      .compose(discovery::restore)
+      .onComplete(ar -> {
+        if (ar.succeeded()) {
+          // The records are published, register the importers
+        } else {
+          // No snapshot, or the snapshot is invalid
+        }
+      });
+  }
 
 }
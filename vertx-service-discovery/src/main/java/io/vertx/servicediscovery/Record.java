@@ -17,10 +17,12 @@
 package io.vertx.servicediscovery;
 
 import io.vertx.codegen.annotations.DataObject;
+import io.vertx.codegen.annotations.GenIgnore;
 import io.vertx.codegen.json.annotations.JsonGen;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 
-import java.util.Objects;
+import java.util.*;
 
 /**
  * Describes a `service`. The record is the only piece of information shared between consumer and provider. It should
@@ -44,8 +46,12 @@ public class Record {
 
   private String registration;
 
+  private long revision;
+
   private String type;
 
+  private boolean snapshot;
+
   /**
    * Creates a new {@link Record}.
    */
@@ -68,11 +74,17 @@ public class Record {
   public JsonObject toJson() {
     JsonObject json = new JsonObject();
     RecordConverter.toJson(this, json);
+    if (revision == 0) {
+      // Only the backends tracking the revisions add it to the stored and transferred records.
+      json.remove("revision");
+    }
     return json;
   }
 
   /**
-   * Creates a new {@link Record} by copying the values from another {@link Record}.
+   * Creates a new {@link Record} by copying the values from another {@link Record}. The metadata and location are
+   * shared with the other record. The copy is always modifiable, but if the other record is a {@link #snapshot()}, its
+   * metadata and location are read-only.
    *
    * @param other the record to copy
    */
@@ -82,6 +94,7 @@ public class Record {
     this.name = other.name;
     this.status = other.status;
     this.registration = other.registration;
+    this.revision = other.revision;
     this.type = other.type;
   }
 
@@ -101,6 +114,7 @@ public class Record {
    * @return the current {@link Record}
    */
   public Record setLocation(JsonObject location) {
+    checkModifiable();
     this.location = location;
     return this;
   }
@@ -115,6 +129,7 @@ public class Record {
   }
 
   public Record setMetadata(JsonObject metadata) {
+    checkModifiable();
     this.metadata = metadata;
     return this;
   }
@@ -135,6 +150,7 @@ public class Record {
    * @return the current {@link Record}
    */
   public Record setName(String name) {
+    checkModifiable();
     this.name = name;
     return this;
   }
@@ -157,6 +173,7 @@ public class Record {
    */
   public Record setStatus(Status status) {
     Objects.requireNonNull(status);
+    checkModifiable();
     this.status = status;
     return this;
   }
@@ -168,6 +185,7 @@ public class Record {
    * @return the current {@link Record}
    */
   public Record setRegistration(String reg) {
+    checkModifiable();
     this.registration = reg;
     return this;
   }
@@ -181,6 +199,30 @@ public class Record {
     return registration;
   }
 
+  /**
+   * Gets the revision of the registry at which the record has been stored, updated or removed for the last time.
+   * Revisions are assigned by the backend and are monotonic across the registry. Backends not tracking the revisions
+   * leave it to {@code 0}.
+   *
+   * @return the revision, {@code 0} if unknown
+   */
+  public long getRevision() {
+    return revision;
+  }
+
+  /**
+   * Sets the revision. This method is called by the backend when the record is stored, updated or removed. The
+   * revision is assigned by the registry, not part of the service description, so it can also be set on a
+   * {@link #snapshot()}.
+   *
+   * @param revision the revision
+   * @return the current {@link Record}
+   */
+  public Record setRevision(long revision) {
+    this.revision = revision;
+    return this;
+  }
+
   /**
    * Gets the service type. The type represents what kind of "resource" is represented by this record. For example it
    * can be "http-endpoint", "database", "message-source"... The set of types is extensible.
@@ -201,12 +243,68 @@ public class Record {
    * @return the current {@link Record}
    */
   public Record setType(String type) {
+    checkModifiable();
     this.type = type;
     return this;
   }
 
   /**
-   * Checks whether or not the current {@link Record} matches the filter.
+   * @return whether the record is an immutable {@link #snapshot()}
+   */
+  @GenIgnore
+  public boolean isSnapshot() {
+    return snapshot;
+  }
+
+  /**
+   * Gets an immutable snapshot of the record. The setters of the snapshot throw an {@link IllegalStateException}, and
+   * its metadata and location are read-only copies, so the snapshot can be shared without copying it again. Taking a
+   * snapshot of a snapshot returns the same instance.
+   *
+   * @return the snapshot
+   */
+  public Record snapshot() {
+    if (snapshot) {
+      return this;
+    }
+    Record copy = new Record(this);
+    copy.location = location == null ? null : freeze(location);
+    copy.metadata = metadata == null ? null : freeze(metadata);
+    copy.snapshot = true;
+    return copy;
+  }
+
+  private void checkModifiable() {
+    if (snapshot) {
+      throw new IllegalStateException("The record is an immutable snapshot");
+    }
+  }
+
+  private static JsonObject freeze(JsonObject json) {
+    Map<String, Object> map = new LinkedHashMap<>(json.size());
+    for (Map.Entry<String, Object> entry : json) {
+      map.put(entry.getKey(), freeze(entry.getValue()));
+    }
+    return new JsonObject(Collections.unmodifiableMap(map));
+  }
+
+  private static Object freeze(Object value) {
+    if (value instanceof JsonObject) {
+      return freeze((JsonObject) value);
+    }
+    if (value instanceof JsonArray) {
+      List<Object> list = new ArrayList<>(((JsonArray) value).size());
+      for (Object item : (JsonArray) value) {
+        list.add(freeze(item));
+      }
+      return new JsonArray(Collections.unmodifiableList(list));
+    }
+    return value;
+  }
+
+  /**
+   * Checks whether or not the current {@link Record} matches the filter. To check many records against the same
+   * filter, prefer {@link RecordFilter#compile(JsonObject)}.
    *
    * @param filter the filter
    * @return whether or not the record matches the filter
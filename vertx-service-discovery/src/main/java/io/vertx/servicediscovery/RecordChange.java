@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2011-2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.servicediscovery;
+
+import io.vertx.codegen.annotations.DataObject;
+import io.vertx.codegen.json.annotations.JsonGen;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * A change of the set of records matching a filter, delivered by
+ * {@link ServiceDiscovery#watch(JsonObject)}.
+ *
+ * @author <a href="http://escoffier.me">Clement Escoffier</a>
+ */
+@DataObject
+@JsonGen(publicConverter = false)
+public class RecordChange {
+
+  private Record record;
+
+  private RecordChangeType type;
+
+  /**
+   * Creates a new {@link RecordChange}.
+   */
+  public RecordChange() {
+    // empty constructor.
+  }
+
+  /**
+   * Creates a new {@link RecordChange}.
+   *
+   * @param type   the kind of change
+   * @param record the record
+   */
+  public RecordChange(RecordChangeType type, Record record) {
+    this.type = type;
+    this.record = record;
+  }
+
+  /**
+   * Creates a new {@link RecordChange} from its json representation.
+   *
+   * @param json the json object
+   */
+  public RecordChange(JsonObject json) {
+    RecordChangeConverter.fromJson(json, this);
+  }
+
+  /**
+   * Creates a new {@link RecordChange} by copying the values from another {@link RecordChange}.
+   *
+   * @param other the change to copy
+   */
+  public RecordChange(RecordChange other) {
+    this.type = other.type;
+    this.record = other.record == null ? null : new Record(other.record);
+  }
+
+  /**
+   * @return the JSON representation of the current {@link RecordChange}.
+   */
+  public JsonObject toJson() {
+    JsonObject json = new JsonObject();
+    RecordChangeConverter.toJson(this, json);
+    return json;
+  }
+
+  /**
+   * @return the kind of change
+   */
+  public RecordChangeType getType() {
+    return type;
+  }
+
+  /**
+   * Sets the kind of change.
+   *
+   * @param type the type
+   * @return the current {@link RecordChange}
+   */
+  public RecordChange setType(RecordChangeType type) {
+    this.type = type;
+    return this;
+  }
+
+  /**
+   * @return the record, in its latest known state. For a {@link RecordChangeType#REMOVED} change, it is the record
+   * as withdrawn or as modified.
+   */
+  public Record getRecord() {
+    return record;
+  }
+
+  /**
+   * Sets the record.
+   *
+   * @param record the record
+   * @return the current {@link RecordChange}
+   */
+  public RecordChange setRecord(Record record) {
+    this.record = record;
+    return this;
+  }
+
+  @Override
+  public String toString() {
+    return toJson().encode();
+  }
+}
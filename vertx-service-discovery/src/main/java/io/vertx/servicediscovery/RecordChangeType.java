@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2011-2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.servicediscovery;
+
+import io.vertx.codegen.annotations.VertxGen;
+
+/**
+ * Kind of change delivered by {@link ServiceDiscovery#watch(io.vertx.core.json.JsonObject)}.
+ *
+ * @author <a href="http://escoffier.me">Clement Escoffier</a>
+ */
+@VertxGen
+public enum RecordChangeType {
+
+  /**
+   * The record matches the filter, it has been published or has been modified to match the filter.
+   */
+  ADDED,
+  /**
+   * The record still matches the filter, but has been modified.
+   */
+  MODIFIED,
+  /**
+   * The record does not match the filter anymore, it has been withdrawn or modified.
+   */
+  REMOVED
+}
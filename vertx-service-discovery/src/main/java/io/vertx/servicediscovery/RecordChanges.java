@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2011-2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.servicediscovery;
+
+import io.vertx.codegen.annotations.DataObject;
+import io.vertx.codegen.json.annotations.JsonGen;
+import io.vertx.core.json.JsonObject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The changes made to the registry since a given revision, returned by
+ * {@link ServiceDiscovery#getRecordsSince(long)}.
+ * <p>
+ * When the backend does not know all the changes since the requested revision, because they have been compacted or
+ * because it does not track the changes, {@link #isResyncRequired()} returns {@code true}, and the records must be
+ * reloaded with {@link ServiceDiscovery#getRecords(JsonObject)}.
+ *
+ * @author <a href="http://escoffier.me">Clement Escoffier</a>
+ */
+@DataObject
+@JsonGen(publicConverter = false)
+public class RecordChanges {
+
+  private List<RecordChange> changes = new ArrayList<>();
+
+  private boolean resyncRequired;
+
+  private long revision;
+
+  /**
+   * Creates a new {@link RecordChanges}.
+   */
+  public RecordChanges() {
+    // empty constructor.
+  }
+
+  /**
+   * Creates a new {@link RecordChanges} from its json representation.
+   *
+   * @param json the json object
+   */
+  public RecordChanges(JsonObject json) {
+    RecordChangesConverter.fromJson(json, this);
+  }
+
+  /**
+   * Creates a new {@link RecordChanges} by copying the values from another {@link RecordChanges}.
+   *
+   * @param other the instance to copy
+   */
+  public RecordChanges(RecordChanges other) {
+    this.changes = new ArrayList<>();
+    for (RecordChange change : other.changes) {
+      this.changes.add(new RecordChange(change));
+    }
+    this.resyncRequired = other.resyncRequired;
+    this.revision = other.revision;
+  }
+
+  /**
+   * @return the JSON representation of the current {@link RecordChanges}.
+   */
+  public JsonObject toJson() {
+    JsonObject json = new JsonObject();
+    RecordChangesConverter.toJson(this, json);
+    return json;
+  }
+
+  /**
+   * @return the changes, ordered by revision. The revision of each change is the revision of its record. Empty when a
+   * resync is required.
+   */
+  public List<RecordChange> getChanges() {
+    return changes;
+  }
+
+  /**
+   * Sets the changes.
+   *
+   * @param changes the changes
+   * @return the current {@link RecordChanges}
+   */
+  public RecordChanges setChanges(List<RecordChange> changes) {
+    this.changes = changes;
+    return this;
+  }
+
+  /**
+   * @return whether the changes since the requested revision are not available, and the records must be reloaded
+   */
+  public boolean isResyncRequired() {
+    return resyncRequired;
+  }
+
+  /**
+   * Sets whether the records must be reloaded.
+   *
+   * @param resyncRequired {@code true} if a resync is required
+   * @return the current {@link RecordChanges}
+   */
+  public RecordChanges setResyncRequired(boolean resyncRequired) {
+    this.resyncRequired = resyncRequired;
+    return this;
+  }
+
+  /**
+   * @return the revision reached once the changes are applied, to pass to the next
+   * {@link ServiceDiscovery#getRecordsSince(long)} call. When a resync is required, the current revision of the
+   * registry.
+   */
+  public long getRevision() {
+    return revision;
+  }
+
+  /**
+   * Sets the revision reached once the changes are applied.
+   *
+   * @param revision the revision
+   * @return the current {@link RecordChanges}
+   */
+  public RecordChanges setRevision(long revision) {
+    this.revision = revision;
+    return this;
+  }
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) 2011-2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.servicediscovery;
+
+import io.vertx.core.json.JsonObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Compiled form of a JSON filter, as accepted by {@link Record#match(JsonObject)}.
+ * <p>
+ * The JSON filter is analyzed once: the `*` wildcards are resolved, the expected status is looked up, and the
+ * `name`, `type`, `registration` and `status` entries are checked directly on the record fields. Evaluating the
+ * compiled filter does not allocate, so it can be reused to check a large number of records. A compiled filter
+ * accepts exactly the same records as {@link Record#match(JsonObject)}. Modifying the JSON filter after the
+ * compilation has no effect on the compiled filter.
+ *
+ * @author <a href="http://escoffier.me">Clement Escoffier</a>
+ */
+public final class RecordFilter implements Function<Record, Boolean> {
+
+  private static final Predicate<Record> NONE = record -> false;
+
+  private static final RecordFilter ACCEPT_ALL = new RecordFilter(new ArrayList<>(), null);
+
+  private static final RecordFilter REJECT_ALL = new RecordFilter(List.of(NONE), null);
+
+  private final Predicate<Record>[] predicates;
+
+  private final String name;
+  private final String type;
+  private final String status;
+  private final String registration;
+
+  @SuppressWarnings("unchecked")
+  private RecordFilter(List<Predicate<Record>> predicates, JsonObject filter) {
+    this.predicates = predicates.toArray(new Predicate[0]);
+    this.name = filter == null ? null : filter.getString("name");
+    this.type = filter == null ? null : filter.getString("type");
+    this.status = filter == null ? null : filter.getString("status");
+    this.registration = filter == null ? null : filter.getString("registration");
+  }
+
+  /**
+   * Compiles the given JSON filter.
+   *
+   * @param filter the filter, {@code null} or empty to accept all records
+   * @return the compiled filter
+   */
+  public static RecordFilter compile(JsonObject filter) {
+    if (filter == null || filter.isEmpty()) {
+      return ACCEPT_ALL;
+    }
+
+    // Checks on the record fields are cheaper, so they are evaluated before the metadata.
+    List<Predicate<Record>> fields = new ArrayList<>();
+    List<Predicate<Record>> metadata = new ArrayList<>();
+    for (String key : filter.fieldNames()) {
+      Predicate<Record> predicate;
+      List<Predicate<Record>> target = fields;
+      switch (key) {
+        case "name":
+          predicate = field(Record::getName, filter.getString(key));
+          break;
+        case "registration":
+          predicate = field(Record::getRegistration, filter.getString(key));
+          break;
+        case "status":
+          predicate = status(filter.getString(key));
+          break;
+        case "type":
+          predicate = field(Record::getType, filter.getString(key));
+          break;
+        default:
+          predicate = metadata(key, filter.getValue(key));
+          target = metadata;
+          break;
+      }
+
+      if (predicate == NONE) {
+        // This entry can never match, neither can the filter.
+        return REJECT_ALL;
+      }
+      target.add(predicate);
+    }
+
+    fields.addAll(metadata);
+    return new RecordFilter(fields, filter);
+  }
+
+  /**
+   * @return the expected service name, {@code null} if the filter has no constraint on the name. The value may be
+   * the `*` wildcard.
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * @return the expected service type, {@code null} if the filter has no constraint on the type. The value may be
+   * the `*` wildcard.
+   */
+  public String getType() {
+    return type;
+  }
+
+  /**
+   * @return the expected status, {@code null} if the filter has no constraint on the status. The value may be the `*`
+   * wildcard.
+   */
+  public String getStatus() {
+    return status;
+  }
+
+  /**
+   * @return the expected registration id, {@code null} if the filter has no constraint on the registration. The value
+   * may be the `*` wildcard.
+   */
+  public String getRegistration() {
+    return registration;
+  }
+
+  /**
+   * Selects the records matching this filter. The stream is consumed lazily: once the limit is reached, the
+   * remaining records are not evaluated.
+   *
+   * @param records             the candidate records
+   * @param includeOutOfService whether the records with a status other than {@link Status#UP} are accepted
+   * @param limit               the maximum number of records to select, {@code 0} or negative for no limit
+   * @return the selected records
+   */
+  public List<Record> select(Stream<Record> records, boolean includeOutOfService, int limit) {
+    Stream<Record> selected = records
+      .filter(record -> includeOutOfService || record.getStatus() == Status.UP)
+      .filter(this::test);
+    if (limit > 0) {
+      selected = selected.limit(limit);
+    }
+    return selected.collect(Collectors.toList());
+  }
+
+  /**
+   * Checks whether the given record matches the filter.
+   *
+   * @param record the record
+   * @return whether the record matches the filter
+   */
+  public boolean test(Record record) {
+    for (Predicate<Record> predicate : predicates) {
+      if (!predicate.test(record)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public Boolean apply(Record record) {
+    return test(record);
+  }
+
+  private static Predicate<Record> field(Function<Record, String> accessor, String expected) {
+    if (expected == null) {
+      return NONE;
+    }
+    if ("*".equals(expected)) {
+      return record -> accessor.apply(record) != null;
+    }
+    return record -> {
+      String actual = accessor.apply(record);
+      return actual != null && actual.equalsIgnoreCase(expected);
+    };
+  }
+
+  private static Predicate<Record> status(String expected) {
+    if (expected == null) {
+      return NONE;
+    }
+    if ("*".equals(expected)) {
+      return record -> record.getStatus() != null;
+    }
+    for (Status status : Status.values()) {
+      if (status.name().equalsIgnoreCase(expected)) {
+        return record -> record.getStatus() == status;
+      }
+    }
+    return NONE;
+  }
+
+  private static Predicate<Record> metadata(String key, Object expected) {
+    if (expected == null) {
+      return NONE;
+    }
+    if ("*".equals(expected)) {
+      return record -> metadata(record, key) != null;
+    }
+    if (expected instanceof String) {
+      String value = (String) expected;
+      return record -> {
+        Object actual = metadata(record, key);
+        return actual instanceof String && ((String) actual).equalsIgnoreCase(value);
+      };
+    }
+    String value = expected.toString();
+    return record -> {
+      Object actual = metadata(record, key);
+      if (actual == null) {
+        return false;
+      }
+      return actual instanceof String ? ((String) actual).equalsIgnoreCase(value) : actual.equals(expected);
+    };
+  }
+
+  private static Object metadata(Record record, String key) {
+    JsonObject metadata = record.getMetadata();
+    return metadata == null ? null : metadata.getValue(key);
+  }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2011-2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.servicediscovery;
+
+import io.vertx.codegen.annotations.VertxGen;
+
+/**
+ * The state of a selection, passed to the {@link SelectionStrategy}. The state is kept per filter by the service
+ * discovery.
+ *
+ * @author <a href="http://escoffier.me">Clement Escoffier</a>
+ */
+@VertxGen
+public interface SelectionContext {
+
+  /**
+   * @return the number of selections previously made for the filter
+   */
+  long sequence();
+
+  /**
+   * Gets the load of a candidate, estimated as the number of service references currently obtained for the record from
+   * this service discovery instance.
+   *
+   * @param record the record
+   * @return the number of references
+   */
+  int load(Record record);
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2011-2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.servicediscovery;
+
+import io.vertx.codegen.annotations.VertxGen;
+import io.vertx.servicediscovery.impl.SelectionStrategies;
+
+import java.util.List;
+
+/**
+ * A strategy selecting one record among the records matching a filter, used by
+ * {@link ServiceDiscovery#select(io.vertx.core.json.JsonObject, SelectionStrategy)} to balance the load between the
+ * instances of a service.
+ *
+ * @author <a href="http://escoffier.me">Clement Escoffier</a>
+ */
+@VertxGen
+@FunctionalInterface
+public interface SelectionStrategy {
+
+  /**
+   * The metadata entry containing the weight of a record, used by the {@link #weighted()} strategy.
+   */
+  String WEIGHT = "weight";
+
+  /**
+   * @return a strategy selecting the candidates in turn
+   */
+  static SelectionStrategy roundRobin() {
+    return SelectionStrategies::roundRobin;
+  }
+
+  /**
+   * @return a strategy selecting a candidate at random
+   */
+  static SelectionStrategy random() {
+    return SelectionStrategies::random;
+  }
+
+  /**
+   * @return a strategy picking two candidates at random, and selecting the one with the lowest
+   * {@link SelectionContext#load(Record) load}
+   */
+  static SelectionStrategy powerOfTwoChoices() {
+    return SelectionStrategies::powerOfTwoChoices;
+  }
+
+  /**
+   * @return a strategy selecting a candidate at random, proportionally to its weight. The weight is read from the
+   * {@link #WEIGHT} metadata entry of the record, and defaults to {@code 1}. Records with a weight of {@code 0} are
+   * never selected.
+   */
+  static SelectionStrategy weighted() {
+    return SelectionStrategies::weighted;
+  }
+
+  /**
+   * Selects a record.
+   *
+   * @param candidates the records matching the filter, never empty
+   * @param context    the state of the selection
+   * @return the selected record, {@code null} to select none
+   */
+  Record select(List<Record> candidates, SelectionContext context);
+}
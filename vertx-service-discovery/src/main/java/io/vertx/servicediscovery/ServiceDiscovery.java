@@ -22,7 +22,9 @@ import io.vertx.codegen.annotations.VertxGen;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.core.json.JsonObject;
+import io.vertx.core.streams.ReadStream;
 import io.vertx.servicediscovery.impl.DiscoveryImpl;
 import io.vertx.servicediscovery.spi.ServiceExporter;
 import io.vertx.servicediscovery.spi.ServiceImporter;
@@ -187,6 +189,28 @@ public interface ServiceDiscovery {
    */
   Future<Record> publish(Record record);
 
+  /**
+   * Publishes a record with a lease. The record is un-published if the lease is not renewed, using
+   * {@link #renew(String)}, within the given time-to-live. This lets consumers stop using a service whose owner has
+   * stopped sending heartbeats. When the backend supports it, the record also expires natively, so it does not outlive
+   * a crashed owner.
+   *
+   * @param record the record
+   * @param ttl    the time-to-live of the lease in milliseconds, must be positive
+   * @return a future notified when the operation has completed (successfully or not). In case of success,
+   * the passed record has a registration id required to renew, modify and un-register the service.
+   */
+  Future<Record> publish(Record record, long ttl);
+
+  /**
+   * Renews the lease of a record published with {@link #publish(Record, long)}, extending it by its time-to-live.
+   * Renewal is the heartbeat of the service: it must be called more often than the time-to-live.
+   *
+   * @param id the registration id
+   * @return a future notified when the operation has completed (successfully or not). It fails if the record has no
+   * lease, for instance because it has already expired.
+   */
+  Future<Void> renew(String id);
 
   /**
    * Un-publishes a record.
@@ -196,6 +220,45 @@ public interface ServiceDiscovery {
    */
   Future<Void> unpublish(String id);
 
+  /**
+   * Publishes a set of records. Unlike calling {@link #publish(Record)} for each record, the backend can store all
+   * the records in a single operation. Exporters and listeners are still notified for each record.
+   *
+   * @param records the records
+   * @return a future notified when the operation has completed (successfully or not). In case of success, the passed
+   * records have a registration id.
+   */
+  Future<List<Record>> publishAll(List<Record> records);
+
+  /**
+   * Un-publishes a set of records. The backend can remove all the records in a single operation.
+   *
+   * @param ids the registration ids
+   * @return a future notified when the operation has completed (successfully or not).
+   */
+  Future<Void> unpublishAll(List<String> ids);
+
+  /**
+   * Writes the records of the registry as a compact binary snapshot. The snapshot can be stored, and given to
+   * {@link #restore(Buffer)} to start from the same records after a restart, without waiting for the importers to
+   * publish them again.
+   *
+   * @return a future notified with the snapshot
+   */
+  Future<Buffer> snapshot();
+
+  /**
+   * Publishes the records of a snapshot written by {@link #snapshot()}, in a single batch like
+   * {@link #publishAll(List)}. The records get new registration ids, and are not published with a lease. The
+   * registry is expected not to contain these records yet, typically when the service discovery has just been
+   * created. The importers registered afterwards reconcile the services they import with the restored records they own,
+   * updating or withdrawing them when they changed, instead of publishing them again.
+   *
+   * @param snapshot the snapshot
+   * @return a future notified with the restored records. It fails if the buffer is not a valid snapshot.
+   */
+  Future<List<Record>> restore(Buffer snapshot);
+
   /**
    * Lookups for a single record.
    * <p>
@@ -273,6 +336,64 @@ public interface ServiceDiscovery {
    */
   Future<List<Record>> getRecords(JsonObject filter);
 
+  /**
+   * Streams the records matching the filter. Unlike {@link #getRecords(JsonObject)}, the records are not collected in
+   * a list: depending on the backend, they are read incrementally, when the stream requests them. Use it to go
+   * through large registries, and {@link ReadStream#pause()} or {@link ReadStream#fetch(long)} to control the flow.
+   * The streamed records may be immutable {@link Record#snapshot() snapshots}, shared with the cache of the backend,
+   * use {@code new Record(record.toJson())} to get a modifiable copy.
+   *
+   * @param filter        the filter - see {@link #getRecord(JsonObject)}
+   * @return the stream of matching records. The stream ends once all the records have been delivered.
+   */
+  ReadStream<Record> streamRecords(JsonObject filter);
+
+  /**
+   * Watches the records matching the filter. The stream first delivers a {@link RecordChangeType#ADDED} change for
+   * each record currently matching the filter, then a change each time a record starts matching the filter
+   * ({@link RecordChangeType#ADDED}), is modified while matching it ({@link RecordChangeType#MODIFIED}), or stops
+   * matching it because it has been withdrawn or modified ({@link RecordChangeType#REMOVED}).
+   * <p>
+   * The changes are computed from the events sent on the announce address, the filter is compiled and evaluated once
+   * per event. Unless the filter specifies a {@code status}, only the {@code UP} records match. The watch starts when
+   * a handler is set, and stops when the handler is set to {@code null} or when the service discovery is closed, the
+   * stream ends then. The changes not consumed yet, while the stream is paused, are buffered up to a limit; a stream
+   * falling further behind fails with an {@link IllegalStateException} and ends, watch again to resync.
+   *
+   * @param filter        the filter - see {@link #getRecord(JsonObject)}
+   * @return the stream of changes
+   */
+  ReadStream<RecordChange> watch(JsonObject filter);
+
+  /**
+   * Selects one of the records matching the filter using the given strategy, to balance the load between the
+   * instances of a service. Unlike {@link #getRecord(JsonObject)}, which returns any matching record, successive calls
+   * spread the selections over the matching records.
+   * <p>
+   * The matching records and the selection state are kept per filter, and kept up to date from the events sent on the
+   * announce address, so most selections do not query the backend. The returned record is an immutable
+   * {@link Record#snapshot() snapshot}, use {@code new Record(record.toJson())} to get a modifiable copy.
+   *
+   * @param filter   the filter - see {@link #getRecord(JsonObject)}
+   * @param strategy the selection strategy, such as {@link SelectionStrategy#roundRobin()}
+   * @return a future notified with the selected record, {@code null} if no record matches
+   */
+  Future<@Nullable Record> select(JsonObject filter, SelectionStrategy strategy);
+
+  /**
+   * Gets the changes made to the registry since the given revision. Each store, update and removal is stamped with a
+   * registry-wide monotonic revision, available with {@link Record#getRevision()} on the records, including the
+   * records sent on the announce address. A consumer can therefore detect missed events, and catch up with this method
+   * instead of reloading all the records.
+   * <p>
+   * If the changes are not all available anymore, or if the backend does not track them, the result requires a
+   * resync: reload the records with {@link #getRecords(JsonObject)}, then continue from the revision of the result.
+   *
+   * @param revision the last revision known by the caller, {@code 0} to start from the beginning
+   * @return a future notified with the changes
+   */
+  Future<RecordChanges> getRecordsSince(long revision);
+
   /**
    * Lookups for a set of records. Unlike {@link #getRecord(Function)}, this method returns all matching
    * records.
@@ -314,7 +435,17 @@ public interface ServiceDiscovery {
   Future<Record> update(Record record);
 
   /**
-   * @return the set of service references retrieved by this service discovery.
+   * Updates the given records. The records must have been published, and have their registration id set. The backend
+   * can update all the records in a single operation.
+   *
+   * @param records the updated records
+   * @return a future notified when the operation has completed.
+   */
+  Future<List<Record>> updateAll(List<Record> records);
+
+  /**
+   * @return the set of service references retrieved by this service discovery. The set is a read-only view, reflecting
+   * the references bound and released after the call.
    */
   Set<ServiceReference> bindings();
 
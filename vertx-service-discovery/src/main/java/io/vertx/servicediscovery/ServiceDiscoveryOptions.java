@@ -32,11 +32,15 @@ public class ServiceDiscoveryOptions {
 
   public static final String DEFAULT_ANNOUNCE_ADDRESS = "vertx.discovery.announce";
   public static final String DEFAULT_USAGE_ADDRESS = "vertx.discovery.usage";
+  public static final boolean DEFAULT_USE_LOCAL_VIEW = false;
+  public static final boolean DEFAULT_USE_BINARY_CODEC = false;
 
   private String announceAddress = DEFAULT_ANNOUNCE_ADDRESS;
   private JsonObject backendConfiguration = new JsonObject();
   private String name = null;
   private String usageAddress = DEFAULT_USAGE_ADDRESS;
+  private boolean useLocalView = DEFAULT_USE_LOCAL_VIEW;
+  private boolean useBinaryCodec = DEFAULT_USE_BINARY_CODEC;
 
   /**
    * Creates a new instance of {@link ServiceDiscoveryOptions} using the default values.
@@ -55,6 +59,8 @@ public class ServiceDiscoveryOptions {
     this.backendConfiguration = other.backendConfiguration.copy();
     this.name = other.name;
     this.usageAddress = other.usageAddress;
+    this.useLocalView = other.useLocalView;
+    this.useBinaryCodec = other.useBinaryCodec;
   }
 
   /**
@@ -160,4 +166,47 @@ public class ServiceDiscoveryOptions {
     this.usageAddress = usageAddress;
     return this;
   }
+
+  /**
+   * @return whether lookups are answered from an in-process view of the registry instead of querying the backend.
+   */
+  public boolean isUseLocalView() {
+    return useLocalView;
+  }
+
+  /**
+   * Sets whether lookups are answered from an in-process view of the registry. The view is loaded once from the
+   * backend and then kept up to date from the events sent on the announce address. Enable it only if all the changes
+   * are made through service discovery instances sharing the same announce address, as changes made directly in the
+   * backend are not seen by the view.
+   *
+   * @param useLocalView {@code true} to enable the local view
+   * @return the current {@link ServiceDiscoveryOptions}
+   */
+  public ServiceDiscoveryOptions setUseLocalView(boolean useLocalView) {
+    this.useLocalView = useLocalView;
+    return this;
+  }
+
+  /**
+   * @return whether the announce and usage events are sent with the binary codecs instead of as JSON objects.
+   */
+  public boolean isUseBinaryCodec() {
+    return useBinaryCodec;
+  }
+
+  /**
+   * Sets whether the announce and usage events are sent with the binary codecs. With the binary codecs, the
+   * announce events are received as {@link Record} instead of {@link JsonObject}, and are not encoded as JSON text
+   * when sent to the other nodes. The usage events are still received as {@link JsonObject}. Every node receiving the
+   * events must run a version of the service discovery providing the codecs. Disabled by default, so existing
+   * listeners keep receiving JSON objects.
+   *
+   * @param useBinaryCodec {@code true} to send the events with the binary codecs
+   * @return the current {@link ServiceDiscoveryOptions}
+   */
+  public ServiceDiscoveryOptions setUseBinaryCodec(boolean useBinaryCodec) {
+    this.useBinaryCodec = useBinaryCodec;
+    return this;
+  }
 }
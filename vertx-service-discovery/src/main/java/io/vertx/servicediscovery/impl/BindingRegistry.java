@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2011-2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.servicediscovery.impl;
+
+import io.vertx.servicediscovery.Record;
+import io.vertx.servicediscovery.ServiceReference;
+
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The service references retrieved from a service discovery instance.
+ * <p>
+ * The references are kept in a concurrent map keyed by identity, so binding and unbinding are constant time whatever
+ * the number of live references, and do not depend on the {@code equals} method of the references. The registry also
+ * counts the references per registration id. The {@link #view()} is a read-only, weakly consistent view of the
+ * references, it is not copied.
+ *
+ * @author <a href="http://escoffier.me">Clement Escoffier</a>
+ */
+class BindingRegistry {
+
+  private final Map<Key, ServiceReference> references = new ConcurrentHashMap<>();
+  private final Map<String, Integer> counts = new ConcurrentHashMap<>();
+  private final Set<ServiceReference> view = Collections.unmodifiableSet(new View());
+
+  /**
+   * Adds a reference.
+   *
+   * @param reference the reference
+   * @return whether the reference was not already bound
+   */
+  boolean add(ServiceReference reference) {
+    if (references.putIfAbsent(new Key(reference), reference) != null) {
+      return false;
+    }
+    String registration = registration(reference);
+    if (registration != null) {
+      counts.merge(registration, 1, Integer::sum);
+    }
+    return true;
+  }
+
+  /**
+   * Removes a reference.
+   *
+   * @param reference the reference
+   * @return whether the reference was bound
+   */
+  boolean remove(ServiceReference reference) {
+    if (references.remove(new Key(reference)) == null) {
+      return false;
+    }
+    String registration = registration(reference);
+    if (registration != null) {
+      counts.computeIfPresent(registration, (k, count) -> count == 1 ? null : count - 1);
+    }
+    return true;
+  }
+
+  /**
+   * @param reference the reference
+   * @return whether the reference is bound
+   */
+  boolean contains(ServiceReference reference) {
+    return references.containsKey(new Key(reference));
+  }
+
+  /**
+   * @param registration the registration id of a record
+   * @return the number of references bound to the record
+   */
+  int count(String registration) {
+    return registration == null ? 0 : counts.getOrDefault(registration, 0);
+  }
+
+  /**
+   * @return a read-only view of the references
+   */
+  Set<ServiceReference> view() {
+    return view;
+  }
+
+  /**
+   * Removes all the references.
+   */
+  void clear() {
+    references.clear();
+    counts.clear();
+  }
+
+  private static String registration(ServiceReference reference) {
+    Record record = reference.record();
+    return record == null ? null : record.getRegistration();
+  }
+
+  /**
+   * Wraps a reference, comparing it by identity.
+   */
+  private static final class Key {
+
+    private final ServiceReference reference;
+
+    private Key(ServiceReference reference) {
+      this.reference = reference;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof Key && ((Key) o).reference == reference;
+    }
+
+    @Override
+    public int hashCode() {
+      return System.identityHashCode(reference);
+    }
+  }
+
+  private final class View extends AbstractSet<ServiceReference> {
+
+    @Override
+    public Iterator<ServiceReference> iterator() {
+      return references.values().iterator();
+    }
+
+    @Override
+    public int size() {
+      return references.size();
+    }
+
+    @Override
+    public boolean contains(Object o) {
+      return o instanceof ServiceReference && BindingRegistry.this.contains((ServiceReference) o);
+    }
+  }
+}
@@ -19,30 +19,123 @@ package io.vertx.servicediscovery.impl;
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
+import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.core.shareddata.AsyncMap;
+import io.vertx.core.streams.ReadStream;
 import io.vertx.servicediscovery.Record;
+import io.vertx.servicediscovery.RecordChangeType;
+import io.vertx.servicediscovery.RecordChanges;
+import io.vertx.servicediscovery.RecordFilter;
+import io.vertx.servicediscovery.spi.RecordStream;
 import io.vertx.servicediscovery.spi.ServiceDiscoveryBackend;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
-import java.util.UUID;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 /**
+ * Default backend, storing the records in an {@link AsyncMap}, local or cluster-wide.
+ * <p>
+ * Secondary indexes can be enabled with the {@code indexes} entry of the configuration, listing the indexed fields:
+ * {@code name}, {@code type}, {@code status} or any metadata key. Lookups with a filter constraining an indexed field
+ * only read the matching records instead of the whole registry. All the discovery instances sharing the registry must
+ * use the same indexes.
+ * <p>
+ * The decoded records are kept in a bounded cache, so the records that have not changed are not decoded again on each
+ * lookup. The {@code cacheSize} entry of the configuration sets the maximum number of cached records,
+ * {@link #DEFAULT_CACHE_SIZE} by default, {@code 0} to disable the cache.
+ * <p>
+ * The revisions are enabled with the {@code changeLogSize} entry of the configuration, setting the number of changes
+ * kept. Each store, update and removal is then stamped with a revision, and the last changes are kept so
+ * {@link #getRecordsSince(long, Handler)} can return them. As it costs a cluster-wide counter increment and a change
+ * log append per write, it is disabled by default, unless the near cache is enabled, which uses
+ * {@link #DEFAULT_CHANGE_LOG_SIZE} changes.
+ * <p>
+ * The registry can be partitioned into several maps with the {@code shards} entry of the configuration, setting the
+ * number of maps ({@code 1} by default). The records are partitioned by name, or by type if the {@code shardBy} entry
+ * is set to {@code type}, so the lookups constraining this field only read one map. All the discovery instances
+ * sharing the registry must use the same partitioning.
+ * <p>
+ * A per-node copy of the registry is used for the lookups when the {@code nearCache} entry of the configuration is
+ * set, see {@link NearCache}. The entry is a JSON object, possibly empty, with the invalidation {@code address}
+ * ({@link NearCache#DEFAULT_ADDRESS} by default), and the {@code checkInterval} and {@code resyncInterval} in
+ * milliseconds. The near cache requires the change log.
+ * <p>
+ * The records stored with a time-to-live carry it in their {@code lease} entry, ignored when decoding them, so the
+ * near caches and the index builds know that they may expire without any change.
+ * <p>
+ * The records returned from the record cache or the near cache are immutable {@link Record#snapshot() snapshots},
+ * shared by the lookups instead of being copied for each of them. {@link DiscoveryImpl} copies them on the lookups
+ * returning modifiable records.
+ *
  * @author <a href="http://escoffier.me">Clement Escoffier</a>
  */
 public class DefaultServiceDiscoveryBackend implements ServiceDiscoveryBackend {
+  /**
+   * The default maximum number of records kept in the decoded record cache.
+   */
+  public static final int DEFAULT_CACHE_SIZE = 10_000;
+
+  /**
+   * The default number of changes kept in the change log, when the near cache is enabled.
+   */
+  public static final int DEFAULT_CHANGE_LOG_SIZE = 1_000;
+
   private static final String MESSAGE_NO_REG_ID = "No registration id in the record";
-  private AsyncMap<String, String> registry;
+  private ShardedRegistry registry;
+  private int shards;
+  private String shardBy;
+  private RecordIndexes indexes;
+  private RecordCache cache;
+  private RecordChangeLog changes;
+  private NearCache nearCache;
   private Vertx vertx;
 
   @Override
   public void init(Vertx vertx, JsonObject config) {
     this.vertx = vertx;
-    if (!vertx.isClustered() || useLocalBackend()) {
-      registry = vertx.sharedData().<String, String>getLocalAsyncMap("service.registry").result();
+    boolean local = !vertx.isClustered() || useLocalBackend();
+    shards = config == null ? 1 : config.getInteger("shards", 1);
+    shardBy = config == null ? "name" : config.getString("shardBy", "name");
+    ShardedRegistry.validate(shards, shardBy);
+    if (local) {
+      registry = ShardedRegistry.create(vertx, true, shards, shardBy).result();
+    }
+    JsonArray fields = config == null ? null : config.getJsonArray("indexes");
+    if (fields != null && !fields.isEmpty()) {
+      List<String> list = new ArrayList<>();
+      fields.forEach(field -> list.add(field.toString()));
+      indexes = new RecordIndexes(vertx, local, list);
+    }
+    int cacheSize = config == null ? DEFAULT_CACHE_SIZE : config.getInteger("cacheSize", DEFAULT_CACHE_SIZE);
+    if (cacheSize > 0) {
+      cache = new RecordCache(cacheSize);
+    }
+    JsonObject near = config == null ? null : config.getJsonObject("nearCache");
+    int changeLogSize = config == null ? 0
+      : config.getInteger("changeLogSize", near != null ? DEFAULT_CHANGE_LOG_SIZE : 0);
+    if (changeLogSize > 0) {
+      changes = new RecordChangeLog(vertx, local, changeLogSize);
+    }
+    if (near != null) {
+      if (changes == null) {
+        throw new IllegalArgumentException("The near cache requires the change log");
+      }
+      nearCache = new NearCache(vertx, changes, near, () -> registry().compose(reg -> reg.entries()),
+        uuid -> registry().compose(reg -> reg.map(uuid).get(uuid)));
     }
   }
 
@@ -60,17 +153,33 @@ public class DefaultServiceDiscoveryBackend implements ServiceDiscoveryBackend {
 
   @Override
   public void store(Record record, Handler<AsyncResult<Record>> resultHandler) {
-    String uuid = UUID.randomUUID().toString();
+    store(record, 0, resultHandler);
+  }
+
+  /**
+   * Stores the record with the time-to-live of the map entry set to the given time-to-live.
+   */
+  @Override
+  public void store(Record record, long ttl, Handler<AsyncResult<Record>> resultHandler) {
     if (record.getRegistration() != null) {
       throw new IllegalArgumentException("The record has already been registered");
     }
-    record.setRegistration(uuid);
     retrieveRegistry(reg -> {
       if (reg.failed()) {
         resultHandler.handle(failure(reg.cause()));
       } else {
-        reg.result().put(uuid, record.toJson().encode()).onComplete(ar -> {
+        String uuid = reg.result().newRegistration(record);
+        record.setRegistration(uuid);
+        // The record is indexed first, so it is never visible without being indexed.
+        nextRevision().compose(revision -> {
+          record.setRevision(revision);
+          return indexed(record, ttl)
+            .compose(v -> ttl > 0 ? reg.result().map(uuid).put(uuid, encode(record, ttl), ttl)
+              : reg.result().map(uuid).put(uuid, encode(record, 0)))
+            .compose(v -> logged(revision, RecordChangeType.ADDED, record, ttl));
+        }).onComplete(ar -> {
           if (ar.succeeded()) {
+            changed(uuid, record.getRevision());
             resultHandler.handle(Future.succeededFuture(record));
           } else {
             resultHandler.handle(Future.failedFuture(ar.cause()));
@@ -80,11 +189,133 @@ public class DefaultServiceDiscoveryBackend implements ServiceDiscoveryBackend {
     });
   }
 
-  private synchronized void retrieveRegistry(Handler<AsyncResult<AsyncMap<String, String>>> handler) {
+  /**
+   * Renews the time-to-live of the map entry.
+   */
+  @Override
+  public void renew(String uuid, long ttl, Handler<AsyncResult<Void>> resultHandler) {
+    retrieveRegistry(reg -> {
+      if (reg.failed()) {
+        resultHandler.handle(failure(reg.cause()));
+        return;
+      }
+      renew(reg.result().map(uuid), uuid, ttl).onComplete(resultHandler);
+    });
+  }
+
+  /**
+   * Writes the entry again with the new time-to-live, as the map cannot extend it. The write is conditioned on the
+   * value that has been read, so a concurrent update is not overwritten and a removed record is not written back. The
+   * entry is read again if it has been updated in between. The index entries of the record get the same time-to-live.
+   */
+  private Future<Void> renew(AsyncMap<String, String> map, String uuid, long ttl) {
+    return map.get(uuid).compose(encoded -> {
+      if (encoded == null) {
+        return Future.failedFuture(new IllegalArgumentException("Unknown registration " + uuid));
+      }
+      JsonObject json = new JsonObject(encoded);
+      // An update drops the lease entry, it is written back.
+      String leased = json.put(RecordChangeLog.LEASE, ttl).encode();
+      return replace(map, uuid, encoded, leased, ttl)
+        .compose(replaced -> !replaced ? renew(map, uuid, ttl) : indexed(new Record(json), ttl).otherwiseEmpty());
+    });
+  }
+
+  /**
+   * Replaces the entry with a new time-to-live, if it still has the given value.
+   * <p>
+   * When the cluster manager cannot replace an entry with a time-to-live, the entry is removed and written again. This
+   * is not atomic: the record is missing from the map between both steps, so a lookup made in between does not find
+   * it. A conditional replace without time-to-live followed by a put would keep the record visible, but could write
+   * back a record removed or updated in between, which is worse than a transient miss.
+   */
+  private static Future<Boolean> replace(AsyncMap<String, String> map, String uuid, String encoded, String updated,
+                                         long ttl) {
+    return map.replaceIfPresent(uuid, encoded, updated, ttl).recover(err -> {
+      if (!(err instanceof UnsupportedOperationException)) {
+        return Future.failedFuture(err);
+      }
+      // The cluster manager cannot replace with a time-to-live: the entry is removed if unchanged and written again,
+      // unless it has been written concurrently.
+      return map.removeIfPresent(uuid, encoded).compose(removed -> !removed ? Future.succeededFuture(false)
+        : map.putIfAbsent(uuid, updated, ttl).map(previous -> previous == null));
+    });
+  }
+
+  /**
+   * Encodes a record to store it, with its time-to-live if it has one.
+   */
+  private static String encode(Record record, long ttl) {
+    JsonObject json = record.toJson();
+    if (ttl > 0) {
+      json.put(RecordChangeLog.LEASE, ttl);
+    }
+    return json.encode();
+  }
+
+  private Future<Void> indexed(Record record, long ttl) {
+    return indexes == null ? Future.succeededFuture() : indexes.add(record, ttl);
+  }
+
+  private Future<Void> unindexed(String previous, Record current) {
+    if (indexes == null || previous == null) {
+      return Future.succeededFuture();
+    }
+    // Leftover index entries are ignored by the lookups, a failure does not fail the operation.
+    return indexes.remove(new Record(new JsonObject(previous)), current).otherwiseEmpty();
+  }
+
+  private Future<Long> nextRevision() {
+    return changes == null ? Future.succeededFuture(0L) : changes.next();
+  }
+
+  private Future<Void> logged(long revision, RecordChangeType type, Record record, long ttl) {
+    if (changes == null) {
+      return Future.succeededFuture();
+    }
+    // The change is already applied, a missing entry in the log only leads the readers to resync.
+    return changes.append(revision, type, record, ttl).otherwiseEmpty();
+  }
+
+  /**
+   * Decodes a stored record. The returned record may be a snapshot shared with the cache.
+   */
+  private Record decode(String registration, String encoded) {
+    return cache == null ? new Record(new JsonObject(encoded)) : cache.decode(registration, encoded);
+  }
+
+
+  private void invalidate(String registration) {
+    if (cache != null) {
+      cache.invalidate(registration);
+    }
+  }
+
+  /**
+   * Notifies the near caches of a change applied to the registry.
+   */
+  private void changed(String registration, long revision) {
+    // Without revision, the change is not in the change log, the near caches find it on their next resync.
+    if (nearCache != null && revision > 0) {
+      nearCache.changed(registration, revision);
+    }
+  }
+
+  /**
+   * Gets the records of the near cache, if it can serve the lookups on the given registration.
+   *
+   * @param registration the registration id, {@code null} for the lookups that may match any record
+   * @return the records, {@code null} if the registry must be read
+   */
+  private Map<String, Record> nearRecords(String registration) {
+    return nearCache == null ? null : nearCache.records(registration);
+  }
+
+  private synchronized void retrieveRegistry(Handler<AsyncResult<ShardedRegistry>> handler) {
     if (registry != null) {
       handler.handle(Future.succeededFuture(registry));
     } else {
-      vertx.sharedData().<String, String>getClusterWideMap("service.registry").onComplete(ar -> {
+      ShardedRegistry.create(vertx, false, shards, shardBy).onComplete(ar -> {
         synchronized (DefaultServiceDiscoveryBackend.class) {
           if (ar.failed()) {
             handler.handle(ar);
@@ -114,19 +345,22 @@ public class DefaultServiceDiscoveryBackend implements ServiceDiscoveryBackend {
         if (reg.failed()) {
           resultHandler.handle(failure(reg.cause()));
         } else {
-          reg.result().remove(uuid).onComplete(ar -> {
-            if (ar.succeeded()) {
-              if (ar.result() == null) {
-                // Not found
-                resultHandler.handle(Future.failedFuture("Record '" + uuid + "' not found"));
-              } else {
-                resultHandler.handle(Future.succeededFuture(
-                  new Record(new JsonObject(ar.result()))));
-              }
-            } else {
-              resultHandler.handle(Future.failedFuture(ar.cause()));
+          // The revision is taken first, so a removal is never reported with the revision of the stored record.
+          nextRevision().compose(revision -> reg.result().map(uuid).remove(uuid).compose(encoded -> {
+            if (encoded == null) {
+              return Future.failedFuture("Record '" + uuid + "' not found");
             }
-          });
+            invalidate(uuid);
+            Record removed = new Record(new JsonObject(encoded)).setRevision(revision);
+            return logged(revision, RecordChangeType.REMOVED, removed, 0)
+              .compose(v -> unindexed(encoded, null))
+              .compose(v -> reg.result().relocate(uuid, encoded, null).otherwiseEmpty())
+              .otherwiseEmpty()
+              .map(v -> {
+                changed(uuid, revision);
+                return removed;
+              });
+          })).onComplete(resultHandler);
         }
       }
     );
@@ -139,8 +373,26 @@ public class DefaultServiceDiscoveryBackend implements ServiceDiscoveryBackend {
         if (reg.failed()) {
           resultHandler.handle(failure(reg.cause()));
         } else {
-          reg.result().put(record.getRegistration(), record.toJson().encode()).onComplete(ar -> {
+          nextRevision().compose(revision -> {
+            record.setRevision(revision);
+            String encoded = record.toJson().encode();
+            AsyncMap<String, String> map = reg.result().map(record.getRegistration());
+            Future<Void> future;
+            if (indexes == null && shards == 1) {
+              future = map.put(record.getRegistration(), encoded);
+            } else {
+              // The new values are indexed before the update, and the old ones are removed afterwards.
+              future = indexed(record, 0)
+                .compose(v -> map.replace(record.getRegistration(), encoded))
+                .compose(previous -> (previous != null ? unindexed(previous, record)
+                  : map.put(record.getRegistration(), encoded))
+                  .compose(v -> reg.result().relocate(record.getRegistration(), previous, record)));
+            }
+            return future.compose(v -> logged(revision, RecordChangeType.MODIFIED, record, 0));
+          }).onComplete(ar -> {
+            invalidate(record.getRegistration());
             if (ar.succeeded()) {
+              changed(record.getRegistration(), record.getRevision());
               resultHandler.handle(Future.succeededFuture());
             } else {
               resultHandler.handle(Future.failedFuture(ar.cause()));
@@ -153,14 +405,19 @@ public class DefaultServiceDiscoveryBackend implements ServiceDiscoveryBackend {
 
   @Override
   public void getRecords(Handler<AsyncResult<List<Record>>> resultHandler) {
+    Map<String, Record> near = nearRecords(null);
+    if (near != null) {
+      resultHandler.handle(Future.succeededFuture(new ArrayList<>(near.values())));
+      return;
+    }
     retrieveRegistry(reg -> {
         if (reg.failed()) {
           resultHandler.handle(failure(reg.cause()));
         } else {
           reg.result().entries().onComplete(ar -> {
             if (ar.succeeded()) {
-              resultHandler.handle(Future.succeededFuture(ar.result().values().stream()
-                .map(s -> new Record(new JsonObject(s)))
+              resultHandler.handle(Future.succeededFuture(ar.result().entrySet().stream()
+                .map(entry -> decode(entry.getKey(), entry.getValue()))
                 .collect(Collectors.toList())));
             } else {
               resultHandler.handle(Future.failedFuture(ar.cause()));
@@ -171,8 +428,144 @@ public class DefaultServiceDiscoveryBackend implements ServiceDiscoveryBackend {
     );
   }
 
+  @Override
+  public void getRecords(JsonObject filter, boolean includeOutOfService, int limit,
+                         Handler<AsyncResult<List<Record>>> resultHandler) {
+    RecordFilter accept = RecordFilter.compile(filter);
+    String registration = accept.getRegistration();
+    if (registration != null && !"*".equals(registration)) {
+      // Registration ids are lower case UUIDs, so a single entry needs to be read.
+      getRecord(registration.toLowerCase(Locale.ROOT), ar -> {
+        if (ar.succeeded()) {
+          resultHandler.handle(Future.succeededFuture(
+            accept.select(Stream.ofNullable(ar.result()), includeOutOfService, limit)));
+        } else {
+          resultHandler.handle(Future.failedFuture(ar.cause()));
+        }
+      });
+      return;
+    }
+
+    Map<String, Record> near = nearRecords(null);
+    if (near != null) {
+      resultHandler.handle(Future.succeededFuture(accept.select(near.values().stream(), includeOutOfService, limit)));
+      return;
+    }
+
+    retrieveRegistry(reg -> {
+        if (reg.failed()) {
+          resultHandler.handle(failure(reg.cause()));
+        } else {
+          Future<Set<String>> candidates = indexes == null ? Future.succeededFuture()
+            : indexes.candidates(accept, filter, reg.result());
+          candidates.compose(ids -> {
+            if (ids == null) {
+              // Records are decoded lazily, and not at all once the limit is reached.
+              return reg.result().entries(accept).map(entries -> accept.select(entries.entrySet().stream()
+                .map(entry -> decode(entry.getKey(), entry.getValue())), includeOutOfService, limit));
+            }
+            List<String> keys = new ArrayList<>(ids);
+            List<Future<String>> futures = keys.stream().map(reg.result()::get).collect(Collectors.toList());
+            // The index entries may be stale, the filter is checked on the records.
+            return Future.all(futures).map(v -> accept.select(decode(keys, futures), includeOutOfService, limit));
+          }).onComplete(resultHandler);
+        }
+      }
+    );
+  }
+
+  @Override
+  public ReadStream<Record> streamRecords(JsonObject filter, boolean includeOutOfService) {
+    // Only the keys are read upfront, the records are then read by chunks when the stream requests them.
+    Deque<String> remaining = new ArrayDeque<>();
+    AtomicReference<ShardedRegistry> registry = new AtomicReference<>();
+    return new RecordStream(filter, includeOutOfService, () -> {
+      if (registry.get() != null) {
+        return nextChunk(registry.get(), remaining);
+      }
+      return registry()
+        .compose(reg -> {
+          registry.set(reg);
+          return keys(reg, RecordFilter.compile(filter), filter);
+        })
+        .compose(keys -> {
+          remaining.addAll(keys);
+          return nextChunk(registry.get(), remaining);
+        });
+    });
+  }
+
+  private Future<ShardedRegistry> registry() {
+    Promise<ShardedRegistry> promise = Promise.promise();
+    retrieveRegistry(ar -> {
+      if (ar.succeeded()) {
+        promise.complete(ar.result());
+      } else {
+        promise.fail(failure(ar.cause()).cause());
+      }
+    });
+    return promise.future();
+  }
+
+  /**
+   * Gets the keys of the records that may match the filter.
+   */
+  private Future<Set<String>> keys(ShardedRegistry registry, RecordFilter accept, JsonObject filter) {
+    String registration = accept.getRegistration();
+    if (registration != null && !"*".equals(registration)) {
+      return Future.succeededFuture(Collections.singleton(registration.toLowerCase(Locale.ROOT)));
+    }
+    Future<Set<String>> candidates = indexes == null ? Future.succeededFuture() : indexes.candidates(accept, filter,
+      registry);
+    return candidates.compose(ids -> ids != null ? Future.succeededFuture(ids) : registry.keys(accept));
+  }
+
+  private Future<List<Record>> nextChunk(ShardedRegistry registry, Deque<String> remaining) {
+    if (remaining.isEmpty()) {
+      return Future.succeededFuture();
+    }
+    List<String> keys = new ArrayList<>();
+    List<Future<String>> futures = new ArrayList<>();
+    while (futures.size() < RecordStream.PAGE_SIZE && !remaining.isEmpty()) {
+      keys.add(remaining.poll());
+      futures.add(registry.get(keys.get(keys.size() - 1)));
+    }
+    return Future.all(futures).map(v -> decode(keys, futures).collect(Collectors.toList()));
+  }
+
+  /**
+   * Decodes the values read for the given keys, skipping the records removed since the keys have been read.
+   */
+  private Stream<Record> decode(List<String> keys, List<Future<String>> values) {
+    return IntStream.range(0, keys.size())
+      .filter(i -> values.get(i).result() != null)
+      .mapToObj(i -> decode(keys.get(i), values.get(i).result()));
+  }
+
+  @Override
+  public void close() {
+    if (nearCache != null) {
+      nearCache.close();
+    }
+  }
+
+  @Override
+  public void getRecordsSince(long revision, Handler<AsyncResult<RecordChanges>> resultHandler) {
+    if (changes == null) {
+      ServiceDiscoveryBackend.super.getRecordsSince(revision, resultHandler);
+    } else {
+      changes.since(revision).onComplete(resultHandler);
+    }
+  }
+
   @Override
   public void getRecord(String uuid, Handler<AsyncResult<Record>> resultHandler) {
+    Map<String, Record> near = nearRecords(uuid);
+    if (near != null) {
+      Record record = near.get(uuid);
+      resultHandler.handle(Future.succeededFuture(record));
+      return;
+    }
     retrieveRegistry(reg -> {
       if (reg.failed()) {
         resultHandler.handle(failure(reg.cause()));
@@ -180,7 +573,7 @@ public class DefaultServiceDiscoveryBackend implements ServiceDiscoveryBackend {
         reg.result().get(uuid).onComplete(ar -> {
           if (ar.succeeded()) {
             if (ar.result() != null) {
-              resultHandler.handle(Future.succeededFuture(new Record(new JsonObject(ar.result()))));
+              resultHandler.handle(Future.succeededFuture(decode(uuid, ar.result())));
             } else {
               resultHandler.handle(Future.succeededFuture(null));
             }
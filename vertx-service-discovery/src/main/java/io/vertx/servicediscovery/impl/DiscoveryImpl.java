@@ -18,19 +18,25 @@ package io.vertx.servicediscovery.impl;
 
 import io.vertx.codegen.annotations.Nullable;
 import io.vertx.core.*;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.DeliveryOptions;
 import io.vertx.core.internal.VertxInternal;
 import io.vertx.core.internal.logging.Logger;
 import io.vertx.core.internal.logging.LoggerFactory;
 import io.vertx.core.json.JsonObject;
+import io.vertx.core.streams.ReadStream;
 import io.vertx.servicediscovery.*;
 import io.vertx.servicediscovery.Record;
+import io.vertx.servicediscovery.spi.RecordStream;
 import io.vertx.servicediscovery.spi.ServiceDiscoveryBackend;
 import io.vertx.servicediscovery.spi.ServiceExporter;
 import io.vertx.servicediscovery.spi.ServiceImporter;
 import io.vertx.servicediscovery.spi.ServicePublisher;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -41,6 +47,41 @@ import java.util.stream.Collectors;
  */
 public class DiscoveryImpl implements ServiceDiscovery, ServicePublisher {
 
+  /**
+   * Header of the announce events carrying the registration id of the record.
+   */
+  static final String HEADER_REGISTRATION = "discovery.registration";
+
+  /**
+   * Header of the announce events carrying the kind of change ({@link #EVENT_PUBLISH}, {@link #EVENT_UNPUBLISH} or
+   * {@link #EVENT_UPDATE}).
+   */
+  static final String HEADER_EVENT = "discovery.event";
+
+  static final String EVENT_PUBLISH = "publish";
+  static final String EVENT_UNPUBLISH = "unpublish";
+  static final String EVENT_UPDATE = "update";
+
+  /**
+   * The precision of the lease expiration, in milliseconds.
+   */
+  private static final long LEASE_TICK = 100;
+
+  /**
+   * The number of buckets of the lease timing wheel, a rotation lasts about 50 seconds.
+   */
+  private static final int LEASE_WHEEL_SIZE = 512;
+
+  /**
+   * The maximum number of filters whose selection state is kept, the least recently used is evicted beyond.
+   */
+  static final int MAX_SELECTORS = 256;
+
+  /**
+   * The delay after which the selection state of an unused filter is evicted, in milliseconds.
+   */
+  private static final long SELECTOR_IDLE_TIMEOUT = TimeUnit.MINUTES.toMillis(5);
+
   private final VertxInternal vertx;
   private final String announce;
   private final String usage;
@@ -48,10 +89,18 @@ public class DiscoveryImpl implements ServiceDiscovery, ServicePublisher {
 
   private final Set<ServiceImporter> importers = new CopyOnWriteArraySet<>();
   private final Set<ServiceExporter> exporters = new CopyOnWriteArraySet<>();
-  private final Set<ServiceReference> bindings = new CopyOnWriteArraySet<>();
+  private final BindingRegistry bindings = new BindingRegistry();
+  private final Set<RecordWatcher> watchers = new CopyOnWriteArraySet<>();
+  // Encoded filter -> selection state.
+  private final Map<String, RecordSelector> selectors = new ConcurrentHashMap<>();
+  // Registration id -> time-to-live of the lease.
+  private final Map<String, Long> leases = new ConcurrentHashMap<>();
+  private final TimingWheel<String> expirer;
+  private final TimingWheel<String> selectorExpirer;
   private final static Logger LOGGER = LoggerFactory.getLogger(DiscoveryImpl.class.getName());
   private final String id;
   private final ServiceDiscoveryOptions options;
+  private final LocalRegistryView view;
 
 
   public DiscoveryImpl(Vertx vertx, ServiceDiscoveryOptions options) {
@@ -69,11 +118,20 @@ public class DiscoveryImpl implements ServiceDiscovery, ServicePublisher {
     this.vertx = (VertxInternal) vertx;
     this.announce = options.getAnnounceAddress();
     this.usage = options.getUsageAddress();
+    this.expirer = new TimingWheel<>(vertx, LEASE_TICK, LEASE_WHEEL_SIZE, this::onLeaseExpired);
+    this.selectorExpirer = new TimingWheel<>(vertx, 1000, 64, this::onSelectorIdle);
+    RecordMessageCodec.register(vertx.eventBus());
 
     this.backend = backend;
     this.backend.init(vertx, options.getBackendConfiguration());
     this.id = options.getName() != null ? options.getName() : getNodeId(vertx);
     this.options = options;
+    if (options.isUseLocalView()) {
+      this.view = new LocalRegistryView(vertx, backend, announce);
+      this.view.start();
+    } else {
+      this.view = null;
+    }
   }
 
   private String getNodeId(Vertx vertx) {
@@ -145,10 +203,7 @@ public class DiscoveryImpl implements ServiceDiscovery, ServicePublisher {
     if (usage == null) {
       return;
     }
-    vertx.eventBus().publish(usage, new JsonObject()
-      .put(ServiceDiscovery.EVENT_TYPE, ServiceDiscovery.EVENT_TYPE_BIND)
-      .put(ServiceDiscovery.EVENT_RECORD, reference.record().toJson())
-      .put(ServiceDiscovery.EVENT_ID, id));
+    sendUsage(ServiceDiscovery.EVENT_TYPE_BIND, reference);
   }
 
   @Override
@@ -163,10 +218,19 @@ public class DiscoveryImpl implements ServiceDiscovery, ServicePublisher {
     if (usage == null) {
       return;
     }
-    vertx.eventBus().publish(usage, new JsonObject()
-      .put(ServiceDiscovery.EVENT_TYPE, ServiceDiscovery.EVENT_TYPE_RELEASE)
+    sendUsage(ServiceDiscovery.EVENT_TYPE_RELEASE, reference);
+  }
+
+  private void sendUsage(String type, ServiceReference reference) {
+    JsonObject event = new JsonObject()
+      .put(ServiceDiscovery.EVENT_TYPE, type)
       .put(ServiceDiscovery.EVENT_RECORD, reference.record().toJson())
-      .put(ServiceDiscovery.EVENT_ID, id));
+      .put(ServiceDiscovery.EVENT_ID, id);
+    if (options.isUseBinaryCodec()) {
+      vertx.eventBus().publish(usage, event, new DeliveryOptions().setCodecName(UsageMessageCodec.NAME));
+    } else {
+      vertx.eventBus().publish(usage, event);
+    }
   }
 
   public ServiceDiscovery registerServiceImporter(ServiceImporter importer, JsonObject configuration,
@@ -263,9 +327,22 @@ public class DiscoveryImpl implements ServiceDiscovery, ServicePublisher {
       futures.add(promise.future());
     }
 
-    bindings.forEach(ServiceReference::release);
+    bindings.view().forEach(ServiceReference::release);
     bindings.clear();
 
+    selectorExpirer.close();
+    watchers.forEach(RecordWatcher::close);
+    selectors.clear();
+
+    // The records are kept, they expire natively in the backends supporting it.
+    expirer.close();
+    leases.clear();
+
+    if (view != null) {
+      view.close();
+    }
+    backend.close();
+
     Future.all(futures).onComplete(ar -> {
       if (ar.succeeded()) {
         LOGGER.info("Discovery bridges stopped");
@@ -285,19 +362,126 @@ public class DiscoveryImpl implements ServiceDiscovery, ServicePublisher {
         return;
       }
 
-      for (ServiceExporter exporter : exporters) {
-        exporter.onPublish(new Record(ar.result()));
+      onPublished(ar.result());
+      resultHandler.succeed(ar.result());
+    });
+  }
+
+  public void publish(Record record, long ttl, Completable<Record> resultHandler) {
+    if (ttl <= 0) {
+      resultHandler.fail(new IllegalArgumentException("The time-to-live of the lease must be positive"));
+      return;
+    }
+    Status status = record.getStatus() == null || record.getStatus() == Status.UNKNOWN
+      ? Status.UP : record.getStatus();
+
+    backend.store(record.setStatus(status), nativeTtl(ttl), ar -> {
+      if (ar.failed()) {
+        resultHandler.fail(ar.cause());
+        return;
+      }
+
+      leases.put(ar.result().getRegistration(), ttl);
+      expirer.schedule(ar.result().getRegistration(), ttl);
+      onPublished(ar.result());
+      resultHandler.succeed(ar.result());
+    });
+  }
+
+  @Override
+  public Future<Record> publish(Record record, long ttl) {
+    Promise<Record> promise = vertx.promise();
+    publish(record, ttl, promise);
+    return promise.future();
+  }
+
+  public void renew(String id, Completable<Void> resultHandler) {
+    Long ttl = leases.get(id);
+    if (ttl == null) {
+      resultHandler.fail(new IllegalStateException("No lease for the registration " + id));
+      return;
+    }
+    // Only moves the deadline, the heartbeats do not touch the wheel structure.
+    expirer.schedule(id, ttl);
+    backend.renew(id, nativeTtl(ttl), ar -> resultHandler.complete(null, ar.cause()));
+  }
+
+  @Override
+  public Future<Void> renew(String id) {
+    Promise<Void> promise = vertx.promise();
+    renew(id, promise);
+    return promise.future();
+  }
+
+  /**
+   * The backends expire the records natively after twice the lease, so the service discovery normally withdraws them
+   * first, notifying the exporters and the listeners. The native expiration only applies when the owner has crashed.
+   */
+  private static long nativeTtl(long ttl) {
+    return ttl > Long.MAX_VALUE / 2 ? Long.MAX_VALUE : ttl * 2;
+  }
+
+  private void onLeaseExpired(String id) {
+    if (!leases.containsKey(id)) {
+      return;
+    }
+    LOGGER.info("The lease of the record " + id + " has expired, un-publishing it");
+    unpublish(id).onFailure(err -> {
+      leases.remove(id);
+      LOGGER.warn("Cannot un-publish the expired record " + id, err);
+    });
+  }
+
+  public void publishAll(List<Record> records, Completable<List<Record>> resultHandler) {
+    if (records.isEmpty()) {
+      resultHandler.succeed(new ArrayList<>());
+      return;
+    }
+    for (Record record : records) {
+      if (record.getStatus() == null || record.getStatus() == Status.UNKNOWN) {
+        record.setStatus(Status.UP);
+      }
+    }
+
+    backend.storeAll(records, ar -> {
+      if (ar.failed()) {
+        resultHandler.fail(ar.cause());
+        return;
       }
-      Record announcedRecord = new Record(ar.result());
-      announcedRecord
-        .setRegistration(null)
-        .setStatus(status);
 
-      vertx.eventBus().publish(announce, announcedRecord.toJson());
+      ar.result().forEach(this::onPublished);
       resultHandler.succeed(ar.result());
     });
   }
 
+  @Override
+  public Future<List<Record>> publishAll(List<Record> records) {
+    Promise<List<Record>> promise = vertx.promise();
+    publishAll(records, promise);
+    return promise.future();
+  }
+
+  private void onPublished(Record record) {
+    Record shared = shared(record);
+    if (view != null) {
+      view.put(shared);
+    }
+
+    for (ServiceExporter exporter : exporters) {
+      exporter.onPublish(shared == record ? new Record(record) : shared);
+    }
+    Record announcedRecord = new Record(record).setRegistration(null);
+    sendAnnounce(announcedRecord, record.getRegistration(), EVENT_PUBLISH);
+  }
+
+  /**
+   * Gets the record shared by the exporters. With several exporters, a single immutable snapshot is taken, so an
+   * exporter cannot alter what the others see. Otherwise the record itself is returned, and the snapshot is not taken.
+   */
+  private Record shared(Record record) {
+    return exporters.size() > 1 ? record.snapshot() : record;
+  }
+
   @Override
   public Future<Record> publish(Record record) {
     Promise<Record> promise = vertx.promise();
@@ -312,20 +496,110 @@ public class DiscoveryImpl implements ServiceDiscovery, ServicePublisher {
         return;
       }
 
-      for (ServiceExporter exporter : exporters) {
-        exporter.onUnpublish(id);
-      }
+      onUnpublished(id, record.result());
+      resultHandler.succeed();
+    });
+  }
+
+  public void unpublishAll(List<String> ids, Completable<Void> resultHandler) {
+    if (ids.isEmpty()) {
+      resultHandler.succeed();
+      return;
+    }
 
-      Record announcedRecord = new Record(record.result());
-      announcedRecord
-        .setRegistration(null)
-        .setStatus(Status.DOWN);
+    backend.removeAll(ids, records -> {
+      if (records.failed()) {
+        resultHandler.fail(records.cause());
+        return;
+      }
 
-      vertx.eventBus().publish(announce, announcedRecord.toJson());
+      for (int i = 0; i < ids.size(); i++) {
+        onUnpublished(ids.get(i), records.result().get(i));
+      }
       resultHandler.succeed();
     });
   }
 
+  @Override
+  public Future<Void> unpublishAll(List<String> ids) {
+    Promise<Void> promise = vertx.promise();
+    unpublishAll(ids, promise);
+    return promise.future();
+  }
+
+  @Override
+  public Future<Buffer> snapshot() {
+    Promise<Buffer> promise = vertx.promise();
+    if (view != null && view.isReady()) {
+      promise.complete(RegistrySnapshot.write(view.records()));
+      return promise.future();
+    }
+    backend.getRecords(ar -> {
+      if (ar.failed()) {
+        promise.fail(ar.cause());
+      } else {
+        promise.complete(RegistrySnapshot.write(ar.result()));
+      }
+    });
+    return promise.future();
+  }
+
+  @Override
+  public Future<List<Record>> restore(Buffer snapshot) {
+    Promise<List<Record>> promise = vertx.promise();
+    List<Record> records;
+    try {
+      records = RegistrySnapshot.read(snapshot);
+    } catch (IllegalArgumentException e) {
+      promise.fail(e);
+      return promise.future();
+    }
+    // A single batch, the backend stores all the records at once.
+    publishAll(records, promise);
+    return promise.future();
+  }
+
+  private void onUnpublished(String id, Record record) {
+    if (leases.remove(id) != null) {
+      expirer.cancel(id);
+    }
+
+    if (view != null) {
+      view.remove(id);
+    }
+
+    for (ServiceExporter exporter : exporters) {
+      exporter.onUnpublish(id);
+    }
+
+    Record announcedRecord = new Record(record);
+    announcedRecord
+      .setRegistration(null)
+      .setStatus(Status.DOWN);
+
+    sendAnnounce(announcedRecord, id, EVENT_UNPUBLISH);
+  }
+
+  /**
+   * Publishes the announce event. The registration id and the kind of change are passed as headers, so the body stays
+   * the record as expected by the existing listeners.
+   *
+   * @param announcedRecord the record to announce
+   * @param registration    the registration id of the record
+   * @param event           the kind of change
+   */
+  private void sendAnnounce(Record announcedRecord, String registration, String event) {
+    DeliveryOptions deliveryOptions = new DeliveryOptions().addHeader(HEADER_EVENT, event);
+    if (registration != null) {
+      deliveryOptions.addHeader(HEADER_REGISTRATION, registration);
+    }
+    if (options.isUseBinaryCodec()) {
+      vertx.eventBus().publish(announce, announcedRecord, deliveryOptions.setCodecName(RecordMessageCodec.NAME));
+    } else {
+      vertx.eventBus().publish(announce, announcedRecord.toJson(), deliveryOptions);
+    }
+  }
+
   @Override
   public Future<Void> unpublish(String id) {
     Promise<Void> promise = vertx.promise();
@@ -335,16 +609,21 @@ public class DiscoveryImpl implements ServiceDiscovery, ServicePublisher {
 
   public void getRecord(JsonObject filter,
                         Completable<Record> resultHandler) {
-    boolean includeOutOfService = false;
-    Function<Record, Boolean> accept;
-    if (filter == null) {
-      accept = r -> true;
-    } else {
-      includeOutOfService = filter.getString("status") != null;
-      accept = r -> r.match(filter);
+    boolean includeOutOfService = filter != null && filter.getString("status") != null;
+    if (view != null && view.isReady()) {
+      getRecord(RecordFilter.compile(filter), includeOutOfService, resultHandler);
+      return;
     }
 
-    getRecord(accept, includeOutOfService, resultHandler);
+    backend.getRecords(filter, includeOutOfService, 1, list -> {
+      if (list.failed()) {
+        resultHandler.fail(list.cause());
+      } else if (list.result().isEmpty()) {
+        resultHandler.succeed();
+      } else {
+        resultHandler.succeed(owned(list.result().get(0)));
+      }
+    });
   }
 
   @Override
@@ -355,9 +634,13 @@ public class DiscoveryImpl implements ServiceDiscovery, ServicePublisher {
   }
 
   public void getRecord(String id, Completable<@Nullable Record> resultHandler) {
+    if (view != null && view.isReady()) {
+      resultHandler.succeed(view.get(id));
+      return;
+    }
     backend.getRecord(id, ar -> {
       if (ar.succeeded()) {
-        resultHandler.succeed(ar.result());
+        resultHandler.succeed(owned(ar.result()));
       } else {
         resultHandler.fail(ar.cause());
       }
@@ -385,6 +668,14 @@ public class DiscoveryImpl implements ServiceDiscovery, ServicePublisher {
   public void getRecord(Function<Record, Boolean> filter, boolean includeOutOfService, Completable<Record>
     resultHandler) {
     Objects.requireNonNull(filter);
+    if (view != null && view.isReady()) {
+      Optional<Record> any = view.records().stream()
+        .filter(filter::apply)
+        .filter(record -> includeOutOfService || record.getStatus() == Status.UP)
+        .findAny();
+      resultHandler.succeed(any.map(LocalRegistryView::copy).orElse(null));
+      return;
+    }
     backend.getRecords(list -> {
       if (list.failed()) {
         resultHandler.fail(list.cause());
@@ -394,7 +685,7 @@ public class DiscoveryImpl implements ServiceDiscovery, ServicePublisher {
           .filter(record -> includeOutOfService || record.getStatus() == Status.UP)
           .findAny();
         if (any.isPresent()) {
-          resultHandler.succeed(any.get());
+          resultHandler.succeed(owned(any.get()));
         } else {
           resultHandler.succeed();
         }
@@ -410,16 +701,19 @@ public class DiscoveryImpl implements ServiceDiscovery, ServicePublisher {
   }
 
   public void getRecords(JsonObject filter, Completable<List<Record>> resultHandler) {
-    boolean includeOutOfService = false;
-    Function<Record, Boolean> accept;
-    if (filter == null) {
-      accept = r -> true;
-    } else {
-      includeOutOfService = filter.getString("status") != null;
-      accept = r -> r.match(filter);
+    boolean includeOutOfService = filter != null && filter.getString("status") != null;
+    if (view != null && view.isReady()) {
+      getRecords(RecordFilter.compile(filter), includeOutOfService, resultHandler);
+      return;
     }
 
-    getRecords(accept, includeOutOfService, resultHandler);
+    backend.getRecords(filter, includeOutOfService, 0, list -> {
+      if (list.failed()) {
+        resultHandler.fail(list.cause());
+      } else {
+        resultHandler.succeed(owned(list.result()));
+      }
+    });
   }
 
   @Override
@@ -429,6 +723,181 @@ public class DiscoveryImpl implements ServiceDiscovery, ServicePublisher {
     return promise.future();
   }
 
+  @Override
+  public ReadStream<Record> streamRecords(JsonObject filter) {
+    boolean includeOutOfService = filter != null && filter.getString("status") != null;
+    if (view != null && view.isReady()) {
+      // The records are copied by page, when the stream requests them.
+      Iterator<Record> iterator = new ArrayList<>(view.records()).iterator();
+      return new RecordStream(filter, includeOutOfService, () -> {
+        if (!iterator.hasNext()) {
+          return Future.succeededFuture();
+        }
+        List<Record> page = new ArrayList<>();
+        while (page.size() < RecordStream.PAGE_SIZE && iterator.hasNext()) {
+          page.add(LocalRegistryView.copy(iterator.next()));
+        }
+        return Future.succeededFuture(page);
+      });
+    }
+    return backend.streamRecords(filter, includeOutOfService);
+  }
+
+  @Override
+  public Future<RecordChanges> getRecordsSince(long revision) {
+    Promise<RecordChanges> promise = vertx.promise();
+    backend.getRecordsSince(revision, ar -> promise.complete(ar.result(), ar.cause()));
+    return promise.future();
+  }
+
+  @Override
+  public ReadStream<RecordChange> watch(JsonObject filter) {
+    // The watcher is tracked once started, a stream never consumed is not retained.
+    return new RecordWatcher(vertx, announce, filter, this::getRecords, watchers::add, watchers::remove);
+  }
+
+  public void select(JsonObject filter, SelectionStrategy strategy, Completable<Record> resultHandler) {
+    Objects.requireNonNull(strategy, "The strategy must not be null");
+    RecordSelector selector = selector(filter);
+    selector.touch();
+
+    List<Record> candidates = selector.candidates();
+    if (candidates != null) {
+      resultHandler.succeed(selector.select(candidates, strategy));
+      return;
+    }
+    // The selector is still loading, the state of the filter (the sequence) is used nonetheless.
+    sharedRecords(filter).onComplete(ar -> {
+      if (ar.failed()) {
+        resultHandler.fail(ar.cause());
+      } else {
+        // Like the candidates of the selector, the selected record is immutable.
+        Record selected = selector.select(ar.result(), strategy);
+        resultHandler.succeed(selected == null ? null : selected.snapshot());
+      }
+    });
+  }
+
+  /**
+   * Gets the records matching the filter, without copying the immutable snapshots returned by the backend. The
+   * selections snapshot the records anyway, and never modify them.
+   */
+  private Future<List<Record>> sharedRecords(JsonObject filter) {
+    if (view != null && view.isReady()) {
+      return getRecords(filter);
+    }
+    boolean includeOutOfService = filter != null && filter.getString("status") != null;
+    Promise<List<Record>> promise = vertx.promise();
+    backend.getRecords(filter, includeOutOfService, 0, ar -> promise.complete(ar.result(), ar.cause()));
+    return promise.future();
+  }
+
+  /**
+   * Gets a modifiable record. The backend may return immutable snapshots shared with its cache, they are copied.
+   */
+  private static Record owned(Record record) {
+    return record == null || !record.isSnapshot() ? record : LocalRegistryView.copy(record);
+  }
+
+  private static List<Record> owned(List<Record> records) {
+    for (Record record : records) {
+      if (record.isSnapshot()) {
+        return records.stream().map(DiscoveryImpl::owned).collect(Collectors.toList());
+      }
+    }
+    return records;
+  }
+
+  /**
+   * Gets the selection state of a filter, creating it if needed.
+   */
+  private RecordSelector selector(JsonObject filter) {
+    String key = filter == null ? "{}" : filter.encode();
+    RecordSelector selector = selectors.get(key);
+    if (selector != null) {
+      return selector;
+    }
+    // The watcher is created outside of the map, its close callback updates the map.
+    RecordWatcher watcher = new RecordWatcher(vertx, announce, filter, this::sharedRecords, watchers::add, w -> {
+      watchers.remove(w);
+      // A newer selector may have replaced the closed one.
+      selectors.computeIfPresent(key, (x, current) -> current.isFedBy(w) ? null : current);
+    });
+    RecordSelector created = new RecordSelector(watcher, record -> bindings.count(record.getRegistration()));
+    selector = selectors.putIfAbsent(key, created);
+    if (selector != null) {
+      // Another selection created the selector concurrently, the unused one has not been started.
+      created.close();
+      return selector;
+    }
+    selector = created;
+    selector.start();
+    selectorExpirer.schedule(key, SELECTOR_IDLE_TIMEOUT);
+    evictSelectors();
+    return selector;
+  }
+
+  /**
+   * Evicts the least recently used selectors while there are too many of them. Selectors are only created for new
+   * filters, so the linear scan is rare.
+   */
+  private void evictSelectors() {
+    while (selectors.size() > MAX_SELECTORS) {
+      Map.Entry<String, RecordSelector> eldest = null;
+      for (Map.Entry<String, RecordSelector> entry : selectors.entrySet()) {
+        if (eldest == null || entry.getValue().idleTime() > eldest.getValue().idleTime()) {
+          eldest = entry;
+        }
+      }
+      if (eldest == null) {
+        return;
+      }
+      evictSelector(eldest.getKey(), eldest.getValue());
+    }
+  }
+
+  private void onSelectorIdle(String key) {
+    RecordSelector selector = selectors.get(key);
+    if (selector == null) {
+      return;
+    }
+    long idle = selector.idleTime();
+    if (idle >= SELECTOR_IDLE_TIMEOUT) {
+      evictSelector(key, selector);
+    } else {
+      selectorExpirer.schedule(key, SELECTOR_IDLE_TIMEOUT - idle);
+    }
+  }
+
+  private void evictSelector(String key, RecordSelector selector) {
+    if (selectors.remove(key, selector)) {
+      selectorExpirer.cancel(key);
+      // A selection still holding the selector falls back to a lookup.
+      selector.close();
+    }
+  }
+
+  /**
+   * @return the number of started watchers, including the watchers of the selectors
+   */
+  int watcherCount() {
+    return watchers.size();
+  }
+
+  /**
+   * @return the number of filters whose selection state is kept
+   */
+  int selectorCount() {
+    return selectors.size();
+  }
+
+  @Override
+  public Future<Record> select(JsonObject filter, SelectionStrategy strategy) {
+    Promise<Record> promise = vertx.promise();
+    select(filter, strategy, promise);
+    return promise.future();
+  }
+
   public void getRecords(Function<Record, Boolean> filter, Completable<List<Record>> resultHandler) {
     getRecords(filter, false, resultHandler);
   }
@@ -442,6 +911,16 @@ public class DiscoveryImpl implements ServiceDiscovery, ServicePublisher {
 
   public void getRecords(Function<Record, Boolean> filter, boolean includeOutOfService, Completable<List<Record>> resultHandler) {
     Objects.requireNonNull(filter);
+    if (view != null && view.isReady()) {
+      resultHandler.succeed(
+        view.records().stream()
+          .filter(filter::apply)
+          .filter(record -> includeOutOfService || record.getStatus() == Status.UP)
+          .map(LocalRegistryView::copy)
+          .collect(Collectors.toList())
+      );
+      return;
+    }
     backend.getRecords(list -> {
       if (list.failed()) {
         resultHandler.fail(list.cause());
@@ -450,6 +929,7 @@ public class DiscoveryImpl implements ServiceDiscovery, ServicePublisher {
           list.result().stream()
             .filter(filter::apply)
             .filter(record -> includeOutOfService || record.getStatus() == Status.UP)
+            .map(DiscoveryImpl::owned)
             .collect(Collectors.toList())
         );
       }
@@ -468,12 +948,7 @@ public class DiscoveryImpl implements ServiceDiscovery, ServicePublisher {
       if (ar.failed()) {
         resultHandler.fail(ar.cause());
       } else {
-        for (ServiceExporter exporter : exporters) {
-          exporter.onUpdate(record);
-        }
-
-        Record announcedRecord = new Record(record);
-        vertx.eventBus().publish(announce, announcedRecord.toJson());
+        onUpdated(record);
         resultHandler.succeed(record);
       }
     });
@@ -486,9 +961,54 @@ public class DiscoveryImpl implements ServiceDiscovery, ServicePublisher {
     return promise.future();
   }
 
+  public void updateAll(List<Record> records, Completable<List<Record>> resultHandler) {
+    if (records.isEmpty()) {
+      resultHandler.succeed(new ArrayList<>());
+      return;
+    }
+
+    backend.updateAll(records, ar -> {
+      if (ar.failed()) {
+        resultHandler.fail(ar.cause());
+      } else {
+        records.forEach(this::onUpdated);
+        resultHandler.succeed(records);
+      }
+    });
+  }
+
+  @Override
+  public Future<List<Record>> updateAll(List<Record> records) {
+    Promise<List<Record>> promise = vertx.promise();
+    updateAll(records, promise);
+    return promise.future();
+  }
+
+  private void onUpdated(Record record) {
+    Long ttl = leases.get(record.getRegistration());
+    if (ttl != null) {
+      // Overwriting the record may have reset its native expiration.
+      backend.renew(record.getRegistration(), nativeTtl(ttl), ar -> {
+        if (ar.failed()) {
+          LOGGER.warn("Cannot renew the lease of the record " + record.getRegistration(), ar.cause());
+        }
+      });
+    }
+
+    Record shared = shared(record);
+    if (view != null) {
+      view.put(shared);
+    }
+
+    for (ServiceExporter exporter : exporters) {
+      exporter.onUpdate(shared);
+    }
+    sendAnnounce(record, record.getRegistration(), EVENT_UPDATE);
+  }
+
   @Override
   public Set<ServiceReference> bindings() {
-    return new HashSet<>(bindings);
+    return bindings.view();
   }
 
   @Override
@@ -496,6 +1016,13 @@ public class DiscoveryImpl implements ServiceDiscovery, ServicePublisher {
     return options;
   }
 
+  /**
+   * @return whether the local registry view is enabled and loaded.
+   */
+  boolean isLocalViewReady() {
+    return view != null && view.isReady();
+  }
+
   /**
    * Checks whether the reference is hold by this service discovery. If so, remove it from the list of bindings and
    * fire the "release" event.
@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2011-2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.servicediscovery.impl;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.eventbus.MessageConsumer;
+import io.vertx.core.internal.logging.Logger;
+import io.vertx.core.internal.logging.LoggerFactory;
+import io.vertx.servicediscovery.Record;
+import io.vertx.servicediscovery.spi.ServiceDiscoveryBackend;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-process materialized view of the registry. The view is seeded once from the backend and then kept up to date
+ * from the events sent on the announce address (and from the local writes).
+ * <p>
+ * Until the initial load has completed, the view is not ready and lookups must be delegated to the backend. Changes
+ * made directly in the backend, without going through a {@link DiscoveryImpl}, are not seen by the view.
+ *
+ * @author <a href="http://escoffier.me">Clement Escoffier</a>
+ */
+class LocalRegistryView {
+
+  private final static Logger LOGGER = LoggerFactory.getLogger(LocalRegistryView.class.getName());
+
+  /**
+   * Delay before retrying a failed initial load, in milliseconds.
+   */
+  private static final long RELOAD_DELAY = 1000;
+
+  private final Vertx vertx;
+  private final ServiceDiscoveryBackend backend;
+  private final String announce;
+
+  private final Map<String, Record> records = new ConcurrentHashMap<>();
+  private MessageConsumer<Object> consumer;
+  private volatile boolean ready;
+  private volatile boolean closed;
+
+  /**
+   * Events received while the view is being loaded, {@code null} when the view is not loading.
+   */
+  private List<Message<Object>> pending;
+
+  LocalRegistryView(Vertx vertx, ServiceDiscoveryBackend backend, String announce) {
+    this.vertx = vertx;
+    this.backend = backend;
+    this.announce = announce;
+  }
+
+  /**
+   * Registers the announce consumer and loads the initial content. The load only starts once the consumer has been
+   * registered, so no event can be missed in between.
+   */
+  void start() {
+    consumer = vertx.eventBus().consumer(announce, this::onAnnounce);
+    consumer.completion().onComplete(ar -> {
+      if (ar.failed()) {
+        LOGGER.error("Unable to register the registry view on " + announce, ar.cause());
+      } else {
+        load();
+      }
+    });
+  }
+
+  void close() {
+    closed = true;
+    ready = false;
+    if (consumer != null) {
+      consumer.unregister();
+    }
+    records.clear();
+  }
+
+  /**
+   * @return whether the view can be used to answer lookups.
+   */
+  boolean isReady() {
+    return ready;
+  }
+
+  /**
+   * @return the records of the view. The returned records must not be modified or leaked, use {@link #copy(Record)}.
+   */
+  Collection<Record> records() {
+    return records.values();
+  }
+
+  /**
+   * @param registration the registration id
+   * @return a copy of the record with the given registration, {@code null} if none
+   */
+  Record get(String registration) {
+    Record record = records.get(registration);
+    return record == null ? null : copy(record);
+  }
+
+  /**
+   * Applies a write made by the local {@link DiscoveryImpl}, so lookups see it before the announce is received.
+   *
+   * @param record the stored record, must have a registration id
+   */
+  void put(Record record) {
+    records.put(record.getRegistration(), record.snapshot());
+  }
+
+  /**
+   * Applies a removal made by the local {@link DiscoveryImpl}.
+   *
+   * @param registration the registration id
+   */
+  void remove(String registration) {
+    records.remove(registration);
+  }
+
+  private synchronized void load() {
+    if (closed) {
+      return;
+    }
+    ready = false;
+    pending = new ArrayList<>();
+    backend.getRecords(ar -> {
+      boolean stale = false;
+      synchronized (this) {
+        if (closed) {
+          return;
+        }
+        if (ar.failed()) {
+          LOGGER.warn("Unable to load the registry view, retrying in " + RELOAD_DELAY + " ms", ar.cause());
+          pending = null;
+          vertx.setTimer(RELOAD_DELAY, l -> load());
+          return;
+        }
+        records.clear();
+        for (Record record : ar.result()) {
+          records.put(record.getRegistration(), record);
+        }
+        // Replaying is idempotent, events already reflected by the loaded content are harmless.
+        for (Message<Object> message : pending) {
+          stale |= !apply(message);
+        }
+        pending = null;
+        ready = !stale;
+      }
+      if (stale) {
+        load();
+      }
+    });
+  }
+
+  private void onAnnounce(Message<Object> message) {
+    boolean stale;
+    synchronized (this) {
+      if (pending != null) {
+        pending.add(message);
+        return;
+      }
+      stale = !apply(message);
+    }
+    if (stale) {
+      load();
+    }
+  }
+
+  /**
+   * Applies an announce event to the view.
+   *
+   * @param message the event
+   * @return {@code false} if the event cannot be interpreted and the view needs to be reloaded
+   */
+  private boolean apply(Message<Object> message) {
+    String registration = message.headers().get(DiscoveryImpl.HEADER_REGISTRATION);
+    String event = message.headers().get(DiscoveryImpl.HEADER_EVENT);
+    if (registration == null || event == null) {
+      // Sent by an instance not providing the event metadata.
+      return false;
+    }
+    if (DiscoveryImpl.EVENT_UNPUBLISH.equals(event)) {
+      records.remove(registration);
+    } else {
+      records.put(registration, RecordMessageCodec.toRecord(message.body()).setRegistration(registration));
+    }
+    return true;
+  }
+
+  /**
+   * Copies the given record, including its metadata and location, so the view content cannot be modified by the
+   * callers.
+   *
+   * @param record the record
+   * @return the copy
+   */
+  static Record copy(Record record) {
+    Record copy = new Record(record);
+    if (record.getMetadata() != null) {
+      copy.setMetadata(record.getMetadata().copy());
+    }
+    if (record.getLocation() != null) {
+      copy.setLocation(record.getLocation().copy());
+    }
+    return copy;
+  }
+}
@@ -0,0 +1,366 @@
+/*
+ * Copyright (c) 2011-2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.servicediscovery.impl;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.MessageConsumer;
+import io.vertx.core.internal.logging.Logger;
+import io.vertx.core.internal.logging.LoggerFactory;
+import io.vertx.core.json.JsonObject;
+import io.vertx.servicediscovery.Record;
+import io.vertx.servicediscovery.RecordChange;
+import io.vertx.servicediscovery.RecordChangeType;
+import io.vertx.servicediscovery.RecordChanges;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A per-node copy of the registry of the {@link DefaultServiceDiscoveryBackend}, so the lookups do not read the
+ * cluster-wide map.
+ * <p>
+ * The copy is loaded once, then kept up to date from the change log: each node writing to the registry publishes the
+ * revision and the registration id of its change on the invalidation address, and the other nodes read the changes
+ * made since their copy from the change log. Until they have read them, the invalidated records, and the lookups
+ * that may match records not known yet, are read from the registry. As the changes are read in order, a missed
+ * invalidation is detected by the next one, or by the periodic check of the last revision. If the changes are not
+ * available anymore, the whole registry is loaded again, at most once per resync interval.
+ * <p>
+ * A write in progress during a load may be missing from the loaded copy although its revision precedes the current
+ * one, so the changes preceding the load are replayed afterwards, each one only replacing an older version of its
+ * record, and the copy only advances to the last change read. A change still missing at the next load is considered
+ * failed and skipped.
+ * <p>
+ * The records stored with a time-to-live may expire without any change. Their entry in the copy is checked against the
+ * registry once their time-to-live has elapsed, and every time-to-live afterwards, and dropped if they have expired.
+ *
+ * @author <a href="http://escoffier.me">Clement Escoffier</a>
+ */
+class NearCache {
+
+  /**
+   * The default invalidation address.
+   */
+  static final String DEFAULT_ADDRESS = "vertx.discovery.registry.invalidations";
+
+  /**
+   * The default interval between the checks of the last revision, in milliseconds.
+   */
+  static final long DEFAULT_CHECK_INTERVAL = 5_000;
+
+  /**
+   * The default minimum interval between two loads of the whole registry, in milliseconds.
+   */
+  static final long DEFAULT_RESYNC_INTERVAL = 10_000;
+
+  /**
+   * The precision of the checks of the leased records, in milliseconds.
+   */
+  private static final long LEASE_TICK = 1_000;
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(NearCache.class.getName());
+
+  private final Vertx vertx;
+  private final RecordChangeLog changes;
+  private final Supplier<Future<Map<String, String>>> loader;
+  private final Function<String, Future<String>> reader;
+  private final String address;
+  private final long resyncInterval;
+  private final MessageConsumer<JsonObject> consumer;
+  private final long timer;
+  private final TimingWheel<String> expirer;
+
+  // The records are immutable snapshots, the callers must copy them.
+  private final Map<String, Record> records = new ConcurrentHashMap<>();
+  // The registrations invalidated after the revision of the copy, with the revision of their change.
+  private final Map<String, Long> invalidated = new HashMap<>();
+  // The time-to-live of the leased records of the copy.
+  private final Map<String, Long> leases = new HashMap<>();
+  private boolean loaded;
+  private long revision;
+  private long known;
+  private boolean syncing;
+  private boolean again;
+  private boolean stalled;
+  private long lastResync;
+  // The current revision at the last load, the changes still missing up to it are considered failed.
+  private long settled;
+  private boolean closed;
+
+  /**
+   * Creates the near cache. The registry is loaded on the first lookup.
+   *
+   * @param vertx   the vert.x instance
+   * @param changes the change log of the registry
+   * @param config  the configuration: the invalidation {@code address}, the {@code checkInterval} and the
+   *                {@code resyncInterval}, in milliseconds
+   * @param loader  reads the whole registry
+   * @param reader  reads a single entry of the registry
+   */
+  NearCache(Vertx vertx, RecordChangeLog changes, JsonObject config,
+            Supplier<Future<Map<String, String>>> loader, Function<String, Future<String>> reader) {
+    this.vertx = vertx;
+    this.changes = changes;
+    this.loader = loader;
+    this.reader = reader;
+    this.expirer = new TimingWheel<>(vertx, LEASE_TICK, 64, this::check);
+    this.address = config.getString("address", DEFAULT_ADDRESS);
+    this.resyncInterval = config.getLong("resyncInterval", DEFAULT_RESYNC_INTERVAL);
+    this.lastResync = -resyncInterval;
+    this.consumer = vertx.eventBus().<JsonObject>consumer(address, message -> {
+      Long rev = message.body().getLong("revision");
+      if (rev != null) {
+        invalidate(message.body().getString("registration"), rev);
+      }
+    });
+    this.timer = vertx.setPeriodic(config.getLong("checkInterval", DEFAULT_CHECK_INTERVAL), id -> sync());
+  }
+
+  /**
+   * Gets the records if the lookups on the given registration can be served by the cache. The records must be copied
+   * before being returned to the callers.
+   *
+   * @param registration the registration id, {@code null} for the lookups that may match any record
+   * @return the records, keyed by registration id, {@code null} if the lookup must read the registry
+   */
+  Map<String, Record> records(String registration) {
+    boolean usable;
+    synchronized (this) {
+      usable = loaded && !closed && (registration == null ? known <= revision : !invalidated.containsKey(registration));
+    }
+    if (!usable) {
+      sync();
+      return null;
+    }
+    return Collections.unmodifiableMap(records);
+  }
+
+  /**
+   * Notifies a change made by this node, and publishes it to the other nodes. The cache is not used for the lookups
+   * on this record until it has read the change, so this node always reads its own writes.
+   *
+   * @param registration the registration id of the record
+   * @param rev          the revision of the change
+   */
+  void changed(String registration, long rev) {
+    invalidate(registration, rev);
+    vertx.eventBus().publish(address, new JsonObject().put("registration", registration).put("revision", rev));
+  }
+
+  private void invalidate(String registration, long rev) {
+    synchronized (this) {
+      if (rev <= revision) {
+        return;
+      }
+      known = Math.max(known, rev);
+      if (registration != null) {
+        invalidated.merge(registration, rev, Long::max);
+      }
+    }
+    sync();
+  }
+
+  /**
+   * Reads the changes made since the revision of the copy, or loads the whole registry if they are not available.
+   */
+  private void sync() {
+    boolean full;
+    boolean blocked;
+    long from;
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      if (syncing) {
+        again = true;
+        return;
+      }
+      syncing = true;
+      again = false;
+      full = !loaded;
+      blocked = stalled;
+      from = revision;
+    }
+    Map<String, Long> leased = new HashMap<>();
+    Future<Boolean> future = full ? resync() : changes.since(from, from, leased).compose(result -> {
+      if (result.isResyncRequired()) {
+        return resync();
+      }
+      boolean progressed = apply(result, leased);
+      // Still blocked by the change that stalled the previous read: it may have failed, the registry is loaded again.
+      return progressed || !blocked ? Future.succeededFuture(progressed) : resync();
+    });
+    future.onComplete(ar -> {
+      boolean rerun;
+      synchronized (this) {
+        syncing = false;
+        if (ar.failed()) {
+          LOGGER.warn("Unable to synchronize the registry near cache", ar.cause());
+        }
+        boolean progressed = ar.succeeded() && ar.result();
+        // A change whose revision has been assigned but not written blocks the reading of the following ones.
+        stalled = known > revision && !progressed;
+        rerun = again || known > revision && progressed;
+      }
+      if (rerun) {
+        sync();
+      }
+    });
+  }
+
+  /**
+   * Loads the whole registry, unless it has been done less than {@link #resyncInterval} ago.
+   *
+   * @return a future completed with whether the registry has been loaded
+   */
+  private Future<Boolean> resync() {
+    long skipped;
+    synchronized (this) {
+      if (loaded && System.currentTimeMillis() - lastResync < resyncInterval) {
+        return Future.succeededFuture(false);
+      }
+      lastResync = System.currentTimeMillis();
+      skipped = settled;
+    }
+    // The revision is read first, the changes made while loading are read again afterwards.
+    return changes.since(-1).compose(current -> loader.get().compose(entries -> {
+      Map<String, Record> loaded = new HashMap<>();
+      Map<String, Long> leased = new HashMap<>();
+      entries.forEach((registration, encoded) -> {
+        JsonObject json = new JsonObject(encoded);
+        loaded.put(registration, new Record(json).snapshot());
+        Long lease = json.getLong(RecordChangeLog.LEASE);
+        if (lease != null) {
+          leased.put(registration, lease);
+        }
+      });
+      long from;
+      synchronized (this) {
+        records.keySet().retainAll(loaded.keySet());
+        leases.keySet().retainAll(loaded.keySet());
+        loaded.values().forEach(this::put);
+        leased.forEach(this::lease);
+        this.loaded = true;
+        settled = current.getRevision();
+        known = Math.max(known, settled);
+        // The writes in progress are recent, the older changes are already in the loaded copy.
+        from = Math.max(revision, Math.max(0, settled - changes.size() / 2));
+      }
+      Map<String, Long> replayed = new HashMap<>();
+      return changes.since(from, skipped, replayed).map(result -> {
+        if (!result.isResyncRequired()) {
+          apply(result, replayed);
+        }
+        return true;
+      });
+    }));
+  }
+
+  /**
+   * Applies the changes read from the change log.
+   *
+   * @param leased the time-to-live of the leased records among the changes
+   * @return whether some changes have been applied
+   */
+  private synchronized boolean apply(RecordChanges result, Map<String, Long> leased) {
+    for (RecordChange change : result.getChanges()) {
+      Record record = change.getRecord();
+      if (change.getType() == RecordChangeType.REMOVED) {
+        records.remove(record.getRegistration());
+        leases.remove(record.getRegistration());
+      } else {
+        put(record.snapshot());
+      }
+    }
+    leased.forEach((registration, ttl) -> {
+      if (records.containsKey(registration)) {
+        lease(registration, ttl);
+      }
+    });
+    boolean progressed = result.getRevision() > revision;
+    revision = Math.max(revision, result.getRevision());
+    known = Math.max(known, revision);
+    invalidated.values().removeIf(rev -> rev <= revision);
+    return progressed;
+  }
+
+  /**
+   * Adds a record to the copy, unless the copy already has a more recent version. Must be called with the lock held.
+   */
+  private void put(Record record) {
+    Record cached = records.get(record.getRegistration());
+    if (cached == null || cached.getRevision() <= record.getRevision()) {
+      records.put(record.getRegistration(), record);
+    }
+  }
+
+  /**
+   * Schedules the check of a leased record, unless it is already scheduled. Must be called with the lock held.
+   */
+  private void lease(String registration, long ttl) {
+    if (leases.put(registration, ttl) == null) {
+      expirer.schedule(registration, ttl);
+    }
+  }
+
+  /**
+   * Checks whether a leased record is still in the registry, and drops it from the copy if it has expired.
+   */
+  private void check(String registration) {
+    Long ttl;
+    synchronized (this) {
+      ttl = closed ? null : leases.get(registration);
+    }
+    if (ttl == null) {
+      return;
+    }
+    reader.apply(registration).onComplete(ar -> {
+      synchronized (this) {
+        if (closed || !leases.containsKey(registration)) {
+          return;
+        }
+        if (ar.succeeded() && ar.result() == null) {
+          // Expired without any change.
+          records.remove(registration);
+          leases.remove(registration);
+          return;
+        }
+      }
+      // Renewed since the last check, or not read: it cannot expire before another time-to-live.
+      expirer.schedule(registration, ttl);
+    });
+  }
+
+  /**
+   * Stops receiving the invalidations, the cache is not used anymore.
+   */
+  void close() {
+    synchronized (this) {
+      closed = true;
+      records.clear();
+      leases.clear();
+    }
+    expirer.close();
+    vertx.cancelTimer(timer);
+    consumer.unregister();
+  }
+}
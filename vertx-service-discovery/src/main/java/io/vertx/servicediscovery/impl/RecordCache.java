@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2011-2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.servicediscovery.impl;
+
+import io.vertx.core.json.JsonObject;
+import io.vertx.servicediscovery.Record;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Bounded cache of the records decoded by the {@link DefaultServiceDiscoveryBackend}, keyed by registration id.
+ * <p>
+ * Each entry keeps the stored JSON value it has been decoded from, and is only reused if the value read from the
+ * registry is the same. The cache is therefore always consistent with the registry, local or cluster-wide, even when
+ * the records are modified by other nodes: a changed record is decoded again. For a local registry, the value read is
+ * the stored instance, and the check is a reference comparison.
+ * <p>
+ * The cache is read without locking, as a lookup decodes every record it returns. The eviction is approximate: once
+ * the size bound is exceeded, a single thread sweeps the entries, giving a second chance to the entries used since the
+ * previous sweep (the CLOCK algorithm), until the cache is back below the bound. The cache may briefly hold more
+ * entries than the bound while it is swept.
+ * <p>
+ * The cached records are immutable snapshots, so they are returned to the callers without copying them.
+ *
+ * @author <a href="http://escoffier.me">Clement Escoffier</a>
+ */
+class RecordCache {
+
+  private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+  private final AtomicBoolean sweeping = new AtomicBoolean();
+  private final int size;
+  private final int target;
+
+  /**
+   * Creates the cache.
+   *
+   * @param size the maximum number of records kept, must be positive
+   */
+  RecordCache(int size) {
+    this.size = size;
+    // Sweeping a little below the bound amortizes the sweeps over several insertions.
+    this.target = Math.max(size - Math.max(size / 10, 1), 0);
+  }
+
+  /**
+   * Decodes a stored record, reusing the cached record if the stored value has not changed.
+   *
+   * @param registration the registration id
+   * @param encoded      the stored value
+   * @return the decoded record, an immutable snapshot shared with the other callers
+   */
+  Record decode(String registration, String encoded) {
+    Entry entry = entries.get(registration);
+    if (entry != null && (entry.encoded == encoded || entry.encoded.equals(encoded))) {
+      if (!entry.used) {
+        entry.used = true;
+      }
+      return entry.record;
+    }
+    // Concurrent decodings of the same value produce equal records.
+    Record record = new Record(new JsonObject(encoded)).snapshot();
+    entries.put(registration, new Entry(encoded, record));
+    if (entries.size() > size) {
+      sweep();
+    }
+    return record;
+  }
+
+  /**
+   * Evicts entries until the cache is below the bound. The entries used since the previous sweep are kept, and marked
+   * unused, so the second pass evicts them if needed.
+   */
+  private void sweep() {
+    if (!sweeping.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      for (int pass = 0; pass < 2 && entries.size() > target; pass++) {
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext() && entries.size() > target) {
+          Map.Entry<String, Entry> next = iterator.next();
+          Entry entry = next.getValue();
+          if (entry.used) {
+            entry.used = false;
+          } else {
+            // Keeps the entry if it has been replaced concurrently.
+            entries.remove(next.getKey(), entry);
+          }
+        }
+      }
+    } finally {
+      sweeping.set(false);
+    }
+  }
+
+  /**
+   * Evicts the record with the given registration id, if cached.
+   *
+   * @param registration the registration id
+   */
+  void invalidate(String registration) {
+    entries.remove(registration);
+  }
+
+  /**
+   * @return the number of cached records
+   */
+  int size() {
+    return entries.size();
+  }
+
+  private static final class Entry {
+
+    private final String encoded;
+    private final Record record;
+    private volatile boolean used;
+
+    private Entry(String encoded, Record record) {
+      this.encoded = encoded;
+      this.record = record;
+    }
+  }
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright (c) 2011-2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.servicediscovery.impl;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.AsyncMap;
+import io.vertx.core.shareddata.Counter;
+import io.vertx.servicediscovery.Record;
+import io.vertx.servicediscovery.RecordChange;
+import io.vertx.servicediscovery.RecordChangeType;
+import io.vertx.servicediscovery.RecordChanges;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Revisions and change log of the {@link DefaultServiceDiscoveryBackend}.
+ * <p>
+ * The revision is a {@link Counter}, local or cluster-wide like the registry, incremented for each store, update and
+ * removal. The changes are then written in an {@link AsyncMap}, grouped in blocks of {@link #BLOCK_SIZE} consecutive
+ * revisions, so reading the changes since a revision reads one entry per block instead of one per change. A change is
+ * added to its block with a compare-and-set operation, retried if the block has been modified concurrently; the blocks
+ * being bounded, so is the cost of a write. Only the last {@code size} changes are guaranteed to be kept: the blocks
+ * older than that are removed, and the callers asking for older changes are told to resync.
+ * <p>
+ * A change whose revision has been assigned but that has not been written yet, because it is in progress or failed,
+ * leaves a gap: the changes are only returned up to the gap. A gap left by a failure is eventually compacted, the
+ * callers are then told to resync. The callers knowing that the changes up to a revision are settled, because that
+ * revision was assigned long ago, can read past the gaps preceding it.
+ * <p>
+ * The changes of the records stored with a time-to-live carry it in their {@code lease} entry, so the readers know
+ * these records may expire without any change.
+ *
+ * @author <a href="http://escoffier.me">Clement Escoffier</a>
+ */
+class RecordChangeLog {
+
+  static final String MAP_NAME = "service.registry.changes";
+  static final String COUNTER_NAME = "service.registry.revision";
+
+  /**
+   * The number of consecutive revisions stored in a single entry of the map.
+   */
+  static final int BLOCK_SIZE = 32;
+
+  private final Vertx vertx;
+  private final boolean local;
+  private final int size;
+
+  private AsyncMap<String, String> map;
+  private Counter counter;
+
+  /**
+   * Creates the change log.
+   *
+   * @param vertx the vert.x instance
+   * @param local whether the local structures must be used even in clustered mode
+   * @param size  the number of changes kept, must be positive
+   */
+  RecordChangeLog(Vertx vertx, boolean local, int size) {
+    this.vertx = vertx;
+    this.local = local;
+    this.size = size;
+  }
+
+  private synchronized Future<AsyncMap<String, String>> map() {
+    if (map != null) {
+      return Future.succeededFuture(map);
+    }
+    Future<AsyncMap<String, String>> future;
+    if (local) {
+      future = vertx.sharedData().getLocalAsyncMap(MAP_NAME);
+    } else {
+      future = vertx.sharedData().getClusterWideMap(MAP_NAME);
+    }
+    return future.onSuccess(m -> {
+      synchronized (this) {
+        map = m;
+      }
+    });
+  }
+
+  private synchronized Future<Counter> counter() {
+    if (counter != null) {
+      return Future.succeededFuture(counter);
+    }
+    Future<Counter> future;
+    if (local) {
+      future = vertx.sharedData().getLocalCounter(COUNTER_NAME);
+    } else {
+      future = vertx.sharedData().getCounter(COUNTER_NAME);
+    }
+    return future.onSuccess(c -> {
+      synchronized (this) {
+        counter = c;
+      }
+    });
+  }
+
+  /**
+   * The entry of a change holding the time-to-live of a leased record.
+   */
+  static final String LEASE = "lease";
+
+  /**
+   * @return the number of changes kept
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * @return a future completed with the revision assigned to a new change
+   */
+  Future<Long> next() {
+    return counter().compose(Counter::incrementAndGet);
+  }
+
+  /**
+   * Writes a change, and removes the block of changes that is not kept anymore.
+   *
+   * @param revision the revision of the change, returned by {@link #next()}
+   * @param type     the kind of change
+   * @param record   the record, stamped with the revision
+   * @param lease    the time-to-live of the record in the registry, 0 if it does not expire
+   * @return a future completed when the change has been written
+   */
+  Future<Void> append(long revision, RecordChangeType type, Record record, long lease) {
+    JsonObject entry = new RecordChange(type, record).toJson();
+    if (lease > 0) {
+      entry.put(LEASE, lease);
+    }
+    // The last block entirely older than the kept changes. Removing it again is harmless.
+    long stale = (revision - size) / BLOCK_SIZE - 1;
+    return map().compose(changes -> append(changes, revision, entry)
+      .compose(v -> stale >= 0 ? changes.remove(key(stale)).mapEmpty() : Future.succeededFuture()));
+  }
+
+  /**
+   * Adds a change to its block, retrying if the block has been modified concurrently.
+   */
+  private Future<Void> append(AsyncMap<String, String> changes, long revision, JsonObject entry) {
+    String block = key(revision / BLOCK_SIZE);
+    return changes.get(block).compose(current -> {
+      if (current == null) {
+        return changes.putIfAbsent(block, new JsonObject().put(key(revision), entry).encode())
+          .compose(previous -> previous == null ? Future.succeededFuture() : append(changes, revision, entry));
+      }
+      String updated = new JsonObject(current).put(key(revision), entry).encode();
+      return changes.replaceIfPresent(block, current, updated)
+        .compose(replaced -> replaced ? Future.succeededFuture() : append(changes, revision, entry));
+    });
+  }
+
+  /**
+   * Reads the changes made after the given revision.
+   *
+   * @param revision the last revision known by the caller
+   * @return a future completed with the changes, or requiring a resync if they are not all kept
+   */
+  Future<RecordChanges> since(long revision) {
+    return since(revision, revision, null);
+  }
+
+  /**
+   * Reads the changes made after the given revision, skipping the gaps up to the settled revision.
+   *
+   * @param revision the last revision known by the caller
+   * @param settled  the revision up to which the missing changes are considered failed
+   * @param leases   if not {@code null}, receives the time-to-live of the leased records among the changes, keyed by
+   *                 registration id
+   * @return a future completed with the changes, or requiring a resync if they are not all kept
+   */
+  Future<RecordChanges> since(long revision, long settled, Map<String, Long> leases) {
+    return counter().compose(Counter::get).compose(current -> {
+      if (revision < 0 || revision > current || current - revision > size) {
+        // Compacted, or the registry has been reset since the caller read it.
+        return Future.succeededFuture(new RecordChanges().setResyncRequired(true).setRevision(current));
+      }
+      if (revision == current) {
+        return Future.succeededFuture(new RecordChanges().setRevision(revision));
+      }
+      return map().compose(changes -> {
+        List<Future<String>> futures = new ArrayList<>();
+        for (long block = (revision + 1) / BLOCK_SIZE; block <= current / BLOCK_SIZE; block++) {
+          futures.add(changes.get(key(block)));
+        }
+        return Future.all(futures).map(v -> {
+          List<JsonObject> blocks = new ArrayList<>(futures.size());
+          for (Future<String> future : futures) {
+            blocks.add(future.result() == null ? new JsonObject() : new JsonObject(future.result()));
+          }
+          RecordChanges result = new RecordChanges().setRevision(revision);
+          long first = (revision + 1) / BLOCK_SIZE;
+          for (long rev = revision + 1; rev <= current; rev++) {
+            JsonObject change = blocks.get((int) (rev / BLOCK_SIZE - first)).getJsonObject(key(rev));
+            if (change == null) {
+              if (rev > settled) {
+                break;
+              }
+              result.setRevision(rev);
+              continue;
+            }
+            RecordChange decoded = new RecordChange(change);
+            Long lease = change.getLong(LEASE);
+            if (leases != null && lease != null) {
+              leases.put(decoded.getRecord().getRegistration(), lease);
+            }
+            result.getChanges().add(decoded);
+            result.setRevision(rev);
+          }
+          return result;
+        });
+      });
+    });
+  }
+
+  private static String key(long revision) {
+    return Long.toString(revision);
+  }
+}
@@ -0,0 +1,293 @@
+/*
+ * Copyright (c) 2011-2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.servicediscovery.impl;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.AsyncMap;
+import io.vertx.servicediscovery.Record;
+import io.vertx.servicediscovery.RecordFilter;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Secondary indexes of the {@link DefaultServiceDiscoveryBackend}. For each indexed field, the index maps the value
+ * of the field to the registration ids of the records having this value.
+ * <p>
+ * The index entries of each value are stored in their own {@link AsyncMap}, local or cluster-wide like the registry
+ * itself, keyed by registration id. Indexing or removing a record writes a single entry per indexed field, whatever
+ * the number of records sharing the value, and concurrent writers on the same value do not contend on a single
+ * entry. The indexes only provide candidates: lookups must still check the filter on the records, so an entry pointing
+ * to a removed record, or to a record whose value changed, is harmless. The entries of the records stored with a
+ * time-to-live expire with them, and are written again when the records are renewed.
+ * <p>
+ * The indexed fields are the {@code name}, {@code type} and {@code status} of the records. Any other field is a
+ * metadata key. Values are normalized so that the values equal ignoring case share the same index map.
+ *
+ * @author <a href="http://escoffier.me">Clement Escoffier</a>
+ */
+class RecordIndexes {
+
+  static final String MAP_NAME = "service.registry.indexes";
+
+  /**
+   * The value of the index entries, only their keys are used.
+   */
+  private static final String PRESENT = "";
+
+  private final Vertx vertx;
+  private final boolean local;
+  private final List<String> fields;
+  private final String builtMarker;
+
+  private final Map<String, Future<AsyncMap<String, String>>> entries = new ConcurrentHashMap<>();
+  private AsyncMap<String, String> map;
+  private volatile boolean built;
+
+  /**
+   * Creates the indexes.
+   *
+   * @param vertx  the vert.x instance
+   * @param local  whether the local map must be used even in clustered mode
+   * @param fields the indexed fields
+   */
+  RecordIndexes(Vertx vertx, boolean local, List<String> fields) {
+    this.vertx = vertx;
+    this.local = local;
+    this.fields = new ArrayList<>(new TreeSet<>(fields));
+    // Index keys always contain ':', the marker cannot collide with them.
+    this.builtMarker = "$built/" + String.join(",", this.fields);
+  }
+
+  private synchronized Future<AsyncMap<String, String>> map() {
+    if (map != null) {
+      return Future.succeededFuture(map);
+    }
+    Future<AsyncMap<String, String>> future;
+    if (local) {
+      future = Future.succeededFuture(vertx.sharedData().getLocalAsyncMap(MAP_NAME).result());
+    } else {
+      future = vertx.sharedData().getClusterWideMap(MAP_NAME);
+    }
+    return future.onSuccess(m -> {
+      synchronized (this) {
+        map = m;
+      }
+    });
+  }
+
+  /**
+   * Gets the map holding the entries of an index key, keyed by registration id.
+   */
+  private Future<AsyncMap<String, String>> entries(String key) {
+    return entries.computeIfAbsent(key, k -> {
+      String name = MAP_NAME + "/" + k;
+      if (local) {
+        return Future.succeededFuture(vertx.sharedData().<String, String>getLocalAsyncMap(name).result());
+      }
+      return vertx.sharedData().<String, String>getClusterWideMap(name)
+        .onFailure(err -> entries.remove(k));
+    });
+  }
+
+  /**
+   * Indexes the given record.
+   *
+   * @param record the record, must have a registration id
+   * @param ttl    the time-to-live of the record in the registry, 0 if it does not expire
+   * @return a future completed when all the index entries have been written
+   */
+  Future<Void> add(Record record, long ttl) {
+    List<Future<Void>> futures = new ArrayList<>();
+    for (String key : keys(record)) {
+      futures.add(add(key, Collections.singletonMap(record.getRegistration(), ttl)));
+    }
+    return Future.all(futures).mapEmpty();
+  }
+
+  /**
+   * Removes the index entries of the given old version of a record that are not valid for the new version.
+   *
+   * @param previous the previous version of the record
+   * @param current  the new version of the record, {@code null} if the record has been removed
+   * @return a future completed when the entries have been removed
+   */
+  Future<Void> remove(Record previous, Record current) {
+    Set<String> stale = keys(previous);
+    if (current != null) {
+      stale.removeAll(keys(current));
+    }
+    List<Future<Void>> futures = new ArrayList<>();
+    for (String key : stale) {
+      futures.add(entries(key).compose(index -> index.remove(previous.getRegistration())).mapEmpty());
+    }
+    return Future.all(futures).mapEmpty();
+  }
+
+  /**
+   * Computes the candidate records for the given filter.
+   *
+   * @param accept the compiled filter
+   * @param filter the JSON filter
+   * @param registry the registry, used to build the indexes if they have never been built
+   * @return a future completed with the registration ids of the candidates, or with {@code null} if the indexes
+   * cannot be used for this filter
+   */
+  Future<Set<String>> candidates(RecordFilter accept, JsonObject filter, ShardedRegistry registry) {
+    List<String> keys = new ArrayList<>();
+    String status = null;
+    for (String field : fields) {
+      String expected;
+      switch (field) {
+        case "name":
+          expected = accept.getName();
+          break;
+        case "type":
+          expected = accept.getType();
+          break;
+        case "status":
+          status = accept.getStatus();
+          expected = null;
+          break;
+        default:
+          Object value = filter == null ? null : filter.getValue(field);
+          // Structured values are not indexed, and cannot match a scalar value.
+          expected = value == null || value instanceof JsonObject || value instanceof JsonArray ? null : value.toString();
+          break;
+      }
+      if (expected != null && !"*".equals(expected)) {
+        keys.add(key(field, expected));
+      }
+    }
+    // The status has a low cardinality, its entries are only used when nothing more selective is available.
+    if (keys.isEmpty() && status != null && !"*".equals(status)) {
+      keys.add(key("status", status));
+    }
+    if (keys.isEmpty()) {
+      return Future.succeededFuture();
+    }
+
+    return build(registry).compose(v -> {
+      List<Future<Set<String>>> futures = keys.stream()
+        .map(key -> entries(key).compose(AsyncMap::keys))
+        .collect(Collectors.toList());
+      return Future.all(futures).map(all -> {
+        Set<String> candidates = null;
+        for (Future<Set<String>> future : futures) {
+          if (candidates == null) {
+            candidates = new HashSet<>(future.result());
+          } else {
+            candidates.retainAll(future.result());
+          }
+        }
+        return candidates;
+      });
+    });
+  }
+
+  /**
+   * Builds the indexes from the registry content, unless it has already been done for the indexed fields.
+   */
+  private Future<AsyncMap<String, String>> build(ShardedRegistry registry) {
+    return map().compose(index -> {
+      if (built) {
+        return Future.succeededFuture(index);
+      }
+      return index.get(builtMarker).compose(marker -> {
+        if (marker != null) {
+          return Future.succeededFuture();
+        }
+        return registry.entries().compose(entries -> {
+          Map<String, Map<String, Long>> content = new HashMap<>();
+          for (String value : entries.values()) {
+            JsonObject json = new JsonObject(value);
+            Record record = new Record(json);
+            long ttl = json.getLong(RecordChangeLog.LEASE, 0L);
+            for (String key : keys(record)) {
+              content.computeIfAbsent(key, k -> new HashMap<>()).put(record.getRegistration(), ttl);
+            }
+          }
+          List<Future<Void>> futures = new ArrayList<>();
+          content.forEach((key, registrations) -> futures.add(add(key, registrations)));
+          return Future.all(futures);
+        }).compose(v -> index.put(builtMarker, "true"));
+      }).map(v -> {
+        built = true;
+        return index;
+      });
+    });
+  }
+
+  private Set<String> keys(Record record) {
+    Set<String> keys = new HashSet<>();
+    for (String field : fields) {
+      Object value;
+      switch (field) {
+        case "name":
+          value = record.getName();
+          break;
+        case "type":
+          value = record.getType();
+          break;
+        case "status":
+          value = record.getStatus() == null ? null : record.getStatus().name();
+          break;
+        default:
+          value = record.getMetadata() == null ? null : record.getMetadata().getValue(field);
+          break;
+      }
+      if (value != null && !(value instanceof JsonObject) && !(value instanceof JsonArray)) {
+        keys.add(key(field, value.toString()));
+      }
+    }
+    return keys;
+  }
+
+  /**
+   * Adds registrations to the entries of an index key.
+   *
+   * @param registrations the time-to-live of the entries, keyed by registration id, 0 if they do not expire
+   */
+  private Future<Void> add(String key, Map<String, Long> registrations) {
+    return entries(key).compose(index -> {
+      List<Future<Void>> futures = new ArrayList<>(registrations.size());
+      for (Map.Entry<String, Long> registration : registrations.entrySet()) {
+        String id = registration.getKey();
+        long ttl = registration.getValue();
+        futures.add(ttl > 0 ? index.put(id, PRESENT, ttl) : index.put(id, PRESENT));
+      }
+      return Future.all(futures).mapEmpty();
+    });
+  }
+
+  /**
+   * Computes the key of an index entry. Two values equal ignoring case produce the same key. Fields containing ':'
+   * may share keys with other fields, which only adds candidates.
+   */
+  static String key(String field, String value) {
+    char[] chars = new char[value.length()];
+    for (int i = 0; i < chars.length; i++) {
+      // Same equivalence as String.equalsIgnoreCase.
+      chars[i] = Character.toLowerCase(Character.toUpperCase(value.charAt(i)));
+    }
+    return field + ":" + new String(chars);
+  }
+}
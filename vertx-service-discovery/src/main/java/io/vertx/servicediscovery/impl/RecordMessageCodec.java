@@ -0,0 +1,281 @@
+/*
+ * Copyright (c) 2011-2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.servicediscovery.impl;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.EventBus;
+import io.vertx.core.eventbus.MessageCodec;
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.servicediscovery.Record;
+import io.vertx.servicediscovery.Status;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * A binary {@link MessageCodec} for the {@link Record} sent on the announce address. Compared to the JSON text
+ * encoding, the fields of the record are written without their names, the status as a single byte, and the
+ * metadata and location values with a type tag, so nothing has to be parsed when the event is received.
+ * <p>
+ * The codec is registered on the event bus by every service discovery instance, so a node can decode the events as
+ * soon as it runs a version providing the codec. Whether it is used to send the events is controlled by
+ * {@link io.vertx.servicediscovery.ServiceDiscoveryOptions#setUseBinaryCodec(boolean)}.
+ *
+ * @author <a href="http://escoffier.me">Clement Escoffier</a>
+ */
+public class RecordMessageCodec implements MessageCodec<Record, Record> {
+
+  /**
+   * The name of the codec.
+   */
+  public static final String NAME = "vertx.discovery.record";
+
+  private static final byte VERSION = 1;
+
+  private static final byte NULL = 0;
+  private static final byte STRING = 1;
+  private static final byte INT = 2;
+  private static final byte LONG = 3;
+  private static final byte DOUBLE = 4;
+  private static final byte TRUE = 5;
+  private static final byte FALSE = 6;
+  private static final byte OBJECT = 7;
+  private static final byte ARRAY = 8;
+  // Any other value (big numbers, instants, binary...), written as JSON text.
+  private static final byte JSON = 9;
+
+  private static final Status[] STATUSES = Status.values();
+
+  /**
+   * Registers the record and usage codecs on the given event bus, if not already registered.
+   *
+   * @param eventBus the event bus
+   */
+  static synchronized void register(EventBus eventBus) {
+    register(eventBus, new RecordMessageCodec());
+    register(eventBus, new UsageMessageCodec());
+  }
+
+  private static void register(EventBus eventBus, MessageCodec<?, ?> codec) {
+    try {
+      eventBus.registerCodec(codec);
+    } catch (IllegalStateException e) {
+      // Already registered by another service discovery instance.
+    }
+  }
+
+  /**
+   * Gets the record carried by an announce event, whatever the codec used to send it.
+   *
+   * @param body the body of the event, a {@link Record} or its JSON representation
+   * @return the record, owned by the caller
+   */
+  static Record toRecord(Object body) {
+    if (body instanceof Record) {
+      return (Record) body;
+    }
+    return new Record((JsonObject) body);
+  }
+
+  @Override
+  public void encodeToWire(Buffer buffer, Record record) {
+    write(buffer, record);
+  }
+
+  @Override
+  public Record decodeFromWire(int pos, Buffer buffer) {
+    return read(new Reader(buffer, pos));
+  }
+
+  @Override
+  public Record transform(Record record) {
+    return LocalRegistryView.copy(record);
+  }
+
+  @Override
+  public String name() {
+    return NAME;
+  }
+
+  @Override
+  public byte systemCodecID() {
+    return -1;
+  }
+
+  static void write(Buffer buffer, Record record) {
+    buffer.appendByte(VERSION);
+    writeString(buffer, record.getName());
+    writeString(buffer, record.getType());
+    writeString(buffer, record.getRegistration());
+    buffer.appendLong(record.getRevision());
+    buffer.appendByte(record.getStatus() == null ? -1 : (byte) record.getStatus().ordinal());
+    writeValue(buffer, record.getLocation());
+    writeValue(buffer, record.getMetadata());
+  }
+
+  static Record read(Reader reader) {
+    byte version = reader.readByte();
+    if (version != VERSION) {
+      throw new IllegalStateException("Unsupported record encoding version: " + version);
+    }
+    Record record = new Record()
+      .setName(reader.readString())
+      .setType(reader.readString())
+      .setRegistration(reader.readString())
+      .setRevision(reader.readLong());
+    // Missing values keep their defaults, like when the record is read from JSON.
+    byte status = reader.readByte();
+    if (status >= 0) {
+      record.setStatus(STATUSES[status]);
+    }
+    record.setLocation((JsonObject) readValue(reader));
+    JsonObject metadata = (JsonObject) readValue(reader);
+    if (metadata != null) {
+      record.setMetadata(metadata);
+    }
+    return record;
+  }
+
+  static void writeString(Buffer buffer, String value) {
+    if (value == null) {
+      buffer.appendInt(-1);
+    } else {
+      byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      buffer.appendInt(bytes.length).appendBytes(bytes);
+    }
+  }
+
+  private static void writeValue(Buffer buffer, Object value) {
+    if (value == null) {
+      buffer.appendByte(NULL);
+    } else if (value instanceof String) {
+      buffer.appendByte(STRING);
+      writeString(buffer, (String) value);
+    } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+      buffer.appendByte(INT).appendInt(((Number) value).intValue());
+    } else if (value instanceof Long) {
+      buffer.appendByte(LONG).appendLong((Long) value);
+    } else if (value instanceof Double || value instanceof Float) {
+      buffer.appendByte(DOUBLE).appendDouble(((Number) value).doubleValue());
+    } else if (value instanceof Boolean) {
+      buffer.appendByte((Boolean) value ? TRUE : FALSE);
+    } else if (value instanceof JsonObject) {
+      JsonObject object = (JsonObject) value;
+      buffer.appendByte(OBJECT).appendInt(object.size());
+      for (Map.Entry<String, Object> entry : object) {
+        writeString(buffer, entry.getKey());
+        writeValue(buffer, entry.getValue());
+      }
+    } else if (value instanceof JsonArray) {
+      JsonArray array = (JsonArray) value;
+      buffer.appendByte(ARRAY).appendInt(array.size());
+      for (Object item : array) {
+        writeValue(buffer, item);
+      }
+    } else {
+      buffer.appendByte(JSON);
+      writeString(buffer, Json.encode(value));
+    }
+  }
+
+  private static Object readValue(Reader reader) {
+    byte tag = reader.readByte();
+    switch (tag) {
+      case NULL:
+        return null;
+      case STRING:
+        return reader.readString();
+      case INT:
+        return reader.readInt();
+      case LONG:
+        return reader.readLong();
+      case DOUBLE:
+        return reader.readDouble();
+      case TRUE:
+        return true;
+      case FALSE:
+        return false;
+      case OBJECT:
+        int fields = reader.readInt();
+        JsonObject object = new JsonObject();
+        for (int i = 0; i < fields; i++) {
+          String key = reader.readString();
+          object.put(key, readValue(reader));
+        }
+        return object;
+      case ARRAY:
+        int items = reader.readInt();
+        JsonArray array = new JsonArray();
+        for (int i = 0; i < items; i++) {
+          array.add(readValue(reader));
+        }
+        return array;
+      case JSON:
+        return Json.decodeValue(reader.readString());
+      default:
+        throw new IllegalStateException("Unknown value tag: " + tag);
+    }
+  }
+
+  /**
+   * Reads the values of a buffer sequentially.
+   */
+  static final class Reader {
+
+    private final Buffer buffer;
+    private int pos;
+
+    Reader(Buffer buffer, int pos) {
+      this.buffer = buffer;
+      this.pos = pos;
+    }
+
+    byte readByte() {
+      return buffer.getByte(pos++);
+    }
+
+    int readInt() {
+      int value = buffer.getInt(pos);
+      pos += 4;
+      return value;
+    }
+
+    long readLong() {
+      long value = buffer.getLong(pos);
+      pos += 8;
+      return value;
+    }
+
+    double readDouble() {
+      double value = buffer.getDouble(pos);
+      pos += 8;
+      return value;
+    }
+
+    String readString() {
+      int length = readInt();
+      if (length < 0) {
+        return null;
+      }
+      String value = buffer.getString(pos, pos + length, "UTF-8");
+      pos += length;
+      return value;
+    }
+  }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2011-2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.servicediscovery.impl;
+
+import io.vertx.core.Handler;
+import io.vertx.servicediscovery.Record;
+import io.vertx.servicediscovery.RecordChange;
+import io.vertx.servicediscovery.RecordChangeType;
+import io.vertx.servicediscovery.SelectionContext;
+import io.vertx.servicediscovery.SelectionStrategy;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToIntFunction;
+
+/**
+ * The selection state of a filter: the records matching the filter, kept up to date by a {@link RecordWatcher}, and
+ * the number of selections made so far.
+ * <p>
+ * The candidates are published as an immutable list replaced on each change, so the selections read them without
+ * locking. Until the watcher has loaded its initial snapshot, the candidates are unknown and the caller must look them
+ * up.
+ * <p>
+ * The selectors are evicted by {@link DiscoveryImpl} once idle, or when too many filters are in use, closing their
+ * watcher.
+ *
+ * @author <a href="http://escoffier.me">Clement Escoffier</a>
+ */
+class RecordSelector implements Handler<RecordChange> {
+
+  private final RecordWatcher watcher;
+  private final ToIntFunction<Record> load;
+  private final AtomicLong sequence = new AtomicLong();
+
+  private final Map<String, Record> records = new LinkedHashMap<>();
+  private volatile List<Record> candidates = List.of();
+  private volatile long lastUsed = System.nanoTime();
+
+  /**
+   * Creates a new instance of {@link RecordSelector}. The watcher is started by {@link #start()}.
+   *
+   * @param watcher the watcher of the filter
+   * @param load    the load of a record
+   */
+  RecordSelector(RecordWatcher watcher, ToIntFunction<Record> load) {
+    this.watcher = watcher;
+    this.load = load;
+  }
+
+  /**
+   * Starts watching the filter.
+   */
+  void start() {
+    watcher.handler(this);
+  }
+
+  @Override
+  public void handle(RecordChange change) {
+    Record record = change.getRecord();
+    synchronized (this) {
+      if (change.getType() == RecordChangeType.REMOVED) {
+        records.remove(record.getRegistration());
+      } else {
+        // Shared by the selections, the callers receive an immutable record.
+        records.put(record.getRegistration(), record.snapshot());
+      }
+      candidates = List.copyOf(records.values());
+    }
+  }
+
+  /**
+   * @return the records matching the filter, {@code null} if they are not known yet
+   */
+  List<Record> candidates() {
+    return watcher.isSynchronized() ? candidates : null;
+  }
+
+  /**
+   * Selects a record among the given candidates.
+   *
+   * @param candidates the records matching the filter
+   * @param strategy   the strategy
+   * @return the selected record, {@code null} if there are no candidates
+   */
+  Record select(List<Record> candidates, SelectionStrategy strategy) {
+    if (candidates.isEmpty()) {
+      return null;
+    }
+    long current = sequence.getAndIncrement();
+    return strategy.select(candidates, new SelectionContext() {
+      @Override
+      public long sequence() {
+        return current;
+      }
+
+      @Override
+      public int load(Record record) {
+        return load.applyAsInt(record);
+      }
+    });
+  }
+
+  /**
+   * Records a use of the selector, postponing its eviction.
+   */
+  void touch() {
+    lastUsed = System.nanoTime();
+  }
+
+  /**
+   * @return the time elapsed since the last use of the selector, in milliseconds
+   */
+  long idleTime() {
+    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastUsed);
+  }
+
+  /**
+   * @param watcher a watcher
+   * @return whether the selector is fed by the given watcher
+   */
+  boolean isFedBy(RecordWatcher watcher) {
+    return this.watcher == watcher;
+  }
+
+  /**
+   * Stops watching the filter.
+   */
+  void close() {
+    watcher.close();
+  }
+}
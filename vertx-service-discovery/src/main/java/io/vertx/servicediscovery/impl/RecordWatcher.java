@@ -0,0 +1,368 @@
+/*
+ * Copyright (c) 2011-2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.servicediscovery.impl;
+
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.eventbus.MessageConsumer;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.streams.ReadStream;
+import io.vertx.servicediscovery.Record;
+import io.vertx.servicediscovery.RecordChange;
+import io.vertx.servicediscovery.RecordChangeType;
+import io.vertx.servicediscovery.RecordFilter;
+import io.vertx.servicediscovery.Status;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * The {@link ReadStream} of changes returned by {@link io.vertx.servicediscovery.ServiceDiscovery#watch(JsonObject)}.
+ * <p>
+ * The watcher listens to the announce address before loading the initial snapshot, and buffers the announces until the
+ * snapshot has been received, so no change is lost between both. It keeps the registration ids of the records
+ * currently matching the filter, so an announce is turned into an addition, a modification or a removal depending on
+ * whether the record matched before and matches now. The filter is compiled once and evaluated once per announce.
+ * <p>
+ * The changes not consumed yet, because the stream is paused or the snapshot is still loading, are buffered up to a
+ * limit. Beyond it, the watcher has fallen too far behind: it fails with a {@link IllegalStateException}, reported to
+ * the exception handler, and ends. The consumer resyncs by watching again.
+ * <p>
+ * Setting a {@code null} handler stops the watch. The changes are delivered on the context creating the watcher, if
+ * any.
+ *
+ * @author <a href="http://escoffier.me">Clement Escoffier</a>
+ */
+class RecordWatcher implements ReadStream<RecordChange> {
+
+  /**
+   * The default maximum number of changes and announces buffered, in addition to the records of the initial snapshot.
+   */
+  static final int DEFAULT_MAX_BUFFERED = 10_000;
+
+  private final Vertx vertx;
+  private final Context context;
+  private final String announce;
+  private final JsonObject filter;
+  private final RecordFilter accept;
+  private final boolean includeOutOfService;
+  private final Function<JsonObject, Future<List<Record>>> snapshot;
+  private final Handler<RecordWatcher> onStart;
+  private final Handler<RecordWatcher> onClose;
+  private final int maxBuffered;
+
+  private final Map<String, Record> matching = new HashMap<>();
+  private final Deque<RecordChange> buffer = new ArrayDeque<>();
+  // Announces received while the snapshot is loading, null once it has been loaded.
+  private List<Message<Object>> pending = new ArrayList<>();
+  // The maximum size of the buffer: the records of the snapshot, plus the maximum number of buffered changes.
+  private int capacity;
+  private MessageConsumer<Object> consumer;
+  private long demand = Long.MAX_VALUE;
+  private boolean emitting;
+  private boolean closed;
+
+  private Handler<RecordChange> handler;
+  private Handler<Throwable> exceptionHandler;
+  private Handler<Void> endHandler;
+
+  /**
+   * Creates a new instance of {@link RecordWatcher}.
+   *
+   * @param vertx    the vert.x instance
+   * @param announce the announce address
+   * @param filter   the JSON filter, {@code null} or empty to accept all records
+   * @param snapshot the function retrieving the records matching the filter
+   * @param onStart  called when the watch starts, once a handler is set
+   * @param onClose  called when the watch is stopped
+   */
+  RecordWatcher(Vertx vertx, String announce, JsonObject filter,
+                Function<JsonObject, Future<List<Record>>> snapshot, Handler<RecordWatcher> onStart,
+                Handler<RecordWatcher> onClose) {
+    this(vertx, announce, filter, snapshot, onStart, onClose, DEFAULT_MAX_BUFFERED);
+  }
+
+  /**
+   * Creates a new instance of {@link RecordWatcher}.
+   *
+   * @param vertx       the vert.x instance
+   * @param announce    the announce address
+   * @param filter      the JSON filter, {@code null} or empty to accept all records
+   * @param snapshot    the function retrieving the records matching the filter
+   * @param onStart     called when the watch starts, once a handler is set
+   * @param onClose     called when the watch is stopped
+   * @param maxBuffered the maximum number of changes and announces buffered, in addition to the initial snapshot
+   */
+  RecordWatcher(Vertx vertx, String announce, JsonObject filter,
+                Function<JsonObject, Future<List<Record>>> snapshot, Handler<RecordWatcher> onStart,
+                Handler<RecordWatcher> onClose, int maxBuffered) {
+    this.vertx = vertx;
+    this.context = Vertx.currentContext();
+    this.announce = announce;
+    this.filter = filter;
+    this.accept = RecordFilter.compile(filter);
+    this.includeOutOfService = filter != null && filter.getString("status") != null;
+    this.snapshot = snapshot;
+    this.onStart = onStart;
+    this.onClose = onClose;
+    this.maxBuffered = maxBuffered;
+  }
+
+  @Override
+  public synchronized RecordWatcher exceptionHandler(Handler<Throwable> handler) {
+    this.exceptionHandler = handler;
+    return this;
+  }
+
+  @Override
+  public RecordWatcher handler(Handler<RecordChange> handler) {
+    boolean start;
+    synchronized (this) {
+      if (closed) {
+        return this;
+      }
+      this.handler = handler;
+      start = handler != null && consumer == null;
+    }
+    if (handler == null) {
+      close();
+    } else if (start) {
+      start();
+    } else {
+      schedule();
+    }
+    return this;
+  }
+
+  @Override
+  public synchronized RecordWatcher pause() {
+    demand = 0;
+    return this;
+  }
+
+  @Override
+  public RecordWatcher resume() {
+    return fetch(Long.MAX_VALUE);
+  }
+
+  @Override
+  public RecordWatcher fetch(long amount) {
+    synchronized (this) {
+      demand += amount;
+      if (demand < 0) {
+        demand = Long.MAX_VALUE;
+      }
+    }
+    schedule();
+    return this;
+  }
+
+  @Override
+  public synchronized RecordWatcher endHandler(Handler<Void> endHandler) {
+    this.endHandler = endHandler;
+    return this;
+  }
+
+  /**
+   * @return whether the initial snapshot has been loaded, and all the known changes delivered to the handler
+   */
+  synchronized boolean isSynchronized() {
+    return consumer != null && pending == null && buffer.isEmpty() && !emitting && !closed;
+  }
+
+  private void start() {
+    onStart.handle(this);
+    MessageConsumer<Object> registration = vertx.eventBus().consumer(announce, this::onAnnounce);
+    synchronized (this) {
+      consumer = registration;
+    }
+    registration.completion()
+      .compose(v -> snapshot.apply(filter))
+      .onComplete(ar -> {
+        if (ar.failed()) {
+          fail(ar.cause());
+          return;
+        }
+        boolean overflow;
+        synchronized (this) {
+          if (closed) {
+            return;
+          }
+          for (Record record : ar.result()) {
+            if (record.getRegistration() != null && matching.put(record.getRegistration(), record) == null) {
+              buffer.add(new RecordChange(RecordChangeType.ADDED, record));
+            }
+          }
+          capacity = buffer.size() + maxBuffered;
+          for (Message<Object> message : pending) {
+            apply(message);
+          }
+          pending = null;
+          overflow = buffer.size() > capacity;
+        }
+        if (overflow) {
+          fail(overflow());
+          return;
+        }
+        schedule();
+      });
+  }
+
+  private void onAnnounce(Message<Object> message) {
+    boolean loading;
+    boolean overflow;
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      loading = pending != null;
+      if (loading) {
+        pending.add(message);
+        overflow = pending.size() > maxBuffered;
+      } else {
+        apply(message);
+        overflow = buffer.size() > capacity;
+      }
+    }
+    if (overflow) {
+      fail(overflow());
+    } else if (!loading) {
+      schedule();
+    }
+  }
+
+  private IllegalStateException overflow() {
+    return new IllegalStateException("The watcher of " + (filter == null ? "{}" : filter.encode())
+      + " fell behind by more than " + maxBuffered + " changes");
+  }
+
+  /**
+   * Turns an announce into a change, if the set of matching records is modified. Must be called with the lock held.
+   */
+  private void apply(Message<Object> message) {
+    String event = message.headers().get(DiscoveryImpl.HEADER_EVENT);
+    Record record = RecordMessageCodec.toRecord(message.body());
+    String registration = message.headers().get(DiscoveryImpl.HEADER_REGISTRATION);
+    if (registration == null) {
+      // Announces sent by older nodes have no header, only the updates carry the registration id.
+      registration = record.getRegistration();
+    }
+    if (registration == null) {
+      return;
+    }
+    record.setRegistration(registration);
+
+    boolean removed = DiscoveryImpl.EVENT_UNPUBLISH.equals(event);
+    boolean matches = !removed
+      && (includeOutOfService || record.getStatus() == Status.UP)
+      && accept.test(record);
+    if (matches) {
+      Record previous = matching.put(registration, record);
+      if (previous == null) {
+        buffer.add(new RecordChange(RecordChangeType.ADDED, record));
+      } else if (!DiscoveryImpl.EVENT_PUBLISH.equals(event)) {
+        // A publication of a known record has already been seen in the snapshot.
+        buffer.add(new RecordChange(RecordChangeType.MODIFIED, record));
+      }
+    } else if (matching.remove(registration) != null) {
+      buffer.add(new RecordChange(RecordChangeType.REMOVED, record));
+    }
+  }
+
+  private void schedule() {
+    runOnContext(this::drain);
+  }
+
+  /**
+   * Delivers the buffered changes while there is some demand.
+   */
+  private void drain() {
+    while (true) {
+      RecordChange change;
+      Handler<RecordChange> changeHandler;
+      synchronized (this) {
+        // A handler calling fetch re-enters this method, the outer loop delivers the changes.
+        if (emitting || closed || handler == null || demand == 0 || buffer.isEmpty()) {
+          return;
+        }
+        change = buffer.poll();
+        changeHandler = handler;
+        if (demand != Long.MAX_VALUE) {
+          demand--;
+        }
+        emitting = true;
+      }
+      try {
+        changeHandler.handle(change);
+      } finally {
+        synchronized (this) {
+          emitting = false;
+        }
+      }
+    }
+  }
+
+  private void fail(Throwable cause) {
+    Handler<Throwable> failure;
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      failure = exceptionHandler;
+    }
+    close();
+    if (failure != null) {
+      runOnContext(() -> failure.handle(cause));
+    }
+  }
+
+  /**
+   * Stops the watch: unregisters the announce consumer and ends the stream.
+   */
+  void close() {
+    MessageConsumer<Object> registration;
+    Handler<Void> end;
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      registration = consumer;
+      end = endHandler;
+      buffer.clear();
+      matching.clear();
+    }
+    if (registration != null) {
+      registration.unregister();
+    }
+    onClose.handle(this);
+    if (end != null) {
+      runOnContext(() -> end.handle(null));
+    }
+  }
+
+  private void runOnContext(Runnable runnable) {
+    if (context != null && Vertx.currentContext() != context) {
+      context.runOnContext(v -> runnable.run());
+    } else {
+      runnable.run();
+    }
+  }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2011-2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.servicediscovery.impl;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.servicediscovery.Record;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Reads and writes the snapshots of the registry produced by {@link io.vertx.servicediscovery.ServiceDiscovery#snapshot()}.
+ * <p>
+ * A snapshot starts with a magic number, a version and the number of records, followed by the records in the binary
+ * encoding of the {@link RecordMessageCodec}. The registration ids are not kept, as the records get new ones when they
+ * are restored.
+ *
+ * @author <a href="http://escoffier.me">Clement Escoffier</a>
+ */
+final class RegistrySnapshot {
+
+  private static final int MAGIC = 0x56534452;
+  private static final byte VERSION = 1;
+
+  private RegistrySnapshot() {
+    // Avoid direct instantiation.
+  }
+
+  /**
+   * Writes a snapshot.
+   *
+   * @param records the records, not modified
+   * @return the snapshot
+   */
+  static Buffer write(Collection<Record> records) {
+    Buffer buffer = Buffer.buffer(64 + records.size() * 256);
+    buffer.appendInt(MAGIC).appendByte(VERSION).appendInt(records.size());
+    for (Record record : records) {
+      RecordMessageCodec.write(buffer, new Record()
+        .setName(record.getName())
+        .setType(record.getType())
+        .setStatus(record.getStatus())
+        .setLocation(record.getLocation())
+        .setMetadata(record.getMetadata()));
+    }
+    return buffer;
+  }
+
+  /**
+   * Reads a snapshot.
+   *
+   * @param buffer the snapshot
+   * @return the records, without registration id
+   * @throws IllegalArgumentException if the buffer is not a snapshot, or is corrupted
+   */
+  static List<Record> read(Buffer buffer) {
+    if (buffer.length() < 9 || buffer.getInt(0) != MAGIC) {
+      throw new IllegalArgumentException("Not a service discovery snapshot");
+    }
+    byte version = buffer.getByte(4);
+    if (version != VERSION) {
+      throw new IllegalArgumentException("Unsupported snapshot version: " + version);
+    }
+    int count = buffer.getInt(5);
+    RecordMessageCodec.Reader reader = new RecordMessageCodec.Reader(buffer, 9);
+    List<Record> records = new ArrayList<>(count);
+    try {
+      for (int i = 0; i < count; i++) {
+        records.add(RecordMessageCodec.read(reader));
+      }
+    } catch (IndexOutOfBoundsException | IllegalStateException e) {
+      throw new IllegalArgumentException("Corrupted service discovery snapshot", e);
+    }
+    return records;
+  }
+}
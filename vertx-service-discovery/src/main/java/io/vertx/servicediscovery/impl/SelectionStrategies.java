@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2011-2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.servicediscovery.impl;
+
+import io.vertx.core.json.JsonObject;
+import io.vertx.servicediscovery.Record;
+import io.vertx.servicediscovery.SelectionContext;
+import io.vertx.servicediscovery.SelectionStrategy;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The built-in {@link SelectionStrategy} implementations.
+ *
+ * @author <a href="http://escoffier.me">Clement Escoffier</a>
+ */
+public final class SelectionStrategies {
+
+  private SelectionStrategies() {
+    // Avoid direct instantiation.
+  }
+
+  public static Record roundRobin(List<Record> candidates, SelectionContext context) {
+    return candidates.get((int) Math.floorMod(context.sequence(), (long) candidates.size()));
+  }
+
+  public static Record random(List<Record> candidates, SelectionContext context) {
+    return candidates.get(ThreadLocalRandom.current().nextInt(candidates.size()));
+  }
+
+  public static Record powerOfTwoChoices(List<Record> candidates, SelectionContext context) {
+    int size = candidates.size();
+    if (size == 1) {
+      return candidates.get(0);
+    }
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    int first = random.nextInt(size);
+    // A distinct second candidate, uniformly.
+    int second = (first + 1 + random.nextInt(size - 1)) % size;
+    Record a = candidates.get(first);
+    Record b = candidates.get(second);
+    return context.load(a) <= context.load(b) ? a : b;
+  }
+
+  public static Record weighted(List<Record> candidates, SelectionContext context) {
+    double total = 0;
+    for (Record candidate : candidates) {
+      total += weight(candidate);
+    }
+    if (total <= 0) {
+      return null;
+    }
+    double point = ThreadLocalRandom.current().nextDouble(total);
+    Record last = null;
+    for (Record candidate : candidates) {
+      double weight = weight(candidate);
+      if (weight > 0) {
+        last = candidate;
+        point -= weight;
+        if (point < 0) {
+          return candidate;
+        }
+      }
+    }
+    // Rounding errors.
+    return last;
+  }
+
+  private static double weight(Record record) {
+    JsonObject metadata = record.getMetadata();
+    Object weight = metadata == null ? null : metadata.getValue(SelectionStrategy.WEIGHT);
+    if (weight instanceof Number) {
+      return Math.max(0, ((Number) weight).doubleValue());
+    }
+    return 1;
+  }
+}
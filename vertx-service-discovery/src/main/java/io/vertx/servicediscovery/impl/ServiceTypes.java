@@ -19,20 +19,28 @@ package io.vertx.servicediscovery.impl;
 import io.vertx.servicediscovery.Record;
 import io.vertx.servicediscovery.spi.ServiceType;
 
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
 import java.util.ServiceLoader;
 
 /**
  * Classes responsible for finding the service type implementations on the classpath.
+ * <p>
+ * The types found on the classpath are loaded once into an immutable map, keyed by lower case name, so the lookups do
+ * not take any lock. The types can also be registered and unregistered programmatically, each registration replaces
+ * the map.
  *
  * @author <a href="http://escoffier.me">Clement Escoffier</a>
  */
 public class ServiceTypes {
 
-  public synchronized static ServiceType get(Record record) {
-    load();
+  private static volatile Map<String, ServiceType> types;
 
+  public static ServiceType get(Record record) {
     String type = record.getType();
     Objects.requireNonNull(type);
 
@@ -44,26 +52,67 @@ public class ServiceTypes {
     }
   }
 
-  private synchronized static void load() {
-    if (types == null || !types.iterator().hasNext()) {
-      types = ServiceLoader.load(ServiceType.class);
-    }
+  public static Iterator<ServiceType> all() {
+    return types().values().iterator();
+  }
+
+  public static ServiceType get(String type) {
+    return types().get(type.toLowerCase(Locale.ROOT));
   }
 
-  public synchronized static Iterator<ServiceType> all() {
-    load();
-    return types.iterator();
+  /**
+   * Registers a service type, without declaring it in a service descriptor. It replaces the type with the same name,
+   * if any.
+   *
+   * @param type the service type
+   * @return the replaced type, {@code null} if none
+   */
+  public static synchronized ServiceType register(ServiceType type) {
+    Objects.requireNonNull(type.name(), "The service type must have a name");
+    Map<String, ServiceType> copy = new LinkedHashMap<>(types());
+    ServiceType previous = copy.put(type.name().toLowerCase(Locale.ROOT), type);
+    types = Collections.unmodifiableMap(copy);
+    return previous;
   }
 
-  private static ServiceLoader<ServiceType> types;
+  /**
+   * Unregisters a service type, registered programmatically or found on the classpath.
+   *
+   * @param name the name of the type
+   * @return the unregistered type, {@code null} if none
+   */
+  public static synchronized ServiceType unregister(String name) {
+    String key = name.toLowerCase(Locale.ROOT);
+    Map<String, ServiceType> current = types();
+    if (!current.containsKey(key)) {
+      return null;
+    }
+    Map<String, ServiceType> copy = new LinkedHashMap<>(current);
+    ServiceType previous = copy.remove(key);
+    types = Collections.unmodifiableMap(copy);
+    return previous;
+  }
 
-  public synchronized static ServiceType get(String type) {
-    load();
-    for (ServiceType next : types) {
-      if (next.name().equalsIgnoreCase(type)) {
-        return next;
+  private static Map<String, ServiceType> types() {
+    Map<String, ServiceType> current = types;
+    if (current == null) {
+      synchronized (ServiceTypes.class) {
+        current = types;
+        if (current == null) {
+          current = load();
+          types = current;
+        }
       }
     }
-    return null;
+    return current;
+  }
+
+  private static Map<String, ServiceType> load() {
+    Map<String, ServiceType> loaded = new LinkedHashMap<>();
+    for (ServiceType type : ServiceLoader.load(ServiceType.class)) {
+      // The first implementation found on the classpath wins.
+      loaded.putIfAbsent(type.name().toLowerCase(Locale.ROOT), type);
+    }
+    return Collections.unmodifiableMap(loaded);
   }
 }
@@ -0,0 +1,279 @@
+/*
+ * Copyright (c) 2011-2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.servicediscovery.impl;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.AsyncMap;
+import io.vertx.servicediscovery.Record;
+import io.vertx.servicediscovery.RecordFilter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * The maps storing the records of the {@link DefaultServiceDiscoveryBackend}, keyed by registration id. The registry
+ * can be partitioned into several maps (shards), by service name or type, so the lookups constraining this field only
+ * read a single shard instead of the whole registry.
+ * <p>
+ * The shard of a record is chosen when it is registered, and encoded in its registration id, so the operations on a
+ * given registration id go straight to its shard. When an update changes the field the records are partitioned by,
+ * the record stays in its shard, and a marker is added to the shard of the new value, so the lookups on this value
+ * still find it.
+ *
+ * @author <a href="http://escoffier.me">Clement Escoffier</a>
+ */
+class ShardedRegistry {
+
+  static final String MAP_NAME = "service.registry";
+
+  /**
+   * The value of the markers. The records are JSON objects, they cannot be mistaken for markers.
+   */
+  private static final String MARKER = "@";
+
+  private final List<AsyncMap<String, String>> shards;
+  private final String field;
+
+  private ShardedRegistry(List<AsyncMap<String, String>> shards, String field) {
+    this.shards = shards;
+    this.field = field;
+  }
+
+  /**
+   * Checks the partitioning configuration.
+   *
+   * @param shards the number of shards
+   * @param field  the field the records are partitioned by
+   * @throws IllegalArgumentException if the configuration is invalid
+   */
+  static void validate(int shards, String field) {
+    if (shards < 1 || shards > 0x10000) {
+      throw new IllegalArgumentException("The number of shards must be between 1 and 65536: " + shards);
+    }
+    if (!"name".equals(field) && !"type".equals(field)) {
+      throw new IllegalArgumentException("The records can only be partitioned by name or type: " + field);
+    }
+  }
+
+  /**
+   * Gets the registry.
+   *
+   * @param vertx  the vert.x instance
+   * @param local  whether the local maps must be used even in clustered mode
+   * @param shards the number of shards, {@code 1} to store all the records in a single map
+   * @param field  the field the records are partitioned by, {@code name} or {@code type}
+   * @return a future completed with the registry
+   */
+  static Future<ShardedRegistry> create(Vertx vertx, boolean local, int shards, String field) {
+    List<Future<AsyncMap<String, String>>> futures = new ArrayList<>();
+    for (int i = 0; i < shards; i++) {
+      // Without shards, the map is the one used by the nodes not partitioning the registry.
+      String name = shards == 1 ? MAP_NAME : MAP_NAME + ".shard-" + i;
+      futures.add(local ? Future.succeededFuture(vertx.sharedData().<String, String>getLocalAsyncMap(name).result())
+        : vertx.sharedData().getClusterWideMap(name));
+    }
+    return Future.all(futures).map(v -> new ShardedRegistry(
+      futures.stream().map(Future::result).collect(Collectors.toList()), field));
+  }
+
+  /**
+   * Creates the registration id of a new record, designating the shard of its partitioning field.
+   *
+   * @param record the record
+   * @return the registration id
+   */
+  String newRegistration(Record record) {
+    UUID uuid = UUID.randomUUID();
+    if (shards.size() == 1) {
+      return uuid.toString();
+    }
+    // The last 16 bits of the id are the shard, the others remain random.
+    return new UUID(uuid.getMostSignificantBits(),
+      uuid.getLeastSignificantBits() & ~0xFFFFL | shard(partition(record))).toString();
+  }
+
+  /**
+   * Gets the map storing the record with the given registration id.
+   *
+   * @param registration the registration id
+   * @return the map, the record may not exist
+   */
+  AsyncMap<String, String> map(String registration) {
+    return shards.get(home(registration));
+  }
+
+  /**
+   * Gets the record with the given registration id.
+   *
+   * @param registration the registration id
+   * @return a future completed with the encoded record, {@code null} if not found
+   */
+  Future<String> get(String registration) {
+    return map(registration).get(registration);
+  }
+
+  /**
+   * Gets all the records.
+   *
+   * @return a future completed with the encoded records, keyed by registration id
+   */
+  Future<Map<String, String>> entries() {
+    if (shards.size() == 1) {
+      return shards.get(0).entries();
+    }
+    List<Future<Map<String, String>>> futures = shards.stream().map(AsyncMap::entries).collect(Collectors.toList());
+    return Future.all(futures).map(v -> {
+      Map<String, String> entries = new HashMap<>();
+      for (Future<Map<String, String>> future : futures) {
+        future.result().forEach((registration, value) -> {
+          if (!MARKER.equals(value)) {
+            entries.put(registration, value);
+          }
+        });
+      }
+      return entries;
+    });
+  }
+
+  /**
+   * Gets the records that may match the given filter, reading only the shard of the partitioning field if the filter
+   * constrains it.
+   *
+   * @param accept the filter
+   * @return a future completed with the encoded records, keyed by registration id
+   */
+  Future<Map<String, String>> entries(RecordFilter accept) {
+    int shard = shard(accept);
+    if (shard < 0) {
+      return entries();
+    }
+    return shards.get(shard).entries().compose(entries -> {
+      List<String> moved = entries.entrySet().stream()
+        .filter(entry -> MARKER.equals(entry.getValue()))
+        .map(Map.Entry::getKey)
+        .collect(Collectors.toList());
+      if (moved.isEmpty()) {
+        return Future.succeededFuture(entries);
+      }
+      List<Future<String>> futures = moved.stream().map(this::get).collect(Collectors.toList());
+      return Future.all(futures).map(v -> {
+        Map<String, String> result = new HashMap<>(entries);
+        for (int i = 0; i < moved.size(); i++) {
+          String value = futures.get(i).result();
+          if (value != null) {
+            result.put(moved.get(i), value);
+          } else {
+            // The record has expired without being removed, the marker is not needed anymore.
+            result.remove(moved.get(i));
+            shards.get(shard).removeIfPresent(moved.get(i), MARKER);
+          }
+        }
+        return result;
+      });
+    });
+  }
+
+  /**
+   * Gets the registration ids of the records that may match the given filter, reading only the shard of the
+   * partitioning field if the filter constrains it.
+   *
+   * @param accept the filter
+   * @return a future completed with the registration ids
+   */
+  Future<Set<String>> keys(RecordFilter accept) {
+    if (shards.size() == 1) {
+      return shards.get(0).keys();
+    }
+    int shard = shard(accept);
+    if (shard >= 0) {
+      // The markers are keyed by the registration id of the record they designate.
+      return shards.get(shard).keys();
+    }
+    List<Future<Set<String>>> futures = shards.stream().map(AsyncMap::keys).collect(Collectors.toList());
+    return Future.all(futures).map(v -> {
+      Set<String> keys = new HashSet<>();
+      futures.forEach(future -> keys.addAll(future.result()));
+      return keys;
+    });
+  }
+
+  /**
+   * Updates the markers of a record after an update or a removal, when its partitioning field has changed.
+   *
+   * @param registration the registration id
+   * @param previous     the previous encoded record, {@code null} if it did not exist
+   * @param current      the new version of the record, {@code null} if it has been removed
+   * @return a future completed when the markers have been updated
+   */
+  Future<Void> relocate(String registration, String previous, Record current) {
+    if (shards.size() == 1) {
+      return Future.succeededFuture();
+    }
+    int home = home(registration);
+    int from = previous == null ? home : shard(new JsonObject(previous).getString(field));
+    int to = current == null ? home : shard(partition(current));
+    if (from == to) {
+      return Future.succeededFuture();
+    }
+    // The new marker is added first, so the record can always be found.
+    Future<Void> added = to == home ? Future.succeededFuture() : shards.get(to).put(registration, MARKER);
+    // A leftover marker is ignored by the lookups, a failure does not fail the operation.
+    return added.compose(v -> from == home ? Future.succeededFuture()
+      : shards.get(from).removeIfPresent(registration, MARKER).<Void>mapEmpty().otherwiseEmpty());
+  }
+
+  private String partition(Record record) {
+    return "name".equals(field) ? record.getName() : record.getType();
+  }
+
+  /**
+   * @return the shard designated by the filter, {@code -1} if the filter does not constrain the partitioning field or
+   * the registry is not partitioned
+   */
+  private int shard(RecordFilter accept) {
+    if (shards.size() == 1) {
+      return -1;
+    }
+    String value = "name".equals(field) ? accept.getName() : accept.getType();
+    return value == null || "*".equals(value) ? -1 : shard(value);
+  }
+
+  private int shard(String value) {
+    // The filters compare the values ignoring case, so do the shards.
+    return Math.floorMod(RecordIndexes.key(field, value == null ? "" : value).hashCode(), shards.size());
+  }
+
+  private int home(String registration) {
+    if (shards.size() == 1) {
+      return 0;
+    }
+    try {
+      return Integer.parseInt(registration.substring(registration.length() - 4), 16) % shards.size();
+    } catch (NumberFormatException | IndexOutOfBoundsException e) {
+      // Not a registration id created by the registry, the record does not exist.
+      return 0;
+    }
+  }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2011-2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.servicediscovery.impl;
+
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A hashed timing wheel, expiring keys after a delay with a single periodic timer, whatever the number of keys.
+ * <p>
+ * The wheel is an array of buckets, one per tick. A key is placed in the bucket of the tick at which it expires,
+ * possibly several rotations later. On each tick, the keys of the current bucket whose expiration tick has been
+ * reached are expired. Rescheduling a key only updates its deadline: when its bucket is reached, a key whose deadline
+ * has been pushed back is moved to the bucket of its new deadline. Heartbeats are therefore cheap, whatever their
+ * frequency. Keys are expired at most one tick late.
+ * <p>
+ * The periodic timer only runs while the wheel contains keys.
+ *
+ * @param <K> the type of key
+ * @author <a href="http://escoffier.me">Clement Escoffier</a>
+ */
+class TimingWheel<K> {
+
+  private final Vertx vertx;
+  private final long tick;
+  private final List<Set<Entry<K>>> buckets;
+  private final Map<K, Entry<K>> entries = new HashMap<>();
+  private final Handler<K> onExpired;
+  private final long start = System.nanoTime();
+
+  // The last processed tick.
+  private long current;
+  private long timer = -1;
+  private boolean closed;
+
+  /**
+   * Creates the wheel.
+   *
+   * @param vertx     the vert.x instance
+   * @param tick      the duration of a tick in milliseconds, the precision of the wheel
+   * @param size      the number of buckets
+   * @param onExpired called with the expired keys, outside of any lock
+   */
+  TimingWheel(Vertx vertx, long tick, int size, Handler<K> onExpired) {
+    this.vertx = vertx;
+    this.tick = tick;
+    this.onExpired = onExpired;
+    this.buckets = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      buckets.add(new HashSet<>());
+    }
+  }
+
+  /**
+   * Schedules the expiration of a key, or postpones it if the key is already scheduled.
+   *
+   * @param key   the key
+   * @param delay the delay in milliseconds
+   */
+  synchronized void schedule(K key, long delay) {
+    if (closed) {
+      return;
+    }
+    long deadline = now() + delay;
+    Entry<K> entry = entries.get(key);
+    if (entry != null) {
+      // Moved to the right bucket when its current bucket is reached.
+      entry.deadline = Math.max(entry.deadline, deadline);
+      return;
+    }
+    if (timer == -1) {
+      // The wheel was idle, there is nothing to catch up with.
+      current = Math.max(current, now() / tick);
+      timer = vertx.setPeriodic(tick, l -> advance());
+    }
+    entry = new Entry<>(key, deadline);
+    entries.put(key, entry);
+    place(entry);
+  }
+
+  /**
+   * Cancels the expiration of a key.
+   *
+   * @param key the key
+   * @return whether the key was scheduled
+   */
+  synchronized boolean cancel(K key) {
+    Entry<K> entry = entries.remove(key);
+    if (entry == null) {
+      return false;
+    }
+    buckets.get(bucket(entry.tick)).remove(entry);
+    stopIfEmpty();
+    return true;
+  }
+
+  /**
+   * @return the number of scheduled keys
+   */
+  synchronized int size() {
+    return entries.size();
+  }
+
+  /**
+   * Cancels all the expirations and stops the timer.
+   */
+  synchronized void close() {
+    closed = true;
+    entries.clear();
+    buckets.forEach(Set::clear);
+    stopIfEmpty();
+  }
+
+  private void place(Entry<K> entry) {
+    // Never in the bucket being processed, and rounded up so keys never expire early.
+    entry.tick = Math.max(current + 1, (entry.deadline + tick - 1) / tick);
+    buckets.get(bucket(entry.tick)).add(entry);
+  }
+
+  private int bucket(long tick) {
+    return (int) (tick % buckets.size());
+  }
+
+  private long now() {
+    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+  }
+
+  private void advance() {
+    List<K> expired = new ArrayList<>();
+    synchronized (this) {
+      long now = now();
+      long target = now / tick;
+      // Catches up if the timer has been delayed.
+      while (current < target) {
+        current++;
+        Iterator<Entry<K>> iterator = buckets.get(bucket(current)).iterator();
+        List<Entry<K>> postponed = new ArrayList<>();
+        while (iterator.hasNext()) {
+          Entry<K> entry = iterator.next();
+          if (entry.tick > current) {
+            // Expires during a later rotation.
+            continue;
+          }
+          iterator.remove();
+          if (entry.deadline <= now) {
+            entries.remove(entry.key);
+            expired.add(entry.key);
+          } else {
+            postponed.add(entry);
+          }
+        }
+        postponed.forEach(this::place);
+      }
+      stopIfEmpty();
+    }
+    expired.forEach(onExpired::handle);
+  }
+
+  private void stopIfEmpty() {
+    if (entries.isEmpty() && timer != -1) {
+      vertx.cancelTimer(timer);
+      timer = -1;
+    }
+  }
+
+  private static final class Entry<K> {
+
+    private final K key;
+    private long deadline;
+    private long tick;
+
+    private Entry(K key, long deadline) {
+      this.key = key;
+      this.deadline = deadline;
+    }
+  }
+}
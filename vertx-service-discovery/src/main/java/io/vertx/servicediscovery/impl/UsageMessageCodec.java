@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2011-2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.servicediscovery.impl;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.MessageCodec;
+import io.vertx.core.json.JsonObject;
+import io.vertx.servicediscovery.Record;
+import io.vertx.servicediscovery.ServiceDiscovery;
+
+/**
+ * A binary {@link MessageCodec} for the bind and release events sent on the usage address. The event is still
+ * received as a {@link JsonObject} with the {@link ServiceDiscovery#EVENT_TYPE}, {@link ServiceDiscovery#EVENT_ID}
+ * and {@link ServiceDiscovery#EVENT_RECORD} entries, but is sent with the binary encoding of
+ * {@link RecordMessageCodec}.
+ *
+ * @author <a href="http://escoffier.me">Clement Escoffier</a>
+ */
+public class UsageMessageCodec implements MessageCodec<JsonObject, JsonObject> {
+
+  /**
+   * The name of the codec.
+   */
+  public static final String NAME = "vertx.discovery.usage";
+
+  @Override
+  public void encodeToWire(Buffer buffer, JsonObject event) {
+    RecordMessageCodec.writeString(buffer, event.getString(ServiceDiscovery.EVENT_TYPE));
+    RecordMessageCodec.writeString(buffer, event.getString(ServiceDiscovery.EVENT_ID));
+    RecordMessageCodec.write(buffer, new Record(event.getJsonObject(ServiceDiscovery.EVENT_RECORD)));
+  }
+
+  @Override
+  public JsonObject decodeFromWire(int pos, Buffer buffer) {
+    RecordMessageCodec.Reader reader = new RecordMessageCodec.Reader(buffer, pos);
+    String type = reader.readString();
+    String id = reader.readString();
+    Record record = RecordMessageCodec.read(reader);
+    return new JsonObject()
+      .put(ServiceDiscovery.EVENT_TYPE, type)
+      .put(ServiceDiscovery.EVENT_RECORD, record.toJson())
+      .put(ServiceDiscovery.EVENT_ID, id);
+  }
+
+  @Override
+  public JsonObject transform(JsonObject event) {
+    return event.copy();
+  }
+
+  @Override
+  public String name() {
+    return NAME;
+  }
+
+  @Override
+  public byte systemCodecID() {
+    return -1;
+  }
+}
@@ -16,8 +16,10 @@
 
 package io.vertx.servicediscovery.rest;
 
-import io.vertx.core.json.JsonArray;
+import io.vertx.core.Handler;
+import io.vertx.core.http.HttpServerResponse;
 import io.vertx.core.json.JsonObject;
+import io.vertx.core.streams.ReadStream;
 import io.vertx.ext.web.Router;
 import io.vertx.ext.web.RoutingContext;
 import io.vertx.ext.web.handler.BodyHandler;
@@ -27,6 +29,7 @@ import io.vertx.servicediscovery.ServiceDiscovery;
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Allows publishing the vert.x service discovery as a REST endpoint. It supports retrieving services,
@@ -179,14 +182,38 @@ public class ServiceDiscoveryRestEndpoint {
         return;
       }
     }
-    discovery.getRecords(filter).onComplete(ar -> {
-      if (ar.failed()) {
-        routingContext.fail(ar.cause());
+    // The records are written as they are read, so the whole registry is never held in memory.
+    HttpServerResponse response = routingContext.response();
+    ReadStream<Record> records = discovery.streamRecords(filter);
+    AtomicBoolean first = new AtomicBoolean(true);
+    // Stops reading the records once the client is gone.
+    Handler<Void> stop = v -> records.endHandler(null).handler(null);
+    response.closeHandler(stop);
+    response.exceptionHandler(err -> stop.handle(null));
+    records.exceptionHandler(err -> {
+      if (response.headWritten()) {
+        response.reset();
+      } else {
+        routingContext.fail(err);
+      }
+    });
+    records.endHandler(v -> {
+      if (first.get()) {
+        response.putHeader("Content-Type", "application/json").end("[]");
       } else {
-        JsonArray jsonArray = ar.result().stream()
-          .map(Record::toJson)
-          .collect(JsonArray::new, JsonArray::add, JsonArray::addAll);
-        routingContext.json(jsonArray);
+        response.end("]");
+      }
+    });
+    records.handler(record -> {
+      if (first.getAndSet(false)) {
+        response.setChunked(true).putHeader("Content-Type", "application/json").write("[");
+      } else {
+        response.write(",");
+      }
+      response.write(record.toJson().toBuffer());
+      if (response.writeQueueFull()) {
+        records.pause();
+        response.drainHandler(x -> records.resume());
       }
     });
   }
@@ -0,0 +1,244 @@
+/*
+ * Copyright (c) 2011-2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.servicediscovery.spi;
+
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.streams.ReadStream;
+import io.vertx.servicediscovery.Record;
+import io.vertx.servicediscovery.RecordFilter;
+import io.vertx.servicediscovery.Status;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * A {@link ReadStream} of records, reading the records page by page.
+ * <p>
+ * The pages are produced by a supplier, called when the stream has delivered all the records of the previous page and
+ * there is still some demand. The supplier returns a future completed with the records of the next page, or with
+ * {@code null} once all the records have been read. It is never called concurrently, so it can keep the iteration
+ * state without synchronization. The records are filtered by the stream, so the pages can contain records that do
+ * not match.
+ * <p>
+ * Setting a {@code null} handler ends the stream: the records not delivered yet are dropped, and no other page is
+ * read.
+ * <p>
+ * The records are delivered on the context creating the stream, if any.
+ *
+ * @author <a href="http://escoffier.me">Clement Escoffier</a>
+ */
+public class RecordStream implements ReadStream<Record> {
+
+  /**
+   * The recommended number of records read by page.
+   */
+  public static final int PAGE_SIZE = 128;
+
+  private final Context context;
+  private final RecordFilter accept;
+  private final boolean includeOutOfService;
+  private final Supplier<Future<List<Record>>> pages;
+
+  private final Deque<Record> buffer = new ArrayDeque<>();
+  private long demand = Long.MAX_VALUE;
+  private boolean fetching;
+  private boolean ended;
+  private boolean terminated;
+  private boolean emitting;
+
+  private Handler<Record> handler;
+  private Handler<Throwable> exceptionHandler;
+  private Handler<Void> endHandler;
+
+  /**
+   * Creates a new instance of {@link RecordStream}.
+   *
+   * @param filter              the JSON filter, {@code null} or empty to accept all records
+   * @param includeOutOfService whether the records with a status other than {@link Status#UP} are accepted
+   * @param pages               the supplier of pages
+   */
+  public RecordStream(JsonObject filter, boolean includeOutOfService, Supplier<Future<List<Record>>> pages) {
+    this.context = Vertx.currentContext();
+    this.accept = RecordFilter.compile(filter);
+    this.includeOutOfService = includeOutOfService;
+    this.pages = pages;
+  }
+
+  @Override
+  public synchronized RecordStream exceptionHandler(Handler<Throwable> handler) {
+    this.exceptionHandler = handler;
+    return this;
+  }
+
+  @Override
+  public RecordStream handler(Handler<Record> handler) {
+    Handler<Void> end;
+    synchronized (this) {
+      if (terminated) {
+        return this;
+      }
+      this.handler = handler;
+      if (handler != null) {
+        end = null;
+      } else {
+        terminated = true;
+        buffer.clear();
+        end = endHandler;
+      }
+    }
+    if (handler != null) {
+      schedule();
+    } else if (end != null) {
+      runOnContext(() -> end.handle(null));
+    }
+    return this;
+  }
+
+  @Override
+  public synchronized RecordStream pause() {
+    demand = 0;
+    return this;
+  }
+
+  @Override
+  public RecordStream resume() {
+    return fetch(Long.MAX_VALUE);
+  }
+
+  @Override
+  public RecordStream fetch(long amount) {
+    synchronized (this) {
+      demand += amount;
+      if (demand < 0) {
+        demand = Long.MAX_VALUE;
+      }
+    }
+    schedule();
+    return this;
+  }
+
+  @Override
+  public synchronized RecordStream endHandler(Handler<Void> endHandler) {
+    this.endHandler = endHandler;
+    return this;
+  }
+
+  private void schedule() {
+    runOnContext(this::drain);
+  }
+
+  /**
+   * Delivers the buffered records while there is some demand, then requests the next page or ends the stream.
+   */
+  private void drain() {
+    while (true) {
+      Record record;
+      Handler<Record> recordHandler;
+      Handler<Void> end = null;
+      boolean next = false;
+      synchronized (this) {
+        // A handler calling fetch re-enters this method, the outer loop delivers the records.
+        if (emitting || terminated || handler == null) {
+          return;
+        }
+        record = buffer.isEmpty() || demand == 0 ? null : buffer.poll();
+        recordHandler = handler;
+        if (record != null) {
+          if (demand != Long.MAX_VALUE) {
+            demand--;
+          }
+          emitting = true;
+        } else if (buffer.isEmpty() && ended) {
+          terminated = true;
+          end = endHandler;
+        } else if (buffer.isEmpty() && demand > 0 && !fetching) {
+          fetching = true;
+          next = true;
+        }
+      }
+
+      if (record == null) {
+        if (end != null) {
+          end.handle(null);
+        }
+        if (next) {
+          nextPage();
+        }
+        return;
+      }
+
+      try {
+        recordHandler.handle(record);
+      } finally {
+        synchronized (this) {
+          emitting = false;
+        }
+      }
+    }
+  }
+
+  private void nextPage() {
+    Future<List<Record>> page;
+    try {
+      page = pages.get();
+    } catch (RuntimeException e) {
+      page = Future.failedFuture(e);
+    }
+    page.onComplete(ar -> {
+      Handler<Throwable> failure = null;
+      synchronized (this) {
+        fetching = false;
+        if (terminated) {
+          // The stream has been stopped while the page was read.
+          return;
+        }
+        if (ar.failed()) {
+          terminated = true;
+          failure = exceptionHandler;
+        } else if (ar.result() == null) {
+          ended = true;
+        } else {
+          for (Record record : ar.result()) {
+            if ((includeOutOfService || record.getStatus() == Status.UP) && accept.test(record)) {
+              buffer.add(record);
+            }
+          }
+        }
+      }
+      if (failure != null) {
+        Handler<Throwable> h = failure;
+        runOnContext(() -> h.handle(ar.cause()));
+      } else {
+        schedule();
+      }
+    });
+  }
+
+  private void runOnContext(Runnable runnable) {
+    if (context != null && Vertx.currentContext() != context) {
+      context.runOnContext(v -> runnable.run());
+    } else {
+      runnable.run();
+    }
+  }
+}
@@ -17,13 +17,22 @@
 package io.vertx.servicediscovery.spi;
 
 import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
 import io.vertx.core.Handler;
+import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
 import io.vertx.core.json.JsonObject;
+import io.vertx.core.streams.ReadStream;
 import io.vertx.servicediscovery.Record;
+import io.vertx.servicediscovery.RecordChanges;
+import io.vertx.servicediscovery.RecordFilter;
+import io.vertx.servicediscovery.Status;
 import io.vertx.servicediscovery.impl.DefaultServiceDiscoveryBackend;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
 
 /**
  * By default the service discovery uses a distributed map to store the records. But this backend can be replaced. To
@@ -83,6 +92,95 @@ public interface ServiceDiscoveryBackend {
    */
   void update(Record record, Handler<AsyncResult<Void>> resultHandler);
 
+  /**
+   * Stores a record registered with a lease. The service discovery withdraws the record when the lease is not renewed
+   * in time, the backend can additionally expire it natively, so the record does not outlive a crashed owner. The
+   * given time-to-live is the time after which the backend may discard the record if {@link #renew(String, long, Handler)}
+   * has not been called.
+   * <p>
+   * By default, this method calls {@link #store(Record, Handler)}, the record being only withdrawn by the service
+   * discovery.
+   *
+   * @param record        the record
+   * @param ttl           the time-to-live in milliseconds
+   * @param resultHandler the completion handler
+   */
+  default void store(Record record, long ttl, Handler<AsyncResult<Record>> resultHandler) {
+    store(record, resultHandler);
+  }
+
+  /**
+   * Renews the lease of a record stored with {@link #store(Record, long, Handler)}, extending its time-to-live.
+   * <p>
+   * By default, this method does nothing.
+   *
+   * @param uuid          the uuid / registration id
+   * @param ttl           the time-to-live in milliseconds
+   * @param resultHandler the completion handler
+   */
+  default void renew(String uuid, long ttl, Handler<AsyncResult<Void>> resultHandler) {
+    resultHandler.handle(Future.succeededFuture());
+  }
+
+  /**
+   * Stores a set of records.
+   * <p>
+   * By default, this method calls {@link #store(Record, Handler)} for each record, without waiting for the previous
+   * calls to complete. Implementations can override it to store all the records in a single operation. The operation
+   * is not required to be atomic: when it fails, some of the records may have been stored.
+   *
+   * @param records       the records, without registration id
+   * @param resultHandler the completion handler, receiving the stored records in the same order
+   */
+  default void storeAll(List<Record> records, Handler<AsyncResult<List<Record>>> resultHandler) {
+    forEach(records, this::store, resultHandler);
+  }
+
+  /**
+   * Removes a set of records based on their UUIDs.
+   * <p>
+   * By default, this method calls {@link #remove(String, Handler)} for each registration id, without waiting for the
+   * previous calls to complete. Implementations can override it to remove all the records in a single operation. The
+   * operation is not required to be atomic: when it fails, some of the records may have been removed.
+   *
+   * @param uuids         the uuids / registration ids
+   * @param resultHandler the completion handler, receiving the removed records in the same order
+   */
+  default void removeAll(List<String> uuids, Handler<AsyncResult<List<Record>>> resultHandler) {
+    forEach(uuids, this::remove, resultHandler);
+  }
+
+  /**
+   * Updates a set of records.
+   * <p>
+   * By default, this method calls {@link #update(Record, Handler)} for each record, without waiting for the previous
+   * calls to complete. Implementations can override it to update all the records in a single operation. The
+   * operation is not required to be atomic: when it fails, some of the records may have been updated.
+   *
+   * @param records       the records to update
+   * @param resultHandler the completion handler
+   */
+  default void updateAll(List<Record> records, Handler<AsyncResult<Void>> resultHandler) {
+    this.<Record, Void>forEach(records, this::update, ar -> {
+      if (ar.succeeded()) {
+        resultHandler.handle(Future.succeededFuture());
+      } else {
+        resultHandler.handle(Future.failedFuture(ar.cause()));
+      }
+    });
+  }
+
+  private <T, R> void forEach(List<T> items, BiConsumer<T, Handler<AsyncResult<R>>> operation,
+                              Handler<AsyncResult<List<R>>> resultHandler) {
+    List<Future<R>> futures = new ArrayList<>();
+    for (T item : items) {
+      Promise<R> promise = Promise.promise();
+      operation.accept(item, ar -> promise.complete(ar.result(), ar.cause()));
+      futures.add(promise.future());
+    }
+    Future.all(futures).<List<R>>map(composite -> composite.list()).onComplete(resultHandler);
+  }
+
   /**
    * Gets all the records
    *
@@ -90,6 +188,79 @@ public interface ServiceDiscoveryBackend {
    */
   void getRecords(Handler<AsyncResult<List<Record>>> resultHandler);
 
+  /**
+   * Gets the records matching the given filter.
+   * <p>
+   * By default, this method retrieves all the records using {@link #getRecords(Handler)} and filters them.
+   * Implementations can override it to evaluate the filter, or part of it, natively, and avoid transferring the whole
+   * registry. The returned records must match the filter exactly, {@link RecordFilter#select} can be used to apply
+   * it on the candidate records.
+   *
+   * @param filter              the JSON filter, {@code null} or empty to accept all records. See
+   *                            {@link Record#match(JsonObject)} for the syntax.
+   * @param includeOutOfService whether the records with a status other than {@link Status#UP} are accepted
+   * @param limit               the maximum number of records to return, {@code 0} or negative for no limit
+   * @param resultHandler       the result handler
+   */
+  default void getRecords(JsonObject filter, boolean includeOutOfService, int limit,
+                          Handler<AsyncResult<List<Record>>> resultHandler) {
+    RecordFilter accept = RecordFilter.compile(filter);
+    getRecords(ar -> {
+      if (ar.succeeded()) {
+        resultHandler.handle(Future.succeededFuture(accept.select(ar.result().stream(), includeOutOfService, limit)));
+      } else {
+        resultHandler.handle(Future.failedFuture(ar.cause()));
+      }
+    });
+  }
+
+  /**
+   * Streams the records matching the given filter.
+   * <p>
+   * By default, this method retrieves the matching records using {@link #getRecords(JsonObject, boolean, int, Handler)}
+   * and delivers them one by one. Implementations can override it to read the records incrementally, when the stream
+   * requests them, typically with a {@link RecordStream}.
+   *
+   * @param filter              the JSON filter, {@code null} or empty to accept all records. See
+   *                            {@link Record#match(JsonObject)} for the syntax.
+   * @param includeOutOfService whether the records with a status other than {@link Status#UP} are accepted
+   * @return the stream of records
+   */
+  default ReadStream<Record> streamRecords(JsonObject filter, boolean includeOutOfService) {
+    AtomicBoolean read = new AtomicBoolean();
+    return new RecordStream(filter, includeOutOfService, () -> {
+      if (read.getAndSet(true)) {
+        return Future.succeededFuture();
+      }
+      Promise<List<Record>> promise = Promise.promise();
+      getRecords(filter, includeOutOfService, 0, ar -> promise.complete(ar.result(), ar.cause()));
+      return promise.future();
+    });
+  }
+
+  /**
+   * Gets the changes made to the registry since the given revision. Backends tracking the changes assign a monotonic
+   * revision to each store, update and removal, set it on the record with {@link Record#setRevision(long)}, and keep
+   * a bounded log of the changes.
+   * <p>
+   * By default, this method reports that a resync is required, as the changes are not tracked.
+   *
+   * @param revision      the last revision known by the caller
+   * @param resultHandler the result handler
+   */
+  default void getRecordsSince(long revision, Handler<AsyncResult<RecordChanges>> resultHandler) {
+    resultHandler.handle(Future.succeededFuture(new RecordChanges().setResyncRequired(true)));
+  }
+
+  /**
+   * Closes the backend, releasing the resources it holds. The records are kept. Called when the service discovery is
+   * closed.
+   * <p>
+   * By default, this method does nothing.
+   */
+  default void close() {
+  }
+
   /**
    * Get the record with the given uuid.
    *
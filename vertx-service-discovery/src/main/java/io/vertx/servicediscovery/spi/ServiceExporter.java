@@ -33,7 +33,8 @@ public interface ServiceExporter {
    * Notify a new record has been published, the record's registration can be used to uniquely
    * identify the record
    *
-   * @param record the record
+   * @param record the record. When several exporters are registered, it is an immutable {@link Record#snapshot()} shared
+   *               with the other exporters, whose setters throw an {@link IllegalStateException}
    */
   void onPublish(Record record);
 
@@ -41,7 +42,8 @@ public interface ServiceExporter {
    * Notify an existing record has been updated, the record's registration can be used to uniquely
    * identify the record
    *
-   * @param record the record
+   * @param record the record. When several exporters are registered, it is an immutable {@link Record#snapshot()} shared
+   *               with the other exporters, whose setters throw an {@link IllegalStateException}
    */
   void onUpdate(Record record);
 
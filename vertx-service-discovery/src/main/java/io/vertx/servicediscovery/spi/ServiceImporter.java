@@ -16,6 +16,7 @@
 
 package io.vertx.servicediscovery.spi;
 
+import io.vertx.codegen.annotations.GenIgnore;
 import io.vertx.codegen.annotations.VertxGen;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
@@ -24,6 +25,9 @@ import io.vertx.core.Vertx;
 import io.vertx.core.json.JsonObject;
 import io.vertx.servicediscovery.Record;
 
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
 /**
  * The service importer allows integrate other discovery technologies with the Vert.x service discovery. It maps
  * entries from another technology to a {@link Record} and maps {@link Record} to a publication in this other
@@ -45,6 +49,31 @@ public interface ServiceImporter {
   void start(Vertx vertx, ServicePublisher publisher, JsonObject configuration,
              Promise<Void> future);
 
+  /**
+   * Computes the owner of the records published by an importer, see
+   * {@link ServicePublisher#reconcile(String, JsonObject, java.util.List, java.util.function.Function)}. The owner is
+   * the {@code owner} entry of the configuration if set, and the host name of the node followed by the source of the
+   * importer otherwise, so the importers of the same source running on different nodes do not share their records.
+   *
+   * @param configuration the importer configuration
+   * @param source        the source of the imported services, such as the URL of the Docker host
+   * @return the owner
+   */
+  @GenIgnore
+  static String owner(JsonObject configuration, String source) {
+    String owner = configuration.getString("owner");
+    if (owner != null) {
+      return owner;
+    }
+    String node;
+    try {
+      node = InetAddress.getLocalHost().getHostName();
+    } catch (UnknownHostException e) {
+      node = "localhost";
+    }
+    return node + "/" + source;
+  }
+
   /**
    * Closes the importer
    *
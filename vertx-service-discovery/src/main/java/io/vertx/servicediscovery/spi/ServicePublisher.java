@@ -3,7 +3,17 @@ package io.vertx.servicediscovery.spi;
 import io.vertx.codegen.annotations.VertxGen;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
+import io.vertx.core.json.JsonObject;
 import io.vertx.servicediscovery.Record;
+import io.vertx.servicediscovery.Status;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * The publisher is used by the importer to publish or unpublish records.
@@ -13,6 +23,11 @@ import io.vertx.servicediscovery.Record;
 @VertxGen
 public interface ServicePublisher {
 
+  /**
+   * The metadata entry of the imported records identifying the importer owning them.
+   */
+  String OWNER = "importer.owner";
+
   /**
    * Publishes a record.
    *
@@ -39,4 +54,115 @@ public interface ServicePublisher {
    */
   Future<Record> update(Record record);
 
+  /**
+   * Publishes a set of records. Depending on the backend, the records are stored in a single operation.
+   *
+   * @param records       the records
+   * @return a future notified when the operation has completed (successfully or not). In case of success, the
+   *                      passed records have a registration id.
+   */
+  default Future<List<Record>> publishAll(List<Record> records) {
+    return Future.all(records.stream().map(this::publish).collect(Collectors.toList()))
+      .map(composite -> composite.list());
+  }
+
+  /**
+   * Un-publishes a set of records.
+   *
+   * @param ids           the registration ids
+   * @return a future notified when the operation has completed (successfully or not).
+   */
+  default Future<Void> unpublishAll(List<String> ids) {
+    return Future.all(ids.stream().map(this::unpublish).collect(Collectors.toList())).mapEmpty();
+  }
+
+  /**
+   * Updates a set of existing records.
+   *
+   * @param records       the records
+   * @return a future notified when the operation has completed (successfully or not).
+   */
+  default Future<List<Record>> updateAll(List<Record> records) {
+    return Future.all(records.stream().map(this::update).collect(Collectors.toList()))
+      .map(composite -> composite.list());
+  }
+
+  /**
+   * Lookups for the records matching the given filter, including the records that are not {@link Status#UP}.
+   * <p>
+   * By default, this method returns an empty list.
+   *
+   * @param filter        the filter, see {@link Record#match(JsonObject)}
+   * @return a future notified with the matching records
+   */
+  default Future<List<Record>> getRecords(JsonObject filter) {
+    return Future.succeededFuture(new ArrayList<>());
+  }
+
+  /**
+   * Reconciles the records of an importer with the records already in the registry, for instance restored from a
+   * snapshot, instead of publishing them again. The records of the registry matching the filter and carrying the
+   * {@link #OWNER} metadata entry of the importer are owned by the importer: each of them is matched with the imported
+   * record having the same key. It is kept as is when unchanged, and updated otherwise. The imported records without
+   * match are published, and the owned records without match are un-published. Each kind of change is applied in a
+   * single batch. The records published by other importers, for instance importing the same source from another node,
+   * are never modified.
+   * <p>
+   * The imported records are tagged with the owner, the importer must tag the records it publishes afterwards the
+   * same way so they can be reconciled on the next restart.
+   *
+   * @param owner         the owner of the records, stable across restarts, see
+   *                      {@link ServiceImporter#owner(JsonObject, String)}
+   * @param filter        the filter selecting the records of the importer, see {@link Record#match(JsonObject)}
+   * @param records       the imported records, not yet published
+   * @param key           the function computing the key identifying the imported service of a record
+   * @return a future notified when the operation has completed (successfully or not). In case of success, the
+   *                      passed records have a registration id.
+   */
+  default Future<List<Record>> reconcile(String owner, JsonObject filter, List<Record> records,
+                                         Function<Record, String> key) {
+    Objects.requireNonNull(owner);
+    records.forEach(record -> record.getMetadata().put(OWNER, owner));
+    return getRecords(filter.copy().put(OWNER, owner).put("status", "*")).compose(existing -> {
+      List<String> removals = new ArrayList<>();
+      Map<String, Record> current = new HashMap<>();
+      for (Record record : existing) {
+        Record duplicate = current.put(key.apply(record), record);
+        if (duplicate != null) {
+          removals.add(duplicate.getRegistration());
+        }
+      }
+
+      List<Record> publications = new ArrayList<>();
+      List<Record> updates = new ArrayList<>();
+      for (Record record : records) {
+        Record restored = current.remove(key.apply(record));
+        if (restored == null) {
+          publications.add(record);
+          continue;
+        }
+        record.setRegistration(restored.getRegistration());
+        if (record.getStatus() == null || record.getStatus() == Status.UNKNOWN) {
+          record.setStatus(restored.getStatus());
+        }
+        if (!record.equals(restored)) {
+          updates.add(record);
+        }
+      }
+      current.values().forEach(record -> removals.add(record.getRegistration()));
+
+      List<Future<?>> futures = new ArrayList<>();
+      if (!publications.isEmpty()) {
+        futures.add(publishAll(publications));
+      }
+      if (!updates.isEmpty()) {
+        futures.add(updateAll(updates));
+      }
+      if (!removals.isEmpty()) {
+        futures.add(unpublishAll(removals));
+      }
+      return Future.all(futures).map(composite -> records);
+    });
+  }
+
 }
@@ -21,6 +21,7 @@ import io.vertx.core.json.JsonObject;
 import io.vertx.servicediscovery.Record;
 import io.vertx.servicediscovery.ServiceDiscovery;
 import io.vertx.servicediscovery.ServiceReference;
+import io.vertx.servicediscovery.impl.ServiceTypes;
 
 /**
  * Represents a service type.
@@ -31,7 +32,8 @@ import io.vertx.servicediscovery.ServiceReference;
  * the message.
  * <p>
  * You can define your own service type by implementing this interface and configure the SPI file
- * (META-INF/services/io.vertx.servicediscovery.spi.ServiceType) with your own implementation.
+ * (META-INF/services/io.vertx.servicediscovery.spi.ServiceType) with your own implementation, or register it with
+ * {@link #register(ServiceType)}.
  *
  * @author <a href="http://escoffier.me">Clement Escoffier</a>
  */
@@ -42,6 +44,27 @@ public interface ServiceType {
    */
   String UNKNOWN = "unknown";
 
+  /**
+   * Registers a service type programmatically, without declaring it in the SPI file. It replaces the type with the
+   * same name, if any.
+   *
+   * @param type the service type
+   * @return the replaced type, {@code null} if none
+   */
+  static ServiceType register(ServiceType type) {
+    return ServiceTypes.register(type);
+  }
+
+  /**
+   * Unregisters a service type, registered programmatically or declared in the SPI file.
+   *
+   * @param name the name of the type
+   * @return the unregistered type, {@code null} if none
+   */
+  static ServiceType unregister(String name) {
+    return ServiceTypes.unregister(name);
+  }
+
   /**
    * @return the name of the type.
    */
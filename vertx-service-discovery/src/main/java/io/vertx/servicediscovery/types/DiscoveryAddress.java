@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2011-2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.servicediscovery.types;
+
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.net.Address;
+
+import java.util.Objects;
+
+/**
+ * A logical address, designating the HTTP endpoints matching a filter. It is resolved by the resolver returned by
+ * {@link HttpEndpoint#createAddressResolver(io.vertx.servicediscovery.ServiceDiscovery)}, so a single HTTP client can
+ * send requests to all the instances of a service.
+ *
+ * @author <a href="http://escoffier.me">Clement Escoffier</a>
+ */
+public final class DiscoveryAddress implements Address {
+
+  private final JsonObject filter;
+
+  private DiscoveryAddress(JsonObject filter) {
+    this.filter = filter;
+  }
+
+  /**
+   * Creates the address of the HTTP endpoints with the given name.
+   *
+   * @param name the name of the service
+   * @return the address
+   */
+  public static DiscoveryAddress of(String name) {
+    Objects.requireNonNull(name, "The name must not be null");
+    return new DiscoveryAddress(new JsonObject().put("name", name));
+  }
+
+  /**
+   * Creates the address of the HTTP endpoints matching the given filter.
+   *
+   * @param filter the filter, see {@link io.vertx.servicediscovery.Record#match(JsonObject)}
+   * @return the address
+   */
+  public static DiscoveryAddress of(JsonObject filter) {
+    Objects.requireNonNull(filter, "The filter must not be null");
+    return new DiscoveryAddress(filter.copy());
+  }
+
+  /**
+   * @return a copy of the filter
+   */
+  public JsonObject filter() {
+    return filter.copy();
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    return o instanceof DiscoveryAddress && filter.equals(((DiscoveryAddress) o).filter);
+  }
+
+  @Override
+  public int hashCode() {
+    return filter.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return "DiscoveryAddress" + filter.encode();
+  }
+}
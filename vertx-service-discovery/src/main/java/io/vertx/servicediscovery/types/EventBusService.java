@@ -22,6 +22,7 @@ import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.json.JsonObject;
 import io.vertx.servicediscovery.Record;
+import io.vertx.servicediscovery.SelectionStrategy;
 import io.vertx.servicediscovery.ServiceDiscovery;
 import io.vertx.servicediscovery.ServiceReference;
 import io.vertx.servicediscovery.spi.ServiceType;
@@ -132,6 +133,30 @@ public interface EventBusService extends ServiceType {
     });
   }
 
+  /**
+   * Selects one of the service records matching the service interface using the given strategy, and returns the
+   * service object (used to consume the service). A filter based on the request interface is used.
+   *
+   * @param discovery     the service discovery instance
+   * @param itf           the service interface
+   * @param strategy      the selection strategy
+   * @return a future notified with the client
+   * @param <T>           the service interface
+   * @see ServiceDiscovery#select(JsonObject, SelectionStrategy)
+   */
+  @GenIgnore // Java only
+  static <T> Future<T> getProxy(ServiceDiscovery discovery, Class<T> itf, SelectionStrategy strategy) {
+    JsonObject filter = new JsonObject().put("service.interface", itf.getName());
+    return discovery.select(filter, strategy).flatMap(res -> {
+      if (res == null) {
+        return Future.failedFuture("Cannot find service matching with " + filter);
+      } else {
+        ServiceReference service = discovery.getReference(res);
+        return Future.succeededFuture(service.get());
+      }
+    });
+  }
+
   /**
    * Lookup for a service record and if found, retrieve it and return the service object (used to consume the service).
    * This is a convenient method to avoid explicit lookup and then retrieval of the service. A filter based on the
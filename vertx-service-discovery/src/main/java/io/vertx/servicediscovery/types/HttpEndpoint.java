@@ -16,15 +16,19 @@
 
 package io.vertx.servicediscovery.types;
 
+import io.vertx.codegen.annotations.GenIgnore;
 import io.vertx.codegen.annotations.VertxGen;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.http.HttpClient;
 import io.vertx.core.json.JsonObject;
+import io.vertx.core.net.AddressResolver;
 import io.vertx.ext.web.client.WebClient;
 import io.vertx.servicediscovery.Record;
+import io.vertx.servicediscovery.SelectionStrategy;
 import io.vertx.servicediscovery.ServiceDiscovery;
 import io.vertx.servicediscovery.spi.ServiceType;
+import io.vertx.servicediscovery.types.impl.HttpEndpointResolver;
 
 import java.util.Objects;
 import java.util.function.Function;
@@ -109,6 +113,22 @@ public interface HttpEndpoint extends ServiceType {
     return createRecord(name, host, 80, "/", null);
   }
 
+  /**
+   * Creates an address resolver, resolving {@link DiscoveryAddress} to the HTTP endpoints published in the given service
+   * discovery. Configure it on a client with {@code vertx.httpClientBuilder().withAddressResolver(resolver)}, then send
+   * the requests to a {@link DiscoveryAddress}: the client load balancer spreads them over the matching endpoints.
+   * The set of endpoints is kept up to date from the events sent on the announce address, so a single, long-lived,
+   * client serves all the instances of a service.
+   *
+   * @param discovery the service discovery instance
+   * @return the address resolver
+   */
+  @GenIgnore
+  static AddressResolver<DiscoveryAddress> createAddressResolver(ServiceDiscovery discovery) {
+    Objects.requireNonNull(discovery, "The service discovery must not be null");
+    return vertx -> new HttpEndpointResolver<>(discovery);
+  }
+
   /**
    * Convenient method that looks for a HTTP endpoint and provides the configured {@link HttpClient}. The async result
    * is marked as failed is there are no matching services, or if the lookup fails.
@@ -127,6 +147,27 @@ public interface HttpEndpoint extends ServiceType {
     });
   }
 
+  /**
+   * Convenient method that selects one of the matching HTTP endpoints using the given strategy, and provides the
+   * configured {@link HttpClient}. The async result is marked as failed is there are no matching services, or if the
+   * lookup fails.
+   *
+   * @param discovery     The service discovery instance
+   * @param filter        The filter, optional
+   * @param strategy      The selection strategy
+   * @return a future notified with the client
+   * @see ServiceDiscovery#select(JsonObject, SelectionStrategy)
+   */
+  static Future<HttpClient> getClient(ServiceDiscovery discovery, JsonObject filter, SelectionStrategy strategy) {
+    return discovery.select(filter, strategy).flatMap(res -> {
+      if (res == null) {
+        return Future.failedFuture("No matching records");
+      } else {
+        return Future.succeededFuture(discovery.getReference(res).get());
+      }
+    });
+  }
+
   /**
    * Convenient method that looks for a HTTP endpoint and provides the configured {@linkWebClient}. The async result
    * is marked as failed is there are no matching services, or if the lookup fails.
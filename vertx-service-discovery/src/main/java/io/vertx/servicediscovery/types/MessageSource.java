@@ -22,6 +22,7 @@ import io.vertx.core.Future;
 import io.vertx.core.eventbus.MessageConsumer;
 import io.vertx.core.json.JsonObject;
 import io.vertx.servicediscovery.Record;
+import io.vertx.servicediscovery.SelectionStrategy;
 import io.vertx.servicediscovery.ServiceDiscovery;
 import io.vertx.servicediscovery.spi.ServiceType;
 
@@ -134,6 +135,28 @@ public interface MessageSource extends ServiceType {
     });
   }
 
+  /**
+   * Convenient method that selects one of the matching message sources using the given strategy, and provides the
+   * configured {@link MessageConsumer}. The async result is marked as failed is there are no matching services, or if
+   * the lookup fails.
+   *
+   * @param discovery     The service discovery instance
+   * @param filter        The filter, optional
+   * @param strategy      The selection strategy
+   * @return a future notified with the client
+   * @see ServiceDiscovery#select(JsonObject, SelectionStrategy)
+   */
+  static <T> Future<MessageConsumer<T>> getConsumer(ServiceDiscovery discovery, JsonObject filter,
+                                                    SelectionStrategy strategy) {
+    return discovery.select(filter, strategy).flatMap(res -> {
+      if (res == null) {
+        return Future.failedFuture("No matching records");
+      } else {
+        return Future.succeededFuture(discovery.getReference(res).get());
+      }
+    });
+  }
+
   /**
    * Convenient method that looks for a message source and provides the configured {@link MessageConsumer}. The
    * async result is marked as failed is there are no matching services, or if the lookup fails.
@@ -24,8 +24,6 @@ import io.vertx.servicediscovery.ServiceDiscovery;
 import io.vertx.servicediscovery.ServiceReference;
 import io.vertx.servicediscovery.types.AbstractServiceReference;
 import io.vertx.servicediscovery.types.EventBusService;
-import io.vertx.servicediscovery.utils.ClassLoaderUtils;
-import io.vertx.serviceproxy.ServiceProxyBuilder;
 
 import java.util.Objects;
 
@@ -34,6 +32,8 @@ import java.util.Objects;
  */
 public class EventBusServiceImpl<T> implements EventBusService {
 
+  private final SharedServiceProxies proxies = new SharedServiceProxies();
+
   @Override
   public String name() {
     return TYPE;
@@ -55,6 +55,7 @@ public class EventBusServiceImpl<T> implements EventBusService {
 
     private final DeliveryOptions deliveryOptions;
     private final String serviceInterface;
+    private SharedServiceProxies.Key proxy;
 
     EventBusServiceReference(Vertx vertx, ServiceDiscovery discovery, Record record, JsonObject conf) {
       super(vertx, discovery, record);
@@ -69,21 +70,22 @@ public class EventBusServiceImpl<T> implements EventBusService {
 
 
     /**
-     * Build the service proxy and return it. If already built, it returns the cached one.
+     * Gets the service proxy and returns it. The proxy is shared with the other references to the same address using
+     * the same delivery options.
      *
      * @return the proxy
      */
     @Override
     public synchronized T retrieve() {
-      Class<T> itf = ClassLoaderUtils.load(serviceInterface, this.getClass().getClassLoader());
-      if (itf == null) {
-        throw new IllegalStateException("Cannot load class " + serviceInterface);
-      } else {
-        return new ServiceProxyBuilder(vertx)
-          .setAddress(record().getLocation().getString(Record.ENDPOINT))
-          .setOptions(deliveryOptions)
-          .build(itf);
-      }
+      proxy = proxies.acquire(vertx, serviceInterface, this.getClass().getClassLoader(),
+        record().getLocation().getString(Record.ENDPOINT), deliveryOptions);
+      return (T) proxy.proxy();
+    }
+
+    @Override
+    protected synchronized void onClose() {
+      proxies.release(proxy);
+      proxy = null;
     }
   }
 }
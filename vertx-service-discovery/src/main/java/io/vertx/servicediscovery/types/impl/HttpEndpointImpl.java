@@ -34,12 +34,15 @@ import java.util.Objects;
 
 /**
  * Implementation of {@link ServiceType} for HTTP endpoint (REST api).
- * Consumers receive a HTTP client configured with the host and port of the endpoint.
+ * Consumers receive a HTTP client configured with the host and port of the endpoint. The references to the same
+ * endpoint, with the same client configuration, share the same client, closed when the last reference is released.
  *
  * @author <a href="http://escoffier.me">Clement Escoffier</a>
  */
 public class HttpEndpointImpl implements HttpEndpoint {
 
+  private final SharedHttpClients clients = new SharedHttpClients();
+
   @Override
   public String name() {
     return TYPE;
@@ -62,6 +65,7 @@ public class HttpEndpointImpl implements HttpEndpoint {
     private final JsonObject config;
 
     private Object retrieved;
+    private SharedHttpClients.Key client;
 
     HttpEndpointReference(Vertx vertx, ServiceDiscovery discovery, Record record, JsonObject config) {
       super(vertx, discovery, record);
@@ -70,7 +74,8 @@ public class HttpEndpointImpl implements HttpEndpoint {
     }
 
     /**
-     * Gets a HTTP client to access the service.
+     * Gets a HTTP client to access the service, shared with the other references using the same configuration.
+     * Closing the returned client has no effect, only the release of the last reference closes the shared client.
      *
      * @return the HTTP client, configured to access the service
      */
@@ -87,15 +92,20 @@ public class HttpEndpointImpl implements HttpEndpoint {
         options.setSsl(true);
       }
 
-      return vertx.createHttpClient(options);
+      client = clients.acquire(vertx, options);
+      return client.client();
     }
 
     /**
-     * Closes the client.
+     * Releases the client, closed if no other reference uses it. Nothing is released if the client has never been
+     * retrieved.
      */
     @Override
     public synchronized void onClose() {
-      service.close();
+      if (client != null) {
+        clients.release(client);
+      }
+      client = null;
       retrieved = null;
     }
 
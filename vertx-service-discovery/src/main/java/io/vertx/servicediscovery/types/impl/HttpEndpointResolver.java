@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2011-2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.servicediscovery.types.impl;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.net.Address;
+import io.vertx.core.net.SocketAddress;
+import io.vertx.core.spi.endpoint.EndpointBuilder;
+import io.vertx.core.spi.endpoint.EndpointResolver;
+import io.vertx.core.streams.ReadStream;
+import io.vertx.servicediscovery.Record;
+import io.vertx.servicediscovery.RecordChange;
+import io.vertx.servicediscovery.RecordChangeType;
+import io.vertx.servicediscovery.ServiceDiscovery;
+import io.vertx.servicediscovery.types.DiscoveryAddress;
+import io.vertx.servicediscovery.types.HttpEndpoint;
+import io.vertx.servicediscovery.types.HttpLocation;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Resolves {@link DiscoveryAddress} to the locations of the matching HTTP endpoints, for the HTTP client load
+ * balancers.
+ * <p>
+ * Each resolved address watches the matching records with {@link ServiceDiscovery#watch(JsonObject)}, and rebuilds its
+ * list of servers when a record is added, modified or removed. The client keeps using the resolved state as long as
+ * the watch is active, so the resolution is only done once per address.
+ *
+ * @param <B> the type of the list of servers built for the client
+ * @author <a href="http://escoffier.me">Clement Escoffier</a>
+ */
+public class HttpEndpointResolver<B> implements EndpointResolver<DiscoveryAddress, SocketAddress,
+  HttpEndpointResolver.State<B>, B> {
+
+  private final ServiceDiscovery discovery;
+
+  public HttpEndpointResolver(ServiceDiscovery discovery) {
+    this.discovery = discovery;
+  }
+
+  @Override
+  public DiscoveryAddress tryCast(Address address) {
+    return address instanceof DiscoveryAddress ? (DiscoveryAddress) address : null;
+  }
+
+  @Override
+  public SocketAddress addressOf(SocketAddress server) {
+    return server;
+  }
+
+  @Override
+  public Future<State<B>> resolve(DiscoveryAddress address, EndpointBuilder<B, SocketAddress> builder) {
+    JsonObject filter = address.filter().put("type", HttpEndpoint.TYPE);
+    State<B> state = new State<>(builder, discovery.watch(filter));
+    // The watch delivers the matching records, then their changes. The initial lookup only tells when the state is
+    // complete enough to be used.
+    return discovery.getRecords(filter).map(records -> {
+      state.seed(records);
+      return state;
+    }).onFailure(err -> state.dispose());
+  }
+
+  @Override
+  public B endpoint(State<B> state) {
+    return state.endpoints;
+  }
+
+  @Override
+  public boolean isValid(State<B> state) {
+    return state.valid;
+  }
+
+  @Override
+  public void dispose(State<B> state) {
+    state.dispose();
+  }
+
+  @Override
+  public void close() {
+    // The states are disposed by the client.
+  }
+
+  /**
+   * The servers of an address, kept up to date from the record changes.
+   *
+   * @param <B> the type of the list of servers
+   */
+  public static class State<B> {
+
+    private final EndpointBuilder<B, SocketAddress> builder;
+    private final ReadStream<RecordChange> changes;
+    private final Map<String, SocketAddress> servers = new LinkedHashMap<>();
+    // The records removed before the initial lookup completes, so its stale results are ignored.
+    private Set<String> removed = new HashSet<>();
+
+    private volatile B endpoints;
+    private volatile boolean valid = true;
+
+    private State(EndpointBuilder<B, SocketAddress> builder, ReadStream<RecordChange> changes) {
+      this.builder = builder;
+      this.changes = changes;
+      this.endpoints = builder.build();
+      changes.exceptionHandler(err -> valid = false);
+      changes.endHandler(v -> valid = false);
+      changes.handler(this::onChange);
+    }
+
+    private synchronized void onChange(RecordChange change) {
+      String registration = change.getRecord().getRegistration();
+      if (change.getType() == RecordChangeType.REMOVED) {
+        servers.remove(registration);
+        if (removed != null) {
+          removed.add(registration);
+        }
+      } else {
+        servers.put(registration, addressOf(change.getRecord()));
+      }
+      rebuild();
+    }
+
+    private synchronized void seed(Iterable<Record> records) {
+      for (Record record : records) {
+        if (!removed.contains(record.getRegistration())) {
+          servers.putIfAbsent(record.getRegistration(), addressOf(record));
+        }
+      }
+      removed = null;
+      rebuild();
+    }
+
+    private void rebuild() {
+      EndpointBuilder<B, SocketAddress> current = builder;
+      for (Map.Entry<String, SocketAddress> server : servers.entrySet()) {
+        current = current.addServer(server.getValue(), server.getKey());
+      }
+      endpoints = current.build();
+    }
+
+    private void dispose() {
+      valid = false;
+      changes.handler(null);
+    }
+
+    private static SocketAddress addressOf(Record record) {
+      HttpLocation location = new HttpLocation(record.getLocation());
+      return SocketAddress.inetSocketAddress(location.getPort(), location.getHost());
+    }
+  }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2011-2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.servicediscovery.types.impl;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientOptions;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * The HTTP clients shared by the references to HTTP endpoints. The references to the same location, configured with
+ * the same options, share a single client, so a single connection pool. The clients are reference counted: a client
+ * is closed when the last reference using it is released. The references hand out a view of the client ignoring
+ * {@code close} and {@code shutdown}, so closing the client retrieved from a reference, or a web client wrapping it,
+ * does not close the client of the other references.
+ *
+ * @author <a href="http://escoffier.me">Clement Escoffier</a>
+ */
+class SharedHttpClients {
+
+  private final Map<Key, Entry> clients = new HashMap<>();
+
+  /**
+   * Gets the client for the given options, creating it if needed, and increments its reference count.
+   *
+   * @param vertx   the vert.x instance
+   * @param options the client options, including the host, port and SSL settings of the location
+   * @return the key of the client, to pass to {@link #release(Key)}
+   */
+  synchronized Key acquire(Vertx vertx, HttpClientOptions options) {
+    Key key = new Key(vertx, options.toJson().encode());
+    Entry entry = clients.get(key);
+    if (entry == null) {
+      entry = new Entry(vertx.createHttpClient(options));
+      clients.put(key, entry);
+    }
+    entry.count++;
+    key.client = entry.view;
+    return key;
+  }
+
+  /**
+   * Decrements the reference count of a client, and closes it once it is not used anymore.
+   *
+   * @param key the key returned by {@link #acquire(Vertx, HttpClientOptions)}
+   */
+  void release(Key key) {
+    HttpClient closed = null;
+    synchronized (this) {
+      Entry entry = clients.get(key);
+      if (entry != null && --entry.count == 0) {
+        clients.remove(key);
+        closed = entry.client;
+      }
+    }
+    if (closed != null) {
+      closed.close();
+    }
+  }
+
+  /**
+   * Creates a view of a client ignoring {@code close} and {@code shutdown}. The view implements all the public
+   * interfaces of the client, and not only {@link HttpClient}, so it can be wrapped like the client itself, for
+   * instance by {@code WebClient.wrap}.
+   *
+   * @param client the shared client
+   * @return the view
+   */
+  private static HttpClient unclosable(HttpClient client) {
+    Set<Class<?>> interfaces = new LinkedHashSet<>();
+    for (Class<?> clazz = client.getClass(); clazz != null; clazz = clazz.getSuperclass()) {
+      collectInterfaces(clazz, interfaces);
+    }
+    return (HttpClient) Proxy.newProxyInstance(client.getClass().getClassLoader(), interfaces.toArray(new Class<?>[0]),
+      (proxy, method, args) -> {
+        int arity = args == null ? 0 : args.length;
+        switch (method.getName()) {
+          case "equals":
+            if (arity == 1) {
+              return proxy == args[0];
+            }
+            break;
+          case "hashCode":
+            if (arity == 0) {
+              return System.identityHashCode(proxy);
+            }
+            break;
+          case "close":
+          case "shutdown":
+            return method.getReturnType() == void.class ? null : Future.succeededFuture();
+          default:
+            break;
+        }
+        try {
+          return method.invoke(client, args);
+        } catch (InvocationTargetException e) {
+          throw e.getCause();
+        }
+      });
+  }
+
+  private static void collectInterfaces(Class<?> clazz, Set<Class<?>> interfaces) {
+    for (Class<?> itf : clazz.getInterfaces()) {
+      if (Modifier.isPublic(itf.getModifiers()) && interfaces.add(itf)) {
+        collectInterfaces(itf, interfaces);
+      }
+    }
+  }
+
+  /**
+   * @return the number of clients
+   */
+  synchronized int size() {
+    return clients.size();
+  }
+
+  /**
+   * Identifies a shared client: the vert.x instance, compared by identity, and the encoded options.
+   */
+  static final class Key {
+
+    private final Vertx vertx;
+    private final String options;
+    private HttpClient client;
+
+    private Key(Vertx vertx, String options) {
+      this.vertx = vertx;
+      this.options = options;
+    }
+
+    /**
+     * @return the view of the shared client, ignoring {@code close} and {@code shutdown}
+     */
+    HttpClient client() {
+      return client;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      return vertx == other.vertx && options.equals(other.options);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(System.identityHashCode(vertx), options);
+    }
+  }
+
+  private static final class Entry {
+
+    private final HttpClient client;
+    private final HttpClient view;
+    private int count;
+
+    private Entry(HttpClient client) {
+      this.client = client;
+      this.view = unclosable(client);
+    }
+  }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2011-2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.servicediscovery.types.impl;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.servicediscovery.utils.ClassLoaderUtils;
+import io.vertx.serviceproxy.ServiceProxyBuilder;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Constructor;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+
+/**
+ * The service proxies shared by the references to event bus services. The references to the same address, with the
+ * same service interface and delivery options, share a single proxy. The proxies are reference counted: a proxy is
+ * discarded when the last reference using it is released.
+ * <p>
+ * The service interfaces are resolved once per name and thread context class loader, and the constructors of the
+ * generated proxy classes once per interface, so creating a proxy does not involve any class lookup.
+ *
+ * @author <a href="http://escoffier.me">Clement Escoffier</a>
+ */
+class SharedServiceProxies {
+
+  private static final String PROXY_SUFFIX = "VertxEBProxy";
+
+  private static final MethodType CONSTRUCTOR_TYPE =
+    MethodType.methodType(Object.class, Vertx.class, String.class, DeliveryOptions.class);
+
+  /**
+   * The constructors of the generated proxies, per service interface, {@code null} when the proxy class cannot be
+   * found or does not have the expected constructor. The values are attached to the interfaces, so they are
+   * collected with their class loader.
+   */
+  private static final ClassValue<MethodHandle> CONSTRUCTORS = new ClassValue<MethodHandle>() {
+    @Override
+    protected MethodHandle computeValue(Class<?> type) {
+      try {
+        Class<?> proxy = Class.forName(type.getName() + PROXY_SUFFIX, true, type.getClassLoader());
+        Constructor<?> constructor = proxy.getConstructor(Vertx.class, String.class, DeliveryOptions.class);
+        return MethodHandles.lookup().unreflectConstructor(constructor).asType(CONSTRUCTOR_TYPE);
+      } catch (ReflectiveOperationException | LinkageError e) {
+        return null;
+      }
+    }
+  };
+
+  // The interface classes are weakly referenced as they may retain the class loaders used as keys
+  private final Map<ClassLoader, Map<String, WeakReference<Class<?>>>> interfaces = new WeakHashMap<>();
+  private final Map<Key, Entry> proxies = new HashMap<>();
+
+  /**
+   * Gets the proxy for the given service, creating it if needed, and increments its reference count.
+   *
+   * @param vertx       the vert.x instance
+   * @param itf         the name of the service interface
+   * @param classLoader the class loader used to load the service interface if not visible from the current one
+   * @param address     the address of the service
+   * @param options     the delivery options, {@code null} if none
+   * @return the key of the proxy, to pass to {@link #release(Key)}
+   * @throws IllegalStateException if the service interface cannot be loaded
+   */
+  synchronized Key acquire(Vertx vertx, String itf, ClassLoader classLoader, String address, DeliveryOptions options) {
+    Class<?> type = resolve(itf, classLoader);
+    Key key = new Key(vertx, type, address, options == null ? null : options.toJson().encode());
+    Entry entry = proxies.get(key);
+    if (entry == null) {
+      entry = new Entry(create(vertx, type, address, options));
+      proxies.put(key, entry);
+    }
+    entry.count++;
+    key.proxy = entry.proxy;
+    return key;
+  }
+
+  /**
+   * Decrements the reference count of a proxy, and discards it once it is not used anymore.
+   *
+   * @param key the key returned by {@link #acquire(Vertx, String, ClassLoader, String, DeliveryOptions)}
+   */
+  synchronized void release(Key key) {
+    Entry entry = proxies.get(key);
+    if (entry != null && --entry.count == 0) {
+      proxies.remove(key);
+    }
+  }
+
+  /**
+   * @return the number of proxies
+   */
+  synchronized int size() {
+    return proxies.size();
+  }
+
+  private Class<?> resolve(String itf, ClassLoader classLoader) {
+    Map<String, WeakReference<Class<?>>> resolved =
+      interfaces.computeIfAbsent(Thread.currentThread().getContextClassLoader(), cl -> new HashMap<>());
+    WeakReference<Class<?>> reference = resolved.get(itf);
+    Class<?> type = reference == null ? null : reference.get();
+    if (type == null) {
+      type = ClassLoaderUtils.load(itf, classLoader);
+      if (type == null) {
+        throw new IllegalStateException("Cannot load class " + itf);
+      }
+      resolved.put(itf, new WeakReference<>(type));
+    }
+    return type;
+  }
+
+  private static Object create(Vertx vertx, Class<?> type, String address, DeliveryOptions options) {
+    MethodHandle constructor = CONSTRUCTORS.get(type);
+    if (constructor != null) {
+      try {
+        return constructor.invokeExact(vertx, address, options);
+      } catch (RuntimeException | Error e) {
+        throw e;
+      } catch (Throwable e) {
+        throw new IllegalStateException("Cannot create the proxy for " + type.getName(), e);
+      }
+    }
+    return new ServiceProxyBuilder(vertx)
+      .setAddress(address)
+      .setOptions(options)
+      .build(type);
+  }
+
+  /**
+   * Identifies a shared proxy: the vert.x instance and the service interface, compared by identity, the address and
+   * the encoded delivery options.
+   */
+  static final class Key {
+
+    private final Vertx vertx;
+    private final Class<?> type;
+    private final String address;
+    private final String options;
+    private Object proxy;
+
+    private Key(Vertx vertx, Class<?> type, String address, String options) {
+      this.vertx = vertx;
+      this.type = type;
+      this.address = address;
+      this.options = options;
+    }
+
+    /**
+     * @return the shared proxy
+     */
+    Object proxy() {
+      return proxy;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      return vertx == other.vertx && type == other.type && address.equals(other.address)
+        && Objects.equals(options, other.options);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(System.identityHashCode(vertx), type, address, options);
+    }
+  }
+
+  private static final class Entry {
+
+    private final Object proxy;
+    private int count;
+
+    private Entry(Object proxy) {
+      this.proxy = proxy;
+    }
+  }
+}
@@ -16,11 +16,15 @@
 
 package io.vertx.servicediscovery.utils;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
-import java.util.Optional;
 
 /**
  * @author <a href="http://escoffier.me">Clement Escoffier</a>
@@ -29,6 +33,26 @@ public class ClassLoaderUtils {
 
   private static final ClassLoader CURRENT = ClassLoaderUtils.class.getClassLoader();
 
+  private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+  /**
+   * The constructors wrapping a delegate, per wrapper class. The values are attached to the classes, so they are
+   * collected with their class loader.
+   */
+  private static final ClassValue<Constructors> CONSTRUCTORS = new ClassValue<Constructors>() {
+    @Override
+    protected Constructors computeValue(Class<?> type) {
+      return new Constructors(type);
+    }
+  };
+
+  /**
+   * The methods extracting the delegate, per wrapped class.
+   */
+  private static final ClassValue<Unwrapper> JS_UNWRAPPERS = unwrappers("getMember", "_jdel", "JavaScript");
+  private static final ClassValue<Unwrapper> RUBY_UNWRAPPERS = unwrappers("callMethod", "j_del", "Ruby");
+  private static final ClassValue<Unwrapper> RX_UNWRAPPERS = unwrappers("getDelegate", null, "RX");
+
 
   public static <T> Class<T> load(String className, ClassLoader classLoader) {
     Objects.requireNonNull(className);
@@ -58,18 +82,14 @@ public class ClassLoaderUtils {
   }
 
   public static <X, T> X createWithDelegate(Class<X> x, T svc) {
+    MethodHandle constructor = CONSTRUCTORS.get(x).find(svc.getClass());
+    if (constructor == null) {
+      return null;
+    }
     try {
-      Optional<Constructor<?>> maybe = Arrays.stream(x.getConstructors())
-        .filter(c -> c.getParameterCount() == 1)
-        .filter(c -> c.getParameterTypes()[0].isAssignableFrom(svc.getClass()))
-        .findFirst();
-
-      if (maybe.isPresent()) {
-        return (X) maybe.get().newInstance(svc);
-      } else {
-        return null;
-      }
-    } catch (Exception e) {
+      Object instance = constructor.invokeExact((Object) svc);
+      return (X) instance;
+    } catch (Throwable e) {
       return null;
     }
   }
@@ -79,44 +99,143 @@ public class ClassLoaderUtils {
       return null;
     }
 
-    if (object.getClass().getName().equals("jdk.nashorn.api.scripting.ScriptObjectMirror")) {
+    Class<?> type = object.getClass();
+    if (type.getName().equals("jdk.nashorn.api.scripting.ScriptObjectMirror")) {
       return extractDelegateFromJsObject(object);
     }
 
-    if (object.getClass().getName().startsWith("org.jruby.RubyObjectVar")) {
+    if (type.getName().startsWith("org.jruby.RubyObjectVar")) {
       return extractDelegateFromJRubyObject(object);
     }
 
-    return extractDelegateFromRX(object);
+    return RX_UNWRAPPERS.get(type).unwrap(object);
   }
 
-  private static Object extractDelegateFromRX(Object object) {
-    try {
-      Method method = object.getClass().getMethod("getDelegate");
-      return method.invoke(object);
-    } catch (NoSuchMethodException e) {
-      // Not a RX object
+  public static Object extractDelegateFromJRubyObject(Object object) {
+    return RUBY_UNWRAPPERS.get(object.getClass()).unwrap(object);
+  }
+
+  public static Object extractDelegateFromJsObject(Object object) {
+    return JS_UNWRAPPERS.get(object.getClass()).unwrap(object);
+  }
+
+  private static ClassValue<Unwrapper> unwrappers(String name, String member, String language) {
+    return new ClassValue<Unwrapper>() {
+      @Override
+      protected Unwrapper computeValue(Class<?> type) {
+        return Unwrapper.of(type, name, member, language);
+      }
+    };
+  }
+
+  /**
+   * The single-argument constructors of a wrapper class, resolved per delegate class. The delegate classes are weakly
+   * referenced, so a wrapper class does not retain the class loader of its delegates. The list is replaced on each
+   * addition, so the lookups do not take any lock. A wrapper class is generally used with a single delegate class.
+   */
+  private static final class Constructors {
+
+    private final Class<?> type;
+    private volatile List<Resolved> resolved = new ArrayList<>();
+
+    private Constructors(Class<?> type) {
+      this.type = type;
+    }
+
+    MethodHandle find(Class<?> delegate) {
+      for (Resolved entry : resolved) {
+        if (entry.delegate.get() == delegate) {
+          return entry.constructor;
+        }
+      }
+      MethodHandle constructor = resolve(delegate);
+      synchronized (this) {
+        List<Resolved> copy = new ArrayList<>(resolved.size() + 1);
+        for (Resolved entry : resolved) {
+          if (entry.delegate.get() != null) {
+            copy.add(entry);
+          }
+        }
+        copy.add(new Resolved(delegate, constructor));
+        resolved = copy;
+      }
+      return constructor;
+    }
+
+    private MethodHandle resolve(Class<?> delegate) {
+      for (Constructor<?> constructor : type.getConstructors()) {
+        if (constructor.getParameterCount() == 1 && constructor.getParameterTypes()[0].isAssignableFrom(delegate)) {
+          try {
+            return LOOKUP.unreflectConstructor(constructor).asType(MethodType.methodType(Object.class, Object.class));
+          } catch (IllegalAccessException e) {
+            return null;
+          }
+        }
+      }
       return null;
-    }  catch (Exception e) {
-      throw new RuntimeException("Unable to extract the delegate from the given RX object", e);
     }
   }
 
-  public static Object extractDelegateFromJRubyObject(Object object) {
-    try {
-      Method method = object.getClass().getMethod("callMethod", String.class);
-      return method.invoke(object, "j_del");
-    } catch (Exception e) {
-      throw new RuntimeException("Unable to extract the delegate from the given Ruby object", e);
+  private static final class Resolved {
+
+    private final WeakReference<Class<?>> delegate;
+    // null if the wrapper class has no suitable constructor
+    private final MethodHandle constructor;
+
+    private Resolved(Class<?> delegate, MethodHandle constructor) {
+      this.delegate = new WeakReference<>(delegate);
+      this.constructor = constructor;
     }
   }
 
-  public static Object extractDelegateFromJsObject(Object object) {
-    try {
-      Method method = object.getClass().getMethod("getMember", String.class);
-      return method.invoke(object, "_jdel");
-    } catch (Exception e) {
-      throw new RuntimeException("Unable to extract the delegate from the given JavaScript object", e);
+  /**
+   * Extracts the delegate of the instances of a class, by calling a method without argument ({@code getDelegate} for
+   * the RX wrappers), or with the name of the member holding the delegate (Nashorn and JRuby objects).
+   */
+  private static final class Unwrapper {
+
+    private final MethodHandle method;
+    private final String member;
+    private final String language;
+    private final Throwable failure;
+
+    private Unwrapper(MethodHandle method, String member, String language, Throwable failure) {
+      this.method = method;
+      this.member = member;
+      this.language = language;
+      this.failure = failure;
+    }
+
+    static Unwrapper of(Class<?> type, String name, String member, String language) {
+      try {
+        if (member == null) {
+          Method method = type.getMethod(name);
+          return new Unwrapper(LOOKUP.unreflect(method)
+            .asType(MethodType.methodType(Object.class, Object.class)), null, language, null);
+        }
+        Method method = type.getMethod(name, String.class);
+        return new Unwrapper(LOOKUP.unreflect(method)
+          .asType(MethodType.methodType(Object.class, Object.class, String.class)), member, language, null);
+      } catch (NoSuchMethodException e) {
+        // Not a RX object, the other wrappers always have the method
+        return new Unwrapper(null, member, language, member == null ? null : e);
+      } catch (IllegalAccessException e) {
+        return new Unwrapper(null, member, language, e);
+      }
+    }
+
+    Object unwrap(Object object) {
+      try {
+        if (method != null) {
+          return member == null ? method.invokeExact(object) : method.invokeExact(object, member);
+        }
+      } catch (Throwable e) {
+        throw new RuntimeException("Unable to extract the delegate from the given " + language + " object", e);
+      }
+      if (failure != null) {
+        throw new RuntimeException("Unable to extract the delegate from the given " + language + " object", failure);
+      }
+      return null;
     }
   }
 }
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2011-2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.servicediscovery;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.servicediscovery.types.HttpEndpoint;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that the compiled filters accept the same records as {@link Record#match(JsonObject)}.
+ *
+ * @author <a href="http://escoffier.me">Clement Escoffier</a>
+ */
+public class RecordFilterTest {
+
+  private final List<Record> records = Arrays.asList(
+    new Record().setName("Name"),
+    new Record().setName("Name").setStatus(Status.UP).setRegistration("the-registration"),
+    new Record().setName("Other").setType(HttpEndpoint.TYPE).setStatus(Status.OUT_OF_SERVICE),
+    new Record().setName("Name").setStatus(Status.UP)
+      .setMetadata(new JsonObject().put("foo", "bar").put("key", 2).put("tags", new JsonArray().add("a"))),
+    new Record().setName("Name").setStatus(Status.DOWN)
+      .setMetadata(new JsonObject().put("foo", "BAR").put("key", "2")),
+    new Record().setMetadata(new JsonObject().put("foo", true))
+  );
+
+  private final List<JsonObject> filters = Arrays.asList(
+    new JsonObject(),
+    new JsonObject().put("name", "Name"),
+    new JsonObject().put("name", "name"),
+    new JsonObject().put("name", "Name-2"),
+    new JsonObject().put("name", "*"),
+    new JsonObject().put("status", "Up"),
+    new JsonObject().put("status", "Down").put("name", "Name"),
+    new JsonObject().put("status", "*"),
+    new JsonObject().put("status", "not-a-status"),
+    new JsonObject().put("registration", "the-registration"),
+    new JsonObject().put("registration", "wrong"),
+    new JsonObject().put("type", HttpEndpoint.TYPE),
+    new JsonObject().put("type", "*").put("name", "other"),
+    new JsonObject().put("foo", "bar"),
+    new JsonObject().put("foo", "bar2"),
+    new JsonObject().put("foo", "bar").put("other", "*"),
+    new JsonObject().put("foo", "*").put("key", 2),
+    new JsonObject().put("key", "2"),
+    new JsonObject().put("foo", true),
+    new JsonObject().put("tags", new JsonArray().add("a"))
+  );
+
+  @Test
+  public void testCompiledFiltersMatchLikeRecordMatch() {
+    for (JsonObject filter : filters) {
+      RecordFilter compiled = RecordFilter.compile(filter);
+      for (Record record : records) {
+        assertThat(compiled.test(record))
+          .as("filter " + filter + " on " + record)
+          .isEqualTo(record.match(filter));
+      }
+    }
+  }
+
+  @Test
+  public void testNullFilterAcceptsAll() {
+    RecordFilter compiled = RecordFilter.compile(null);
+    for (Record record : records) {
+      assertThat(compiled.apply(record)).isTrue();
+    }
+  }
+
+  @Test
+  public void testCompiledFilterIsASnapshot() {
+    JsonObject filter = new JsonObject().put("name", "Name");
+    RecordFilter compiled = RecordFilter.compile(filter);
+    filter.put("name", "Other");
+    assertThat(compiled.test(records.get(0))).isTrue();
+  }
+}
@@ -17,6 +17,7 @@
 package io.vertx.servicediscovery;
 
 import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.servicediscovery.impl.DiscoveryImpl;
 import io.vertx.servicediscovery.types.HttpEndpoint;
@@ -34,6 +35,7 @@ import java.util.function.Function;
 import static com.jayway.awaitility.Awaitility.await;
 import static junit.framework.TestCase.fail;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.hamcrest.core.Is.is;
 import static org.hamcrest.core.IsNull.notNullValue;
 
@@ -90,6 +92,52 @@ public class RecordTest {
     assertThat(record.match(new JsonObject().put("foo", "*").put("key", 2))).isTrue();
   }
 
+  @Test
+  public void testSnapshot() {
+    Record record = HttpEndpoint.createRecord("Name", "acme.org")
+      .setRegistration("the-registration")
+      .setMetadata(new JsonObject().put("nested", new JsonObject().put("key", "value"))
+        .put("list", new JsonArray().add(new JsonObject())));
+
+    Record snapshot = record.snapshot();
+    assertThat(snapshot).isEqualTo(record);
+    assertThat(snapshot.snapshot()).isSameAs(snapshot);
+
+    // Modifying the original record does not affect the snapshot.
+    record.getMetadata().getJsonObject("nested").put("key", "changed");
+    assertThat(snapshot.getMetadata().getJsonObject("nested").getString("key")).isEqualTo("value");
+
+    assertThatThrownBy(() -> snapshot.setName("other")).isInstanceOf(IllegalStateException.class);
+    assertThatThrownBy(() -> snapshot.setStatus(Status.DOWN)).isInstanceOf(IllegalStateException.class);
+    assertThatThrownBy(() -> snapshot.getMetadata().put("foo", "bar"))
+      .isInstanceOf(UnsupportedOperationException.class);
+    assertThatThrownBy(() -> snapshot.getMetadata().getJsonObject("nested").put("foo", "bar"))
+      .isInstanceOf(UnsupportedOperationException.class);
+    assertThatThrownBy(() -> snapshot.getMetadata().getJsonArray("list").getJsonObject(0).put("foo", "bar"))
+      .isInstanceOf(UnsupportedOperationException.class);
+    assertThatThrownBy(() -> snapshot.getLocation().put("foo", "bar"))
+      .isInstanceOf(UnsupportedOperationException.class);
+
+    // Copies are modifiable, their JSON representation too.
+    Record copy = new Record(snapshot).setStatus(Status.DOWN);
+    assertThat(copy.getStatus()).isEqualTo(Status.DOWN);
+    JsonObject json = snapshot.toJson().copy();
+    json.getJsonObject("metadata").put("foo", "bar");
+    assertThat(new Record(json).getMetadata().getString("foo")).isEqualTo("bar");
+  }
+
+  @Test
+  public void testRevision() {
+    Record record = new Record().setName("Name");
+    assertThat(record.toJson().containsKey("revision")).isFalse();
+    assertThat(new Record(record.toJson()).getRevision()).isEqualTo(0);
+
+    // The backends stamp the revision, including on snapshots.
+    Record snapshot = record.snapshot().setRevision(42);
+    assertThat(snapshot.toJson().getLong("revision")).isEqualTo(42);
+    assertThat(new Record(snapshot.toJson()).getRevision()).isEqualTo(42);
+  }
+
   @Test
   public void TestTypeMatch() {
     Record record = new Record().setName("Name").setType(HttpEndpoint.TYPE);
@@ -17,8 +17,12 @@
 package io.vertx.servicediscovery.impl;
 
 import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.servicediscovery.Record;
+import io.vertx.servicediscovery.RecordChange;
+import io.vertx.servicediscovery.RecordChangeType;
+import io.vertx.servicediscovery.RecordChanges;
 import io.vertx.servicediscovery.Status;
 import org.junit.After;
 import org.junit.Before;
@@ -26,11 +30,15 @@ import org.junit.Test;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static com.jayway.awaitility.Awaitility.await;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.core.Is.is;
 import static org.hamcrest.core.IsNot.not;
@@ -145,4 +153,288 @@ public class DefaultServiceDiscoveryBackendTest {
     }
   }
 
+  @Test
+  public void testIndexedLookup() {
+    // Stored before the indexes exist, found once they are built.
+    Record existing = store(backend, new Record().setName("existing").setStatus(Status.UP));
+
+    DefaultServiceDiscoveryBackend indexed = new DefaultServiceDiscoveryBackend();
+    indexed.init(vertx, new JsonObject().put("indexes", new JsonArray().add("name").add("type").add("version")));
+    assertThat(lookup(indexed, new JsonObject().put("name", "EXISTING"))).hasSize(1);
+
+    Record a = store(indexed, new Record().setName("a").setType("t").setStatus(Status.UP)
+      .setMetadata(new JsonObject().put("version", "1")));
+    store(indexed, new Record().setName("b").setType("t").setStatus(Status.UP)
+      .setMetadata(new JsonObject().put("version", 1)));
+    store(indexed, new Record().setName("c").setType("t").setStatus(Status.DOWN));
+
+    assertThat(lookup(indexed, new JsonObject().put("name", "A"))).hasSize(1);
+    assertThat(lookup(indexed, new JsonObject().put("type", "t"))).hasSize(2);
+    assertThat(lookup(indexed, new JsonObject().put("type", "t").put("status", "*"))).hasSize(3);
+    assertThat(lookup(indexed, new JsonObject().put("version", "1"))).hasSize(1);
+    assertThat(lookup(indexed, new JsonObject().put("version", 1))).hasSize(2);
+    assertThat(lookup(indexed, new JsonObject().put("type", "t").put("name", "b"))).hasSize(1);
+
+    // Update
+    AtomicBoolean completed = new AtomicBoolean();
+    indexed.update(new Record(a).setName("d"), ar -> completed.set(ar.succeeded()));
+    await().untilAtomic(completed, is(true));
+    assertThat(lookup(indexed, new JsonObject().put("name", "a"))).isEmpty();
+    assertThat(lookup(indexed, new JsonObject().put("name", "d"))).hasSize(1);
+
+    // Remove
+    completed.set(false);
+    indexed.remove(a.getRegistration(), ar -> completed.set(ar.succeeded()));
+    await().untilAtomic(completed, is(true));
+    assertThat(lookup(indexed, new JsonObject().put("name", "d"))).isEmpty();
+    assertThat(lookup(indexed, new JsonObject().put("type", "t"))).hasSize(1);
+    assertThat(lookup(indexed, new JsonObject().put("registration", existing.getRegistration()))).hasSize(1);
+  }
+
+  @Test
+  public void testConcurrentIndexedPublications() {
+    DefaultServiceDiscoveryBackend indexed = new DefaultServiceDiscoveryBackend();
+    indexed.init(vertx, new JsonObject().put("indexes", new JsonArray().add("type")));
+    // Build the indexes before publishing.
+    assertThat(lookup(indexed, new JsonObject().put("type", "t"))).isEmpty();
+
+    AtomicInteger stored = new AtomicInteger();
+    for (int i = 0; i < 100; i++) {
+      indexed.store(new Record().setName("service-" + i).setType("t").setStatus(Status.UP), ar -> {
+        if (ar.succeeded()) {
+          stored.incrementAndGet();
+        }
+      });
+    }
+    await().untilAtomic(stored, is(100));
+    assertThat(lookup(indexed, new JsonObject().put("type", "t"))).hasSize(100);
+
+    // One index entry per record, whatever the number of records sharing the value.
+    AtomicInteger size = new AtomicInteger();
+    vertx.sharedData().<String, String>getLocalAsyncMap(RecordIndexes.MAP_NAME + "/" + RecordIndexes.key("type", "t"))
+      .compose(map -> map.size())
+      .onSuccess(size::set);
+    await().untilAtomic(size, is(100));
+  }
+
+  @Test
+  public void testShardedLookup() {
+    DefaultServiceDiscoveryBackend sharded = new DefaultServiceDiscoveryBackend();
+    sharded.init(vertx, new JsonObject().put("shards", 8));
+    List<Record> records = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      records.add(store(sharded, new Record().setName("service-" + i).setStatus(Status.UP)));
+    }
+
+    // Each record is stored in a single shard.
+    int size = 0;
+    for (int i = 0; i < 8; i++) {
+      size += vertx.sharedData().getLocalAsyncMap(ShardedRegistry.MAP_NAME + ".shard-" + i).result()
+        .size().result();
+    }
+    assertThat(size).isEqualTo(20);
+    assertThat(lookup(sharded, new JsonObject())).hasSize(20);
+    assertThat(lookup(sharded, new JsonObject().put("name", "SERVICE-3"))).hasSize(1);
+    assertThat(lookup(sharded, new JsonObject().put("registration", records.get(3).getRegistration())))
+      .hasSize(1);
+
+    // The renamed records are found under their new name, from any shard.
+    AtomicBoolean completed = new AtomicBoolean();
+    for (int i = 0; i < 20; i++) {
+      completed.set(false);
+      sharded.update(new Record(records.get(i)).setName("renamed-" + i), ar -> completed.set(ar.succeeded()));
+      await().untilAtomic(completed, is(true));
+    }
+    for (int i = 0; i < 20; i++) {
+      assertThat(lookup(sharded, new JsonObject().put("name", "service-" + i))).isEmpty();
+      assertThat(lookup(sharded, new JsonObject().put("name", "renamed-" + i))).hasSize(1);
+    }
+    assertThat(lookup(sharded, new JsonObject())).hasSize(20);
+
+    completed.set(false);
+    sharded.remove(records.get(3).getRegistration(), ar -> completed.set(ar.succeeded()));
+    await().untilAtomic(completed, is(true));
+    assertThat(lookup(sharded, new JsonObject().put("name", "renamed-3"))).isEmpty();
+    assertThat(lookup(sharded, new JsonObject())).hasSize(19);
+  }
+
+  @Test
+  public void testNearCache() {
+    JsonObject config = new JsonObject().put("nearCache", new JsonObject().put("checkInterval", 100));
+    DefaultServiceDiscoveryBackend writer = new DefaultServiceDiscoveryBackend();
+    writer.init(vertx, config);
+    DefaultServiceDiscoveryBackend reader = new DefaultServiceDiscoveryBackend();
+    reader.init(vertx, config);
+
+    Record record = store(writer, new Record().setName("near").setStatus(Status.UP)
+      .setMetadata(new JsonObject().put("version", 1)));
+    // Loads the copy of the registry.
+    await().until(() -> count(reader, new JsonObject().put("name", "near")) == 1);
+
+    // The writer reads its own writes.
+    AtomicBoolean completed = new AtomicBoolean();
+    writer.update(new Record(record).setMetadata(new JsonObject().put("version", 2)), ar -> completed.set(ar.succeeded()));
+    await().untilAtomic(completed, is(true));
+    assertThat(lookup(writer, new JsonObject().put("name", "near")).get(0).getMetadata().getInteger("version"))
+      .isEqualTo(2);
+    await().until(() -> count(reader, new JsonObject().put("version", 2)) == 1);
+
+    // The records returned from the near cache are shared immutable snapshots.
+    Record near = lookup(reader, new JsonObject().put("name", "near")).get(0);
+    assertThat(near.isSnapshot()).isTrue();
+    assertThat(lookup(reader, new JsonObject().put("name", "near")).get(0)).isSameAs(near);
+    assertThatThrownBy(() -> near.getMetadata().put("version", 42)).isInstanceOf(UnsupportedOperationException.class);
+    assertThat(lookup(reader, new JsonObject().put("version", 2))).hasSize(1);
+
+    // A change made without invalidation is found by the periodic check.
+    DefaultServiceDiscoveryBackend silent = new DefaultServiceDiscoveryBackend();
+    silent.init(vertx, new JsonObject());
+    completed.set(false);
+    silent.remove(record.getRegistration(), ar -> completed.set(ar.succeeded()));
+    await().untilAtomic(completed, is(true));
+    await().until(() -> count(reader, new JsonObject().put("name", "near")) == 0);
+
+    writer.close();
+    reader.close();
+  }
+
+  @Test
+  public void testCachedRecords() {
+    Record record = store(backend, new Record().setName("cached").setStatus(Status.UP)
+      .setMetadata(new JsonObject().put("version", 1)));
+
+    // The records returned from the cache are shared immutable snapshots.
+    List<Record> found = lookup(backend, new JsonObject().put("name", "cached"));
+    assertThat(found).hasSize(1);
+    assertThatThrownBy(() -> found.get(0).getMetadata().put("version", 42))
+      .isInstanceOf(UnsupportedOperationException.class);
+    AtomicReference<Record> reference = new AtomicReference<>();
+    backend.getRecord(record.getRegistration(), ar -> reference.set(ar.result()));
+    await().untilAtomic(reference, not(nullValue()));
+    assertThat(reference.get()).isSameAs(found.get(0));
+    assertThatThrownBy(() -> reference.get().setName("modified")).isInstanceOf(IllegalStateException.class);
+    assertThat(lookup(backend, new JsonObject().put("name", "cached"))).hasSize(1);
+
+    // An update made by another instance sharing the registry is seen.
+    DefaultServiceDiscoveryBackend other = new DefaultServiceDiscoveryBackend();
+    other.init(vertx, new JsonObject().put("cacheSize", 0));
+    AtomicBoolean completed = new AtomicBoolean();
+    other.update(new Record(record).setMetadata(new JsonObject().put("version", 2)), ar -> completed.set(ar.succeeded()));
+    await().untilAtomic(completed, is(true));
+    List<Record> updated = lookup(backend, new JsonObject().put("name", "cached"));
+    assertThat(updated).hasSize(1);
+    assertThat(updated.get(0).getMetadata().getInteger("version")).isEqualTo(2);
+  }
+
+  @Test
+  public void testRecordsSince() {
+    // Disabled by default.
+    assertThat(store(backend, new Record().setName("untracked").setStatus(Status.UP)).getRevision()).isEqualTo(0);
+    assertThat(since(backend, 0).isResyncRequired()).isTrue();
+
+    backend = new DefaultServiceDiscoveryBackend();
+    backend.init(vertx, new JsonObject().put("changeLogSize", 1000));
+    Record a = store(backend, new Record().setName("a").setStatus(Status.UP));
+    Record b = store(backend, new Record().setName("b").setStatus(Status.UP));
+    long base = a.getRevision();
+    assertThat(base).isGreaterThan(0);
+    assertThat(b.getRevision()).isEqualTo(base + 1);
+
+    AtomicBoolean completed = new AtomicBoolean();
+    backend.update(a.setStatus(Status.OUT_OF_SERVICE), ar -> completed.set(ar.succeeded()));
+    await().untilAtomic(completed, is(true));
+    assertThat(a.getRevision()).isEqualTo(base + 2);
+    AtomicReference<Record> removed = new AtomicReference<>();
+    backend.remove(b.getRegistration(), ar -> removed.set(ar.result()));
+    await().untilAtomic(removed, not(nullValue()));
+    assertThat(removed.get().getRevision()).isEqualTo(base + 3);
+
+    RecordChanges changes = since(backend, base - 1);
+    assertThat(changes.isResyncRequired()).isFalse();
+    assertThat(changes.getRevision()).isEqualTo(base + 3);
+    assertThat(changes.getChanges()).extracting(RecordChange::getType).containsExactly(RecordChangeType.ADDED,
+      RecordChangeType.ADDED, RecordChangeType.MODIFIED, RecordChangeType.REMOVED);
+    assertThat(changes.getChanges().get(2).getRecord().getStatus()).isEqualTo(Status.OUT_OF_SERVICE);
+    assertThat(changes.getChanges().get(3).getRecord().getRegistration()).isEqualTo(b.getRegistration());
+
+    changes = since(backend, base + 2);
+    assertThat(changes.getChanges()).hasSize(1);
+    assertThat(changes.getRevision()).isEqualTo(base + 3);
+    assertThat(since(backend, base + 3).getChanges()).isEmpty();
+
+    // Older changes are compacted, or the registry has been reset.
+    DefaultServiceDiscoveryBackend compacted = new DefaultServiceDiscoveryBackend();
+    compacted.init(vertx, new JsonObject().put("changeLogSize", 2));
+    assertThat(since(compacted, base - 1).isResyncRequired()).isTrue();
+    assertThat(since(compacted, base + 1).isResyncRequired()).isFalse();
+    assertThat(since(backend, base + 4).isResyncRequired()).isTrue();
+    assertThat(since(backend, base + 4).getRevision()).isEqualTo(base + 3);
+  }
+
+  @Test
+  public void testRenewal() {
+    AtomicReference<Record> stored = new AtomicReference<>();
+    backend.store(new Record().setName("leased").setStatus(Status.UP), 60_000, ar -> stored.set(ar.result()));
+    await().untilAtomic(stored, not(nullValue()));
+    Record record = stored.get();
+
+    // The renewal keeps the updated record.
+    AtomicBoolean completed = new AtomicBoolean();
+    backend.update(new Record(record).setStatus(Status.OUT_OF_SERVICE), ar -> completed.set(ar.succeeded()));
+    await().untilAtomic(completed, is(true));
+    completed.set(false);
+    backend.renew(record.getRegistration(), 500, ar -> completed.set(ar.succeeded()));
+    await().untilAtomic(completed, is(true));
+    AtomicReference<Record> current = new AtomicReference<>();
+    backend.getRecord(record.getRegistration(), ar -> current.set(ar.result()));
+    await().untilAtomic(current, not(nullValue()));
+    assertThat(current.get().getStatus()).isEqualTo(Status.OUT_OF_SERVICE);
+
+    // The new time-to-live applies.
+    await().atMost(5, TimeUnit.SECONDS).until(() -> {
+      CompletableFuture<Record> future = new CompletableFuture<>();
+      backend.getRecord(record.getRegistration(), ar -> future.complete(ar.result()));
+      return future.get(1, TimeUnit.SECONDS) == null;
+    });
+
+    // A removed record is not written back.
+    Record other = store(backend, new Record().setName("removed").setStatus(Status.UP));
+    completed.set(false);
+    backend.remove(other.getRegistration(), ar -> completed.set(ar.succeeded()));
+    await().untilAtomic(completed, is(true));
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+    backend.renew(other.getRegistration(), 60_000, ar -> failure.set(ar.cause()));
+    await().untilAtomic(failure, not(nullValue()));
+    AtomicBoolean absent = new AtomicBoolean();
+    backend.getRecord(other.getRegistration(), ar -> absent.set(ar.succeeded() && ar.result() == null));
+    await().untilAtomic(absent, is(true));
+  }
+
+  private RecordChanges since(DefaultServiceDiscoveryBackend backend, long revision) {
+    AtomicReference<RecordChanges> reference = new AtomicReference<>();
+    backend.getRecordsSince(revision, ar -> reference.set(ar.result()));
+    await().untilAtomic(reference, not(nullValue()));
+    return reference.get();
+  }
+
+  private Record store(DefaultServiceDiscoveryBackend backend, Record record) {
+    AtomicReference<Record> reference = new AtomicReference<>();
+    backend.store(record, ar -> reference.set(ar.result()));
+    await().untilAtomic(reference, not(nullValue()));
+    return reference.get();
+  }
+
+  private int count(DefaultServiceDiscoveryBackend backend, JsonObject filter) throws Exception {
+    CompletableFuture<List<Record>> future = new CompletableFuture<>();
+    backend.getRecords(filter, false, 0, ar -> future.complete(ar.result()));
+    return future.get(10, TimeUnit.SECONDS).size();
+  }
+
+  private List<Record> lookup(DefaultServiceDiscoveryBackend backend, JsonObject filter) {
+    AtomicReference<List<Record>> reference = new AtomicReference<>();
+    backend.getRecords(filter, filter.getString("status") != null, 0, ar -> reference.set(ar.result()));
+    await().untilAtomic(reference, not(nullValue()));
+    return reference.get();
+  }
+
 }
@@ -21,8 +21,10 @@ import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.core.json.JsonObject;
 import io.vertx.core.shareddata.AsyncMap;
+import io.vertx.core.streams.ReadStream;
 import io.vertx.servicediscovery.*;
 import io.vertx.servicediscovery.Record;
 import io.vertx.servicediscovery.service.HelloService;
@@ -39,11 +41,14 @@ import org.junit.After;
 import org.junit.Test;
 
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
 
 import static com.jayway.awaitility.Awaitility.await;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.hamcrest.core.Is.is;
 import static org.hamcrest.core.IsNull.notNullValue;
 import static org.junit.Assert.*;
@@ -189,6 +194,307 @@ public abstract class DiscoveryImplTestBase {
     assertThat(found.get()).isNull();
   }
 
+  @Test
+  public void testBatchPublication() {
+    List<JsonObject> announces = new ArrayList<>();
+    vertx.eventBus().<JsonObject>consumer(ServiceDiscoveryOptions.DEFAULT_ANNOUNCE_ADDRESS,
+      msg -> announces.add(msg.body()));
+
+    List<Record> records = Arrays.asList(
+      HttpEndpoint.createRecord("batch-1", "acme.org"),
+      HttpEndpoint.createRecord("batch-2", "acme.org"),
+      HttpEndpoint.createRecord("batch-3", "acme.org"));
+
+    AtomicReference<List<Record>> published = new AtomicReference<>();
+    discovery.publishAll(records).onComplete(ar -> published.set(ar.result()));
+    await().untilAtomic(published, notNullValue());
+    assertThat(published.get()).hasSize(3);
+    for (Record record : published.get()) {
+      assertThat(record.getRegistration()).isNotNull();
+      assertThat(record.getStatus()).isEqualTo(Status.UP);
+    }
+    await().until(() -> announces.size() == 3);
+
+    AtomicReference<List<Record>> updated = new AtomicReference<>();
+    discovery.updateAll(Arrays.asList(records.get(0).setStatus(Status.OUT_OF_SERVICE),
+      records.get(1).setStatus(Status.OUT_OF_SERVICE))).onComplete(ar -> updated.set(ar.result()));
+    await().untilAtomic(updated, notNullValue());
+    await().until(() -> announces.size() == 5);
+
+    AtomicReference<List<Record>> found = new AtomicReference<>();
+    discovery.getRecords(r -> r.getName().startsWith("batch-")).onComplete(ar -> found.set(ar.result()));
+    await().untilAtomic(found, notNullValue());
+    assertThat(found.get()).hasSize(1);
+
+    AtomicBoolean done = new AtomicBoolean();
+    discovery.unpublishAll(Arrays.asList(records.get(0).getRegistration(), records.get(1).getRegistration(),
+      records.get(2).getRegistration())).onComplete(ar -> done.set(ar.succeeded()));
+    await().untilAtomic(done, is(true));
+    await().until(() -> announces.size() == 8);
+
+    found.set(null);
+    discovery.getRecords(r -> r.getName().startsWith("batch-"), true).onComplete(ar -> found.set(ar.result()));
+    await().untilAtomic(found, notNullValue());
+    assertThat(found.get()).isEmpty();
+  }
+
+  @Test
+  public void testStreamRecords() {
+    List<Record> records = new ArrayList<>();
+    for (int i = 0; i < 300; i++) {
+      records.add(HttpEndpoint.createRecord("stream-" + (i % 2), "acme.org"));
+    }
+    AtomicReference<List<Record>> published = new AtomicReference<>();
+    discovery.publishAll(records).onComplete(ar -> published.set(ar.result()));
+    await().untilAtomic(published, notNullValue());
+
+    List<Record> received = Collections.synchronizedList(new ArrayList<>());
+    AtomicBoolean ended = new AtomicBoolean();
+    ReadStream<Record> stream = discovery.streamRecords(new JsonObject().put("name", "stream-1"));
+    stream.pause();
+    stream.endHandler(v -> ended.set(true));
+    stream.handler(received::add);
+    stream.fetch(10);
+    await().until(() -> received.size() == 10);
+    assertThat(ended.get()).isFalse();
+
+    stream.resume();
+    await().untilAtomic(ended, is(true));
+    assertThat(received).hasSize(150);
+    for (Record record : received) {
+      assertThat(record.getName()).isEqualTo("stream-1");
+    }
+  }
+
+  @Test
+  public void testLookupsReturnModifiableRecords() {
+    AtomicReference<Record> published = new AtomicReference<>();
+    discovery.publish(HttpEndpoint.createRecord("modifiable", "acme.org")).onComplete(ar -> published.set(ar.result()));
+    await().untilAtomic(published, notNullValue());
+
+    // The backend shares its cached records, the lookups return copies.
+    AtomicReference<Record> found = new AtomicReference<>();
+    discovery.getRecord(new JsonObject().put("name", "modifiable")).onComplete(ar -> found.set(ar.result()));
+    await().untilAtomic(found, notNullValue());
+    found.get().getMetadata().put("version", 2);
+    found.get().setName("modified");
+
+    AtomicReference<List<Record>> all = new AtomicReference<>();
+    discovery.getRecords(new JsonObject().put("name", "modifiable")).onComplete(ar -> all.set(ar.result()));
+    await().untilAtomic(all, notNullValue());
+    assertThat(all.get()).hasSize(1);
+    assertThat(all.get().get(0).getMetadata().containsKey("version")).isFalse();
+    all.get().get(0).getMetadata().put("version", 3);
+  }
+
+  @Test
+  public void testWatch() {
+    AtomicReference<Record> existing = new AtomicReference<>();
+    discovery.publish(HttpEndpoint.createRecord("watched", "acme.org")).onComplete(ar -> existing.set(ar.result()));
+    await().untilAtomic(existing, notNullValue());
+
+    List<RecordChange> changes = Collections.synchronizedList(new ArrayList<>());
+    AtomicBoolean ended = new AtomicBoolean();
+    ReadStream<RecordChange> stream = discovery.watch(new JsonObject().put("name", "watched"));
+    stream.endHandler(v -> ended.set(true));
+    stream.handler(changes::add);
+    await().until(() -> changes.size() == 1);
+    assertThat(changes.get(0).getType()).isEqualTo(RecordChangeType.ADDED);
+    assertThat(changes.get(0).getRecord().getRegistration()).isEqualTo(existing.get().getRegistration());
+
+    // Records not matching the filter are ignored.
+    AtomicReference<Record> other = new AtomicReference<>();
+    discovery.publish(HttpEndpoint.createRecord("other", "acme.org")).onComplete(ar -> other.set(ar.result()));
+    AtomicReference<Record> added = new AtomicReference<>();
+    discovery.publish(HttpEndpoint.createRecord("watched", "acme.org", 8080, "/api")).onComplete(ar -> added.set(ar.result()));
+    await().until(() -> changes.size() == 2);
+    assertThat(changes.get(1).getType()).isEqualTo(RecordChangeType.ADDED);
+    assertThat(changes.get(1).getRecord().getRegistration()).isEqualTo(added.get().getRegistration());
+
+    Record modified = existing.get();
+    modified.getMetadata().put("version", 2);
+    discovery.update(modified);
+    await().until(() -> changes.size() == 3);
+    assertThat(changes.get(2).getType()).isEqualTo(RecordChangeType.MODIFIED);
+    assertThat(changes.get(2).getRecord().getMetadata().getInteger("version")).isEqualTo(2);
+
+    // A record leaving the UP status does not match anymore.
+    discovery.update(new Record(modified).setStatus(Status.OUT_OF_SERVICE));
+    await().until(() -> changes.size() == 4);
+    assertThat(changes.get(3).getType()).isEqualTo(RecordChangeType.REMOVED);
+    assertThat(changes.get(3).getRecord().getRegistration()).isEqualTo(modified.getRegistration());
+
+    discovery.unpublish(added.get().getRegistration());
+    await().until(() -> changes.size() == 5);
+    assertThat(changes.get(4).getType()).isEqualTo(RecordChangeType.REMOVED);
+    assertThat(changes.get(4).getRecord().getRegistration()).isEqualTo(added.get().getRegistration());
+
+    stream.handler(null);
+    assertThat(ended.get()).isTrue();
+    assertThat(other.get()).isNotNull();
+  }
+
+  @Test
+  public void testWatchStartsWithTheHandler() {
+    DiscoveryImpl impl = (DiscoveryImpl) discovery;
+    int initial = impl.watcherCount();
+    ReadStream<RecordChange> stream = discovery.watch(new JsonObject().put("name", "lazy"));
+    // A stream without handler is not tracked, nor listening.
+    assertThat(impl.watcherCount()).isEqualTo(initial);
+    stream.handler(change -> { });
+    assertThat(impl.watcherCount()).isEqualTo(initial + 1);
+    stream.handler(null);
+    assertThat(impl.watcherCount()).isEqualTo(initial);
+  }
+
+  @Test
+  public void testWatchFailsWhenFallingBehind() {
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+    AtomicBoolean ended = new AtomicBoolean();
+    AtomicBoolean loaded = new AtomicBoolean();
+    RecordWatcher watcher = new RecordWatcher(vertx, ServiceDiscoveryOptions.DEFAULT_ANNOUNCE_ADDRESS,
+      new JsonObject().put("name", "behind"),
+      filter -> discovery.getRecords(filter).onComplete(ar -> loaded.set(true)), w -> { }, w -> { }, 2);
+    watcher.exceptionHandler(failure::set);
+    watcher.endHandler(v -> ended.set(true));
+    watcher.handler(change -> { });
+    await().untilAtomic(loaded, is(true));
+    watcher.pause();
+
+    // The paused stream buffers 2 changes at most.
+    for (int i = 0; i < 3; i++) {
+      discovery.publish(HttpEndpoint.createRecord("behind", "host-" + i));
+    }
+    await().untilAtomic(failure, notNullValue());
+    assertThat(failure.get()).isInstanceOf(IllegalStateException.class);
+    await().untilAtomic(ended, is(true));
+  }
+
+  @Test
+  public void testBindings() {
+    Record record = HttpEndpoint.createRecord("bound", "acme.org");
+    discovery.publish(record);
+    await().until(() -> record.getRegistration() != null);
+
+    Set<ServiceReference> bindings = discovery.bindings();
+    ServiceReference first = discovery.getReference(record);
+    ServiceReference second = discovery.getReference(record);
+    assertThat(bindings).containsOnly(first, second);
+    assertThatThrownBy(() -> bindings.remove(first)).isInstanceOf(UnsupportedOperationException.class);
+
+    assertThat(discovery.release(first)).isTrue();
+    assertThat(discovery.release(first)).isFalse();
+    assertThat(bindings).containsOnly(second);
+    second.release();
+    assertThat(bindings).isEmpty();
+  }
+
+  @Test
+  public void testSelect() {
+    List<Record> records = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      Record record = HttpEndpoint.createRecord("balanced", "host-" + i,
+        8080, "/", new JsonObject().put(SelectionStrategy.WEIGHT, i == 2 ? 0 : 1));
+      records.add(record);
+      discovery.publish(record);
+    }
+    await().until(() -> records.stream().allMatch(record -> record.getRegistration() != null));
+    JsonObject filter = new JsonObject().put("name", "balanced");
+
+    // The first selection, made while the selector loads, and the next ones return immutable records.
+    for (int i = 0; i < 2; i++) {
+      AtomicReference<Record> selected = new AtomicReference<>();
+      discovery.select(filter, SelectionStrategy.roundRobin()).onComplete(ar -> selected.set(ar.result()));
+      await().until(() -> selected.get() != null);
+      assertThatThrownBy(() -> selected.get().setName("renamed")).isInstanceOf(IllegalStateException.class);
+    }
+
+    Map<String, Integer> roundRobin = select(filter, SelectionStrategy.roundRobin(), 30);
+    assertThat(roundRobin).hasSize(3);
+    Map<String, Integer> weighted = select(filter, SelectionStrategy.weighted(), 30);
+    assertThat(weighted).doesNotContainKey(records.get(2).getRegistration());
+    assertThat(select(filter, SelectionStrategy.powerOfTwoChoices(), 10)).isNotEmpty();
+
+    // The selection follows the withdrawals.
+    AtomicBoolean done = new AtomicBoolean();
+    discovery.unpublish(records.get(0).getRegistration()).onComplete(ar -> done.set(ar.succeeded()));
+    await().untilAtomic(done, is(true));
+    await().until(() -> !select(filter, SelectionStrategy.roundRobin(), 4)
+      .containsKey(records.get(0).getRegistration()));
+
+    AtomicBoolean none = new AtomicBoolean();
+    discovery.select(new JsonObject().put("name", "missing"), SelectionStrategy.random())
+      .onComplete(ar -> none.set(ar.succeeded() && ar.result() == null));
+    await().untilAtomic(none, is(true));
+  }
+
+  @Test
+  public void testSelectorsAreBounded() {
+    AtomicBoolean published = new AtomicBoolean();
+    discovery.publish(HttpEndpoint.createRecord("bounded", "acme.org")).onComplete(ar -> published.set(ar.succeeded()));
+    await().untilAtomic(published, is(true));
+    JsonObject filter = new JsonObject().put("name", "bounded");
+    assertThat(select(filter, SelectionStrategy.roundRobin(), 1)).hasSize(1);
+
+    // Each distinct filter gets a selector, the least recently used are evicted.
+    for (int i = 0; i < DiscoveryImpl.MAX_SELECTORS + 10; i++) {
+      AtomicBoolean none = new AtomicBoolean();
+      discovery.select(new JsonObject().put("name", "missing-" + i), SelectionStrategy.random())
+        .onComplete(ar -> none.set(ar.succeeded() && ar.result() == null));
+      await().untilAtomic(none, is(true));
+    }
+    assertThat(((DiscoveryImpl) discovery).selectorCount()).isLessThanOrEqualTo(DiscoveryImpl.MAX_SELECTORS);
+
+    // The evicted filter is selected again.
+    assertThat(select(filter, SelectionStrategy.roundRobin(), 1)).hasSize(1);
+  }
+
+  private Map<String, Integer> select(JsonObject filter, SelectionStrategy strategy, int count) {
+    Map<String, Integer> selections = new HashMap<>();
+    for (int i = 0; i < count; i++) {
+      AtomicReference<Record> selected = new AtomicReference<>();
+      discovery.select(filter, strategy).onComplete(ar -> selected.set(ar.result()));
+      await().untilAtomic(selected, notNullValue());
+      selections.merge(selected.get().getRegistration(), 1, Integer::sum);
+    }
+    return selections;
+  }
+
+  @Test
+  public void testLease() {
+    AtomicReference<Record> renewed = new AtomicReference<>();
+    discovery.publish(HttpEndpoint.createRecord("renewed", "acme.org"), 500).onComplete(ar -> renewed.set(ar.result()));
+    AtomicReference<Record> expired = new AtomicReference<>();
+    discovery.publish(HttpEndpoint.createRecord("expired", "acme.org"), 500).onComplete(ar -> expired.set(ar.result()));
+    await().untilAtomic(renewed, notNullValue());
+    await().untilAtomic(expired, notNullValue());
+
+    List<String> unpublished = Collections.synchronizedList(new ArrayList<>());
+    vertx.eventBus().<Object>consumer(ServiceDiscoveryOptions.DEFAULT_ANNOUNCE_ADDRESS, msg -> {
+      if (DiscoveryImpl.EVENT_UNPUBLISH.equals(msg.headers().get(DiscoveryImpl.HEADER_EVENT))) {
+        unpublished.add(msg.headers().get(DiscoveryImpl.HEADER_REGISTRATION));
+      }
+    });
+
+    // Heartbeats keep the first record, the second one expires.
+    long timer = vertx.setPeriodic(100, l -> discovery.renew(renewed.get().getRegistration()));
+    await().until(() -> unpublished.contains(expired.get().getRegistration()));
+    AtomicBoolean absent = new AtomicBoolean();
+    discovery.getRecord(new JsonObject().put("name", "expired")).onComplete(ar -> absent.set(ar.result() == null));
+    await().untilAtomic(absent, is(true));
+    AtomicReference<Record> found = new AtomicReference<>();
+    discovery.getRecord(new JsonObject().put("name", "renewed")).onComplete(ar -> found.set(ar.result()));
+    await().untilAtomic(found, notNullValue());
+
+    // Renewing an expired lease fails.
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+    discovery.renew(expired.get().getRegistration()).onComplete(ar -> failure.set(ar.cause()));
+    await().untilAtomic(failure, notNullValue());
+
+    vertx.cancelTimer(timer);
+    await().until(() -> unpublished.contains(renewed.get().getRegistration()));
+  }
+
   @Test
   public void testAnnounce() {
     List<Record> announces = new ArrayList<>();
@@ -494,6 +800,44 @@ public abstract class DiscoveryImplTestBase {
     assertTrue(exporter.closed);
   }
 
+  private static class RecordingServiceExporter extends TestServiceExporter {
+
+    private final List<Record> published = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void onPublish(Record record) {
+      published.add(record);
+      super.onPublish(record);
+    }
+  }
+
+  @Test
+  public void testExportedRecords() {
+    RecordingServiceExporter first = new RecordingServiceExporter();
+    AtomicBoolean registered = new AtomicBoolean();
+    discovery.registerServiceExporter(first, new JsonObject()).onComplete(ar -> registered.set(ar.succeeded()));
+    await().untilAtomic(registered, is(true));
+
+    // A single exporter gets its own modifiable copy.
+    AtomicReference<Record> stored = new AtomicReference<>();
+    discovery.publish(HttpEndpoint.createRecord("first", "localhost")).onComplete(ar -> stored.set(ar.result()));
+    await().until(() -> stored.get() != null && first.published.size() == 1);
+    Record exported = first.published.get(0);
+    assertNotSame(stored.get(), exported);
+    exported.setName("modified");
+    assertEquals("first", stored.get().getName());
+
+    // Several exporters share one immutable snapshot.
+    RecordingServiceExporter second = new RecordingServiceExporter();
+    registered.set(false);
+    discovery.registerServiceExporter(second, new JsonObject()).onComplete(ar -> registered.set(ar.succeeded()));
+    await().untilAtomic(registered, is(true));
+    discovery.publish(HttpEndpoint.createRecord("second", "localhost"));
+    await().until(() -> first.published.size() == 2 && second.published.size() == 1);
+    assertSame(first.published.get(1), second.published.get(0));
+    assertThatThrownBy(() -> first.published.get(1).setName("modified")).isInstanceOf(IllegalStateException.class);
+  }
+
   @Test
   public void testPublicationWithoutStatus() {
     AtomicReference<Record> ref = new AtomicReference<>();
@@ -565,4 +909,127 @@ public abstract class DiscoveryImplTestBase {
   }
 
 
+  @Test
+  public void testSnapshotAndRestore() {
+    List<Record> records = new ArrayList<>();
+    records.add(imported("unchanged", "localhost", "node-a"));
+    records.add(imported("moved", "localhost", "node-a"));
+    records.add(imported("gone", "localhost", "node-a"));
+    records.add(HttpEndpoint.createRecord("down", "localhost").setStatus(Status.OUT_OF_SERVICE));
+    AtomicReference<Buffer> snapshot = new AtomicReference<>();
+    AtomicBoolean withdrawn = new AtomicBoolean();
+    discovery.publishAll(records)
+      .compose(published -> discovery.snapshot())
+      .compose(buffer -> {
+        snapshot.set(buffer);
+        return discovery.unpublishAll(records.stream().map(Record::getRegistration).collect(Collectors.toList()));
+      })
+      .onComplete(ar -> withdrawn.set(ar.succeeded()));
+    await().untilAtomic(withdrawn, is(true));
+    assertThat(all()).isEmpty();
+
+    AtomicReference<List<Record>> restored = new AtomicReference<>();
+    discovery.restore(snapshot.get()).onComplete(ar -> restored.set(ar.result()));
+    await().until(() -> restored.get() != null);
+    assertThat(restored.get()).hasSize(4);
+    assertThat(restored.get()).extracting("registration").doesNotContainNull();
+    assertThat(all()).hasSize(4);
+    assertThat(all().stream().filter(record -> record.getName().equals("down")).findFirst().get().getStatus())
+      .isEqualTo(Status.OUT_OF_SERVICE);
+    String unchanged = restored.get().stream().filter(record -> record.getName().equals("unchanged")).findFirst()
+      .get().getRegistration();
+
+    // The importer only publishes the services missing from the restored records
+    ReconcilingImporter importer = new ReconcilingImporter("node-a",
+      imported("unchanged", "localhost", null),
+      imported("moved", "acme.org", null),
+      imported("new", "localhost", null));
+    discovery.registerServiceImporter(importer, null);
+    await().until(() -> importer.reconciled != null);
+    assertThat(importer.reconciled.get(0).getRegistration()).isEqualTo(unchanged);
+
+    Map<String, Record> byName = new HashMap<>();
+    all().forEach(record -> byName.put(record.getName(), record));
+    assertThat(byName.keySet()).containsOnly("unchanged", "moved", "new", "down");
+    assertThat(byName.get("unchanged").getRegistration()).isEqualTo(unchanged);
+    assertThat(byName.get("moved").getLocation().getString("host")).isEqualTo("acme.org");
+  }
+
+  @Test
+  public void testReconcileWithTwoImporters() {
+    // Two nodes import the same source in the same registry
+    ReconcilingImporter first = new ReconcilingImporter("node-a",
+      imported("a-1", "node-a", null), imported("a-2", "node-a", null));
+    discovery.registerServiceImporter(first, null);
+    await().until(() -> first.reconciled != null);
+    ReconcilingImporter second = new ReconcilingImporter("node-b", imported("b-1", "node-b", null));
+    discovery.registerServiceImporter(second, null);
+    await().until(() -> second.reconciled != null);
+
+    // The records of the first importer are neither withdrawn nor taken over by the second one
+    Map<String, Record> byName = new HashMap<>();
+    all().forEach(record -> byName.put(record.getName(), record));
+    assertThat(byName.keySet()).containsOnly("a-1", "a-2", "b-1");
+    assertThat(byName.get("a-1").getRegistration()).isEqualTo(first.reconciled.get(0).getRegistration());
+    assertThat(byName.get("a-1").getMetadata().getString(ServicePublisher.OWNER)).isEqualTo("node-a");
+    assertThat(byName.get("b-1").getMetadata().getString(ServicePublisher.OWNER)).isEqualTo("node-b");
+
+    // The first node restarts, one of its services is gone: only its own record is withdrawn
+    ReconcilingImporter restarted = new ReconcilingImporter("node-a", imported("a-1", "node-a", null));
+    discovery.registerServiceImporter(restarted, null);
+    await().until(() -> restarted.reconciled != null);
+    byName.clear();
+    all().forEach(record -> byName.put(record.getName(), record));
+    assertThat(byName.keySet()).containsOnly("a-1", "b-1");
+    assertThat(byName.get("a-1").getRegistration()).isEqualTo(first.reconciled.get(0).getRegistration());
+    assertThat(byName.get("b-1").getRegistration()).isEqualTo(second.reconciled.get(0).getRegistration());
+  }
+
+  @Test
+  public void testRestoreInvalidSnapshot() {
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+    discovery.restore(Buffer.buffer("not a snapshot")).onComplete(ar -> failure.set(ar.cause()));
+    await().until(() -> failure.get() != null);
+    assertThat(failure.get()).isInstanceOf(IllegalArgumentException.class);
+  }
+
+  private static Record imported(String name, String host, String owner) {
+    Record record = HttpEndpoint.createRecord(name, host).setMetadata(new JsonObject().put("source", "test"));
+    if (owner != null) {
+      record.getMetadata().put(ServicePublisher.OWNER, owner);
+    }
+    return record;
+  }
+
+  /**
+   * Reconciles a fixed set of records when started, as an importer would after a restart.
+   */
+  private static class ReconcilingImporter implements ServiceImporter {
+
+    private final String owner;
+    private final List<Record> records;
+    private volatile List<Record> reconciled;
+
+    private ReconcilingImporter(String owner, Record... records) {
+      this.owner = owner;
+      this.records = Arrays.asList(records);
+    }
+
+    @Override
+    public void start(Vertx vertx, ServicePublisher publisher, JsonObject configuration, Promise<Void> future) {
+      publisher.reconcile(owner, new JsonObject().put("source", "test"), records, Record::getName)
+        .onComplete(ar -> {
+          reconciled = ar.result();
+          future.complete();
+        });
+    }
+  }
+
+  private List<Record> all() {
+    AtomicReference<List<Record>> records = new AtomicReference<>();
+    discovery.getRecords(new JsonObject().put("status", "*")).onComplete(ar -> records.set(ar.result()));
+    await().until(() -> records.get() != null);
+    return records.get();
+  }
+
 }
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2011-2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.servicediscovery.impl;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.servicediscovery.Record;
+import io.vertx.servicediscovery.ServiceDiscoveryOptions;
+import io.vertx.servicediscovery.Status;
+import io.vertx.servicediscovery.types.HttpEndpoint;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.jayway.awaitility.Awaitility.await;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the discovery tests with the local registry view enabled.
+ *
+ * @author <a href="http://escoffier.me">Clement Escoffier</a>
+ */
+public class LocalViewDiscoveryImplTest extends DiscoveryImplTestBase {
+
+  @Before
+  public void setUp() {
+    vertx = Vertx.vertx();
+    discovery = new DiscoveryImpl(vertx, new ServiceDiscoveryOptions().setUseLocalView(true));
+  }
+
+  @Test
+  public void testViewIsUpdatedFromAnnounces() {
+    DiscoveryImpl other = new DiscoveryImpl(vertx, new ServiceDiscoveryOptions());
+    try {
+      await().until(() -> ((DiscoveryImpl) discovery).isLocalViewReady());
+
+      AtomicReference<Record> published = new AtomicReference<>();
+      other.publish(HttpEndpoint.createRecord("remote", "acme.org")).onComplete(ar -> published.set(ar.result()));
+      await().until(() -> published.get() != null);
+
+      AtomicReference<List<Record>> found = new AtomicReference<>();
+      await().until(() -> {
+        discovery.getRecords(new JsonObject().put("name", "remote")).onComplete(ar -> found.set(ar.result()));
+        return found.get() != null && found.get().size() == 1;
+      });
+      assertThat(found.get().get(0).getRegistration()).isEqualTo(published.get().getRegistration());
+
+      // Records returned from the view are copies.
+      found.get().get(0).getMetadata().put("foo", "bar");
+
+      Record updated = new Record(published.get()).setStatus(Status.OUT_OF_SERVICE);
+      other.update(updated);
+      AtomicReference<Record> one = new AtomicReference<>();
+      await().until(() -> {
+        discovery.getRecord(published.get().getRegistration()).onComplete(ar -> one.set(ar.result()));
+        return one.get() != null && one.get().getStatus() == Status.OUT_OF_SERVICE;
+      });
+      assertThat(one.get().getMetadata().containsKey("foo")).isFalse();
+
+      other.unpublish(published.get().getRegistration());
+      await().until(() -> {
+        found.set(null);
+        discovery.getRecords(r -> true, true).onComplete(ar -> found.set(ar.result()));
+        return found.get() != null && found.get().isEmpty();
+      });
+    } finally {
+      other.close();
+    }
+  }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2011-2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.servicediscovery.impl;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.servicediscovery.Record;
+import io.vertx.servicediscovery.RecordChangeType;
+import io.vertx.servicediscovery.Status;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static com.jayway.awaitility.Awaitility.await;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author <a href="http://escoffier.me">Clement Escoffier</a>
+ */
+public class NearCacheTest {
+
+  private Vertx vertx;
+  private RecordChangeLog changes;
+  private NearCache cache;
+  private final Map<String, String> registry = new ConcurrentHashMap<>();
+
+  @Before
+  public void setUp() {
+    vertx = Vertx.vertx();
+    changes = new RecordChangeLog(vertx, true, 100);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    if (cache != null) {
+      cache.close();
+    }
+    vertx.close().toCompletionStage().toCompletableFuture().get(20, TimeUnit.SECONDS);
+  }
+
+  @Test
+  public void testStoreDuringResync() throws Exception {
+    List<Promise<Map<String, String>>> loads = new CopyOnWriteArrayList<>();
+    cache = new NearCache(vertx, changes, new JsonObject(), () -> {
+      Promise<Map<String, String>> promise = Promise.promise();
+      loads.add(promise);
+      return promise.future();
+    }, this::read);
+
+    // A store gets its revision, then the cache starts loading the registry before the record is written.
+    long revision = get(changes.next());
+    assertThat(cache.records(null)).isNull();
+    await().until(() -> loads.size() == 1);
+    Map<String, String> snapshot = new HashMap<>(registry);
+
+    // The store completes while the registry is loading.
+    Record record = record("late", revision);
+    registry.put("late", record.toJson().encode());
+    get(changes.append(revision, RecordChangeType.ADDED, record, 0));
+    cache.changed("late", revision);
+
+    loads.get(0).complete(snapshot);
+    await().atMost(5, TimeUnit.SECONDS).until(() -> {
+      Map<String, Record> records = cache.records(null);
+      return records != null && records.containsKey("late");
+    });
+    assertThat(cache.records("late").get("late").getRevision()).isEqualTo(revision);
+  }
+
+  @Test
+  public void testReplayDoesNotOverwriteLoadedRecords() throws Exception {
+    List<Promise<Map<String, String>>> loads = new CopyOnWriteArrayList<>();
+    cache = new NearCache(vertx, changes, new JsonObject(), () -> {
+      Promise<Map<String, String>> promise = Promise.promise();
+      loads.add(promise);
+      return promise.future();
+    }, this::read);
+
+    Record added = record("updated", get(changes.next()));
+    registry.put("updated", added.toJson().encode());
+    get(changes.append(added.getRevision(), RecordChangeType.ADDED, added, 0));
+    Record modified = record("updated", get(changes.next())).setStatus(Status.OUT_OF_SERVICE);
+    registry.put("updated", modified.toJson().encode());
+
+    // The update is loaded, but not logged yet when the changes are replayed.
+    assertThat(cache.records(null)).isNull();
+    await().until(() -> loads.size() == 1);
+    loads.get(0).complete(new HashMap<>(registry));
+    await().atMost(5, TimeUnit.SECONDS).until(() -> cache.records("updated") != null);
+    assertThat(cache.records("updated").get("updated").getStatus()).isEqualTo(Status.OUT_OF_SERVICE);
+
+    get(changes.append(modified.getRevision(), RecordChangeType.MODIFIED, modified, 0));
+    cache.changed("updated", modified.getRevision());
+    await().atMost(5, TimeUnit.SECONDS).until(() -> cache.records(null) != null);
+    assertThat(cache.records(null).get("updated").getStatus()).isEqualTo(Status.OUT_OF_SERVICE);
+  }
+
+  @Test
+  public void testExpiredLease() throws Exception {
+    cache = new NearCache(vertx, changes, new JsonObject(), () -> Future.succeededFuture(new HashMap<>(registry)),
+      this::read);
+    for (String id : new String[]{"expired", "renewed"}) {
+      Record record = record(id, get(changes.next()));
+      registry.put(id, record.toJson().put(RecordChangeLog.LEASE, 200L).encode());
+      get(changes.append(record.getRevision(), RecordChangeType.ADDED, record, 200));
+      cache.changed(id, record.getRevision());
+    }
+    await().atMost(5, TimeUnit.SECONDS).until(() -> {
+      Map<String, Record> records = cache.records(null);
+      return records != null && records.size() == 2;
+    });
+
+    // The record expires in the registry without any change.
+    registry.remove("expired");
+    await().atMost(5, TimeUnit.SECONDS).until(() -> {
+      Map<String, Record> records = cache.records(null);
+      return records != null && !records.containsKey("expired");
+    });
+    assertThat(cache.records(null)).containsKey("renewed");
+  }
+
+  private Future<String> read(String registration) {
+    return Future.succeededFuture(registry.get(registration));
+  }
+
+  private static Record record(String registration, long revision) {
+    return new Record().setName(registration).setStatus(Status.UP).setRegistration(registration).setRevision(revision);
+  }
+
+  private static <T> T get(Future<T> future) throws Exception {
+    return future.toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+  }
+}
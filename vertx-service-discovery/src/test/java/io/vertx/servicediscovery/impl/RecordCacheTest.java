@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2011-2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.servicediscovery.impl;
+
+import io.vertx.servicediscovery.Record;
+import io.vertx.servicediscovery.Status;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author <a href="http://escoffier.me">Clement Escoffier</a>
+ */
+public class RecordCacheTest {
+
+  private static String encode(String name) {
+    return new Record().setName(name).setStatus(Status.UP).toJson().encode();
+  }
+
+  @Test
+  public void testReuseWhileUnchanged() {
+    RecordCache cache = new RecordCache(10);
+    String encoded = encode("a");
+    Record record = cache.decode("1", encoded);
+    assertThat(record.getName()).isEqualTo("a");
+    assertThat(cache.decode("1", encoded)).isSameAs(record);
+    // An equal value read again from a remote registry.
+    assertThat(cache.decode("1", new String(encoded))).isSameAs(record);
+
+    Record changed = cache.decode("1", encode("b"));
+    assertThat(changed).isNotSameAs(record);
+    assertThat(changed.getName()).isEqualTo("b");
+
+    cache.invalidate("1");
+    assertThat(cache.size()).isEqualTo(0);
+  }
+
+  @Test
+  public void testBound() {
+    RecordCache cache = new RecordCache(100);
+    for (int i = 0; i < 1000; i++) {
+      cache.decode(Integer.toString(i), encode("service-" + i));
+    }
+    assertThat(cache.size()).isLessThanOrEqualTo(100);
+  }
+
+  @Test
+  public void testUsedEntriesSurviveEviction() {
+    RecordCache cache = new RecordCache(100);
+    String encoded = encode("hot");
+    Record hot = cache.decode("hot", encoded);
+    for (int i = 0; i < 1000; i++) {
+      cache.decode(Integer.toString(i), encode("service-" + i));
+      // The hot entry is read between the insertions.
+      assertThat(cache.decode("hot", encoded)).isSameAs(hot);
+    }
+  }
+
+  @Test
+  public void testConcurrentDecoding() throws Exception {
+    RecordCache cache = new RecordCache(500);
+    List<String> values = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      values.add(encode("service-" + i));
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < 4; t++) {
+        futures.add(executor.submit(() -> {
+          for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < values.size(); i++) {
+              assertThat(cache.decode(Integer.toString(i), values.get(i)).getName()).isEqualTo("service-" + i);
+            }
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get(30, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    // Insertions racing with the end of a sweep may leave extra entries, removed by the next insertion.
+    cache.decode("extra", encode("extra"));
+    assertThat(cache.size()).isLessThanOrEqualTo(500);
+  }
+}
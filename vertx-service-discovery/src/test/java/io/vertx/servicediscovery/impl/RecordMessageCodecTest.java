@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2011-2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.servicediscovery.impl;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.servicediscovery.Record;
+import io.vertx.servicediscovery.ServiceDiscovery;
+import io.vertx.servicediscovery.ServiceDiscoveryOptions;
+import io.vertx.servicediscovery.Status;
+import io.vertx.servicediscovery.types.HttpEndpoint;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.jayway.awaitility.Awaitility.await;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks the binary codecs of the announce and usage events.
+ *
+ * @author <a href="http://escoffier.me">Clement Escoffier</a>
+ */
+public class RecordMessageCodecTest {
+
+  private Vertx vertx;
+
+  @Before
+  public void setUp() {
+    vertx = Vertx.vertx();
+  }
+
+  @After
+  public void tearDown() {
+    vertx.close();
+  }
+
+  @Test
+  public void testRecordEncoding() {
+    Record record = HttpEndpoint.createRecord("my-service", "acme.org", 8080, "/api")
+      .setRegistration("some-registration")
+      .setRevision(42)
+      .setStatus(Status.OUT_OF_SERVICE);
+    record.getMetadata()
+      .put("int", 1)
+      .put("long", Long.MAX_VALUE)
+      .put("double", 1.5)
+      .put("bool", false)
+      .put("nothing", (Object) null)
+      .put("text", "héllo")
+      .put("nested", new JsonObject().put("list", new JsonArray().add(1).add("two").add(new JsonObject())))
+      .put("binary", Buffer.buffer("bytes"));
+
+    RecordMessageCodec codec = new RecordMessageCodec();
+    Buffer buffer = Buffer.buffer("prefix");
+    codec.encodeToWire(buffer, record);
+    Record decoded = codec.decodeFromWire("prefix".length(), buffer);
+
+    // The binary value is written as JSON, like the JSON codec would do.
+    assertThat(decoded.getMetadata().getBinary("binary")).isEqualTo("bytes".getBytes());
+    decoded.getMetadata().remove("binary");
+    record.getMetadata().remove("binary");
+    assertThat(decoded).isEqualTo(record);
+    assertThat(decoded.getMetadata().containsKey("nothing")).isTrue();
+    assertThat(decoded.getRevision()).isEqualTo(42);
+  }
+
+  @Test
+  public void testRecordDefaults() {
+    Record record = new Record().setName("bare").setMetadata(null);
+    RecordMessageCodec codec = new RecordMessageCodec();
+    Buffer buffer = Buffer.buffer();
+    codec.encodeToWire(buffer, record);
+    Record decoded = codec.decodeFromWire(0, buffer);
+    // Same defaults as when reading the JSON representation.
+    assertThat(decoded).isEqualTo(new Record(record.toJson()));
+  }
+
+  @Test
+  public void testUsageEncoding() {
+    Record record = HttpEndpoint.createRecord("my-service", "acme.org").setRegistration("some-registration");
+    JsonObject event = new JsonObject()
+      .put(ServiceDiscovery.EVENT_TYPE, ServiceDiscovery.EVENT_TYPE_BIND)
+      .put(ServiceDiscovery.EVENT_RECORD, record.toJson())
+      .put(ServiceDiscovery.EVENT_ID, "node");
+    UsageMessageCodec codec = new UsageMessageCodec();
+    Buffer buffer = Buffer.buffer();
+    codec.encodeToWire(buffer, event);
+    JsonObject decoded = codec.decodeFromWire(0, buffer);
+    assertThat(decoded.getString(ServiceDiscovery.EVENT_TYPE)).isEqualTo(ServiceDiscovery.EVENT_TYPE_BIND);
+    assertThat(decoded.getString(ServiceDiscovery.EVENT_ID)).isEqualTo("node");
+    assertThat(new Record(decoded.getJsonObject(ServiceDiscovery.EVENT_RECORD))).isEqualTo(record);
+  }
+
+  @Test
+  public void testAnnouncesWithBinaryCodec() {
+    DiscoveryImpl discovery = new DiscoveryImpl(vertx, new ServiceDiscoveryOptions().setUseBinaryCodec(true));
+    // A second instance registering the codecs again must not fail.
+    DiscoveryImpl other = new DiscoveryImpl(vertx, new ServiceDiscoveryOptions().setUseLocalView(true));
+    List<Object> announces = new CopyOnWriteArrayList<>();
+    vertx.eventBus().consumer(ServiceDiscoveryOptions.DEFAULT_ANNOUNCE_ADDRESS, msg -> announces.add(msg.body()));
+    try {
+      Record record = HttpEndpoint.createRecord("binary", "acme.org");
+      discovery.publish(record);
+      await().until(() -> announces.size() == 1);
+      assertThat(announces.get(0)).isInstanceOf(Record.class);
+      assertThat(((Record) announces.get(0)).getName()).isEqualTo("binary");
+      assertThat(((Record) announces.get(0)).getStatus()).isEqualTo(Status.UP);
+
+      // The local view of the other instance understands the binary announces.
+      await().until(() -> other.isLocalViewReady());
+      AtomicReference<List<Record>> found = new AtomicReference<>();
+      await().until(() -> {
+        other.getRecords(new JsonObject().put("name", "binary")).onSuccess(found::set);
+        return found.get() != null && found.get().size() == 1;
+      });
+    } finally {
+      discovery.close();
+      other.close();
+    }
+  }
+}
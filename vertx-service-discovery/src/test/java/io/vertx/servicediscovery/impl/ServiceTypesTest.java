@@ -16,10 +16,17 @@
 
 package io.vertx.servicediscovery.impl;
 
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
 import io.vertx.servicediscovery.Record;
+import io.vertx.servicediscovery.ServiceDiscovery;
+import io.vertx.servicediscovery.ServiceReference;
 import io.vertx.servicediscovery.spi.ServiceType;
+import io.vertx.servicediscovery.types.HttpEndpoint;
 import org.junit.Test;
 
+import static org.assertj.core.api.Assertions.assertThat;
+
 /**
  * Check the behavior of the service types.
  *
@@ -44,4 +51,28 @@ public class ServiceTypesTest {
     ServiceTypes.get(record);
   }
 
+  @Test
+  public void caseInsensitive() {
+    assertThat(ServiceTypes.get("HTTP-Endpoint")).isInstanceOf(HttpEndpoint.class);
+  }
+
+  @Test
+  public void registration() {
+    ServiceType named = new ServiceType() {
+      @Override
+      public String name() {
+        return "Custom";
+      }
+
+      @Override
+      public ServiceReference get(Vertx vertx, ServiceDiscovery discovery, Record record, JsonObject configuration) {
+        return null;
+      }
+    };
+    assertThat(ServiceType.register(named)).isNull();
+    assertThat(ServiceTypes.get(new Record().setType("custom"))).isSameAs(named);
+    assertThat(ServiceType.unregister("CUSTOM")).isSameAs(named);
+    assertThat(ServiceTypes.get("custom")).isNull();
+  }
+
 }
\ No newline at end of file
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2011-2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.servicediscovery.impl;
+
+import io.vertx.core.Vertx;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static com.jayway.awaitility.Awaitility.await;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author <a href="http://escoffier.me">Clement Escoffier</a>
+ */
+public class TimingWheelTest {
+
+  private static final long TICK = 10;
+
+  private Vertx vertx;
+  private TimingWheel<String> wheel;
+  private final Map<String, Long> expired = new ConcurrentHashMap<>();
+
+  @Before
+  public void setUp() {
+    vertx = Vertx.vertx();
+    // A rotation lasts 40 ms.
+    wheel = new TimingWheel<>(vertx, TICK, 4, key -> expired.put(key, System.nanoTime()));
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    wheel.close();
+    vertx.close().toCompletionStage().toCompletableFuture().get(20, TimeUnit.SECONDS);
+  }
+
+  @Test
+  public void testExpiry() {
+    long start = System.nanoTime();
+    wheel.schedule("a", 20);
+    wheel.schedule("b", 20);
+    await().atMost(5, TimeUnit.SECONDS).until(() -> expired.size() == 2);
+    assertThat(elapsed(start, "a")).isGreaterThanOrEqualTo(20 - 1);
+    assertThat(elapsed(start, "b")).isGreaterThanOrEqualTo(20 - 1);
+    assertThat(wheel.size()).isEqualTo(0);
+  }
+
+  @Test
+  public void testCancel() throws InterruptedException {
+    wheel.schedule("a", 20);
+    assertThat(wheel.cancel("a")).isTrue();
+    assertThat(wheel.cancel("a")).isFalse();
+    assertThat(wheel.size()).isEqualTo(0);
+    Thread.sleep(100);
+    assertThat(expired).isEmpty();
+  }
+
+  @Test
+  public void testRenewalPostponesExpiry() throws InterruptedException {
+    long start = System.nanoTime();
+    wheel.schedule("a", 50);
+    // Renewed well past the initial deadline and across several rotations.
+    for (int i = 0; i < 10; i++) {
+      Thread.sleep(20);
+      wheel.schedule("a", 50);
+      assertThat(expired).isEmpty();
+    }
+    long renewed = System.nanoTime();
+    await().atMost(5, TimeUnit.SECONDS).until(() -> expired.containsKey("a"));
+    assertThat(elapsed(start, "a")).isGreaterThanOrEqualTo(200 - 1);
+    assertThat(elapsed(renewed, "a")).isGreaterThanOrEqualTo(50 - TICK - 1);
+  }
+
+  @Test
+  public void testShorterDelayDoesNotBringExpiryForward() throws InterruptedException {
+    long start = System.nanoTime();
+    wheel.schedule("a", 150);
+    wheel.schedule("a", 10);
+    await().atMost(5, TimeUnit.SECONDS).until(() -> expired.containsKey("a"));
+    assertThat(elapsed(start, "a")).isGreaterThanOrEqualTo(150 - 1);
+  }
+
+  @Test
+  public void testExpiryAfterSeveralRotations() throws InterruptedException {
+    long start = System.nanoTime();
+    // 5 rotations of the wheel, the bucket is reached several times before the deadline.
+    wheel.schedule("a", 200);
+    Thread.sleep(100);
+    assertThat(expired).isEmpty();
+    assertThat(wheel.size()).isEqualTo(1);
+    await().atMost(5, TimeUnit.SECONDS).until(() -> expired.containsKey("a"));
+    assertThat(elapsed(start, "a")).isGreaterThanOrEqualTo(200 - 1);
+  }
+
+  @Test
+  public void testRestartAfterIdle() throws InterruptedException {
+    wheel.schedule("a", 20);
+    await().atMost(5, TimeUnit.SECONDS).until(() -> expired.containsKey("a"));
+    assertThat(wheel.size()).isEqualTo(0);
+
+    // The timer is stopped while the wheel is empty, the next key must not be expired right away.
+    Thread.sleep(200);
+    long start = System.nanoTime();
+    wheel.schedule("b", 50);
+    await().atMost(5, TimeUnit.SECONDS).until(() -> expired.containsKey("b"));
+    assertThat(elapsed(start, "b")).isGreaterThanOrEqualTo(50 - 1);
+  }
+
+  @Test
+  public void testClose() throws InterruptedException {
+    wheel.schedule("a", 20);
+    wheel.close();
+    wheel.schedule("b", 20);
+    assertThat(wheel.size()).isEqualTo(0);
+    Thread.sleep(100);
+    assertThat(expired).isEmpty();
+  }
+
+  private long elapsed(long start, String key) {
+    return TimeUnit.NANOSECONDS.toMillis(expired.get(key) - start);
+  }
+}
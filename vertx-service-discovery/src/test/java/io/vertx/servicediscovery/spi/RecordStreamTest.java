@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2011-2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.servicediscovery.spi;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.servicediscovery.Record;
+import io.vertx.servicediscovery.Status;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author <a href="http://escoffier.me">Clement Escoffier</a>
+ */
+public class RecordStreamTest {
+
+  @Test
+  public void testNullHandlerEndsTheStream() {
+    List<Promise<List<Record>>> pages = new ArrayList<>();
+    RecordStream stream = new RecordStream(null, false, () -> {
+      Promise<List<Record>> page = Promise.promise();
+      pages.add(page);
+      return page.future();
+    });
+    List<Record> received = new ArrayList<>();
+    AtomicBoolean ended = new AtomicBoolean();
+    stream.endHandler(v -> ended.set(true));
+    stream.handler(received::add);
+    assertThat(pages).hasSize(1);
+    pages.get(0).complete(List.of(record("a"), record("b")));
+    assertThat(received).hasSize(2);
+    assertThat(pages).hasSize(2);
+
+    // The stream ends while the next page is read, the page is dropped and no other page is read.
+    stream.handler(null);
+    assertThat(ended.get()).isTrue();
+    pages.get(1).complete(List.of(record("c")));
+    stream.handler(received::add);
+    assertThat(received).hasSize(2);
+    assertThat(pages).hasSize(2);
+  }
+
+  @Test
+  public void testNullHandlerDropsTheBufferedRecords() {
+    RecordStream stream = new RecordStream(null, false,
+      () -> Future.succeededFuture(List.of(record("a"), record("b"), record("c"))));
+    List<Record> received = new ArrayList<>();
+    AtomicBoolean ended = new AtomicBoolean();
+    stream.pause();
+    stream.endHandler(v -> ended.set(true));
+    stream.handler(received::add);
+    stream.fetch(1);
+    assertThat(received).hasSize(1);
+
+    stream.handler(null);
+    assertThat(ended.get()).isTrue();
+    stream.fetch(10);
+    assertThat(received).hasSize(1);
+  }
+
+  private static Record record(String name) {
+    return new Record().setName(name).setStatus(Status.UP);
+  }
+}
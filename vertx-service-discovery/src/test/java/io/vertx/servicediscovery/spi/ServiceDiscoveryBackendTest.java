@@ -1,6 +1,7 @@
 package io.vertx.servicediscovery.spi;
 
 import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
 import io.vertx.servicediscovery.Record;
 import io.vertx.servicediscovery.Status;
 import org.junit.After;
@@ -8,7 +9,9 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -195,4 +198,103 @@ public abstract class ServiceDiscoveryBackendTest {
     assertThat(reference.get()).isNull();
   }
 
+  @Test
+  public void testFilteredLookup() {
+    Record record1 = new Record().setName("my-service-1").setStatus(Status.UP);
+    Record record2 = new Record().setName("my-service-2").setStatus(Status.UP);
+    Record record3 = new Record().setName("my-service-2").setStatus(Status.UP);
+
+    AtomicBoolean completed = new AtomicBoolean();
+    backend.store(record1, ar -> backend.store(record2, ar2 -> backend.store(record3, ar3 -> completed.set(ar3.succeeded()))));
+    await().untilAtomic(completed, is(true));
+
+    AtomicReference<List<Record>> found = new AtomicReference<>();
+    backend.getRecords(new JsonObject().put("name", "MY-SERVICE-2"), false, 0, ar -> found.set(ar.result()));
+    await().untilAtomic(found, not(nullValue()));
+    assertThat(found.get()).hasSize(2);
+    for (Record record : found.get()) {
+      assertThat(record.getName()).isEqualTo("my-service-2");
+    }
+
+    found.set(null);
+    backend.getRecords(new JsonObject().put("name", "my-service-2"), false, 1, ar -> found.set(ar.result()));
+    await().untilAtomic(found, not(nullValue()));
+    assertThat(found.get()).hasSize(1);
+
+    found.set(null);
+    backend.getRecords(new JsonObject().put("registration", record1.getRegistration()), false, 0,
+      ar -> found.set(ar.result()));
+    await().untilAtomic(found, not(nullValue()));
+    assertThat(found.get()).hasSize(1);
+    assertThat(found.get().get(0).getName()).isEqualTo("my-service-1");
+
+    found.set(null);
+    backend.getRecords(new JsonObject().put("name", "missing"), true, 0, ar -> found.set(ar.result()));
+    await().untilAtomic(found, not(nullValue()));
+    assertThat(found.get()).isEmpty();
+
+    found.set(null);
+    backend.getRecords(null, true, 0, ar -> found.set(ar.result()));
+    await().untilAtomic(found, not(nullValue()));
+    assertThat(found.get()).hasSize(3);
+  }
+
+  @Test
+  public void testBatchOperations() {
+    List<Record> records = Arrays.asList(
+      new Record().setName("batch-1").setStatus(Status.UP),
+      new Record().setName("batch-2").setStatus(Status.UP),
+      new Record().setName("batch-3").setStatus(Status.UP));
+
+    AtomicReference<List<Record>> stored = new AtomicReference<>();
+    backend.storeAll(records, ar -> stored.set(ar.result()));
+    await().untilAtomic(stored, not(nullValue()));
+    assertThat(stored.get()).hasSize(3);
+    for (Record record : stored.get()) {
+      assertThat(record.getRegistration()).isNotNull();
+    }
+
+    AtomicBoolean completed = new AtomicBoolean();
+    backend.updateAll(Arrays.asList(records.get(0).setStatus(Status.OUT_OF_SERVICE),
+      records.get(1).setStatus(Status.OUT_OF_SERVICE)), ar -> completed.set(ar.succeeded()));
+    await().untilAtomic(completed, is(true));
+
+    AtomicReference<List<Record>> found = new AtomicReference<>();
+    backend.getRecords(new JsonObject().put("status", "OUT_OF_SERVICE"), true, 0, ar -> found.set(ar.result()));
+    await().untilAtomic(found, not(nullValue()));
+    assertThat(found.get()).hasSize(2);
+
+    AtomicReference<List<Record>> removed = new AtomicReference<>();
+    backend.removeAll(Arrays.asList(records.get(2).getRegistration(), records.get(0).getRegistration()),
+      ar -> removed.set(ar.result()));
+    await().untilAtomic(removed, not(nullValue()));
+    assertThat(removed.get()).hasSize(2);
+    assertThat(removed.get().get(0).getName()).isEqualTo("batch-3");
+    assertThat(removed.get().get(1).getName()).isEqualTo("batch-1");
+
+    found.set(null);
+    backend.getRecords(null, true, 0, ar -> found.set(ar.result()));
+    await().untilAtomic(found, not(nullValue()));
+    assertThat(found.get()).hasSize(1);
+    assertThat(found.get().get(0).getName()).isEqualTo("batch-2");
+  }
+
+  @Test
+  public void testStreamRecords() {
+    List<Record> records = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      records.add(new Record().setName("stream-" + (i % 2)).setStatus(Status.UP));
+    }
+    AtomicReference<List<Record>> stored = new AtomicReference<>();
+    backend.storeAll(records, ar -> stored.set(ar.result()));
+    await().untilAtomic(stored, not(nullValue()));
+
+    List<Record> received = new CopyOnWriteArrayList<>();
+    AtomicBoolean ended = new AtomicBoolean();
+    backend.streamRecords(new JsonObject().put("name", "stream-0"), false)
+      .endHandler(v -> ended.set(true))
+      .handler(received::add);
+    await().untilAtomic(ended, is(true));
+    assertThat(received).hasSize(100);
+  }
 }
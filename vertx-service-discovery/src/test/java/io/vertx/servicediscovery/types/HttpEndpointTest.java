@@ -22,7 +22,9 @@ import io.vertx.core.http.HttpClient;
 import io.vertx.core.http.HttpClientOptions;
 import io.vertx.core.http.HttpMethod;
 import io.vertx.core.http.HttpServerOptions;
+import io.vertx.core.http.RequestOptions;
 import io.vertx.core.json.JsonObject;
+import io.vertx.core.net.endpoint.LoadBalancer;
 import io.vertx.ext.unit.Async;
 import io.vertx.ext.unit.TestContext;
 import io.vertx.ext.unit.junit.VertxUnitRunner;
@@ -41,6 +43,8 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import static com.jayway.awaitility.Awaitility.await;
@@ -191,6 +195,93 @@ public class HttpEndpointTest {
     });
   }
 
+  @Test
+  public void testSharedClient(TestContext context) {
+    Async async = context.async();
+
+    Record record = HttpEndpoint.createRecord("hello-service", "localhost", 8080, "/foo");
+    discovery.publish(record).onComplete(rec -> {
+      ServiceReference first = discovery.getReference(rec.result());
+      ServiceReference second = discovery.getReference(rec.result());
+      ServiceReference configured = discovery.getReferenceWithConfiguration(rec.result(),
+        new HttpClientOptions().setKeepAlive(false).toJson());
+      HttpClient client = first.get();
+      context.assertTrue(client == second.get());
+      context.assertFalse(client == configured.get());
+      configured.release();
+
+      // The client is still used by the second reference.
+      first.release();
+      client.request(HttpMethod.GET, "/foo")
+        .compose(request -> request.send().compose(response -> response.body()))
+        .onComplete(context.asyncAssertSuccess(body -> {
+          context.assertEquals("hello", body.toString());
+          second.release();
+          discovery.unpublish(rec.result().getRegistration()).onComplete(v -> async.complete());
+        }));
+    });
+  }
+
+  @Test
+  public void testClosingASharedClient(TestContext context) {
+    Async async = context.async();
+
+    Record record = HttpEndpoint.createRecord("hello-service", "localhost", 8080, "/foo");
+    discovery.publish(record).onComplete(rec -> {
+      ServiceReference first = discovery.getReference(rec.result());
+      ServiceReference second = discovery.getReference(rec.result());
+      ServiceReference never = discovery.getReference(rec.result());
+      HttpClient client = second.get();
+
+      // Closing the client of a reference, directly or through a web client, does not close the shared client.
+      WebClient web = first.getAs(WebClient.class);
+      web.close();
+      HttpClient closed = first.get();
+      closed.close().compose(v -> client.request(HttpMethod.GET, "/foo"))
+        .compose(request -> request.send().compose(response -> response.body()))
+        .onComplete(context.asyncAssertSuccess(body -> {
+          context.assertEquals("hello", body.toString());
+          // A reference whose client has never been retrieved releases nothing.
+          never.release();
+          first.release();
+          second.release();
+          discovery.unpublish(rec.result().getRegistration()).onComplete(v -> async.complete());
+        }));
+    });
+  }
+
+  @Test
+  public void testAddressResolver(TestContext context) {
+    Async async = context.async();
+
+    vertx.createHttpServer().requestHandler(request -> request.response().end("hello-2")).listen(8081)
+      .compose(server -> discovery.publish(HttpEndpoint.createRecord("hello-service", "localhost", 8080, "/foo")))
+      .compose(record -> discovery.publish(HttpEndpoint.createRecord("hello-service", "localhost", 8081, "/foo")))
+      .onComplete(context.asyncAssertSuccess(v -> {
+        HttpClient client = vertx.httpClientBuilder()
+          .withAddressResolver(HttpEndpoint.createAddressResolver(discovery))
+          .withLoadBalancer(LoadBalancer.ROUND_ROBIN)
+          .build();
+        Set<String> responses = ConcurrentHashMap.newKeySet();
+        RequestOptions options = new RequestOptions()
+          .setServer(DiscoveryAddress.of("hello-service"))
+          .setURI("/foo");
+        Async requests = context.async(4);
+        for (int i = 0; i < 4; i++) {
+          client.request(options)
+            .compose(request -> request.send().compose(response -> response.body()))
+            .onComplete(context.asyncAssertSuccess(body -> {
+              responses.add(body.toString());
+              requests.countDown();
+            }));
+        }
+        requests.handler(done -> {
+          context.assertEquals(Set.of("hello", "hello-2"), responses);
+          client.close().onComplete(closed -> async.complete());
+        });
+      }));
+  }
+
   @Test
   public void testPublicationAndConsumptionWithConfiguration(TestContext context) {
     Async async = context.async();
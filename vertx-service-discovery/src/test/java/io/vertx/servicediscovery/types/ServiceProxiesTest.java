@@ -147,6 +147,34 @@ public class ServiceProxiesTest {
     service.release();
   }
 
+  @Test
+  public void testSharedProxy() {
+    HelloService svc = new HelloServiceImpl("stuff");
+    new ServiceBinder(vertx).setAddress("address").register(HelloService.class, svc);
+    Record record = EventBusService.createRecord("Hello", "address", HelloService.class);
+
+    discovery.publish(record);
+    await().until(() -> record.getRegistration() != null);
+
+    ServiceReference first = discovery.getReference(record);
+    ServiceReference second = discovery.getReference(record);
+    ServiceReference configured = discovery.getReferenceWithConfiguration(record,
+      new DeliveryOptions().setSendTimeout(1000).toJson());
+    HelloService hello = first.get();
+    assertThat((HelloService) second.get()).isSameAs(hello);
+    assertThat((HelloService) configured.get()).isNotSameAs(hello);
+    configured.release();
+
+    // The proxy is still used by the second reference.
+    first.release();
+    AtomicReference<String> result = new AtomicReference<>();
+    hello.hello(name).onComplete(ar -> result.set(ar.result()));
+    await().untilAtomic(result, not(nullValue()));
+
+    second.release();
+    Assertions.assertThat(discovery.bindings()).hasSize(0);
+  }
+
 
   @Test
   public void testUsingGetMethodWithConfig() {
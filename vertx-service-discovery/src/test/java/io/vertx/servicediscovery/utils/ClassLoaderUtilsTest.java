@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2011-2016 The original author or authors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Eclipse Public License is available at
+ *      http://www.eclipse.org/legal/epl-v10.html
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.servicediscovery.utils;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author <a href="http://escoffier.me">Clement Escoffier</a>
+ */
+public class ClassLoaderUtilsTest {
+
+  public interface Service {
+    String name();
+  }
+
+  public static class ServiceImpl implements Service {
+
+    @Override
+    public String name() {
+      return "impl";
+    }
+  }
+
+  public static class OtherServiceImpl implements Service {
+
+    @Override
+    public String name() {
+      return "other";
+    }
+  }
+
+  /**
+   * A wrapper, in the style of the generated RX classes.
+   */
+  public static class Wrapper {
+
+    private final Service delegate;
+
+    public Wrapper(Service delegate) {
+      this.delegate = delegate;
+    }
+
+    public Service getDelegate() {
+      return delegate;
+    }
+  }
+
+  public static class NoDelegateConstructor {
+
+    public NoDelegateConstructor() {
+    }
+
+    public NoDelegateConstructor(String name) {
+    }
+  }
+
+  @Test
+  public void testRoundTrip() {
+    ServiceImpl service = new ServiceImpl();
+    Wrapper wrapper = ClassLoaderUtils.createWithDelegate(Wrapper.class, service);
+    assertThat(wrapper).isNotNull();
+    assertThat(wrapper.getDelegate()).isSameAs(service);
+    assertThat(ClassLoaderUtils.extractDelegate(wrapper)).isSameAs(service);
+
+    // Another delegate class resolves the constructor again.
+    OtherServiceImpl other = new OtherServiceImpl();
+    Wrapper otherWrapper = ClassLoaderUtils.createWithDelegate(Wrapper.class, other);
+    assertThat(ClassLoaderUtils.extractDelegate(otherWrapper)).isSameAs(other);
+
+    // And the first one is still resolved.
+    assertThat(ClassLoaderUtils.createWithDelegate(Wrapper.class, service).getDelegate()).isSameAs(service);
+  }
+
+  @Test
+  public void testRoundTripAcrossClassLoaders() throws Exception {
+    // The same classes, defined by other class loaders.
+    Class<?> isolatedImpl = new IsolatingClassLoader(ServiceImpl.class.getName()).loadClass(ServiceImpl.class.getName());
+    Class<?> isolatedWrapper = new IsolatingClassLoader(Wrapper.class.getName()).loadClass(Wrapper.class.getName());
+    assertThat(isolatedImpl).isNotEqualTo(ServiceImpl.class);
+    assertThat(isolatedWrapper).isNotEqualTo(Wrapper.class);
+
+    Object service = isolatedImpl.getConstructor().newInstance();
+    Wrapper wrapper = ClassLoaderUtils.createWithDelegate(Wrapper.class, service);
+    assertThat(wrapper.getDelegate()).isSameAs(service);
+    assertThat(ClassLoaderUtils.extractDelegate(wrapper)).isSameAs(service);
+
+    ServiceImpl local = new ServiceImpl();
+    Object isolated = ClassLoaderUtils.createWithDelegate(isolatedWrapper, local);
+    assertThat(isolated).isInstanceOf(isolatedWrapper);
+    assertThat(ClassLoaderUtils.extractDelegate(isolated)).isSameAs(local);
+
+    // Each wrapper class keeps its own constructors.
+    assertThat(ClassLoaderUtils.extractDelegate(ClassLoaderUtils.createWithDelegate(Wrapper.class, local)))
+      .isSameAs(local);
+    Object both = ClassLoaderUtils.createWithDelegate(isolatedWrapper, service);
+    assertThat(ClassLoaderUtils.extractDelegate(both)).isSameAs(service);
+  }
+
+  @Test
+  public void testMissingConstructor() {
+    ServiceImpl service = new ServiceImpl();
+    assertThat((Object) ClassLoaderUtils.createWithDelegate(NoDelegateConstructor.class, service)).isNull();
+    // The absence of constructor is remembered.
+    assertThat((Object) ClassLoaderUtils.createWithDelegate(NoDelegateConstructor.class, service)).isNull();
+    // The constructor parameter does not accept the delegate.
+    assertThat(ClassLoaderUtils.createWithDelegate(Wrapper.class, "not a service")).isNull();
+  }
+
+  @Test
+  public void testExtractWithoutDelegate() {
+    assertThat(ClassLoaderUtils.extractDelegate(null)).isNull();
+    assertThat(ClassLoaderUtils.extractDelegate(new ServiceImpl())).isNull();
+    assertThat(ClassLoaderUtils.extractDelegate(new NoDelegateConstructor())).isNull();
+  }
+
+  @Test
+  public void testLoad() {
+    ClassLoader loader = new IsolatingClassLoader(ServiceImpl.class.getName());
+    assertThat(ClassLoaderUtils.<ServiceImpl>load(ServiceImpl.class.getName(), loader)).isEqualTo(ServiceImpl.class);
+    assertThat(ClassLoaderUtils.<Object>load("org.acme.Missing", loader)).isNull();
+  }
+
+  /**
+   * Defines its own copy of a single class, and delegates the other classes to the class loader of the test.
+   */
+  private static class IsolatingClassLoader extends ClassLoader {
+
+    private final String isolated;
+
+    private IsolatingClassLoader(String isolated) {
+      super(ClassLoaderUtilsTest.class.getClassLoader());
+      this.isolated = isolated;
+    }
+
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+      if (!name.equals(isolated)) {
+        return super.loadClass(name, resolve);
+      }
+      synchronized (getClassLoadingLock(name)) {
+        Class<?> loaded = findLoadedClass(name);
+        if (loaded == null) {
+          try (InputStream in = getParent().getResourceAsStream(name.replace('.', '/') + ".class")) {
+            byte[] bytes = in.readAllBytes();
+            loaded = defineClass(name, bytes, 0, bytes.length);
+          } catch (IOException e) {
+            throw new ClassNotFoundException(name, e);
+          }
+        }
+        return loaded;
+      }
+    }
+  }
+}